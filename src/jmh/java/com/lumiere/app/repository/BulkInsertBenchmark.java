@@ -0,0 +1,161 @@
+package com.lumiere.app.repository;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Insert hàng loạt trên MySQL với hai cách sinh id mà Hibernate dùng:
+ * <ul>
+ *     <li>{@code identityInserts}: {@code IDENTITY}, mỗi dòng một INSERT và một round-trip để lấy id (không batch được);</li>
+ *     <li>{@code pooledBatchInserts}: bảng id (pooled-lo, cấp 50 id mỗi lần) rồi gửi INSERT theo batch 25 dòng
+ *     ({@code hibernate.jdbc.batch_size}), với {@code rewriteBatchedStatements=true}.</li>
+ * </ul>
+ * Cần MySQL đang chạy; mặc định dùng database dev, đổi bằng
+ * {@code -Djmh.args="BulkInsertBenchmark -jvmArgsAppend -Djmh.jdbc.url=... -Djmh.jdbc.username=... -Djmh.jdbc.password=..."}.
+ * Bảng tạm {@code jmh_bulk_insert}, {@code jmh_id_generator} được tạo và xóa trong benchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BulkInsertBenchmark {
+
+    private static final int ALLOCATION_SIZE = 50;
+    private static final int BATCH_SIZE = 25;
+
+    private static final String INSERT_IDENTITY = "INSERT INTO jmh_bulk_insert (order_id, quantity, unit_price) VALUES (?, ?, ?)";
+    private static final String INSERT_WITH_ID = "INSERT INTO jmh_bulk_insert (id, order_id, quantity, unit_price) VALUES (?, ?, ?, ?)";
+
+    @Param({ "100", "1000" })
+    private int rows;
+
+    private Connection connection;
+    private long nextId;
+    private long upperLimit;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+            System.getProperty(
+                "jmh.jdbc.url",
+                "jdbc:mysql://localhost:3306/lumiapp?useSSL=false&allowPublicKeyRetrieval=true&rewriteBatchedStatements=true"
+            ),
+            System.getProperty("jmh.jdbc.username", "root"),
+            System.getProperty("jmh.jdbc.password", "123456")
+        );
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(
+                "CREATE TABLE IF NOT EXISTS jmh_bulk_insert (id BIGINT AUTO_INCREMENT PRIMARY KEY, order_id BIGINT, quantity INT, unit_price DECIMAL(21,2))"
+            );
+            statement.execute("CREATE TABLE IF NOT EXISTS jmh_id_generator (sequence_name VARCHAR(255) PRIMARY KEY, next_val BIGINT NOT NULL)");
+            statement.execute("DELETE FROM jmh_id_generator");
+            statement.execute("INSERT INTO jmh_id_generator (sequence_name, next_val) VALUES ('jmh_bulk_insert', 1)");
+        }
+        connection.setAutoCommit(false);
+    }
+
+    @Setup(Level.Iteration)
+    public void truncate() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("TRUNCATE TABLE jmh_bulk_insert");
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.setAutoCommit(true);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS jmh_bulk_insert");
+            statement.execute("DROP TABLE IF EXISTS jmh_id_generator");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public long identityInserts() throws SQLException {
+        long lastId = 0;
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_IDENTITY, Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < rows; i++) {
+                bind(insert, 1, i);
+                insert.executeUpdate();
+                try (ResultSet keys = insert.getGeneratedKeys()) {
+                    keys.next();
+                    lastId = keys.getLong(1);
+                }
+            }
+        }
+        connection.commit();
+        return lastId;
+    }
+
+    @Benchmark
+    public long pooledBatchInserts() throws SQLException {
+        long lastId = 0;
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_WITH_ID)) {
+            for (int i = 0; i < rows; i++) {
+                lastId = nextId();
+                insert.setLong(1, lastId);
+                bind(insert, 2, i);
+                insert.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        return lastId;
+    }
+
+    /**
+     * Id kế tiếp theo pooled-lo: khi hết khối, đọc {@code next_val} và tăng thêm {@link #ALLOCATION_SIZE}.
+     */
+    private long nextId() throws SQLException {
+        if (nextId >= upperLimit) {
+            try (
+                PreparedStatement select = connection.prepareStatement(
+                    "SELECT next_val FROM jmh_id_generator WHERE sequence_name = 'jmh_bulk_insert' FOR UPDATE"
+                );
+                PreparedStatement update = connection.prepareStatement(
+                    "UPDATE jmh_id_generator SET next_val = next_val + ? WHERE sequence_name = 'jmh_bulk_insert'"
+                )
+            ) {
+                try (ResultSet rs = select.executeQuery()) {
+                    rs.next();
+                    nextId = rs.getLong(1);
+                }
+                update.setInt(1, ALLOCATION_SIZE);
+                update.executeUpdate();
+            }
+            upperLimit = nextId + ALLOCATION_SIZE;
+        }
+        return nextId++;
+    }
+
+    private static void bind(PreparedStatement insert, int firstIndex, int row) throws SQLException {
+        insert.setLong(firstIndex, row / 5 + 1);
+        insert.setInt(firstIndex + 1, row % 3 + 1);
+        insert.setBigDecimal(firstIndex + 2, BigDecimal.valueOf(199_000));
+    }
+}
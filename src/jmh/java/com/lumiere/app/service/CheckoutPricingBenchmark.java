@@ -0,0 +1,124 @@
+package com.lumiere.app.service;
+
+import com.lumiere.app.domain.FlashSaleProduct;
+import com.lumiere.app.domain.OrderItem;
+import com.lumiere.app.domain.Orders;
+import com.lumiere.app.domain.ProductVariant;
+import com.lumiere.app.domain.Voucher;
+import com.lumiere.app.domain.enumeration.VoucherType;
+import com.lumiere.app.repository.FlashSaleProductRepository;
+import com.lumiere.app.repository.ProductVariantRepository;
+import com.lumiere.app.service.impl.VoucherServiceImpl;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Tính giá checkout ({@link CheckoutPricingService}, phần tính giá của {@code OrdersServiceImpl.createOrderFromCart}):
+ * báo giá, voucher và tạo OrderItem cho một giỏ {@code lines} dòng, nửa số dòng có flash sale.
+ * <p>
+ * Repository được thay bằng proxy trả dữ liệu trong bộ nhớ để chỉ đo phần tính toán.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CheckoutPricingBenchmark {
+
+    @Param({ "3", "20" })
+    private int lines;
+
+    private CheckoutPricingService checkoutPricingService;
+    private List<CheckoutPricingService.LineRequest> requests;
+
+    @Setup
+    public void setUp() {
+        List<ProductVariant> variants = new ArrayList<>();
+        List<FlashSaleProduct> flashSales = new ArrayList<>();
+        requests = new ArrayList<>();
+        for (long i = 1; i <= lines; i++) {
+            ProductVariant variant = new ProductVariant().price(BigDecimal.valueOf(150_000 + i * 10_000));
+            variant.setId(i);
+            variants.add(variant);
+            if (i % 2 == 0) {
+                FlashSaleProduct flashSale = new FlashSaleProduct().salePrice(BigDecimal.valueOf(99_000)).productVariant(variant);
+                flashSale.setId(i);
+                flashSales.add(flashSale);
+            }
+            requests.add(new CheckoutPricingService.LineRequest(i, (int) (i % 3) + 1));
+        }
+
+        Voucher voucher = new Voucher().code("SALE10").type(VoucherType.PERCENTAGE).value(BigDecimal.TEN);
+        VoucherService voucherDiscounts = new VoucherServiceImpl(null, null, null, null, null);
+
+        ProductVariantRepository productVariantRepository = stub(
+            ProductVariantRepository.class,
+            Map.of("findAllByIdIn", args -> variants)
+        );
+        FlashSaleProductRepository flashSaleProductRepository = stub(
+            FlashSaleProductRepository.class,
+            Map.of("findActiveByProductVariantIdIn", args -> flashSales)
+        );
+        VoucherService voucherService = stub(
+            VoucherService.class,
+            Map.of(
+                "validateVoucher",
+                args -> voucher,
+                "calculateDiscountAmount",
+                args -> voucherDiscounts.calculateDiscountAmount((Voucher) args[0], (BigDecimal) args[1])
+            )
+        );
+        checkoutPricingService = new CheckoutPricingService(
+            productVariantRepository,
+            flashSaleProductRepository,
+            voucherService,
+            new FlashSaleReservationService(flashSaleProductRepository)
+        );
+    }
+
+    @Benchmark
+    public List<OrderItem> priceCart() {
+        CheckoutPricingService.Quote quote = checkoutPricingService.price(requests);
+        checkoutPricingService.applyVoucher(quote, "SALE10", quote.getSubtotal());
+        return checkoutPricingService.buildOrderItems(new Orders(), quote);
+    }
+
+    /**
+     * Proxy của một interface: phương thức có trong {@code answers} trả kết quả tương ứng, phương thức khác lỗi.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, Map<String, Function<Object[], Object>> answers) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+            Function<Object[], Object> answer = answers.get(method.getName());
+            if (answer != null) {
+                return answer.apply(args);
+            }
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> type.getSimpleName() + "Stub";
+                };
+            }
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+}
@@ -0,0 +1,58 @@
+package com.lumiere.app.service.impl;
+
+import com.lumiere.app.service.dto.GroupSelectReq;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sinh tổ hợp option (cartesian + key canonical) khi đồng bộ mix biến thể ({@link OptionVariantServiceImpl#mixesByKey}).
+ * {@code shape} là số option của từng group, ví dụ {@code 4x5x3} = 60 tổ hợp.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OptionVariantMixBenchmark {
+
+    @Param({ "3x3", "4x5x3", "6x8x5x3" })
+    private String shape;
+
+    private List<GroupSelectReq> groups;
+
+    @Setup
+    public void setUp() {
+        groups = new ArrayList<>();
+        long selectId = 1;
+        long groupId = 1;
+        for (String size : shape.split("x")) {
+            List<Long> selectIds = new ArrayList<>();
+            for (int i = 0; i < Integer.parseInt(size); i++) {
+                selectIds.add(selectId++);
+            }
+            GroupSelectReq group = new GroupSelectReq();
+            group.setGroupId(groupId++);
+            group.setSelectIds(selectIds);
+            groups.add(group);
+        }
+    }
+
+    @Benchmark
+    public Map<String, List<Long>> mixesByKey() {
+        return OptionVariantServiceImpl.mixesByKey(groups);
+    }
+}
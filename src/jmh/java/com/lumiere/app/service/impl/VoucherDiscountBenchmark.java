@@ -0,0 +1,51 @@
+package com.lumiere.app.service.impl;
+
+import com.lumiere.app.domain.Voucher;
+import com.lumiere.app.domain.enumeration.VoucherType;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link VoucherServiceImpl#calculateDiscountAmount} cho voucher phần trăm và voucher giảm cố định.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VoucherDiscountBenchmark {
+
+    private VoucherServiceImpl voucherService;
+    private Voucher percentage;
+    private Voucher fixedAmount;
+    private BigDecimal orderAmount;
+
+    @Setup
+    public void setUp() {
+        voucherService = new VoucherServiceImpl(null, null, null, null, null);
+        percentage = new Voucher().type(VoucherType.PERCENTAGE).value(BigDecimal.valueOf(15));
+        fixedAmount = new Voucher().type(VoucherType.FIXED_AMOUNT).value(BigDecimal.valueOf(50_000));
+        orderAmount = new BigDecimal("1259000.00");
+    }
+
+    @Benchmark
+    public BigDecimal percentageDiscount() {
+        return voucherService.calculateDiscountAmount(percentage, orderAmount);
+    }
+
+    @Benchmark
+    public BigDecimal fixedAmountDiscount() {
+        return voucherService.calculateDiscountAmount(fixedAmount, orderAmount);
+    }
+}
@@ -0,0 +1,104 @@
+package com.lumiere.app.service.mapper;
+
+import com.lumiere.app.domain.Collection;
+import com.lumiere.app.domain.Customer;
+import com.lumiere.app.domain.Orders;
+import com.lumiere.app.domain.Product;
+import com.lumiere.app.domain.Voucher;
+import com.lumiere.app.domain.enumeration.OrderStatus;
+import com.lumiere.app.domain.enumeration.PaymentStatus;
+import com.lumiere.app.domain.enumeration.ProductStatus;
+import com.lumiere.app.service.dto.OrdersDTO;
+import com.lumiere.app.service.dto.ProductDTO;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mapper MapStruct trên các trang danh sách: một trang 20 sản phẩm và 20 đơn hàng sang DTO.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    private ProductMapper productMapper;
+    private OrdersMapper ordersMapper;
+    private List<Product> products;
+    private List<Orders> orders;
+
+    @Setup
+    public void setUp() {
+        productMapper = Mappers.getMapper(ProductMapper.class);
+        ordersMapper = Mappers.getMapper(OrdersMapper.class);
+
+        products = new ArrayList<>();
+        orders = new ArrayList<>();
+        Instant now = Instant.now();
+        for (long i = 1; i <= PAGE_SIZE; i++) {
+            Product product = new Product()
+                .code("SP" + i)
+                .name("Áo sơ mi lụa " + i)
+                .slug("ao-so-mi-lua-" + i)
+                .description("Áo sơ mi lụa tơ tằm, form rộng")
+                .status(ProductStatus.ACTIVE)
+                .material("Lụa")
+                .averageRating(4.5)
+                .reviewCount(12)
+                .createdAt(now)
+                .updatedAt(now);
+            product.setId(i);
+            for (long c = 1; c <= 2; c++) {
+                Collection collection = new Collection().name("Bộ sưu tập " + c);
+                collection.setId(c);
+                product.addCollections(collection);
+            }
+            products.add(product);
+
+            Customer customer = new Customer().firstName("Khách " + i);
+            customer.setId(i);
+            Voucher voucher = new Voucher().code("SALE10");
+            voucher.setId(1L);
+            Orders order = new Orders()
+                .code("DH" + i)
+                .status(OrderStatus.PENDING)
+                .paymentStatus(PaymentStatus.UNPAID)
+                .totalAmount(BigDecimal.valueOf(1_259_000))
+                .discountAmount(BigDecimal.valueOf(125_900))
+                .shippingCost(BigDecimal.valueOf(30_000))
+                .placedAt(now)
+                .customer(customer)
+                .voucher(voucher);
+            order.setId(i);
+            orders.add(order);
+        }
+    }
+
+    @Benchmark
+    public List<ProductDTO> productPageToDto() {
+        return productMapper.toDto(products);
+    }
+
+    @Benchmark
+    public List<OrdersDTO> ordersPageToDto() {
+        return ordersMapper.toDto(orders);
+    }
+}
@@ -0,0 +1,52 @@
+package com.lumiere.app.utils;
+
+import com.lumiere.app.domain.ProductVariant;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link MergeUtils#merge} như trong partial update của ProductVariant (bỏ qua null, giữ collection).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MergeUtilsBenchmark {
+
+    private final MergeUtils.Options options = new MergeUtils.Options().overwriteNulls(false).replaceCollections(false);
+
+    private ProductVariant incoming;
+    private ProductVariant existing;
+
+    @Setup
+    public void setUp() {
+        incoming = new ProductVariant().price(BigDecimal.valueOf(199_000)).stockQuantity(25L).color("Đỏ");
+        existing = new ProductVariant()
+            .sku("SP1-DO-M")
+            .name("Áo sơ mi lụa - Đỏ - M")
+            .price(BigDecimal.valueOf(250_000))
+            .currency("VND")
+            .stockQuantity(10L)
+            .isDefault(true)
+            .color("Đỏ")
+            .size("M");
+        existing.setId(1L);
+    }
+
+    @Benchmark
+    public ProductVariant partialUpdateMerge() {
+        return MergeUtils.merge(incoming, existing, options);
+    }
+}
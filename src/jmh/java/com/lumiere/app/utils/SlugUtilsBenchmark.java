@@ -0,0 +1,33 @@
+package com.lumiere.app.utils;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link SlugUtils#toSlug} với tên sản phẩm tiếng Việt có dấu.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SlugUtilsBenchmark {
+
+    @Param({ "Áo sơ mi lụa tơ tằm", "Đầm dạ hội ren Pháp -- phiên bản giới hạn 2025 (màu đỏ rượu vang)" })
+    private String name;
+
+    @Benchmark
+    public String toSlug() {
+        return SlugUtils.toSlug(name);
+    }
+}
@@ -1,5 +1,7 @@
 package com.lumiere.app.config;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 /**
@@ -13,12 +15,36 @@ public class ApplicationProperties {
 
     private final Liquibase liquibase = new Liquibase();
 
+    private final EmailCampaign emailCampaign = new EmailCampaign();
+
+    private final Cache cache = new Cache();
+
+    private final Media media = new Media();
+
+    private final Chat chat = new Chat();
+
     // jhipster-needle-application-properties-property
 
     public Liquibase getLiquibase() {
         return liquibase;
     }
 
+    public EmailCampaign getEmailCampaign() {
+        return emailCampaign;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public Media getMedia() {
+        return media;
+    }
+
+    public Chat getChat() {
+        return chat;
+    }
+
     // jhipster-needle-application-properties-property-getter
 
     public static class Liquibase {
@@ -33,5 +59,323 @@ public class ApplicationProperties {
             this.asyncStart = asyncStart;
         }
     }
+
+    /**
+     * Gửi email hàng loạt (thông báo flash sale).
+     */
+    public static class EmailCampaign {
+
+        /** Số người nhận đọc mỗi trang; tiến độ được lưu sau mỗi trang. */
+        private int pageSize = 500;
+
+        /** Số thread gửi email. */
+        private int sendThreads = 4;
+
+        /** Số email tối đa mỗi giây (giới hạn của SMTP server). */
+        private double ratePerSecond = 10;
+
+        /** Số campaign được gửi đồng thời trên mỗi instance. */
+        private int concurrentCampaigns = 1;
+
+        public int getPageSize() {
+            return pageSize;
+        }
+
+        public void setPageSize(int pageSize) {
+            this.pageSize = pageSize;
+        }
+
+        public int getSendThreads() {
+            return sendThreads;
+        }
+
+        public void setSendThreads(int sendThreads) {
+            this.sendThreads = sendThreads;
+        }
+
+        public double getRatePerSecond() {
+            return ratePerSecond;
+        }
+
+        public void setRatePerSecond(double ratePerSecond) {
+            this.ratePerSecond = ratePerSecond;
+        }
+
+        public int getConcurrentCampaigns() {
+            return concurrentCampaigns;
+        }
+
+        public void setConcurrentCampaigns(int concurrentCampaigns) {
+            this.concurrentCampaigns = concurrentCampaigns;
+        }
+    }
+
+    /**
+     * Xử lý ảnh upload (sinh các bản resize).
+     */
+    public static class Media {
+
+        /** Số thread sinh bản resize. */
+        private int derivativeThreads = 2;
+
+        /** Số ảnh chờ xử lý tối đa; ảnh bị từ chối sẽ được job quét lại. */
+        private int derivativeQueueCapacity = 200;
+
+        /** Sinh thêm bản WebP (chỉ khi có ImageIO writer cho WebP trên classpath). */
+        private boolean webpEnabled = true;
+
+        /** Upload theo chunk không có chunk mới sau số giờ này bị xem là bỏ dở và bị xóa. */
+        private int abandonedUploadHours = 24;
+
+        public int getDerivativeThreads() {
+            return derivativeThreads;
+        }
+
+        public void setDerivativeThreads(int derivativeThreads) {
+            this.derivativeThreads = derivativeThreads;
+        }
+
+        public int getDerivativeQueueCapacity() {
+            return derivativeQueueCapacity;
+        }
+
+        public void setDerivativeQueueCapacity(int derivativeQueueCapacity) {
+            this.derivativeQueueCapacity = derivativeQueueCapacity;
+        }
+
+        public boolean isWebpEnabled() {
+            return webpEnabled;
+        }
+
+        public void setWebpEnabled(boolean webpEnabled) {
+            this.webpEnabled = webpEnabled;
+        }
+
+        public int getAbandonedUploadHours() {
+            return abandonedUploadHours;
+        }
+
+        public void setAbandonedUploadHours(int abandonedUploadHours) {
+            this.abandonedUploadHours = abandonedUploadHours;
+        }
+    }
+
+    /**
+     * Chat realtime (STOMP): ghi tin nhắn và broker.
+     */
+    public static class Chat {
+
+        /** Ghi tin nhắn theo batch ở background; tắt thì ghi trực tiếp trên thread STOMP. */
+        private boolean writeBehindEnabled = true;
+
+        /** Số tin nhắn chờ ghi tối đa; khi đầy tin nhắn được ghi trực tiếp (back-pressure). */
+        private int writeQueueCapacity = 10_000;
+
+        /** Số tin nhắn ghi trong một transaction. */
+        private int writeBatchSize = 200;
+
+        private final BrokerRelay brokerRelay = new BrokerRelay();
+
+        public boolean isWriteBehindEnabled() {
+            return writeBehindEnabled;
+        }
+
+        public void setWriteBehindEnabled(boolean writeBehindEnabled) {
+            this.writeBehindEnabled = writeBehindEnabled;
+        }
+
+        public int getWriteQueueCapacity() {
+            return writeQueueCapacity;
+        }
+
+        public void setWriteQueueCapacity(int writeQueueCapacity) {
+            this.writeQueueCapacity = writeQueueCapacity;
+        }
+
+        public int getWriteBatchSize() {
+            return writeBatchSize;
+        }
+
+        public void setWriteBatchSize(int writeBatchSize) {
+            this.writeBatchSize = writeBatchSize;
+        }
+
+        public BrokerRelay getBrokerRelay() {
+            return brokerRelay;
+        }
+
+        /**
+         * Broker STOMP bên ngoài (RabbitMQ, ActiveMQ...) để nhiều node chia sẻ subscription.
+         * Khi tắt, dùng broker trong bộ nhớ của từng node.
+         */
+        public static class BrokerRelay {
+
+            private boolean enabled = false;
+
+            private String host = "localhost";
+
+            private int port = 61613;
+
+            private String clientLogin = "guest";
+
+            private String clientPasscode = "guest";
+
+            private String systemLogin = "guest";
+
+            private String systemPasscode = "guest";
+
+            private String virtualHost;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public String getHost() {
+                return host;
+            }
+
+            public void setHost(String host) {
+                this.host = host;
+            }
+
+            public int getPort() {
+                return port;
+            }
+
+            public void setPort(int port) {
+                this.port = port;
+            }
+
+            public String getClientLogin() {
+                return clientLogin;
+            }
+
+            public void setClientLogin(String clientLogin) {
+                this.clientLogin = clientLogin;
+            }
+
+            public String getClientPasscode() {
+                return clientPasscode;
+            }
+
+            public void setClientPasscode(String clientPasscode) {
+                this.clientPasscode = clientPasscode;
+            }
+
+            public String getSystemLogin() {
+                return systemLogin;
+            }
+
+            public void setSystemLogin(String systemLogin) {
+                this.systemLogin = systemLogin;
+            }
+
+            public String getSystemPasscode() {
+                return systemPasscode;
+            }
+
+            public void setSystemPasscode(String systemPasscode) {
+                this.systemPasscode = systemPasscode;
+            }
+
+            public String getVirtualHost() {
+                return virtualHost;
+            }
+
+            public void setVirtualHost(String virtualHost) {
+                this.virtualHost = virtualHost;
+            }
+        }
+    }
+
+    /**
+     * Chính sách cache theo từng region (region Hibernate L2 hoặc cache Caffeine của ứng dụng như {@code home-feed}).
+     * Region không khai báo dùng {@code jhipster.cache.caffeine}.
+     */
+    public static class Cache {
+
+        /** Chính sách theo tên region; tên có dấu chấm cần viết dạng {@code '[com.lumiere.app.domain.Category]'}. */
+        private Map<String, CacheRegion> regions = new LinkedHashMap<>();
+
+        public Map<String, CacheRegion> getRegions() {
+            return regions;
+        }
+
+        public void setRegions(Map<String, CacheRegion> regions) {
+            this.regions = regions;
+        }
+
+        /**
+         * Chính sách của một region (trả về chính sách rỗng nếu không khai báo).
+         */
+        public CacheRegion getRegion(String name) {
+            return regions.getOrDefault(name, new CacheRegion());
+        }
+    }
+
+    /**
+     * Chính sách cache của một region; giá trị null dùng mặc định.
+     */
+    public static class CacheRegion {
+
+        /** Số entry tối đa (bỏ qua nếu có {@code maxWeight}). */
+        private Long maxEntries;
+
+        /** Tổng trọng số tối đa; collection được tính theo số phần tử, entity tính 1. */
+        private Long maxWeight;
+
+        /** Thời gian sống sau khi ghi (giây). */
+        private Long timeToLiveSeconds;
+
+        /** Làm mới bất đồng bộ sau khi ghi (giây); chỉ áp dụng cho cache có loader, không áp dụng cho region Hibernate. */
+        private Long refreshAfterWriteSeconds;
+
+        /** Ghi nhận hit/miss/eviction và xuất qua Micrometer. */
+        private Boolean statisticsEnabled;
+
+        public Long getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(Long maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public Long getMaxWeight() {
+            return maxWeight;
+        }
+
+        public void setMaxWeight(Long maxWeight) {
+            this.maxWeight = maxWeight;
+        }
+
+        public Long getTimeToLiveSeconds() {
+            return timeToLiveSeconds;
+        }
+
+        public void setTimeToLiveSeconds(Long timeToLiveSeconds) {
+            this.timeToLiveSeconds = timeToLiveSeconds;
+        }
+
+        public Long getRefreshAfterWriteSeconds() {
+            return refreshAfterWriteSeconds;
+        }
+
+        public void setRefreshAfterWriteSeconds(Long refreshAfterWriteSeconds) {
+            this.refreshAfterWriteSeconds = refreshAfterWriteSeconds;
+        }
+
+        public Boolean getStatisticsEnabled() {
+            return statisticsEnabled;
+        }
+
+        public void setStatisticsEnabled(Boolean statisticsEnabled) {
+            this.statisticsEnabled = statisticsEnabled;
+        }
+    }
     // jhipster-needle-application-properties-property-class
 }
@@ -1,6 +1,7 @@
 package com.lumiere.app.config;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
@@ -25,8 +26,11 @@ public class AsyncConfiguration implements AsyncConfigurer {
 
     private final TaskExecutionProperties taskExecutionProperties;
 
-    public AsyncConfiguration(TaskExecutionProperties taskExecutionProperties) {
+    private final ApplicationProperties applicationProperties;
+
+    public AsyncConfiguration(TaskExecutionProperties taskExecutionProperties, ApplicationProperties applicationProperties) {
         this.taskExecutionProperties = taskExecutionProperties;
+        this.applicationProperties = applicationProperties;
     }
 
     @Override
@@ -41,6 +45,77 @@ public class AsyncConfiguration implements AsyncConfigurer {
         return new ExceptionHandlingAsyncTaskExecutor(executor);
     }
 
+    /**
+     * Executor riêng cho email hàng loạt, tách khỏi {@code taskExecutor} để một campaign lớn không chiếm
+     * hàng đợi của các email giao dịch. Hàng đợi nhỏ; khi đầy thread chạy campaign tự gửi (back-pressure).
+     */
+    @Bean(name = "campaignMailExecutor")
+    public ThreadPoolTaskExecutor campaignMailExecutor() {
+        LOG.debug("Creating Campaign Mail Task Executor");
+        int threads = applicationProperties.getEmailCampaign().getSendThreads();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(threads * 4);
+        executor.setThreadNamePrefix("lumiere-campaign-mail-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * Executor chạy các campaign email, để vòng gửi (chờ từng trang, back-pressure của {@code campaignMailExecutor})
+     * không chiếm thread của scheduler dùng chung cho các job định kỳ. Số campaign đang chạy được giới hạn
+     * bởi người gọi nên hàng đợi không bao giờ đầy.
+     */
+    @Bean(name = "campaignRunnerExecutor")
+    public ThreadPoolTaskExecutor campaignRunnerExecutor() {
+        LOG.debug("Creating Campaign Runner Task Executor");
+        int campaigns = applicationProperties.getEmailCampaign().getConcurrentCampaigns();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(campaigns);
+        executor.setMaxPoolSize(campaigns);
+        executor.setQueueCapacity(campaigns);
+        executor.setThreadNamePrefix("lumiere-campaign-runner-");
+        // Campaign bị ngắt khi tắt ứng dụng sẽ được gửi tiếp từ trang chưa hoàn tất khi lease hết hạn
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+
+    /**
+     * Executor làm mới snapshot trang chủ. Một thread là đủ vì mỗi khối chỉ có tối đa một lần làm mới đang chạy;
+     * tách riêng để các truy vấn nặng (bán chạy) không chiếm thread của {@code taskExecutor}.
+     */
+    @Bean(name = "homeFeedExecutor")
+    public ThreadPoolTaskExecutor homeFeedExecutor() {
+        LOG.debug("Creating Home Feed Task Executor");
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(16);
+        executor.setThreadNamePrefix("lumiere-home-feed-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+
+    /**
+     * Executor sinh bản resize cho ảnh upload. Hàng đợi giới hạn; khi đầy ảnh bị từ chối (không chạy trên thread
+     * của request) và được job quét attachment chưa xử lý làm lại.
+     */
+    @Bean(name = "imageDerivativeExecutor")
+    public ThreadPoolTaskExecutor imageDerivativeExecutor() {
+        LOG.debug("Creating Image Derivative Task Executor");
+        int threads = applicationProperties.getMedia().getDerivativeThreads();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(applicationProperties.getMedia().getDerivativeQueueCapacity());
+        executor.setThreadNamePrefix("lumiere-image-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+
     @Override
     public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
         return new SimpleAsyncUncaughtExceptionHandler();
@@ -1,8 +1,10 @@
 package com.lumiere.app.config;
 
 import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import java.util.Optional;
 import java.util.OptionalLong;
 import java.util.concurrent.TimeUnit;
+import javax.cache.configuration.FactoryBuilder;
 import org.hibernate.cache.jcache.ConfigSettings;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.cache.JCacheManagerCustomizer;
@@ -15,22 +17,45 @@ import org.springframework.context.annotation.*;
 import tech.jhipster.config.JHipsterProperties;
 import tech.jhipster.config.cache.PrefixedKeyGenerator;
 
+/**
+ * Cấu hình cache (Hibernate L2 trên JCache/Caffeine).
+ * <p>
+ * Mỗi region dùng chính sách riêng trong {@code application.cache.regions} (số entry hoặc trọng số tối đa, TTL,
+ * thống kê), region không khai báo dùng {@code jhipster.cache.caffeine}. Thống kê hit/miss/eviction của các region
+ * bật thống kê được Spring Boot xuất qua Micrometer ({@code cache.gets}, {@code cache.evictions}, ...).
+ */
 @Configuration
 @EnableCaching
 public class CacheConfiguration {
 
     private GitProperties gitProperties;
     private BuildProperties buildProperties;
-    private final javax.cache.configuration.Configuration<Object, Object> jcacheConfiguration;
+    private final JHipsterProperties.Cache.Caffeine defaults;
+    private final ApplicationProperties.Cache cacheProperties;
 
-    public CacheConfiguration(JHipsterProperties jHipsterProperties) {
-        JHipsterProperties.Cache.Caffeine caffeine = jHipsterProperties.getCache().getCaffeine();
+    public CacheConfiguration(JHipsterProperties jHipsterProperties, ApplicationProperties applicationProperties) {
+        this.defaults = jHipsterProperties.getCache().getCaffeine();
+        this.cacheProperties = applicationProperties.getCache();
+    }
+
+    /**
+     * Cấu hình JCache của một region theo {@code application.cache.regions}.
+     */
+    private javax.cache.configuration.Configuration<Object, Object> regionConfiguration(String cacheName) {
+        ApplicationProperties.CacheRegion region = cacheProperties.getRegion(cacheName);
 
         CaffeineConfiguration<Object, Object> caffeineConfiguration = new CaffeineConfiguration<>();
-        caffeineConfiguration.setMaximumSize(OptionalLong.of(caffeine.getMaxEntries()));
-        caffeineConfiguration.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(caffeine.getTimeToLiveSeconds())));
-        caffeineConfiguration.setStatisticsEnabled(true);
-        jcacheConfiguration = caffeineConfiguration;
+        if (region.getMaxWeight() != null) {
+            caffeineConfiguration.setMaximumWeight(OptionalLong.of(region.getMaxWeight()));
+            caffeineConfiguration.setWeigherFactory(Optional.of(FactoryBuilder.factoryOf(HibernateCacheEntryWeigher.class)));
+        } else {
+            long maxEntries = region.getMaxEntries() != null ? region.getMaxEntries() : defaults.getMaxEntries();
+            caffeineConfiguration.setMaximumSize(OptionalLong.of(maxEntries));
+        }
+        long timeToLiveSeconds = region.getTimeToLiveSeconds() != null ? region.getTimeToLiveSeconds() : defaults.getTimeToLiveSeconds();
+        caffeineConfiguration.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(timeToLiveSeconds)));
+        caffeineConfiguration.setStatisticsEnabled(!Boolean.FALSE.equals(region.getStatisticsEnabled()));
+        return caffeineConfiguration;
     }
 
     @Bean
@@ -84,6 +109,12 @@ public class CacheConfiguration {
             createCache(cm, com.lumiere.app.domain.ChatSession.class.getName());
             createCache(cm, com.lumiere.app.domain.ChatSession.class.getName() + ".messages");
             createCache(cm, com.lumiere.app.domain.ChatMessage.class.getName());
+            createCache(cm, com.lumiere.app.domain.Category.class.getName());
+            createCache(cm, com.lumiere.app.domain.Attachment.class.getName());
+            createCache(cm, com.lumiere.app.domain.CartItem.class.getName());
+            createCache(cm, com.lumiere.app.domain.ContactMessage.class.getName());
+            createCache(cm, com.lumiere.app.domain.CustomerInfo.class.getName());
+            createCache(cm, com.lumiere.app.domain.CustomerVoucher.class.getName());
             // jhipster-needle-caffeine-add-entry
         };
     }
@@ -93,7 +124,7 @@ public class CacheConfiguration {
         if (cache != null) {
             cache.clear();
         } else {
-            cm.createCache(cacheName, jcacheConfiguration);
+            cm.createCache(cacheName, regionConfiguration(cacheName));
         }
     }
 
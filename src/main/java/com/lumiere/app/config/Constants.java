@@ -1,5 +1,7 @@
 package com.lumiere.app.config;
 
+import java.time.ZoneId;
+
 /**
  * Application constants.
  */
@@ -11,5 +13,8 @@ public final class Constants {
     public static final String SYSTEM = "system";
     public static final String DEFAULT_LANGUAGE = "en";
 
+    // Múi giờ dùng để quy đổi thời điểm sang ngày cho số liệu dashboard (service và changeset seed)
+    public static final ZoneId DASHBOARD_ZONE = ZoneId.systemDefault();
+
     private Constants() {}
 }
@@ -0,0 +1,23 @@
+package com.lumiere.app.config;
+
+import com.github.benmanes.caffeine.cache.Weigher;
+import org.hibernate.cache.spi.entry.CollectionCacheEntry;
+import org.hibernate.cache.spi.support.AbstractReadWriteAccess;
+
+/**
+ * Trọng số của entry trong region Hibernate L2: collection tính theo số phần tử, các entry khác tính 1.
+ * <p>
+ * Dùng cho các region khai báo {@code maxWeight}, để một collection lớn (ví dụ {@code Customer.orders}) chiếm
+ * nhiều chỗ hơn một collection nhỏ.
+ */
+public class HibernateCacheEntryWeigher implements Weigher<Object, Object> {
+
+    @Override
+    public int weigh(Object key, Object value) {
+        Object entry = value instanceof AbstractReadWriteAccess.Item item ? item.getValue() : value;
+        if (entry instanceof CollectionCacheEntry collectionEntry) {
+            return Math.max(1, collectionEntry.getState().length);
+        }
+        return 1;
+    }
+}
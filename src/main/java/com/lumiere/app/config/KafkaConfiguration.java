@@ -1,9 +1,14 @@
 package com.lumiere.app.config;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Serializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
@@ -12,12 +17,36 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.*;
 import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.ExponentialBackOffWithMaxRetries;
+import org.springframework.kafka.support.serializer.DelegatingByTypeSerializer;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
 
+/**
+ * Cấu hình Kafka producer/consumer.
+ * <p>
+ * Mọi listener container dùng chung {@link #kafkaErrorHandler}: thử lại với backoff tăng dần, sau đó gửi
+ * message (kèm header gốc và header {@code kafka_dlt-*} mô tả lỗi) sang topic {@code <topic>-dlt} và commit offset,
+ * để một message lỗi không chặn cả partition. Message trong DLT có thể xem và gửi lại qua
+ * {@code KafkaDeadLetterResource}.
+ */
 @Configuration
 public class KafkaConfiguration {
 
+    /** Hậu tố của dead-letter topic. */
+    public static final String DLT_SUFFIX = "-dlt";
+
+    /** Số message tối đa của một batch cho các batch listener. */
+    private static final int BATCH_MAX_POLL_RECORDS = 200;
+
+    /** Retry: 4 lần, 1s - 2s - 4s - 8s, tối đa 10s giữa hai lần. */
+    private static final int RETRY_MAX_ATTEMPTS = 4;
+    private static final long RETRY_INITIAL_INTERVAL_MS = 1000L;
+    private static final long RETRY_MAX_INTERVAL_MS = 10000L;
+
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
@@ -43,6 +72,28 @@ public class KafkaConfiguration {
         return new KafkaTemplate<>(producerFactory());
     }
 
+    /**
+     * Producer của outbox relay: payload đã là JSON nên gửi dạng chuỗi. Idempotent và {@code acks=all} để
+     * retry không tạo bản trùng và message cùng key giữ đúng thứ tự; {@code linger.ms} nhỏ để gom batch.
+     */
+    @Bean
+    public ProducerFactory<String, String> outboxProducerFactory() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configProps.put(ProducerConfig.ACKS_CONFIG, "all");
+        configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        configProps.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+        return new DefaultKafkaProducerFactory<>(configProps);
+    }
+
+    @Bean
+    public KafkaTemplate<String, String> outboxKafkaTemplate() {
+        return new KafkaTemplate<>(outboxProducerFactory());
+    }
+
     // Consumer Configuration
     @Bean
     public ConsumerFactory<String, Object> consumerFactory() {
@@ -50,7 +101,9 @@ public class KafkaConfiguration {
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+        // JSON lỗi không ném exception khi poll mà được chuyển cho error handler (gửi sang DLT)
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
+        props.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, JsonDeserializer.class);
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
         props.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
         props.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, false);
@@ -64,6 +117,7 @@ public class KafkaConfiguration {
         factory.setConsumerFactory(consumerFactory());
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
         factory.setConcurrency(3);
+        factory.setCommonErrorHandler(kafkaErrorHandler());
         return factory;
     }
 
@@ -99,7 +153,96 @@ public class KafkaConfiguration {
         ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(stringConsumerFactory());
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+        factory.setCommonErrorHandler(kafkaErrorHandler());
+        return factory;
+    }
+
+    // String-based batch Consumer (order-stock-processing)
+    @Bean
+    public ConsumerFactory<String, String> stringBatchConsumerFactory() {
+        Map<String, Object> props = new HashMap<>(stringConsumerFactory().getConfigurationProperties());
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, BATCH_MAX_POLL_RECORDS);
+        return new DefaultKafkaConsumerFactory<>(props);
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> stringBatchKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(stringBatchConsumerFactory());
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+        factory.setConcurrency(3);
+        factory.setCommonErrorHandler(kafkaErrorHandler());
         return factory;
     }
-}
 
+    // Byte-array Producer/Consumer (dead-letter topic: gửi và đọc lại message nguyên bản)
+    @Bean
+    public ProducerFactory<byte[], byte[]> byteArrayProducerFactory() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        configProps.put(ProducerConfig.ACKS_CONFIG, "all");
+        return new DefaultKafkaProducerFactory<>(configProps);
+    }
+
+    @Bean
+    public KafkaTemplate<byte[], byte[]> byteArrayKafkaTemplate() {
+        return new KafkaTemplate<>(byteArrayProducerFactory());
+    }
+
+    @Bean
+    public ConsumerFactory<byte[], byte[]> byteArrayConsumerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        return new DefaultKafkaConsumerFactory<>(props);
+    }
+
+    /**
+     * Producer gửi sang DLT các message không deserialize được: value là byte[] nguyên bản, còn key vẫn là chuỗi
+     * (đã deserialize thành công) hoặc byte[], nên key serializer chọn theo kiểu của key.
+     */
+    @Bean
+    public ProducerFactory<Object, byte[]> deadLetterByteArrayProducerFactory() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ProducerConfig.ACKS_CONFIG, "all");
+        Map<Class<?>, Serializer<?>> keySerializers = new LinkedHashMap<>();
+        keySerializers.put(byte[].class, new ByteArraySerializer());
+        keySerializers.put(String.class, new StringSerializer());
+        return new DefaultKafkaProducerFactory<>(configProps, new DelegatingByTypeSerializer(keySerializers), new ByteArraySerializer());
+    }
+
+    // Retry + Dead-letter topic
+    @Bean
+    public DeadLetterPublishingRecoverer deadLetterPublishingRecoverer() {
+        // Chọn template theo kiểu value: byte[] cho message không deserialize được, String và JSON object
+        Map<Class<?>, KafkaOperations<?, ?>> templates = new LinkedHashMap<>();
+        templates.put(byte[].class, new KafkaTemplate<>(deadLetterByteArrayProducerFactory()));
+        templates.put(String.class, stringKafkaTemplate());
+        templates.put(Object.class, kafkaTemplate());
+        return new DeadLetterPublishingRecoverer(templates, (record, exception) ->
+            new TopicPartition(record.topic() + DLT_SUFFIX, -1)
+        );
+    }
+
+    @Bean
+    public DefaultErrorHandler kafkaErrorHandler() {
+        ExponentialBackOffWithMaxRetries backOff = new ExponentialBackOffWithMaxRetries(RETRY_MAX_ATTEMPTS);
+        backOff.setInitialInterval(RETRY_INITIAL_INTERVAL_MS);
+        backOff.setMultiplier(2.0);
+        backOff.setMaxInterval(RETRY_MAX_INTERVAL_MS);
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler(deadLetterPublishingRecoverer(), backOff);
+        // Listener dùng manual ack: commit offset của message đã gửi sang DLT
+        errorHandler.setCommitRecovered(true);
+        errorHandler.addNotRetryableExceptions(
+            com.fasterxml.jackson.core.JsonProcessingException.class,
+            com.lumiere.app.service.kafka.InvalidMessageException.class
+        );
+        return errorHandler;
+    }
+}
@@ -1,5 +1,9 @@
 package com.lumiere.app.config;
 
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.Executor;
 import javax.sql.DataSource;
 import liquibase.integration.spring.SpringLiquibase;
@@ -69,7 +73,7 @@ public class LiquibaseConfiguration {
         if (!CollectionUtils.isEmpty(liquibaseProperties.getLabelFilter())) {
             liquibase.setLabelFilter(StringUtils.collectionToCommaDelimitedString(liquibaseProperties.getLabelFilter()));
         }
-        liquibase.setChangeLogParameters(liquibaseProperties.getParameters());
+        liquibase.setChangeLogParameters(changeLogParameters(liquibaseProperties));
         liquibase.setRollbackFile(liquibaseProperties.getRollbackFile());
         liquibase.setTestRollbackOnUpdate(liquibaseProperties.isTestRollbackOnUpdate());
         if (env.matchesProfiles(JHipsterConstants.SPRING_PROFILE_NO_LIQUIBASE)) {
@@ -80,4 +84,18 @@ public class LiquibaseConfiguration {
         }
         return liquibase;
     }
+
+    /**
+     * Tham số cho changelog: giữ các tham số cấu hình sẵn và thêm độ lệch múi giờ mà dashboard dùng
+     * để quy đổi ngày (changeset 20251215000000-3).
+     */
+    private static Map<String, String> changeLogParameters(LiquibaseProperties liquibaseProperties) {
+        Map<String, String> parameters = new HashMap<>();
+        if (liquibaseProperties.getParameters() != null) {
+            parameters.putAll(liquibaseProperties.getParameters());
+        }
+        ZoneOffset offset = Constants.DASHBOARD_ZONE.getRules().getOffset(Instant.now());
+        parameters.putIfAbsent("dashboardZoneOffset", offset.getTotalSeconds() == 0 ? "+00:00" : offset.getId());
+        return parameters;
+    }
 }
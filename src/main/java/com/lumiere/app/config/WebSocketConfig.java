@@ -1,23 +1,56 @@
 package com.lumiere.app.config;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.config.StompBrokerRelayRegistration;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
 
 /**
  * WebSocket configuration for real-time chat.
+ * <p>
+ * Mặc định dùng broker trong bộ nhớ (mỗi node giữ subscription của client kết nối tới nó, dùng cho dev và test).
+ * Khi bật {@code application.chat.broker-relay}, tin nhắn được chuyển qua broker STOMP bên ngoài để các node chia sẻ
+ * subscription; user destination ({@code /user/...}) được phân giải giữa các node qua hai topic broadcast.
  */
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private static final Logger LOG = LoggerFactory.getLogger(WebSocketConfig.class);
+
+    private final ApplicationProperties applicationProperties;
+
+    public WebSocketConfig(ApplicationProperties applicationProperties) {
+        this.applicationProperties = applicationProperties;
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        // Enable a simple in-memory message broker to carry messages back to the client
-        // on destinations prefixed with "/topic" and "/queue"
-        config.enableSimpleBroker("/topic", "/queue");
+        ApplicationProperties.Chat.BrokerRelay relay = applicationProperties.getChat().getBrokerRelay();
+        if (relay.isEnabled()) {
+            LOG.info("Using STOMP broker relay at {}:{}", relay.getHost(), relay.getPort());
+            StompBrokerRelayRegistration registration = config
+                .enableStompBrokerRelay("/topic", "/queue")
+                .setRelayHost(relay.getHost())
+                .setRelayPort(relay.getPort())
+                .setClientLogin(relay.getClientLogin())
+                .setClientPasscode(relay.getClientPasscode())
+                .setSystemLogin(relay.getSystemLogin())
+                .setSystemPasscode(relay.getSystemPasscode())
+                .setUserDestinationBroadcast("/topic/unresolved-user-destination")
+                .setUserRegistryBroadcast("/topic/simp-user-registry");
+            if (relay.getVirtualHost() != null) {
+                registration.setVirtualHost(relay.getVirtualHost());
+            }
+        } else {
+            // Enable a simple in-memory message broker to carry messages back to the client
+            // on destinations prefixed with "/topic" and "/queue"
+            config.enableSimpleBroker("/topic", "/queue");
+        }
         // Prefix for messages FROM client TO server
         config.setApplicationDestinationPrefixes("/app");
         // Prefix for user-specific destinations
@@ -40,4 +73,3 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
             .setAllowedOrigins("http://localhost:5173");
     }
 }
-
@@ -1,7 +1,9 @@
 package com.lumiere.app.config;
 
+import com.lumiere.app.security.ChatSessionChannelInterceptor;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.security.config.annotation.web.messaging.MessageSecurityMetadataSourceRegistry;
 import org.springframework.security.config.annotation.web.socket.AbstractSecurityWebSocketMessageBrokerConfigurer;
 
@@ -13,6 +15,12 @@ import org.springframework.security.config.annotation.web.socket.AbstractSecurit
 @SuppressWarnings("deprecation")
 public class WebSocketSecurityConfig extends AbstractSecurityWebSocketMessageBrokerConfigurer {
 
+    private final ChatSessionChannelInterceptor chatSessionChannelInterceptor;
+
+    public WebSocketSecurityConfig(ChatSessionChannelInterceptor chatSessionChannelInterceptor) {
+        this.chatSessionChannelInterceptor = chatSessionChannelInterceptor;
+    }
+
     @Override
     protected void configureInbound(MessageSecurityMetadataSourceRegistry messages) {
         messages
@@ -36,7 +44,7 @@ public class WebSocketSecurityConfig extends AbstractSecurityWebSocketMessageBro
             .simpDestMatchers("/app/**").authenticated()
             // Require authentication for private messages
             .simpSubscribeDestMatchers("/user/**", "/queue/**").authenticated()
-            // Require authentication for session-specific topics
+            // Require authentication for session-specific topics (ownership is checked by ChatSessionChannelInterceptor)
             .simpSubscribeDestMatchers("/topic/session/**").authenticated()
             // For MESSAGE, SUBSCRIBE, UNSUBSCRIBE: require authentication
             // Note: SUBSCRIBE to /topic/public/** is already permitted above with higher priority
@@ -48,6 +56,12 @@ public class WebSocketSecurityConfig extends AbstractSecurityWebSocketMessageBro
             .anyMessage().permitAll();
     }
 
+    @Override
+    protected void customizeClientInboundChannel(ChannelRegistration registration) {
+        // Chỉ chủ phiên chat hoặc nhân viên được subscribe /topic/session/{sessionId}
+        registration.interceptors(chatSessionChannelInterceptor);
+    }
+
     @Override
     protected boolean sameOriginDisabled() {
         // Allow cross-origin requests for WebSocket
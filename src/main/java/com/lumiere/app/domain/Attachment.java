@@ -52,6 +52,14 @@ public class Attachment implements Serializable {
     @Column(name = "uploaded_at", nullable = false)
     private Instant uploadedAt;
 
+    /**
+     * Các bản resize đã sinh, ví dụ {@code "thumb,card,detail,webp"}; chuỗi rỗng nếu file không phải ảnh xử lý được,
+     * null nếu chưa xử lý.
+     */
+    @Size(max = 100)
+    @Column(name = "derivatives", length = 100)
+    private String derivatives;
+
     // jhipster-needle-entity-add-field - JHipster will add fields here
 
     public Long getId() {
@@ -158,6 +166,19 @@ public class Attachment implements Serializable {
         this.uploadedAt = uploadedAt;
     }
 
+    public String getDerivatives() {
+        return this.derivatives;
+    }
+
+    public Attachment derivatives(String derivatives) {
+        this.setDerivatives(derivatives);
+        return this;
+    }
+
+    public void setDerivatives(String derivatives) {
+        this.derivatives = derivatives;
+    }
+
     // jhipster-needle-entity-add-getters-setters - JHipster will add getters and setters here
 
     @Override
@@ -189,6 +210,7 @@ public class Attachment implements Serializable {
             ", contentType='" + getContentType() + "'" +
             ", size=" + getSize() +
             ", uploadedAt='" + getUploadedAt() + "'" +
+            ", derivatives='" + getDerivatives() + "'" +
             "}";
     }
 }
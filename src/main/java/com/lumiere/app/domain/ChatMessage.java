@@ -24,8 +24,8 @@ public class ChatMessage implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    /** Được cấp trước khi ghi bởi {@code ChatMessageIdAllocator}, để tin nhắn đẩy realtime có id ngay. */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "id")
     private Long id;
 
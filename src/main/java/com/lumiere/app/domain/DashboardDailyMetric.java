@@ -0,0 +1,134 @@
+package com.lumiere.app.domain;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Số liệu dashboard đã cộng dồn theo ngày (theo ngày đặt hàng / ngày tạo tài khoản).
+ * Được cập nhật tăng dần khi đơn hàng chuyển trạng thái, xem {@code DashboardMetricsService}.
+ */
+@Entity
+@Table(
+    name = "dashboard_daily_metric",
+    uniqueConstraints = { @UniqueConstraint(name = "ux_dashboard_daily_metric_date", columnNames = "metric_date") }
+)
+@SuppressWarnings("common-java:DuplicatedBlocks")
+public class DashboardDailyMetric implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "metric_date", nullable = false)
+    private LocalDate metricDate;
+
+    /** Tổng tiền các đơn được tính doanh thu, đặt trong ngày. */
+    @Column(name = "revenue", precision = 21, scale = 2, nullable = false)
+    private BigDecimal revenue = BigDecimal.ZERO;
+
+    /** Số đơn được tính doanh thu, đặt trong ngày. */
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount = 0L;
+
+    /** Số khách hàng mới (theo ngày tạo tài khoản). */
+    @Column(name = "new_customer_count", nullable = false)
+    private Long newCustomerCount = 0L;
+
+    public Long getId() {
+        return this.id;
+    }
+
+    public DashboardDailyMetric id(Long id) {
+        this.setId(id);
+        return this;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public LocalDate getMetricDate() {
+        return this.metricDate;
+    }
+
+    public DashboardDailyMetric metricDate(LocalDate metricDate) {
+        this.setMetricDate(metricDate);
+        return this;
+    }
+
+    public void setMetricDate(LocalDate metricDate) {
+        this.metricDate = metricDate;
+    }
+
+    public BigDecimal getRevenue() {
+        return this.revenue;
+    }
+
+    public DashboardDailyMetric revenue(BigDecimal revenue) {
+        this.setRevenue(revenue);
+        return this;
+    }
+
+    public void setRevenue(BigDecimal revenue) {
+        this.revenue = revenue;
+    }
+
+    public Long getOrderCount() {
+        return this.orderCount;
+    }
+
+    public DashboardDailyMetric orderCount(Long orderCount) {
+        this.setOrderCount(orderCount);
+        return this;
+    }
+
+    public void setOrderCount(Long orderCount) {
+        this.orderCount = orderCount;
+    }
+
+    public Long getNewCustomerCount() {
+        return this.newCustomerCount;
+    }
+
+    public DashboardDailyMetric newCustomerCount(Long newCustomerCount) {
+        this.setNewCustomerCount(newCustomerCount);
+        return this;
+    }
+
+    public void setNewCustomerCount(Long newCustomerCount) {
+        this.newCustomerCount = newCustomerCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DashboardDailyMetric)) {
+            return false;
+        }
+        return getId() != null && getId().equals(((DashboardDailyMetric) o).getId());
+    }
+
+    @Override
+    public int hashCode() {
+        // see https://vladmihalcea.com/how-to-implement-equals-and-hashcode-using-the-jpa-entity-identifier/
+        return getClass().hashCode();
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "DashboardDailyMetric{" +
+            "id=" + getId() +
+            ", metricDate=" + getMetricDate() +
+            ", revenue=" + getRevenue() +
+            ", orderCount=" + getOrderCount() +
+            ", newCustomerCount=" + getNewCustomerCount() +
+            "}";
+    }
+}
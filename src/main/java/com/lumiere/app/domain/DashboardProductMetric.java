@@ -0,0 +1,95 @@
+package com.lumiere.app.domain;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+
+/**
+ * Tổng số lượng đã bán của một sản phẩm (cộng dồn), dùng cho top sản phẩm bán chạy trên dashboard.
+ */
+@Entity
+@Table(
+    name = "dashboard_product_metric",
+    uniqueConstraints = { @UniqueConstraint(name = "ux_dashboard_product_metric_product", columnNames = "product_id") },
+    indexes = { @Index(name = "idx_dashboard_product_metric_qty", columnList = "quantity_sold") }
+)
+@SuppressWarnings("common-java:DuplicatedBlocks")
+public class DashboardProductMetric implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "product_id")
+    private Product product;
+
+    @Column(name = "quantity_sold", nullable = false)
+    private Long quantitySold = 0L;
+
+    public Long getId() {
+        return this.id;
+    }
+
+    public DashboardProductMetric id(Long id) {
+        this.setId(id);
+        return this;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Product getProduct() {
+        return this.product;
+    }
+
+    public DashboardProductMetric product(Product product) {
+        this.setProduct(product);
+        return this;
+    }
+
+    public void setProduct(Product product) {
+        this.product = product;
+    }
+
+    public Long getQuantitySold() {
+        return this.quantitySold;
+    }
+
+    public DashboardProductMetric quantitySold(Long quantitySold) {
+        this.setQuantitySold(quantitySold);
+        return this;
+    }
+
+    public void setQuantitySold(Long quantitySold) {
+        this.quantitySold = quantitySold;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DashboardProductMetric)) {
+            return false;
+        }
+        return getId() != null && getId().equals(((DashboardProductMetric) o).getId());
+    }
+
+    @Override
+    public int hashCode() {
+        // see https://vladmihalcea.com/how-to-implement-equals-and-hashcode-using-the-jpa-entity-identifier/
+        return getClass().hashCode();
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "DashboardProductMetric{" +
+            "id=" + getId() +
+            ", quantitySold=" + getQuantitySold() +
+            "}";
+    }
+}
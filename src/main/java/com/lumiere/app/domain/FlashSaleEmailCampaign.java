@@ -0,0 +1,240 @@
+package com.lumiere.app.domain;
+
+import com.lumiere.app.domain.enumeration.EmailCampaignStatus;
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * Đợt gửi email thông báo cho một flash sale product.
+ * Lưu vị trí đã gửi tới ({@code lastUserId}) để khi restart thì gửi tiếp thay vì gửi lại từ đầu,
+ * xem {@code FlashSaleEmailCampaignService}.
+ */
+@Entity
+@Table(
+    name = "flash_sale_email_campaign",
+    uniqueConstraints = {
+        @UniqueConstraint(name = "ux_flash_sale_email_campaign_product", columnNames = "flash_sale_product_id"),
+    },
+    indexes = { @Index(name = "idx_flash_sale_email_campaign_status", columnList = "status, id") }
+)
+@SuppressWarnings("common-java:DuplicatedBlocks")
+public class FlashSaleEmailCampaign implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "flash_sale_product_id", nullable = false, updatable = false)
+    private Long flashSaleProductId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 16, nullable = false)
+    private EmailCampaignStatus status = EmailCampaignStatus.PENDING;
+
+    /** ID người dùng cuối cùng của trang đã gửi xong (keyset). */
+    @Column(name = "last_user_id", nullable = false)
+    private Long lastUserId = 0L;
+
+    @Column(name = "sent_count", nullable = false)
+    private Long sentCount = 0L;
+
+    @Column(name = "failed_count", nullable = false)
+    private Long failedCount = 0L;
+
+    /** Instance đang gửi giữ campaign đến thời điểm này; hết hạn thì instance khác được tiếp tục. */
+    @Column(name = "lease_until")
+    private Instant leaseUntil;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt = Instant.now();
+
+    @Column(name = "started_at")
+    private Instant startedAt;
+
+    @Column(name = "completed_at")
+    private Instant completedAt;
+
+    public Long getId() {
+        return this.id;
+    }
+
+    public FlashSaleEmailCampaign id(Long id) {
+        this.setId(id);
+        return this;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getFlashSaleProductId() {
+        return this.flashSaleProductId;
+    }
+
+    public FlashSaleEmailCampaign flashSaleProductId(Long flashSaleProductId) {
+        this.setFlashSaleProductId(flashSaleProductId);
+        return this;
+    }
+
+    public void setFlashSaleProductId(Long flashSaleProductId) {
+        this.flashSaleProductId = flashSaleProductId;
+    }
+
+    public EmailCampaignStatus getStatus() {
+        return this.status;
+    }
+
+    public FlashSaleEmailCampaign status(EmailCampaignStatus status) {
+        this.setStatus(status);
+        return this;
+    }
+
+    public void setStatus(EmailCampaignStatus status) {
+        this.status = status;
+    }
+
+    public Long getLastUserId() {
+        return this.lastUserId;
+    }
+
+    public FlashSaleEmailCampaign lastUserId(Long lastUserId) {
+        this.setLastUserId(lastUserId);
+        return this;
+    }
+
+    public void setLastUserId(Long lastUserId) {
+        this.lastUserId = lastUserId;
+    }
+
+    public Long getSentCount() {
+        return this.sentCount;
+    }
+
+    public FlashSaleEmailCampaign sentCount(Long sentCount) {
+        this.setSentCount(sentCount);
+        return this;
+    }
+
+    public void setSentCount(Long sentCount) {
+        this.sentCount = sentCount;
+    }
+
+    public Long getFailedCount() {
+        return this.failedCount;
+    }
+
+    public FlashSaleEmailCampaign failedCount(Long failedCount) {
+        this.setFailedCount(failedCount);
+        return this;
+    }
+
+    public void setFailedCount(Long failedCount) {
+        this.failedCount = failedCount;
+    }
+
+    public Instant getLeaseUntil() {
+        return this.leaseUntil;
+    }
+
+    public FlashSaleEmailCampaign leaseUntil(Instant leaseUntil) {
+        this.setLeaseUntil(leaseUntil);
+        return this;
+    }
+
+    public void setLeaseUntil(Instant leaseUntil) {
+        this.leaseUntil = leaseUntil;
+    }
+
+    public String getLastError() {
+        return this.lastError;
+    }
+
+    public FlashSaleEmailCampaign lastError(String lastError) {
+        this.setLastError(lastError);
+        return this;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public Instant getCreatedAt() {
+        return this.createdAt;
+    }
+
+    public FlashSaleEmailCampaign createdAt(Instant createdAt) {
+        this.setCreatedAt(createdAt);
+        return this;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getStartedAt() {
+        return this.startedAt;
+    }
+
+    public FlashSaleEmailCampaign startedAt(Instant startedAt) {
+        this.setStartedAt(startedAt);
+        return this;
+    }
+
+    public void setStartedAt(Instant startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public Instant getCompletedAt() {
+        return this.completedAt;
+    }
+
+    public FlashSaleEmailCampaign completedAt(Instant completedAt) {
+        this.setCompletedAt(completedAt);
+        return this;
+    }
+
+    public void setCompletedAt(Instant completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FlashSaleEmailCampaign)) {
+            return false;
+        }
+        return getId() != null && getId().equals(((FlashSaleEmailCampaign) o).getId());
+    }
+
+    @Override
+    public int hashCode() {
+        // see https://vladmihalcea.com/how-to-implement-equals-and-hashcode-using-the-jpa-entity-identifier/
+        return getClass().hashCode();
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "FlashSaleEmailCampaign{" +
+            "id=" + getId() +
+            ", flashSaleProductId=" + getFlashSaleProductId() +
+            ", status=" + getStatus() +
+            ", lastUserId=" + getLastUserId() +
+            ", sentCount=" + getSentCount() +
+            ", failedCount=" + getFailedCount() +
+            ", leaseUntil=" + getLeaseUntil() +
+            ", lastError='" + getLastError() + "'" +
+            ", createdAt=" + getCreatedAt() +
+            ", startedAt=" + getStartedAt() +
+            ", completedAt=" + getCompletedAt() +
+            "}";
+    }
+}
@@ -23,7 +23,15 @@ import java.util.Objects;
 public class InventoryAdjustment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "inventoryAdjustmentIdGenerator")
+    @TableGenerator(
+        name = "inventoryAdjustmentIdGenerator",
+        table = "id_generator",
+        pkColumnName = "sequence_name",
+        valueColumnName = "next_val",
+        pkColumnValue = "inventory_adjustment",
+        allocationSize = 50
+    )
     private Long id;
 
     /** Gom nhóm các điều chỉnh trong một đợt bulk (UUID string). */
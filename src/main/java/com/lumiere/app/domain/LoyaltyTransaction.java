@@ -22,7 +22,15 @@ public class LoyaltyTransaction implements Serializable {
     private static final long serialVersionUID = 1L;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "loyaltyTransactionIdGenerator")
+    @TableGenerator(
+        name = "loyaltyTransactionIdGenerator",
+        table = "id_generator",
+        pkColumnName = "sequence_name",
+        valueColumnName = "next_val",
+        pkColumnValue = "loyalty_transaction",
+        allocationSize = 50
+    )
     @Column(name = "id")
     private Long id;
 
@@ -22,7 +22,15 @@ public class Notification implements Serializable {
     private static final long serialVersionUID = 1L;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "notificationIdGenerator")
+    @TableGenerator(
+        name = "notificationIdGenerator",
+        table = "id_generator",
+        pkColumnName = "sequence_name",
+        valueColumnName = "next_val",
+        pkColumnValue = "notification",
+        allocationSize = 50
+    )
     @Column(name = "id")
     private Long id;
 
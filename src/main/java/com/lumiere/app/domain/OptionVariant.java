@@ -19,7 +19,15 @@ import lombok.*;
 public class OptionVariant implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "optionVariantIdGenerator")
+    @TableGenerator(
+        name = "optionVariantIdGenerator",
+        table = "id_generator",
+        pkColumnName = "sequence_name",
+        valueColumnName = "next_val",
+        pkColumnValue = "option_variant",
+        allocationSize = 50
+    )
     private Long id;
 
     /** Biến thể sản phẩm */
@@ -21,7 +21,15 @@ public class OrderItem implements Serializable {
     private static final long serialVersionUID = 1L;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "orderItemIdGenerator")
+    @TableGenerator(
+        name = "orderItemIdGenerator",
+        table = "id_generator",
+        pkColumnName = "sequence_name",
+        valueColumnName = "next_val",
+        pkColumnValue = "order_item",
+        allocationSize = 50
+    )
     @Column(name = "id")
     private Long id;
 
@@ -40,6 +48,12 @@ public class OrderItem implements Serializable {
     @Column(name = "total_price", precision = 21, scale = 2, nullable = false)
     private BigDecimal totalPrice;
 
+    /**
+     * Flash sale product đã giữ suất cho dòng hàng này (null nếu mua giá thường); dùng để trả suất khi đơn bị hủy.
+     */
+    @Column(name = "flash_sale_product_id", updatable = false)
+    private Long flashSaleProductId;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JsonIgnoreProperties(value = { "customer", "orderItems", "orderStatusHistories" }, allowSetters = true)
     private Orders order;
@@ -100,6 +114,19 @@ public class OrderItem implements Serializable {
         this.totalPrice = totalPrice;
     }
 
+    public Long getFlashSaleProductId() {
+        return this.flashSaleProductId;
+    }
+
+    public OrderItem flashSaleProductId(Long flashSaleProductId) {
+        this.setFlashSaleProductId(flashSaleProductId);
+        return this;
+    }
+
+    public void setFlashSaleProductId(Long flashSaleProductId) {
+        this.flashSaleProductId = flashSaleProductId;
+    }
+
     public Orders getOrder() {
         return this.order;
     }
@@ -22,7 +22,15 @@ public class OrderStatusHistory implements Serializable {
     private static final long serialVersionUID = 1L;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "orderStatusHistoryIdGenerator")
+    @TableGenerator(
+        name = "orderStatusHistoryIdGenerator",
+        table = "id_generator",
+        pkColumnName = "sequence_name",
+        valueColumnName = "next_val",
+        pkColumnValue = "order_status_history",
+        allocationSize = 50
+    )
     @Column(name = "id")
     private Long id;
 
@@ -0,0 +1,139 @@
+package com.lumiere.app.domain;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * Số lượng đã trừ khỏi một inventory cho một đơn hàng bởi {@code OrderStockAllocationService}; mỗi đơn được trừ kho
+ * có một dòng cho mỗi inventory đã xuất hàng, đơn bị hủy do thiếu hàng không có dòng nào.
+ * Ghi cùng transaction với việc trừ kho, để message {@code order-stock-processing} gửi lại không trừ kho lần hai.
+ * Khi đơn bị hủy, hàng được hoàn về đúng các inventory này rồi các dòng bị xóa, nên đơn chỉ được hoàn kho một lần.
+ */
+@Entity
+@Table(name = "order_stock_allocation", indexes = { @Index(name = "idx_order_stock_allocation_order", columnList = "order_id") })
+@SuppressWarnings("common-java:DuplicatedBlocks")
+public class OrderStockAllocation implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "orderStockAllocationIdGenerator")
+    @TableGenerator(
+        name = "orderStockAllocationIdGenerator",
+        table = "id_generator",
+        pkColumnName = "sequence_name",
+        valueColumnName = "next_val",
+        pkColumnValue = "order_stock_allocation",
+        allocationSize = 50
+    )
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "order_id", nullable = false, updatable = false)
+    private Long orderId;
+
+    /** Inventory đã xuất hàng (kho nguồn). */
+    @Column(name = "inventory_id", nullable = false, updatable = false)
+    private Long inventoryId;
+
+    @Column(name = "quantity", nullable = false, updatable = false)
+    private Long quantity;
+
+    @Column(name = "allocated_at", nullable = false, updatable = false)
+    private Instant allocatedAt;
+
+    public Long getId() {
+        return this.id;
+    }
+
+    public OrderStockAllocation id(Long id) {
+        this.setId(id);
+        return this;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getOrderId() {
+        return this.orderId;
+    }
+
+    public OrderStockAllocation orderId(Long orderId) {
+        this.setOrderId(orderId);
+        return this;
+    }
+
+    public void setOrderId(Long orderId) {
+        this.orderId = orderId;
+    }
+
+    public Long getInventoryId() {
+        return this.inventoryId;
+    }
+
+    public OrderStockAllocation inventoryId(Long inventoryId) {
+        this.setInventoryId(inventoryId);
+        return this;
+    }
+
+    public void setInventoryId(Long inventoryId) {
+        this.inventoryId = inventoryId;
+    }
+
+    public Long getQuantity() {
+        return this.quantity;
+    }
+
+    public OrderStockAllocation quantity(Long quantity) {
+        this.setQuantity(quantity);
+        return this;
+    }
+
+    public void setQuantity(Long quantity) {
+        this.quantity = quantity;
+    }
+
+    public Instant getAllocatedAt() {
+        return this.allocatedAt;
+    }
+
+    public OrderStockAllocation allocatedAt(Instant allocatedAt) {
+        this.setAllocatedAt(allocatedAt);
+        return this;
+    }
+
+    public void setAllocatedAt(Instant allocatedAt) {
+        this.allocatedAt = allocatedAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof OrderStockAllocation)) {
+            return false;
+        }
+        return getId() != null && getId().equals(((OrderStockAllocation) o).getId());
+    }
+
+    @Override
+    public int hashCode() {
+        // see https://vladmihalcea.com/how-to-implement-equals-and-hashcode-using-the-jpa-entity-identifier/
+        return getClass().hashCode();
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "OrderStockAllocation{" +
+            "id=" + getId() +
+            ", orderId=" + getOrderId() +
+            ", inventoryId=" + getInventoryId() +
+            ", quantity=" + getQuantity() +
+            ", allocatedAt=" + getAllocatedAt() +
+            "}";
+    }
+}
@@ -0,0 +1,172 @@
+package com.lumiere.app.domain;
+
+import com.lumiere.app.domain.enumeration.StockRestorationStatus;
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * Hàng đợi hoàn kho cho đơn hàng bị hủy.
+ * Mỗi lần đơn hàng chuyển sang CANCELLED thêm một dòng (tối đa một dòng PENDING cho mỗi đơn), được ghi cùng transaction
+ * với thao tác hủy đơn và xử lý bởi {@code OrderStockRestoreService}; dòng COMPLETED được giữ lại làm lịch sử.
+ */
+@Entity
+@Table(
+    name = "order_stock_restoration",
+    indexes = {
+        @Index(name = "idx_order_stock_restoration_status", columnList = "status, id"),
+        @Index(name = "idx_order_stock_restoration_order", columnList = "order_id"),
+    }
+)
+@SuppressWarnings("common-java:DuplicatedBlocks")
+public class OrderStockRestoration implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_id", nullable = false, updatable = false)
+    private Long orderId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 16, nullable = false)
+    private StockRestorationStatus status = StockRestorationStatus.PENDING;
+
+    /** Số lần xử lý thất bại. */
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt = Instant.now();
+
+    /** Thời điểm đã cộng lại tồn kho. */
+    @Column(name = "processed_at")
+    private Instant processedAt;
+
+    public Long getId() {
+        return this.id;
+    }
+
+    public OrderStockRestoration id(Long id) {
+        this.setId(id);
+        return this;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getOrderId() {
+        return this.orderId;
+    }
+
+    public OrderStockRestoration orderId(Long orderId) {
+        this.setOrderId(orderId);
+        return this;
+    }
+
+    public void setOrderId(Long orderId) {
+        this.orderId = orderId;
+    }
+
+    public StockRestorationStatus getStatus() {
+        return this.status;
+    }
+
+    public OrderStockRestoration status(StockRestorationStatus status) {
+        this.setStatus(status);
+        return this;
+    }
+
+    public void setStatus(StockRestorationStatus status) {
+        this.status = status;
+    }
+
+    public Integer getAttempts() {
+        return this.attempts;
+    }
+
+    public OrderStockRestoration attempts(Integer attempts) {
+        this.setAttempts(attempts);
+        return this;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public String getLastError() {
+        return this.lastError;
+    }
+
+    public OrderStockRestoration lastError(String lastError) {
+        this.setLastError(lastError);
+        return this;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public Instant getCreatedAt() {
+        return this.createdAt;
+    }
+
+    public OrderStockRestoration createdAt(Instant createdAt) {
+        this.setCreatedAt(createdAt);
+        return this;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getProcessedAt() {
+        return this.processedAt;
+    }
+
+    public OrderStockRestoration processedAt(Instant processedAt) {
+        this.setProcessedAt(processedAt);
+        return this;
+    }
+
+    public void setProcessedAt(Instant processedAt) {
+        this.processedAt = processedAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof OrderStockRestoration)) {
+            return false;
+        }
+        return getId() != null && getId().equals(((OrderStockRestoration) o).getId());
+    }
+
+    @Override
+    public int hashCode() {
+        // see https://vladmihalcea.com/how-to-implement-equals-and-hashcode-using-the-jpa-entity-identifier/
+        return getClass().hashCode();
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "OrderStockRestoration{" +
+            "id=" + getId() +
+            ", orderId=" + getOrderId() +
+            ", status=" + getStatus() +
+            ", attempts=" + getAttempts() +
+            ", lastError='" + getLastError() + "'" +
+            ", createdAt=" + getCreatedAt() +
+            ", processedAt=" + getProcessedAt() +
+            "}";
+    }
+}
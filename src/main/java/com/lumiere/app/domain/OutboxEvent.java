@@ -0,0 +1,209 @@
+package com.lumiere.app.domain;
+
+import com.lumiere.app.domain.enumeration.OutboxEventStatus;
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * Message Kafka chờ gửi (transactional outbox).
+ * Được ghi cùng transaction với thay đổi nghiệp vụ và gửi lên Kafka bởi {@code OutboxRelayService},
+ * theo thứ tự id (các message cùng {@code messageKey} vào cùng partition nên giữ đúng thứ tự).
+ */
+@Entity
+@Table(
+    name = "outbox_event",
+    indexes = {
+        @Index(name = "idx_outbox_event_status", columnList = "status, id"),
+        @Index(name = "idx_outbox_event_key_status", columnList = "message_key, status, id"),
+    }
+)
+@SuppressWarnings("common-java:DuplicatedBlocks")
+public class OutboxEvent implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "topic", nullable = false, updatable = false)
+    private String topic;
+
+    /** Key của message Kafka (ví dụ id đơn hàng), null nếu không cần thứ tự. */
+    @Column(name = "message_key", updatable = false)
+    private String messageKey;
+
+    /** Nội dung message (JSON). */
+    @Lob
+    @Column(name = "payload", nullable = false, updatable = false)
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 16, nullable = false)
+    private OutboxEventStatus status = OutboxEventStatus.PENDING;
+
+    /** Số lần gửi thất bại. */
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt = Instant.now();
+
+    /** Thời điểm Kafka xác nhận đã nhận message. */
+    @Column(name = "sent_at")
+    private Instant sentAt;
+
+    public Long getId() {
+        return this.id;
+    }
+
+    public OutboxEvent id(Long id) {
+        this.setId(id);
+        return this;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTopic() {
+        return this.topic;
+    }
+
+    public OutboxEvent topic(String topic) {
+        this.setTopic(topic);
+        return this;
+    }
+
+    public void setTopic(String topic) {
+        this.topic = topic;
+    }
+
+    public String getMessageKey() {
+        return this.messageKey;
+    }
+
+    public OutboxEvent messageKey(String messageKey) {
+        this.setMessageKey(messageKey);
+        return this;
+    }
+
+    public void setMessageKey(String messageKey) {
+        this.messageKey = messageKey;
+    }
+
+    public String getPayload() {
+        return this.payload;
+    }
+
+    public OutboxEvent payload(String payload) {
+        this.setPayload(payload);
+        return this;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public OutboxEventStatus getStatus() {
+        return this.status;
+    }
+
+    public OutboxEvent status(OutboxEventStatus status) {
+        this.setStatus(status);
+        return this;
+    }
+
+    public void setStatus(OutboxEventStatus status) {
+        this.status = status;
+    }
+
+    public Integer getAttempts() {
+        return this.attempts;
+    }
+
+    public OutboxEvent attempts(Integer attempts) {
+        this.setAttempts(attempts);
+        return this;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public String getLastError() {
+        return this.lastError;
+    }
+
+    public OutboxEvent lastError(String lastError) {
+        this.setLastError(lastError);
+        return this;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public Instant getCreatedAt() {
+        return this.createdAt;
+    }
+
+    public OutboxEvent createdAt(Instant createdAt) {
+        this.setCreatedAt(createdAt);
+        return this;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getSentAt() {
+        return this.sentAt;
+    }
+
+    public OutboxEvent sentAt(Instant sentAt) {
+        this.setSentAt(sentAt);
+        return this;
+    }
+
+    public void setSentAt(Instant sentAt) {
+        this.sentAt = sentAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof OutboxEvent)) {
+            return false;
+        }
+        return getId() != null && getId().equals(((OutboxEvent) o).getId());
+    }
+
+    @Override
+    public int hashCode() {
+        // see https://vladmihalcea.com/how-to-implement-equals-and-hashcode-using-the-jpa-entity-identifier/
+        return getClass().hashCode();
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "OutboxEvent{" +
+            "id=" + getId() +
+            ", topic='" + getTopic() + "'" +
+            ", messageKey='" + getMessageKey() + "'" +
+            ", payload='" + getPayload() + "'" +
+            ", status=" + getStatus() +
+            ", attempts=" + getAttempts() +
+            ", lastError='" + getLastError() + "'" +
+            ", createdAt=" + getCreatedAt() +
+            ", sentAt=" + getSentAt() +
+            "}";
+    }
+}
@@ -9,6 +9,7 @@ import java.time.Instant;
 import java.util.HashSet;
 import java.util.Set;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import org.hibernate.annotations.Cache;
@@ -59,15 +60,26 @@ public class Product implements Serializable {
     @Column(name = "material")
     private String material;
 
+    /**
+     * Các cột rating chỉ được ghi bằng câu lệnh cập nhật trong ProductRepository
+     * (applyRatingDelta/updateRating), không bị ghi đè khi lưu sản phẩm.
+     */
     @DecimalMin(value = "0")
     @DecimalMax(value = "5")
-    @Column(name = "average_rating")
+    @Column(name = "average_rating", updatable = false)
     private Double averageRating;
 
     @Min(value = 0)
-    @Column(name = "review_count")
+    @Column(name = "review_count", updatable = false)
     private Integer reviewCount;
 
+    /**
+     * Tổng số sao của các đánh giá đã duyệt.
+     */
+    @Column(name = "rating_sum", insertable = false, updatable = false)
+    @Setter(AccessLevel.NONE)
+    private Long ratingSum;
+
     @Lob
     @Column(name = "images")
     private String images;
@@ -247,6 +259,10 @@ public class Product implements Serializable {
         this.reviewCount = reviewCount;
     }
 
+    public Long getRatingSum() {
+        return this.ratingSum;
+    }
+
     public String getImages() {
         return this.images;
     }
@@ -15,7 +15,7 @@ import org.hibernate.annotations.CacheConcurrencyStrategy;
  * Frontend: src/types/product.ts (Review)
  */
 @Entity
-@Table(name = "product_review")
+@Table(name = "product_review", indexes = { @Index(name = "idx_product_review_product_customer", columnList = "product_id, customer_id") })
 @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @SuppressWarnings("common-java:DuplicatedBlocks")
 public class ProductReview implements Serializable {
@@ -57,6 +57,13 @@ public class ProductReview implements Serializable {
     @JsonIgnoreProperties(value = { "variants", "reviews", "questions", "collections", "wishlistedBies" }, allowSetters = true)
     private Product product;
 
+    /**
+     * Khách hàng viết đánh giá (null với các đánh giá cũ chỉ có tên tác giả).
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JsonIgnoreProperties(value = { "user", "orders", "wishlists", "addresses", "loyaltyHistories", "notifications" }, allowSetters = true)
+    private Customer customer;
+
     // jhipster-needle-entity-add-field - JHipster will add fields here
 
     public Long getId() {
@@ -163,6 +170,19 @@ public class ProductReview implements Serializable {
         return this;
     }
 
+    public Customer getCustomer() {
+        return this.customer;
+    }
+
+    public void setCustomer(Customer customer) {
+        this.customer = customer;
+    }
+
+    public ProductReview customer(Customer customer) {
+        this.setCustomer(customer);
+        return this;
+    }
+
     // jhipster-needle-entity-add-getters-setters - JHipster will add getters and setters here
 
     @Override
@@ -0,0 +1,242 @@
+package com.lumiere.app.domain;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Read model cho tìm kiếm sản phẩm: mỗi sản phẩm một dòng với giá thấp nhất / cao nhất của các variant,
+ * trạng thái còn hàng, danh mục, rating và flash sale.
+ * Được dựng lại bằng một câu upsert mỗi khi product, variant, tồn kho hoặc flash sale thay đổi,
+ * xem {@code ProductSearchIndexService}.
+ */
+@Entity
+@Table(
+    name = "product_search_index",
+    indexes = {
+        @Index(name = "idx_product_search_index_category_price", columnList = "category_id, min_price"),
+        @Index(name = "idx_product_search_index_price", columnList = "min_price"),
+        @Index(name = "idx_product_search_index_stock_price", columnList = "in_stock, min_price"),
+    }
+)
+@SuppressWarnings("common-java:DuplicatedBlocks")
+public class ProductSearchIndex implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(name = "category_id")
+    private Long categoryId;
+
+    /** Đường dẫn danh mục từ gốc, dạng {@code /1/5/12/}. */
+    @Column(name = "category_path")
+    private String categoryPath;
+
+    @Column(name = "min_price", precision = 21, scale = 2)
+    private BigDecimal minPrice;
+
+    @Column(name = "max_price", precision = 21, scale = 2)
+    private BigDecimal maxPrice;
+
+    /** Có ít nhất một variant còn hàng. */
+    @Column(name = "in_stock", nullable = false)
+    private Boolean inStock = false;
+
+    @Column(name = "average_rating")
+    private Double averageRating;
+
+    @Column(name = "review_count")
+    private Integer reviewCount;
+
+    /** Có ít nhất một variant đang trong flash sale. */
+    @Column(name = "on_flash_sale", nullable = false)
+    private Boolean onFlashSale = false;
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    public Long getProductId() {
+        return this.productId;
+    }
+
+    public ProductSearchIndex productId(Long productId) {
+        this.setProductId(productId);
+        return this;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public Long getCategoryId() {
+        return this.categoryId;
+    }
+
+    public ProductSearchIndex categoryId(Long categoryId) {
+        this.setCategoryId(categoryId);
+        return this;
+    }
+
+    public void setCategoryId(Long categoryId) {
+        this.categoryId = categoryId;
+    }
+
+    public String getCategoryPath() {
+        return this.categoryPath;
+    }
+
+    public ProductSearchIndex categoryPath(String categoryPath) {
+        this.setCategoryPath(categoryPath);
+        return this;
+    }
+
+    public void setCategoryPath(String categoryPath) {
+        this.categoryPath = categoryPath;
+    }
+
+    public BigDecimal getMinPrice() {
+        return this.minPrice;
+    }
+
+    public ProductSearchIndex minPrice(BigDecimal minPrice) {
+        this.setMinPrice(minPrice);
+        return this;
+    }
+
+    public void setMinPrice(BigDecimal minPrice) {
+        this.minPrice = minPrice;
+    }
+
+    public BigDecimal getMaxPrice() {
+        return this.maxPrice;
+    }
+
+    public ProductSearchIndex maxPrice(BigDecimal maxPrice) {
+        this.setMaxPrice(maxPrice);
+        return this;
+    }
+
+    public void setMaxPrice(BigDecimal maxPrice) {
+        this.maxPrice = maxPrice;
+    }
+
+    public Boolean getInStock() {
+        return this.inStock;
+    }
+
+    public ProductSearchIndex inStock(Boolean inStock) {
+        this.setInStock(inStock);
+        return this;
+    }
+
+    public void setInStock(Boolean inStock) {
+        this.inStock = inStock;
+    }
+
+    public Double getAverageRating() {
+        return this.averageRating;
+    }
+
+    public ProductSearchIndex averageRating(Double averageRating) {
+        this.setAverageRating(averageRating);
+        return this;
+    }
+
+    public void setAverageRating(Double averageRating) {
+        this.averageRating = averageRating;
+    }
+
+    public Integer getReviewCount() {
+        return this.reviewCount;
+    }
+
+    public ProductSearchIndex reviewCount(Integer reviewCount) {
+        this.setReviewCount(reviewCount);
+        return this;
+    }
+
+    public void setReviewCount(Integer reviewCount) {
+        this.reviewCount = reviewCount;
+    }
+
+    public Boolean getOnFlashSale() {
+        return this.onFlashSale;
+    }
+
+    public ProductSearchIndex onFlashSale(Boolean onFlashSale) {
+        this.setOnFlashSale(onFlashSale);
+        return this;
+    }
+
+    public void setOnFlashSale(Boolean onFlashSale) {
+        this.onFlashSale = onFlashSale;
+    }
+
+    public Instant getCreatedAt() {
+        return this.createdAt;
+    }
+
+    public ProductSearchIndex createdAt(Instant createdAt) {
+        this.setCreatedAt(createdAt);
+        return this;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return this.updatedAt;
+    }
+
+    public ProductSearchIndex updatedAt(Instant updatedAt) {
+        this.setUpdatedAt(updatedAt);
+        return this;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ProductSearchIndex)) {
+            return false;
+        }
+        return getProductId() != null && getProductId().equals(((ProductSearchIndex) o).getProductId());
+    }
+
+    @Override
+    public int hashCode() {
+        // see https://vladmihalcea.com/how-to-implement-equals-and-hashcode-using-the-jpa-entity-identifier/
+        return getClass().hashCode();
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "ProductSearchIndex{" +
+            "productId=" + getProductId() +
+            ", categoryId=" + getCategoryId() +
+            ", categoryPath='" + getCategoryPath() + "'" +
+            ", minPrice=" + getMinPrice() +
+            ", maxPrice=" + getMaxPrice() +
+            ", inStock=" + getInStock() +
+            ", averageRating=" + getAverageRating() +
+            ", reviewCount=" + getReviewCount() +
+            ", onFlashSale=" + getOnFlashSale() +
+            ", createdAt=" + getCreatedAt() +
+            ", updatedAt=" + getUpdatedAt() +
+            "}";
+    }
+}
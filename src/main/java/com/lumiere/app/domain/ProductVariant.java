@@ -40,7 +40,11 @@ public class ProductVariant implements Serializable {
     @Column(name = "currency")
     private String currency;
 
-    @Column(name = "stock_quantity")
+    /**
+     * Tổng tồn kho của variant trên mọi warehouse. Chỉ được cập nhật bởi {@code StockLedgerService}
+     * (câu UPDATE cộng/trừ) nên không ghi đè khi lưu entity.
+     */
+    @Column(name = "stock_quantity", updatable = false)
     private Long stockQuantity;
 
     @Column(name = "is_default")
@@ -13,7 +13,10 @@ import org.hibernate.annotations.CacheConcurrencyStrategy;
  * Lịch sử thay đổi tồn kho (để kiểm toán).
  */
 @Entity
-@Table(name = "stock_movement")
+@Table(
+    name = "stock_movement",
+    indexes = { @Index(name = "idx_stock_movement_variant_warehouse", columnList = "product_variant_id, warehouse_id") }
+)
 @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @SuppressWarnings("common-java:DuplicatedBlocks")
 public class StockMovement implements Serializable {
@@ -21,7 +24,15 @@ public class StockMovement implements Serializable {
     private static final long serialVersionUID = 1L;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "stockMovementIdGenerator")
+    @TableGenerator(
+        name = "stockMovementIdGenerator",
+        table = "id_generator",
+        pkColumnName = "sequence_name",
+        valueColumnName = "next_val",
+        pkColumnValue = "stock_movement",
+        allocationSize = 50
+    )
     @Column(name = "id")
     private Long id;
 
@@ -0,0 +1,11 @@
+package com.lumiere.app.domain.enumeration;
+
+/**
+ * Trạng thái của một đợt gửi email hàng loạt.
+ */
+public enum EmailCampaignStatus {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    FAILED,
+}
@@ -0,0 +1,10 @@
+package com.lumiere.app.domain.enumeration;
+
+/**
+ * Trạng thái gửi Kafka của một message trong outbox.
+ */
+public enum OutboxEventStatus {
+    PENDING,
+    SENT,
+    FAILED,
+}
@@ -8,4 +8,5 @@ public enum StockMovementReason {
     RETURN,
     ADJUSTMENT,
     INITIAL_STOCK,
+    ORDER_CANCELLED,
 }
@@ -0,0 +1,10 @@
+package com.lumiere.app.domain.enumeration;
+
+/**
+ * Trạng thái hoàn kho của một đơn hàng bị hủy.
+ */
+public enum StockRestorationStatus {
+    PENDING,
+    COMPLETED,
+    FAILED,
+}
@@ -0,0 +1,126 @@
+package com.lumiere.app.management;
+
+import com.github.benmanes.caffeine.cache.Policy;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.StreamSupport;
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+/**
+ * Management endpoint {@code /management/cacheregions}: liệt kê, xem chi tiết và xóa các region cache (Hibernate L2).
+ * <p>
+ * Kích thước và giới hạn được đọc từ Caffeine của từng region; hit/miss/eviction đọc từ các meter {@code cache.*}
+ * mà Spring Boot đăng ký cho region bật thống kê (null nếu region tắt thống kê).
+ */
+@Component
+@Endpoint(id = "cacheregions")
+public class CacheRegionsEndpoint {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CacheRegionsEndpoint.class);
+
+    private final CacheManager cacheManager;
+    private final MeterRegistry meterRegistry;
+
+    public CacheRegionsEndpoint(CacheManager cacheManager, MeterRegistry meterRegistry) {
+        this.cacheManager = cacheManager;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @ReadOperation
+    public List<Region> regions() {
+        List<Region> regions = new ArrayList<>();
+        for (String name : StreamSupport.stream(cacheManager.getCacheNames().spliterator(), false).sorted().toList()) {
+            Cache<Object, Object> cache = cacheManager.getCache(name);
+            if (cache != null) {
+                regions.add(describe(name, cache));
+            }
+        }
+        return regions;
+    }
+
+    @ReadOperation
+    public Region region(@Selector String name) {
+        Cache<Object, Object> cache = cacheManager.getCache(name);
+        return cache != null ? describe(name, cache) : null;
+    }
+
+    @DeleteOperation
+    public void evict(@Selector String name) {
+        Cache<Object, Object> cache = cacheManager.getCache(name);
+        if (cache != null) {
+            cache.clear();
+            LOG.info("Evicted cache region {}", name);
+        }
+    }
+
+    private Region describe(String name, Cache<Object, Object> cache) {
+        @SuppressWarnings("unchecked")
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> caffeine = cache.unwrap(com.github.benmanes.caffeine.cache.Cache.class);
+        Optional<Policy.Eviction<Object, Object>> eviction = caffeine.policy().eviction();
+        boolean weighted = eviction.map(Policy.Eviction::isWeighted).orElse(false);
+        Long timeToLiveSeconds = caffeine.policy().expireAfterWrite().map(e -> e.getExpiresAfter().toSeconds()).orElse(null);
+
+        Long hits = count("cache.gets", name, "hit");
+        Long misses = count("cache.gets", name, "miss");
+        Double hitRatio = hits != null && misses != null && hits + misses > 0 ? (double) hits / (hits + misses) : null;
+        return new Region(
+            name,
+            caffeine.estimatedSize(),
+            weighted ? eviction.get().weightedSize().orElse(0L) : null,
+            eviction.map(Policy.Eviction::getMaximum).orElse(null),
+            weighted,
+            timeToLiveSeconds,
+            hits,
+            misses,
+            count("cache.evictions", name, null),
+            hitRatio
+        );
+    }
+
+    private Long count(String meterName, String cacheName, String result) {
+        var search = meterRegistry.find(meterName).tag("cache", cacheName);
+        if (result != null) {
+            search = search.tag("result", result);
+        }
+        FunctionCounter counter = search.functionCounter();
+        return counter != null ? (long) counter.count() : null;
+    }
+
+    /**
+     * Thông tin một region cache.
+     *
+     * @param name tên region
+     * @param size số entry (ước lượng)
+     * @param weightedSize tổng trọng số (null nếu giới hạn theo số entry)
+     * @param maximum số entry hoặc trọng số tối đa
+     * @param weighted giới hạn theo trọng số
+     * @param timeToLiveSeconds thời gian sống sau khi ghi
+     * @param hits số lần đọc trúng cache
+     * @param misses số lần đọc trượt cache
+     * @param evictions số entry bị loại
+     * @param hitRatio tỉ lệ trúng cache
+     */
+    public record Region(
+        String name,
+        long size,
+        Long weightedSize,
+        Long maximum,
+        boolean weighted,
+        Long timeToLiveSeconds,
+        Long hits,
+        Long misses,
+        Long evictions,
+        Double hitRatio
+    ) {}
+}
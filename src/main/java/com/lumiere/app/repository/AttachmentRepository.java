@@ -1,10 +1,13 @@
 package com.lumiere.app.repository;
 
 import com.lumiere.app.domain.Attachment;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Collection;
 import java.util.List;
@@ -21,4 +24,18 @@ public interface AttachmentRepository extends JpaRepository<Attachment, Long> {
 
     @Query("select a from Attachment a where a.id in :ids")
     List<Attachment> findAllByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * ID các attachment chưa sinh bản resize có ID lớn hơn {@code afterId} (theo thứ tự ID).
+     */
+    @Query("select a.id from Attachment a where a.derivatives is null and a.id > :afterId order by a.id")
+    List<Long> findIdsWithoutDerivativesAfter(@Param("afterId") long afterId, Pageable pageable);
+
+    /**
+     * Ghi nhận các bản resize đã sinh (chỉ lần đầu).
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update Attachment a set a.derivatives = :derivatives where a.id = :id and a.derivatives is null")
+    int markDerivatives(@Param("id") Long id, @Param("derivatives") String derivatives);
 }
@@ -9,5 +9,6 @@ import java.util.List;
 @Repository
 public interface CategoryRepository extends JpaRepository<Category, Long> {
     List<Category> findByFatherId(Long fatherId);
+    List<Category> findByFatherIdIsNull();
     boolean existsByName(String name);
 }
@@ -1,6 +1,7 @@
 package com.lumiere.app.repository;
 
 import com.lumiere.app.domain.ChatMessage;
+import jakarta.persistence.QueryHint;
 import java.util.List;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
@@ -29,4 +30,21 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>
      */
     @Query("SELECT m FROM ChatMessage m WHERE m.contactMessage.id = :contactMessageId ORDER BY m.timestamp ASC")
     List<ChatMessage> findByContactMessageIdOrderByTimestampAsc(@Param("contactMessageId") Long contactMessageId);
+
+    /**
+     * Giữ {@code count} id tin nhắn chat: tăng {@code next_val} của dòng {@code chat_message} trong bảng
+     * {@code id_generator} (khóa dòng đến hết transaction, nên các instance không lấy trùng khối).
+     *
+     * @return 1 nếu đã giữ, 0 nếu chưa có dòng {@code chat_message}
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = "org.hibernate.query.native.spaces", value = "id_generator"))
+    @Query(value = "UPDATE id_generator SET next_val = next_val + :count WHERE sequence_name = 'chat_message'", nativeQuery = true)
+    int reserveIds(@Param("count") int count);
+
+    /**
+     * Id còn trống kế tiếp của tin nhắn chat.
+     */
+    @Query(value = "SELECT next_val FROM id_generator WHERE sequence_name = 'chat_message'", nativeQuery = true)
+    Long findNextFreeId();
 }
@@ -1,6 +1,7 @@
 package com.lumiere.app.repository;
 
 import com.lumiere.app.domain.ChatSession;
+import java.util.Optional;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.stereotype.Repository;
 
@@ -9,4 +10,12 @@ import org.springframework.stereotype.Repository;
  */
 @SuppressWarnings("unused")
 @Repository
-public interface ChatSessionRepository extends JpaRepository<ChatSession, Long> {}
+public interface ChatSessionRepository extends JpaRepository<ChatSession, Long> {
+    /**
+     * Phiên chat đầu tiên của khách hàng.
+     *
+     * @param customerId ID khách hàng (dạng chuỗi)
+     * @return phiên chat nếu có
+     */
+    Optional<ChatSession> findFirstByCustomerIdOrderByIdAsc(String customerId);
+}
@@ -1,8 +1,12 @@
 package com.lumiere.app.repository;
 
 import com.lumiere.app.domain.Customer;
+import jakarta.persistence.QueryHint;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.*;
@@ -77,4 +81,60 @@ public interface CustomerRepository
      */
     @Query("SELECT c FROM Customer c WHERE FUNCTION('MONTH', c.birthday) = :month AND FUNCTION('DAY', c.birthday) = :day AND c.birthday IS NOT NULL")
     List<Customer> findByBirthdayMonthAndDay(@Param("month") int month, @Param("day") int day);
+
+    /**
+     * Keyset page ID khách hàng có sinh nhật vào ngày cụ thể, theo id tăng dần.
+     */
+    @Query(
+        "SELECT c.id FROM Customer c WHERE FUNCTION('MONTH', c.birthday) = :month AND FUNCTION('DAY', c.birthday) = :day " +
+        "AND c.id > :afterId ORDER BY c.id"
+    )
+    List<Long> findIdsByBirthdayMonthAndDayAfter(
+        @Param("month") int month,
+        @Param("day") int day,
+        @Param("afterId") Long afterId,
+        Pageable pageable
+    );
+
+    /**
+     * Keyset page (id, tier) của khách hàng theo id tăng dần.
+     */
+    @Query("SELECT c.id, c.tier FROM Customer c WHERE c.id > :afterId ORDER BY c.id")
+    List<Object[]> findIdAndTierAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Chuyển các khách hàng có điểm trong khoảng [minPoints, maxPoints) sang tier mới.
+     * Khách hàng chưa có điểm (null) được giữ nguyên; maxPoints null nghĩa là không giới hạn trên.
+     *
+     * @return số khách hàng đã chuyển tier
+     */
+    @Modifying
+    @Query(
+        "UPDATE Customer c SET c.tier = :tier " +
+        "WHERE c.loyaltyPoints >= :minPoints " +
+        "AND (:maxPoints IS NULL OR c.loyaltyPoints < :maxPoints) " +
+        "AND (c.tier IS NULL OR c.tier <> :tier)"
+    )
+    int updateTierForPointsRange(
+        @Param("tier") com.lumiere.app.domain.enumeration.CustomerTier tier,
+        @Param("minPoints") int minPoints,
+        @Param("maxPoints") Integer maxPoints
+    );
+
+    /**
+     * Stream ngày tạo tài khoản của khách hàng, dùng để dựng lại bảng số liệu dashboard.
+     */
+    @Query(
+        "select u.createdDate from Customer c join c.user u " +
+        "where (:fromDate is null or u.createdDate >= :fromDate) " +
+        "and (:toDate is null or u.createdDate < :toDate)"
+    )
+    @QueryHints(
+        {
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false"),
+        }
+    )
+    Stream<Instant> streamCustomerCreatedDates(@Param("fromDate") Instant fromDate, @Param("toDate") Instant toDate);
 }
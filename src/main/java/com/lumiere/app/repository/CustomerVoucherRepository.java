@@ -61,5 +61,44 @@ public interface CustomerVoucherRepository extends JpaRepository<CustomerVoucher
      */
     @Query("SELECT cv FROM CustomerVoucher cv WHERE cv.customer.id = :customerId AND cv.voucher.id = :voucherId")
     Optional<CustomerVoucher> findByCustomerIdAndVoucherId(@Param("customerId") Long customerId, @Param("voucherId") Long voucherId);
-}
 
+    /**
+     * Lọc các khách hàng đã nhận voucher trong kỳ (quý hoặc năm) từ một nhóm khách hàng.
+     *
+     * @param quarter kỳ tặng voucher ("2024-Q1" hoặc "2024")
+     * @param customerIds danh sách ID khách hàng cần kiểm tra
+     * @return ID các khách hàng đã nhận voucher
+     */
+    @Query("SELECT cv.customer.id FROM CustomerVoucher cv WHERE cv.quarter = :quarter AND cv.customer.id IN :customerIds")
+    List<Long> findCustomerIdsByQuarter(@Param("quarter") String quarter, @Param("customerIds") java.util.Collection<Long> customerIds);
+
+    /**
+     * Đánh dấu voucher của khách hàng là đã dùng, chỉ khi chưa dùng.
+     *
+     * @param customerId ID của khách hàng
+     * @param voucherId ID của voucher
+     * @return 1 nếu đánh dấu được, 0 nếu khách hàng không có voucher này hoặc đã dùng
+     */
+    @Modifying
+    @Query(
+        "UPDATE CustomerVoucher cv SET cv.used = true " +
+        "WHERE cv.customer.id = :customerId AND cv.voucher.id = :voucherId AND (cv.used IS NULL OR cv.used = false)"
+    )
+    int markUsed(@Param("customerId") Long customerId, @Param("voucherId") Long voucherId);
+
+    /**
+     * Bỏ đánh dấu đã dùng (hoàn tác {@link #markUsed} khi voucher không còn lượt).
+     */
+    @Modifying
+    @Query("UPDATE CustomerVoucher cv SET cv.used = false WHERE cv.customer.id = :customerId AND cv.voucher.id = :voucherId")
+    int unmarkUsed(@Param("customerId") Long customerId, @Param("voucherId") Long voucherId);
+
+    /**
+     * Các voucher được tặng cho khách hàng và trạng thái đã dùng.
+     *
+     * @param customerId ID của khách hàng
+     * @return các cặp (voucherId, used)
+     */
+    @Query("SELECT cv.voucher.id, cv.used FROM CustomerVoucher cv WHERE cv.customer.id = :customerId")
+    List<Object[]> findVoucherUsageByCustomerId(@Param("customerId") Long customerId);
+}
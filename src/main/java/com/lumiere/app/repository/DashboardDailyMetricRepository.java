@@ -0,0 +1,73 @@
+package com.lumiere.app.repository;
+
+import com.lumiere.app.domain.DashboardDailyMetric;
+import jakarta.persistence.QueryHint;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data JPA repository for the DashboardDailyMetric entity.
+ */
+@Repository
+public interface DashboardDailyMetricRepository extends JpaRepository<DashboardDailyMetric, Long> {
+    /**
+     * Cộng dồn số liệu vào dòng của một ngày, tạo dòng nếu chưa có.
+     * Một câu lệnh upsert nên các transaction đồng thời không mất cập nhật của nhau.
+     * Chỉ khai báo bảng {@code dashboard_daily_metric} là bị ảnh hưởng để Hibernate không xóa toàn bộ cache L2.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = "org.hibernate.query.native.spaces", value = "dashboard_daily_metric"))
+    @Query(
+        value = """
+        INSERT INTO dashboard_daily_metric (metric_date, revenue, order_count, new_customer_count)
+        VALUES (:metricDate, :revenue, :orderCount, :newCustomerCount)
+        ON DUPLICATE KEY UPDATE
+            revenue = revenue + VALUES(revenue),
+            order_count = order_count + VALUES(order_count),
+            new_customer_count = new_customer_count + VALUES(new_customer_count)
+        """,
+        nativeQuery = true
+    )
+    int increment(
+        @Param("metricDate") LocalDate metricDate,
+        @Param("revenue") BigDecimal revenue,
+        @Param("orderCount") long orderCount,
+        @Param("newCustomerCount") long newCustomerCount
+    );
+
+    /**
+     * Tổng doanh thu, số đơn và khách hàng mới trong khoảng ngày [fromDate, toDate].
+     */
+    @Query(
+        """
+        SELECT COALESCE(SUM(m.revenue), 0), COALESCE(SUM(m.orderCount), 0), COALESCE(SUM(m.newCustomerCount), 0)
+        FROM DashboardDailyMetric m
+        WHERE m.metricDate >= :fromDate AND m.metricDate <= :toDate
+        """
+    )
+    List<Object[]> sumBetween(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+
+    /**
+     * Số liệu theo tháng trong khoảng ngày [fromDate, toDate]: tháng, doanh thu, số đơn, khách hàng mới.
+     */
+    @Query(
+        """
+        SELECT FUNCTION('MONTH', m.metricDate) as month, SUM(m.revenue), SUM(m.orderCount), SUM(m.newCustomerCount)
+        FROM DashboardDailyMetric m
+        WHERE m.metricDate >= :fromDate AND m.metricDate <= :toDate
+        GROUP BY FUNCTION('MONTH', m.metricDate)
+        ORDER BY month
+        """
+    )
+    List<Object[]> sumByMonthBetween(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+
+    @Modifying
+    @Query(
+        "delete from DashboardDailyMetric m where (:fromDate is null or m.metricDate >= :fromDate) and (:toDate is null or m.metricDate <= :toDate)"
+    )
+    int deleteBetween(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+}
@@ -0,0 +1,49 @@
+package com.lumiere.app.repository;
+
+import com.lumiere.app.domain.DashboardProductMetric;
+import jakarta.persistence.QueryHint;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data JPA repository for the DashboardProductMetric entity.
+ */
+@Repository
+public interface DashboardProductMetricRepository extends JpaRepository<DashboardProductMetric, Long> {
+    /**
+     * Cộng dồn số lượng đã bán của một sản phẩm, tạo dòng nếu chưa có.
+     * Chỉ khai báo bảng {@code dashboard_product_metric} là bị ảnh hưởng để Hibernate không xóa toàn bộ cache L2.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = "org.hibernate.query.native.spaces", value = "dashboard_product_metric"))
+    @Query(
+        value = """
+        INSERT INTO dashboard_product_metric (product_id, quantity_sold)
+        VALUES (:productId, :quantity)
+        ON DUPLICATE KEY UPDATE quantity_sold = quantity_sold + VALUES(quantity_sold)
+        """,
+        nativeQuery = true
+    )
+    int increment(@Param("productId") Long productId, @Param("quantity") long quantity);
+
+    /**
+     * Top sản phẩm theo số lượng đã bán: tên sản phẩm, tổng số lượng.
+     */
+    @Query(
+        """
+        SELECT p.name, m.quantitySold
+        FROM DashboardProductMetric m
+        JOIN m.product p
+        WHERE m.quantitySold > 0
+        ORDER BY m.quantitySold DESC
+        """
+    )
+    List<Object[]> findTopProducts(Pageable pageable);
+
+    @Modifying
+    @Query("delete from DashboardProductMetric")
+    int deleteAllMetrics();
+}
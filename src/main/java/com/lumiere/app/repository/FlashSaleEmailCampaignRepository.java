@@ -0,0 +1,90 @@
+package com.lumiere.app.repository;
+
+import com.lumiere.app.domain.FlashSaleEmailCampaign;
+import jakarta.persistence.QueryHint;
+import java.time.Instant;
+import java.util.List;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Spring Data JPA repository for the FlashSaleEmailCampaign entity.
+ * <p>
+ * Các câu cập nhật tiến độ có {@link Transactional} riêng để commit ngay khi được gọi từ job gửi email
+ * (job chạy ngoài transaction).
+ */
+@Repository
+public interface FlashSaleEmailCampaignRepository extends JpaRepository<FlashSaleEmailCampaign, Long> {
+    /**
+     * Tạo campaign cho flash sale product, bỏ qua nếu đã có.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = "org.hibernate.query.native.spaces", value = "flash_sale_email_campaign"))
+    @Query(
+        value = """
+        INSERT IGNORE INTO flash_sale_email_campaign
+            (flash_sale_product_id, status, last_user_id, sent_count, failed_count, created_at)
+        VALUES (:flashSaleProductId, 'PENDING', 0, 0, 0, :createdAt)
+        """,
+        nativeQuery = true
+    )
+    int enqueue(@Param("flashSaleProductId") Long flashSaleProductId, @Param("createdAt") Instant createdAt);
+
+    /**
+     * Campaign chờ gửi hoặc đang gửi nhưng instance giữ nó đã dừng (hết lease).
+     */
+    @Query(
+        "select c.id from FlashSaleEmailCampaign c " +
+        "where c.status = com.lumiere.app.domain.enumeration.EmailCampaignStatus.PENDING " +
+        "or (c.status = com.lumiere.app.domain.enumeration.EmailCampaignStatus.RUNNING and c.leaseUntil < :now) " +
+        "order by c.id"
+    )
+    List<Long> findDispatchableIds(@Param("now") Instant now);
+
+    /**
+     * Nhận campaign để gửi. Chỉ một instance nhận được (câu UPDATE có điều kiện).
+     *
+     * @return 1 nếu nhận được, 0 nếu instance khác đã nhận
+     */
+    @Modifying
+    @Transactional
+    @Query(
+        "update FlashSaleEmailCampaign c set c.status = com.lumiere.app.domain.enumeration.EmailCampaignStatus.RUNNING, " +
+        "c.leaseUntil = :leaseUntil, c.startedAt = coalesce(c.startedAt, :now) " +
+        "where c.id = :id and (c.status = com.lumiere.app.domain.enumeration.EmailCampaignStatus.PENDING " +
+        "or (c.status = com.lumiere.app.domain.enumeration.EmailCampaignStatus.RUNNING and c.leaseUntil < :now))"
+    )
+    int claim(@Param("id") Long id, @Param("now") Instant now, @Param("leaseUntil") Instant leaseUntil);
+
+    /**
+     * Lưu tiến độ sau khi gửi xong một trang người dùng và gia hạn lease.
+     */
+    @Modifying
+    @Transactional
+    @Query(
+        "update FlashSaleEmailCampaign c set c.lastUserId = :lastUserId, c.sentCount = c.sentCount + :sent, " +
+        "c.failedCount = c.failedCount + :failed, c.leaseUntil = :leaseUntil where c.id = :id"
+    )
+    int recordProgress(
+        @Param("id") Long id,
+        @Param("lastUserId") Long lastUserId,
+        @Param("sent") long sent,
+        @Param("failed") long failed,
+        @Param("leaseUntil") Instant leaseUntil
+    );
+
+    @Modifying
+    @Transactional
+    @Query(
+        "update FlashSaleEmailCampaign c set c.status = :status, c.completedAt = :now, c.leaseUntil = null, " +
+        "c.lastError = :error where c.id = :id"
+    )
+    int finish(
+        @Param("id") Long id,
+        @Param("status") com.lumiere.app.domain.enumeration.EmailCampaignStatus status,
+        @Param("now") Instant now,
+        @Param("error") String error
+    );
+}
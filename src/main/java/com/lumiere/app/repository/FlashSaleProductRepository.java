@@ -61,6 +61,20 @@ public interface FlashSaleProductRepository extends JpaRepository<FlashSaleProdu
     )
     Optional<FlashSaleProduct> findActiveByProductVariantId(@Param("productVariantId") Long productVariantId, @Param("now") java.time.Instant now);
 
+    /**
+     * Tìm các flash sale product đang active cho nhiều product variant trong một truy vấn
+     */
+    @Query(
+        "select flashSaleProduct from FlashSaleProduct flashSaleProduct left join fetch flashSaleProduct.flashSale left join fetch flashSaleProduct.productVariant " +
+        "where flashSaleProduct.productVariant.id in :productVariantIds " +
+        "and flashSaleProduct.flashSale.startTime <= :now " +
+        "and flashSaleProduct.flashSale.endTime >= :now"
+    )
+    List<FlashSaleProduct> findActiveByProductVariantIdIn(
+        @Param("productVariantIds") java.util.Collection<Long> productVariantIds,
+        @Param("now") java.time.Instant now
+    );
+
     /**
      * Tìm flash sale product theo product id và flash sale đang active (tìm qua product variant)
      */
@@ -96,4 +110,55 @@ public interface FlashSaleProductRepository extends JpaRepository<FlashSaleProdu
         "where flashSaleProduct.quantity > flashSaleProduct.sold"
     )
     List<FlashSaleProduct> findAvailableProducts();
+
+    /**
+     * Giữ suất flash sale một cách atomic.
+     * Chỉ cộng sold khi sold + quantity <= tổng số lượng, nên không thể bán vượt.
+     *
+     * @param flashSaleProductId ID của flash sale product
+     * @param quantity số lượng cần giữ
+     * @return số dòng được cập nhật (1 nếu thành công, 0 nếu không đủ suất)
+     */
+    @Modifying
+    @Query(
+        "update FlashSaleProduct f set f.sold = f.sold + :quantity " +
+        "where f.id = :flashSaleProductId and f.sold + :quantity <= f.quantity"
+    )
+    int reserveQuantity(@Param("flashSaleProductId") Long flashSaleProductId, @Param("quantity") Integer quantity);
+
+    /**
+     * Trả lại suất flash sale đã giữ (ví dụ khi đơn hàng bị hủy).
+     *
+     * @param flashSaleProductId ID của flash sale product
+     * @param quantity số lượng cần trả
+     * @return số dòng được cập nhật
+     */
+    @Modifying
+    @Query(
+        "update FlashSaleProduct f set f.sold = f.sold - :quantity " +
+        "where f.id = :flashSaleProductId and f.sold >= :quantity"
+    )
+    int releaseQuantity(@Param("flashSaleProductId") Long flashSaleProductId, @Param("quantity") Integer quantity);
+
+    /**
+     * Thông tin dùng cho email thông báo flash sale: flashSaleName, productName, productSlug, salePrice, originalPrice.
+     */
+    @Query(
+        "select fs.name, p.name, p.slug, f.salePrice, pv.price from FlashSaleProduct f " +
+        "left join f.flashSale fs left join f.productVariant pv left join pv.product p " +
+        "where f.id = :flashSaleProductId"
+    )
+    List<Object[]> findEmailContent(@Param("flashSaleProductId") Long flashSaleProductId);
+
+    /**
+     * ID các sản phẩm có variant thuộc flash sale.
+     */
+    @Query("select distinct fsp.productVariant.product.id from FlashSaleProduct fsp where fsp.flashSale.id = :flashSaleId")
+    List<Long> findProductIdsByFlashSaleId(@Param("flashSaleId") Long flashSaleId);
+
+    /**
+     * ID sản phẩm của flash sale product.
+     */
+    @Query("select fsp.productVariant.product.id from FlashSaleProduct fsp where fsp.id = :id")
+    List<Long> findProductIdsById(@Param("id") Long id);
 }
@@ -84,4 +84,57 @@ public interface InventoryRepository extends JpaRepository<Inventory, Long>, Jpa
         "where i.id = :inventoryId and i.stockQuantity >= :quantity"
     )
     int deductStockQuantity(@Param("inventoryId") Long inventoryId, @Param("quantity") Long quantity);
+
+    /**
+     * Cộng stock quantity một cách atomic.
+     *
+     * @param inventoryId ID của inventory
+     * @param quantity số lượng cần cộng
+     * @return số dòng được cập nhật
+     */
+    @Modifying
+    @Query("update Inventory i set i.stockQuantity = coalesce(i.stockQuantity, 0) + :quantity where i.id = :inventoryId")
+    int increaseStockQuantity(@Param("inventoryId") Long inventoryId, @Param("quantity") Long quantity);
+
+    /**
+     * ID các inventory thuộc warehouse active của các product variant (không khóa),
+     * dùng để khóa bằng {@link #findAllByIdForUpdate(List)} theo thứ tự id.
+     */
+    @Query(
+        "select i.id from Inventory i " +
+        "left join i.warehouse w " +
+        "where i.productVariant.id in :productVariantIds " +
+        "and (w.isActive = true or w.isActive is null) " +
+        "order by i.id"
+    )
+    List<Long> findActiveIdsByProductVariantIds(@Param("productVariantIds") java.util.Collection<Long> productVariantIds);
+
+    /**
+     * Tồn kho của mọi inventory: id, productVariantId, warehouseId, stockQuantity.
+     */
+    @Query("select i.id, pv.id, w.id, i.stockQuantity from Inventory i left join i.productVariant pv left join i.warehouse w")
+    List<Object[]> findAllStockSnapshots();
+
+    /**
+     * Tất cả inventory của product variant (mọi warehouse), có khóa.
+     */
+    @Query("select i from Inventory i where i.productVariant.id = :productVariantId order by i.id")
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<Inventory> findAllByProductVariantIdForUpdate(@Param("productVariantId") Long productVariantId);
+
+    /**
+     * ID inventory của một cặp variant / warehouse (warehouse null nghĩa là inventory không gắn warehouse).
+     */
+    @Query(
+        "select i.id from Inventory i left join i.warehouse w where i.productVariant.id = :productVariantId " +
+        "and ((:warehouseId is null and w.id is null) or w.id = :warehouseId) order by i.id"
+    )
+    List<Long> findIdsByProductVariantIdAndWarehouseId(
+        @Param("productVariantId") Long productVariantId,
+        @Param("warehouseId") Long warehouseId
+    );
+
+    @Modifying
+    @Query("update Inventory i set i.stockQuantity = :stockQuantity where i.id = :inventoryId")
+    int updateStockQuantity(@Param("inventoryId") Long inventoryId, @Param("stockQuantity") Long stockQuantity);
 }
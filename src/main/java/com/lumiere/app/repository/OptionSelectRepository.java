@@ -2,6 +2,8 @@ package com.lumiere.app.repository;
 
 import com.lumiere.app.domain.OptionSelect;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Collection;
 import java.util.List;
@@ -11,4 +13,10 @@ public interface OptionSelectRepository extends JpaRepository<OptionSelect, Long
     boolean existsByOptionGroup_IdAndCodeIgnoreCase(Long groupId, String code);
     List<OptionSelect> findAllByIdIn(Collection<Long> ids);
 
+    /**
+     * ID các sản phẩm sở hữu các option select.
+     */
+    @Query("select distinct s.optionGroup.product.id from OptionSelect s where s.id in :ids")
+    List<Long> findProductIdsByIdIn(@Param("ids") Collection<Long> ids);
+
 }
@@ -3,6 +3,8 @@ package com.lumiere.app.repository;
 
 import com.lumiere.app.domain.OptionVariant;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Collection;
@@ -17,4 +19,10 @@ public interface OptionVariantRepository extends JpaRepository<OptionVariant, Lo
     List<OptionVariant> findByOptionSelect_IdIn(Collection<Long> selectIds);
 
     List<OptionVariant> findByProductVariant_idIn(Collection<Long> variantIds);
+
+    /**
+     * Các cặp (variantId, selectId) của một sản phẩm, dùng để dựng index tổ hợp option.
+     */
+    @Query("select ov.productVariant.id, ov.optionSelect.id from OptionVariant ov where ov.productVariant.product.id = :productId")
+    List<Object[]> findVariantSelectPairsByProductId(@Param("productId") Long productId);
 }
@@ -0,0 +1,21 @@
+package com.lumiere.app.repository;
+
+import com.lumiere.app.domain.enumeration.OrderStatus;
+import com.lumiere.app.domain.enumeration.PaymentStatus;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Một dòng trong file Excel danh sách đơn hàng (projection, không nạp entity).
+ */
+public record OrderExportRow(
+    String code,
+    Instant placedAt,
+    String customerFirstName,
+    String customerLastName,
+    OrderStatus status,
+    PaymentStatus paymentStatus,
+    String paymentMethod,
+    BigDecimal totalAmount,
+    String note
+) {}
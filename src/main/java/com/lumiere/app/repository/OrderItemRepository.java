@@ -102,4 +102,55 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
         @Param("productStatus") com.lumiere.app.domain.enumeration.ProductStatus productStatus,
         org.springframework.data.domain.Pageable pageable
     );
+
+    /**
+     * Tổng số lượng theo sản phẩm trong một đơn hàng: productId, quantity.
+     */
+    @Query(
+        """
+        SELECT p.id, SUM(oi.quantity)
+        FROM OrderItem oi
+        JOIN oi.productVariant pv
+        JOIN pv.product p
+        WHERE oi.order.id = :orderId
+        GROUP BY p.id
+        """
+    )
+    List<Object[]> sumQuantityByProductForOrder(@Param("orderId") Long orderId);
+
+    /**
+     * Tổng số lượng đã bán theo sản phẩm cho các đơn theo trạng thái: productId, quantity.
+     */
+    @Query(
+        """
+        SELECT p.id, SUM(oi.quantity)
+        FROM OrderItem oi
+        JOIN oi.productVariant pv
+        JOIN pv.product p
+        JOIN oi.order o
+        WHERE o.status IN :statuses
+        GROUP BY p.id
+        """
+    )
+    List<Object[]> sumQuantityByProduct(
+        @Param("statuses") java.util.Collection<com.lumiere.app.domain.enumeration.OrderStatus> statuses
+    );
+
+    /**
+     * Tổng số lượng đã giữ suất theo flash sale product của các đơn hàng có trạng thái cho trước:
+     * flashSaleProductId, quantity.
+     */
+    @Query(
+        """
+        SELECT oi.flashSaleProductId, SUM(oi.quantity)
+        FROM OrderItem oi
+        WHERE oi.order.id IN :orderIds AND oi.order.status = :status
+        AND oi.flashSaleProductId IS NOT NULL AND oi.quantity > 0
+        GROUP BY oi.flashSaleProductId
+        """
+    )
+    List<Object[]> sumFlashSaleQuantityForOrders(
+        @Param("orderIds") java.util.Collection<Long> orderIds,
+        @Param("status") com.lumiere.app.domain.enumeration.OrderStatus status
+    );
 }
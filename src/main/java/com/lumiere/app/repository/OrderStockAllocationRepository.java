@@ -0,0 +1,25 @@
+package com.lumiere.app.repository;
+
+import com.lumiere.app.domain.OrderStockAllocation;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data JPA repository for the OrderStockAllocation entity.
+ */
+@Repository
+public interface OrderStockAllocationRepository extends JpaRepository<OrderStockAllocation, Long> {
+    /**
+     * ID các đơn hàng (trong số cho trước) đang giữ hàng.
+     */
+    @Query("select distinct a.orderId from OrderStockAllocation a where a.orderId in :orderIds")
+    List<Long> findAllocatedOrderIds(@Param("orderIds") Collection<Long> orderIds);
+
+    /**
+     * Các dòng phân bổ của các đơn hàng, theo thứ tự id.
+     */
+    List<OrderStockAllocation> findAllByOrderIdInOrderById(Collection<Long> orderIds);
+}
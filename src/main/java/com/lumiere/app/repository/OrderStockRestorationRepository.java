@@ -0,0 +1,64 @@
+package com.lumiere.app.repository;
+
+import com.lumiere.app.domain.OrderStockRestoration;
+import com.lumiere.app.domain.enumeration.StockRestorationStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data JPA repository for the OrderStockRestoration entity.
+ */
+@Repository
+public interface OrderStockRestorationRepository extends JpaRepository<OrderStockRestoration, Long> {
+    /**
+     * Thêm đơn hàng vào hàng đợi hoàn kho. Bỏ qua nếu đơn đã có dòng PENDING, nên gọi nhiều lần cho cùng một lần hủy
+     * chỉ tạo một dòng (việc hoàn kho cũng không lặp lại nếu có hai dòng, xem {@code OrderStockRestoreBatchService}).
+     *
+     * @return 1 nếu đã thêm, 0 nếu đơn đang chờ hoàn kho
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = "org.hibernate.query.native.spaces", value = "order_stock_restoration"))
+    @Query(
+        value = """
+        INSERT INTO order_stock_restoration (order_id, status, attempts, created_at)
+        SELECT :orderId, 'PENDING', 0, :createdAt FROM DUAL
+        WHERE NOT EXISTS (SELECT 1 FROM order_stock_restoration r WHERE r.order_id = :orderId AND r.status = 'PENDING')
+        """,
+        nativeQuery = true
+    )
+    int enqueue(@Param("orderId") Long orderId, @Param("createdAt") Instant createdAt);
+
+    /**
+     * Lấy và khóa các dòng theo trạng thái, bỏ qua dòng đang bị instance khác khóa (SKIP LOCKED).
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select r from OrderStockRestoration r where r.status = :status order by r.id")
+    List<OrderStockRestoration> findByStatusForUpdate(@Param("status") StockRestorationStatus status, Pageable pageable);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select r from OrderStockRestoration r where r.id = :id and r.status = :status")
+    Optional<OrderStockRestoration> findByIdAndStatusForUpdate(@Param("id") Long id, @Param("status") StockRestorationStatus status);
+
+    @Query("select r.id from OrderStockRestoration r where r.status = :status order by r.id")
+    List<Long> findIdsByStatus(@Param("status") StockRestorationStatus status, Pageable pageable);
+
+    long countByStatus(StockRestorationStatus status);
+
+    /**
+     * ID các đơn hàng (trong số cho trước) có dòng ở trạng thái cho trước.
+     */
+    @Query("select distinct r.orderId from OrderStockRestoration r where r.orderId in :orderIds and r.status = :status")
+    List<Long> findOrderIdsByStatus(
+        @Param("orderIds") java.util.Collection<Long> orderIds,
+        @Param("status") StockRestorationStatus status
+    );
+}
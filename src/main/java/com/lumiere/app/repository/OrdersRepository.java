@@ -1,11 +1,15 @@
 package com.lumiere.app.repository;
 
 import com.lumiere.app.domain.Orders;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.*;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -112,4 +116,61 @@ public interface OrdersRepository extends JpaRepository<Orders, Long>, JpaSpecif
     @Query("SELECT o FROM Orders o LEFT JOIN FETCH o.customer c LEFT JOIN FETCH c.user WHERE o.id = :id")
     Optional<Orders> findOneWithCustomerAndUser(@Param("id") Long id);
 
+    /**
+     * Stream các dòng xuất Excel theo khoảng thời gian và trạng thái.
+     * Khi {@code allStatuses} là true, bỏ qua {@code statuses} và lấy cả các đơn chưa có trạng thái.
+     * Dùng projection + fetch size của MySQL driver (Integer.MIN_VALUE) để đọc từng dòng, bộ nhớ không tăng theo số đơn.
+     * Phải được gọi trong transaction và stream phải được đóng sau khi dùng.
+     */
+    @Query(
+        "select new com.lumiere.app.repository.OrderExportRow(" +
+        "o.code, o.placedAt, c.firstName, c.lastName, o.status, o.paymentStatus, o.paymentMethod, o.totalAmount, o.note) " +
+        "from Orders o left join o.customer c " +
+        "where (:fromDate is null or o.placedAt >= :fromDate) " +
+        "and (:toDate is null or o.placedAt < :toDate) " +
+        "and (:allStatuses = true or o.status in :statuses) " +
+        "order by o.id"
+    )
+    @QueryHints(
+        {
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false"),
+        }
+    )
+    Stream<OrderExportRow> streamExportRows(
+        @Param("fromDate") java.time.Instant fromDate,
+        @Param("toDate") java.time.Instant toDate,
+        @Param("allStatuses") boolean allStatuses,
+        @Param("statuses") java.util.Collection<com.lumiere.app.domain.enumeration.OrderStatus> statuses
+    );
+
+    /**
+     * Stream ngày đặt và tổng tiền của các đơn theo trạng thái, dùng để dựng lại bảng số liệu dashboard.
+     */
+    @Query(
+        "select o.placedAt, o.totalAmount from Orders o " +
+        "where (:fromDate is null or o.placedAt >= :fromDate) " +
+        "and (:toDate is null or o.placedAt < :toDate) " +
+        "and o.status in :statuses"
+    )
+    @QueryHints(
+        {
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false"),
+        }
+    )
+    Stream<Object[]> streamRevenueRows(
+        @Param("fromDate") java.time.Instant fromDate,
+        @Param("toDate") java.time.Instant toDate,
+        @Param("statuses") java.util.Collection<com.lumiere.app.domain.enumeration.OrderStatus> statuses
+    );
+
+    /**
+     * Lấy và khóa các đơn hàng theo thứ tự id (xử lý tồn kho tuần tự với thao tác hủy đơn trên cùng đơn hàng).
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select o from Orders o where o.id in :ids order by o.id")
+    List<Orders> findAllByIdForUpdate(@Param("ids") java.util.Collection<Long> ids);
 }
@@ -0,0 +1,51 @@
+package com.lumiere.app.repository;
+
+import com.lumiere.app.domain.OutboxEvent;
+import com.lumiere.app.domain.enumeration.OutboxEventStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import java.time.Instant;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Spring Data JPA repository for the OutboxEvent entity.
+ */
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+    /**
+     * Lấy và khóa các message theo trạng thái (theo thứ tự id), bỏ qua dòng đang bị instance khác khóa (SKIP LOCKED).
+     * Với mỗi key chỉ lấy message cũ nhất còn ở trạng thái đó (subquery đọc không khóa nên vẫn thấy message đang được
+     * instance khác gửi): message sau chỉ được gửi khi message trước cùng key đã được xác nhận.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query(
+        "select e from OutboxEvent e where e.status = :status and (e.messageKey is null or not exists (" +
+        "select p.id from OutboxEvent p where p.messageKey = e.messageKey and p.status = :status and p.id < e.id)) " +
+        "order by e.id"
+    )
+    List<OutboxEvent> findKeyHeadsByStatusForUpdate(@Param("status") OutboxEventStatus status, Pageable pageable);
+
+    long countByStatus(OutboxEventStatus status);
+
+    /**
+     * Thời điểm tạo của message cũ nhất theo trạng thái (null nếu không có).
+     */
+    @Query("select min(e.createdAt) from OutboxEvent e where e.status = :status")
+    Instant findOldestCreatedAt(@Param("status") OutboxEventStatus status);
+
+    /**
+     * Xóa các message đã gửi trước {@code sentBefore}.
+     *
+     * @return số dòng đã xóa
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from OutboxEvent e where e.status = com.lumiere.app.domain.enumeration.OutboxEventStatus.SENT and e.sentAt < :sentBefore")
+    int deleteSentBefore(@Param("sentBefore") Instant sentBefore);
+}
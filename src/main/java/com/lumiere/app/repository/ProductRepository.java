@@ -1,10 +1,7 @@
 package com.lumiere.app.repository;
 
 import com.lumiere.app.domain.Product;
-import java.math.BigDecimal;
 import java.util.List;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -17,41 +14,6 @@ import org.springframework.stereotype.Repository;
 public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
     boolean existsBySlug(String slug);
 
-    @Query(
-        value = """
-            SELECT p.id
-            FROM Product p
-            WHERE (:categoryIds IS NULL OR p.categoryId IN :categoryIds)
-              AND (
-                :minPrice IS NULL OR
-                (SELECT MIN(v.price) FROM ProductVariant v WHERE v.product = p) >= :minPrice
-              )
-              AND (
-                :maxPrice IS NULL OR
-                (SELECT MIN(v.price) FROM ProductVariant v WHERE v.product = p) <= :maxPrice
-              )
-        """,
-        countQuery = """
-            SELECT COUNT(p)
-            FROM Product p
-            WHERE (:categoryIds IS NULL OR p.categoryId IN :categoryIds)
-              AND (
-                :minPrice IS NULL OR
-                (SELECT MIN(v.price) FROM ProductVariant v WHERE v.product = p) >= :minPrice
-              )
-              AND (
-                :maxPrice IS NULL OR
-                (SELECT MIN(v.price) FROM ProductVariant v WHERE v.product = p) <= :maxPrice
-              )
-        """
-    )
-    Page<Long> searchProductIdsByCategoryAndCheapestVariantPrice(
-        @Param("categoryIds") List<Long> categoryIds,
-        @Param("minPrice") BigDecimal minPrice,
-        @Param("maxPrice") BigDecimal maxPrice,
-        Pageable pageable
-    );
-
     @Query(
         """
         SELECT DISTINCT p
@@ -109,4 +71,43 @@ public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpec
         nativeQuery = true
     )
     void deleteFlashSaleProductByProductId(@Param("id") Long id);
+
+    /**
+     * Cộng dồn tổng số sao và số đánh giá đã duyệt, đồng thời tính lại rating trung bình trong cùng một câu lệnh.
+     * averageRating được gán trước để luôn tính từ giá trị cũ + delta (kể cả với MySQL gán từ trái sang phải).
+     */
+    @Modifying
+    @Query(
+        """
+        update Product p set
+            p.averageRating = case when coalesce(p.reviewCount, 0) + :countDelta > 0
+                then round((coalesce(p.ratingSum, 0) + :sumDelta) * 1.0 / (coalesce(p.reviewCount, 0) + :countDelta), 1)
+                else 0.0 end,
+            p.ratingSum = coalesce(p.ratingSum, 0) + :sumDelta,
+            p.reviewCount = coalesce(p.reviewCount, 0) + :countDelta
+        where p.id = :productId
+        """
+    )
+    int applyRatingDelta(@Param("productId") Long productId, @Param("sumDelta") long sumDelta, @Param("countDelta") int countDelta);
+
+    /**
+     * Gán lại tổng số sao, số đánh giá và rating trung bình (dùng cho job đối soát).
+     */
+    @Modifying
+    @Query(
+        "update Product p set p.ratingSum = :ratingSum, p.reviewCount = :reviewCount, p.averageRating = :averageRating " +
+        "where p.id = :productId"
+    )
+    int updateRating(
+        @Param("productId") Long productId,
+        @Param("ratingSum") long ratingSum,
+        @Param("reviewCount") int reviewCount,
+        @Param("averageRating") double averageRating
+    );
+
+    /**
+     * Aggregate rating đang lưu của các sản phẩm: id, ratingSum, reviewCount.
+     */
+    @Query("select p.id, p.ratingSum, p.reviewCount from Product p")
+    List<Object[]> findAllRatingAggregates();
 }
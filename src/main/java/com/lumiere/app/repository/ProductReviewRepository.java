@@ -93,4 +93,46 @@ public interface ProductReviewRepository extends JpaRepository<ProductReview, Lo
         @Param("productId") Long productId,
         Pageable pageable
     );
+
+    /**
+     * Kiểm tra khách hàng đã đánh giá sản phẩm chưa (dùng index product_id, customer_id).
+     * Các đánh giá cũ chưa gắn customer được so khớp theo tên tác giả, chỉ trong phạm vi sản phẩm.
+     */
+    @Query(
+        "select count(productReview) > 0 from ProductReview productReview " +
+        "where productReview.product.id = :productId " +
+        "and (productReview.customer.id = :customerId " +
+        "or (productReview.customer is null and productReview.author = :author))"
+    )
+    boolean existsByProductIdAndCustomer(
+        @Param("productId") Long productId,
+        @Param("customerId") Long customerId,
+        @Param("author") String author
+    );
+
+    /**
+     * Lấy các đánh giá của khách hàng cho danh sách sản phẩm.
+     * Các đánh giá cũ chưa gắn customer được so khớp theo tên tác giả.
+     */
+    @Query(
+        "select productReview from ProductReview productReview " +
+        "where productReview.product.id in :productIds " +
+        "and (productReview.customer.id = :customerId " +
+        "or (productReview.customer is null and productReview.author = :author))"
+    )
+    List<ProductReview> findByProductIdInAndCustomer(
+        @Param("productIds") java.util.Collection<Long> productIds,
+        @Param("customerId") Long customerId,
+        @Param("author") String author
+    );
+
+    /**
+     * Số đánh giá theo sản phẩm và mức rating cho một trạng thái: productId, rating, count.
+     */
+    @Query(
+        "select productReview.product.id, productReview.rating, count(productReview) from ProductReview productReview " +
+        "where productReview.status = :status " +
+        "group by productReview.product.id, productReview.rating"
+    )
+    List<Object[]> countByProductAndRating(@Param("status") com.lumiere.app.domain.enumeration.ReviewStatus status);
 }
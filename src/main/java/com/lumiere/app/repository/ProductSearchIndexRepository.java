@@ -0,0 +1,177 @@
+package com.lumiere.app.repository;
+
+import com.lumiere.app.domain.ProductSearchIndex;
+import jakarta.persistence.QueryHint;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Spring Data JPA repository for the ProductSearchIndex entity.
+ */
+@Repository
+public interface ProductSearchIndexRepository extends JpaRepository<ProductSearchIndex, Long> {
+    /**
+     * Tính lại dòng read model của các sản phẩm từ product, product_variant, category và flash sale, tạo dòng nếu chưa có.
+     * Đường dẫn danh mục được dựng từ tối đa 5 cấp danh mục cha.
+     *
+     * @return số dòng bị ảnh hưởng (theo quy ước của MySQL cho upsert)
+     */
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = "org.hibernate.query.native.spaces", value = "product_search_index"))
+    @Query(
+        value = """
+        INSERT INTO product_search_index
+            (product_id, category_id, category_path, min_price, max_price, in_stock, average_rating, review_count, on_flash_sale, created_at, updated_at)
+        SELECT p.id, p.category_id,
+            CASE WHEN c1.id IS NULL THEN NULL ELSE CONCAT('/', CONCAT_WS('/', c5.id, c4.id, c3.id, c2.id, c1.id), '/') END,
+            (SELECT MIN(v.price) FROM product_variant v WHERE v.product_id = p.id),
+            (SELECT MAX(v.price) FROM product_variant v WHERE v.product_id = p.id),
+            EXISTS (SELECT 1 FROM product_variant v WHERE v.product_id = p.id AND v.stock_quantity > 0),
+            p.average_rating, p.review_count,
+            EXISTS (
+                SELECT 1 FROM flash_sale_product fsp
+                JOIN flash_sale fs ON fs.id = fsp.flash_sale_id
+                JOIN product_variant v ON v.id = fsp.product_variant_id
+                WHERE v.product_id = p.id AND fs.start_time <= :now AND fs.end_time >= :now
+            ),
+            p.created_at, :now
+        FROM product p
+        LEFT JOIN category c1 ON c1.id = p.category_id
+        LEFT JOIN category c2 ON c2.id = c1.father_id
+        LEFT JOIN category c3 ON c3.id = c2.father_id
+        LEFT JOIN category c4 ON c4.id = c3.father_id
+        LEFT JOIN category c5 ON c5.id = c4.father_id
+        WHERE p.id IN (:productIds)
+        ON DUPLICATE KEY UPDATE
+            category_id = VALUES(category_id),
+            category_path = VALUES(category_path),
+            min_price = VALUES(min_price),
+            max_price = VALUES(max_price),
+            in_stock = VALUES(in_stock),
+            average_rating = VALUES(average_rating),
+            review_count = VALUES(review_count),
+            on_flash_sale = VALUES(on_flash_sale),
+            created_at = VALUES(created_at),
+            updated_at = VALUES(updated_at)
+        """,
+        nativeQuery = true
+    )
+    int refresh(@Param("productIds") Collection<Long> productIds, @Param("now") Instant now);
+
+    /**
+     * ID sản phẩm theo thứ tự id, sau {@code afterId} (dùng để dựng lại toàn bộ read model theo từng nhóm).
+     */
+    @Query("select p.id from Product p where p.id > :afterId order by p.id")
+    List<Long> findProductIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * ID sản phẩm thuộc danh mục hoặc danh mục con của nó.
+     */
+    @Query("select s.productId from ProductSearchIndex s where s.categoryId = :categoryId or s.categoryPath like :pathPattern")
+    List<Long> findProductIdsInCategoryTree(@Param("categoryId") Long categoryId, @Param("pathPattern") String pathPattern);
+
+    /**
+     * Xóa các dòng không còn sản phẩm tương ứng.
+     */
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = "org.hibernate.query.native.spaces", value = "product_search_index"))
+    @Query(value = "DELETE FROM product_search_index WHERE product_id NOT IN (SELECT id FROM product)", nativeQuery = true)
+    int deleteOrphans();
+
+    /**
+     * ID sản phẩm có variant tham gia flash sale bắt đầu hoặc kết thúc trong khoảng (from, to].
+     */
+    @Query(
+        "select distinct fsp.productVariant.product.id from FlashSaleProduct fsp " +
+        "where (fsp.flashSale.startTime > :from and fsp.flashSale.startTime <= :to) " +
+        "or (fsp.flashSale.endTime >= :from and fsp.flashSale.endTime < :to)"
+    )
+    List<Long> findProductIdsWithFlashSaleBoundaryBetween(@Param("from") Instant from, @Param("to") Instant to);
+
+    @Query(
+        value = """
+        SELECT s.productId FROM ProductSearchIndex s
+        WHERE (:categoryIds IS NULL OR s.categoryId IN :categoryIds)
+          AND (:minPrice IS NULL OR s.minPrice >= :minPrice)
+          AND (:maxPrice IS NULL OR s.minPrice <= :maxPrice)
+          AND (:inStock IS NULL OR s.inStock = :inStock)
+          AND (:onFlashSale IS NULL OR s.onFlashSale = :onFlashSale)
+        """,
+        countQuery = """
+        SELECT COUNT(s) FROM ProductSearchIndex s
+        WHERE (:categoryIds IS NULL OR s.categoryId IN :categoryIds)
+          AND (:minPrice IS NULL OR s.minPrice >= :minPrice)
+          AND (:maxPrice IS NULL OR s.minPrice <= :maxPrice)
+          AND (:inStock IS NULL OR s.inStock = :inStock)
+          AND (:onFlashSale IS NULL OR s.onFlashSale = :onFlashSale)
+        """
+    )
+    Page<Long> searchProductIds(
+        @Param("categoryIds") List<Long> categoryIds,
+        @Param("minPrice") BigDecimal minPrice,
+        @Param("maxPrice") BigDecimal maxPrice,
+        @Param("inStock") Boolean inStock,
+        @Param("onFlashSale") Boolean onFlashSale,
+        Pageable pageable
+    );
+
+    /**
+     * Số sản phẩm theo danh mục (facet danh mục, không lọc theo danh mục): categoryId, categoryPath, count.
+     */
+    @Query(
+        """
+        SELECT s.categoryId, s.categoryPath, COUNT(s) FROM ProductSearchIndex s
+        WHERE (:minPrice IS NULL OR s.minPrice >= :minPrice)
+          AND (:maxPrice IS NULL OR s.minPrice <= :maxPrice)
+          AND (:inStock IS NULL OR s.inStock = :inStock)
+          AND (:onFlashSale IS NULL OR s.onFlashSale = :onFlashSale)
+        GROUP BY s.categoryId, s.categoryPath
+        """
+    )
+    List<Object[]> countByCategory(
+        @Param("minPrice") BigDecimal minPrice,
+        @Param("maxPrice") BigDecimal maxPrice,
+        @Param("inStock") Boolean inStock,
+        @Param("onFlashSale") Boolean onFlashSale
+    );
+
+    /**
+     * Số sản phẩm theo khoảng giá (facet giá, không lọc theo giá): một dòng gồm 6 giá trị cho các khoảng
+     * [0, b1), [b1, b2), [b2, b3), [b3, b4), [b4, b5), [b5, ∞).
+     */
+    @Query(
+        """
+        SELECT
+            COALESCE(SUM(CASE WHEN s.minPrice < :b1 THEN 1 ELSE 0 END), 0),
+            COALESCE(SUM(CASE WHEN s.minPrice >= :b1 AND s.minPrice < :b2 THEN 1 ELSE 0 END), 0),
+            COALESCE(SUM(CASE WHEN s.minPrice >= :b2 AND s.minPrice < :b3 THEN 1 ELSE 0 END), 0),
+            COALESCE(SUM(CASE WHEN s.minPrice >= :b3 AND s.minPrice < :b4 THEN 1 ELSE 0 END), 0),
+            COALESCE(SUM(CASE WHEN s.minPrice >= :b4 AND s.minPrice < :b5 THEN 1 ELSE 0 END), 0),
+            COALESCE(SUM(CASE WHEN s.minPrice >= :b5 THEN 1 ELSE 0 END), 0)
+        FROM ProductSearchIndex s
+        WHERE (:categoryIds IS NULL OR s.categoryId IN :categoryIds)
+          AND (:inStock IS NULL OR s.inStock = :inStock)
+          AND (:onFlashSale IS NULL OR s.onFlashSale = :onFlashSale)
+        """
+    )
+    List<Object[]> countByPriceBucket(
+        @Param("categoryIds") List<Long> categoryIds,
+        @Param("inStock") Boolean inStock,
+        @Param("onFlashSale") Boolean onFlashSale,
+        @Param("b1") BigDecimal b1,
+        @Param("b2") BigDecimal b2,
+        @Param("b3") BigDecimal b3,
+        @Param("b4") BigDecimal b4,
+        @Param("b5") BigDecimal b5
+    );
+}
@@ -74,4 +74,27 @@ public interface ProductVariantRepository extends JpaRepository<ProductVariant,
     @Modifying
     @Query(value = "DELETE FROM flash_sale_product WHERE product_variant_id = :id", nativeQuery = true)
     void deleteFlashSaleProductByVariantId(@Param("id") Long id);
+
+    /**
+     * Cộng/trừ tồn kho tổng của variant (projection của sổ kho, xem {@code StockLedgerService}).
+     */
+    @Modifying
+    @Query("update ProductVariant pv set pv.stockQuantity = coalesce(pv.stockQuantity, 0) + :delta where pv.id = :id")
+    int adjustStockQuantity(@Param("id") Long id, @Param("delta") Long delta);
+
+    @Modifying
+    @Query("update ProductVariant pv set pv.stockQuantity = :stockQuantity where pv.id = :id")
+    int updateStockQuantity(@Param("id") Long id, @Param("stockQuantity") Long stockQuantity);
+
+    /**
+     * Tồn kho tổng của mọi variant: id, stockQuantity.
+     */
+    @Query("select pv.id, pv.stockQuantity from ProductVariant pv")
+    List<Object[]> findAllStockQuantities();
+
+    /**
+     * ID các sản phẩm của các variant.
+     */
+    @Query("select distinct pv.product.id from ProductVariant pv where pv.id in :ids and pv.product is not null")
+    List<Long> findProductIdsByIdIn(@Param("ids") Collection<Long> ids);
 }
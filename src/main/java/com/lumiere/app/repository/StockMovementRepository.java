@@ -41,4 +41,22 @@ public interface StockMovementRepository extends JpaRepository<StockMovement, Lo
         "select stockMovement from StockMovement stockMovement left join fetch stockMovement.productVariant left join fetch stockMovement.warehouse where stockMovement.id =:id"
     )
     Optional<StockMovement> findOneWithToOneRelationships(@Param("id") Long id);
+
+    /**
+     * Tổng thay đổi tồn kho theo variant / warehouse: productVariantId, warehouseId, quantity.
+     */
+    @Query(
+        "select pv.id, w.id, sum(sm.quantityChange) from StockMovement sm " +
+        "join sm.productVariant pv left join sm.warehouse w group by pv.id, w.id"
+    )
+    List<Object[]> sumByProductVariantAndWarehouse();
+
+    /**
+     * Tổng thay đổi tồn kho theo warehouse của một variant: warehouseId, quantity.
+     */
+    @Query(
+        "select w.id, sum(sm.quantityChange) from StockMovement sm left join sm.warehouse w " +
+        "where sm.productVariant.id = :productVariantId group by w.id"
+    )
+    List<Object[]> sumByWarehouseForProductVariant(@Param("productVariantId") Long productVariantId);
 }
@@ -8,6 +8,8 @@ import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.*;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -33,4 +35,13 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findOneWithAuthoritiesByEmailIgnoreCase(String email);
 
     Page<User> findAllByIdNotNullAndActivatedIsTrue(Pageable pageable);
+
+    /**
+     * Người dùng đã kích hoạt có email, phân trang theo keyset (id tăng dần): id, login, email, langKey.
+     */
+    @Query(
+        "select u.id, u.login, u.email, u.langKey from User u " +
+        "where u.activated = true and u.email is not null and u.id > :afterId order by u.id"
+    )
+    List<Object[]> findEmailRecipientsAfter(@Param("afterId") Long afterId, Pageable pageable);
 }
@@ -25,6 +25,12 @@ public interface VoucherRepository extends JpaRepository<Voucher, Long> {
      */
     Optional<Voucher> findByCode(String code);
 
+    /**
+     * Lấy các mã voucher đã tồn tại trong danh sách mã.
+     */
+    @Query("SELECT v.code FROM Voucher v WHERE v.code IN :codes")
+    List<String> findExistingCodes(@Param("codes") java.util.Collection<String> codes);
+
     /**
      * Tìm tất cả voucher available (ACTIVE và chưa hết hạn).
      *
@@ -75,4 +81,25 @@ public interface VoucherRepository extends JpaRepository<Voucher, Long> {
         @Param("start") Instant start,
         @Param("end") Instant end
     );
+
+    /**
+     * Dùng một lượt của voucher bằng một câu {@code UPDATE} có điều kiện: chỉ tăng {@code usageCount} khi voucher
+     * còn {@code active} và chưa đạt {@code usageLimit}; chuyển sang {@code inactive} khi đây là lượt cuối.
+     * Khóa dòng của câu lệnh đảm bảo các checkout song song không dùng quá giới hạn.
+     * <p>
+     * {@code status} được gán trước {@code usageCount} vì MySQL đánh giá các phép gán theo thứ tự và dùng giá trị
+     * mới cho các phép gán phía sau.
+     *
+     * @return 1 nếu dùng được, 0 nếu voucher không còn lượt hoặc không còn active
+     */
+    @Modifying
+    @Query(
+        "UPDATE Voucher v SET " +
+        "v.status = CASE WHEN v.usageLimit IS NOT NULL AND COALESCE(v.usageCount, 0) + 1 >= v.usageLimit " +
+        "THEN :inactive ELSE v.status END, " +
+        "v.usageCount = COALESCE(v.usageCount, 0) + 1 " +
+        "WHERE v.id = :id AND v.status = :active " +
+        "AND (v.usageLimit IS NULL OR COALESCE(v.usageCount, 0) < v.usageLimit)"
+    )
+    int redeem(@Param("id") Long id, @Param("active") VoucherStatus active, @Param("inactive") VoucherStatus inactive);
 }
@@ -0,0 +1,79 @@
+package com.lumiere.app.security;
+
+import com.lumiere.app.domain.ChatSession;
+import com.lumiere.app.repository.ChatSessionRepository;
+import java.util.Objects;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Chỉ cho chủ phiên chat (khách hàng có id bằng {@code customerId} của phiên) hoặc nhân viên ({@code ROLE_ADMIN})
+ * subscribe hoặc gửi vào topic {@code /topic/session/{sessionId}} của phiên đó; id phiên tăng dần nên dễ đoán.
+ * <p>
+ * Chạy sau các interceptor của Spring Security trên kênh inbound, nên security context đã có người dùng của kết nối.
+ */
+@Component
+public class ChatSessionChannelInterceptor implements ChannelInterceptor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ChatSessionChannelInterceptor.class);
+
+    public static final String SESSION_TOPIC_PREFIX = "/topic/session/";
+
+    private final ChatSessionRepository chatSessionRepository;
+
+    public ChatSessionChannelInterceptor(ChatSessionRepository chatSessionRepository) {
+        this.chatSessionRepository = chatSessionRepository;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || (accessor.getCommand() != StompCommand.SUBSCRIBE && accessor.getCommand() != StompCommand.SEND)) {
+            return message;
+        }
+        String destination = accessor.getDestination();
+        if (destination == null || !destination.startsWith(SESSION_TOPIC_PREFIX)) {
+            return message;
+        }
+        if (!canAccess(destination.substring(SESSION_TOPIC_PREFIX.length()))) {
+            LOG.warn(
+                "Denied {} to {} for user {}",
+                accessor.getCommand(),
+                destination,
+                accessor.getUser() != null ? accessor.getUser().getName() : null
+            );
+            throw new AccessDeniedException("Access to chat session topic denied");
+        }
+        return message;
+    }
+
+    private boolean canAccess(String sessionId) {
+        if (SecurityUtils.hasCurrentUserThisAuthority(AuthoritiesConstants.ADMIN)) {
+            return true;
+        }
+        Optional<Long> userId = SecurityUtils.getCurrentUserId();
+        if (userId.isEmpty()) {
+            return false;
+        }
+        Long id;
+        try {
+            id = Long.valueOf(sessionId);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        return chatSessionRepository
+            .findById(id)
+            .map(ChatSession::getCustomerId)
+            .filter(customerId -> Objects.equals(customerId, String.valueOf(userId.get())))
+            .isPresent();
+    }
+}
@@ -1,22 +1,25 @@
 package com.lumiere.app.service;
 
-import com.lumiere.app.domain.Customer;
-import com.lumiere.app.domain.CustomerVoucher;
 import com.lumiere.app.domain.Voucher;
 import com.lumiere.app.domain.enumeration.VoucherStatus;
 import com.lumiere.app.domain.enumeration.VoucherType;
 import com.lumiere.app.repository.CustomerRepository;
-import com.lumiere.app.repository.CustomerVoucherRepository;
 import com.lumiere.app.repository.VoucherRepository;
 import java.math.BigDecimal;
 import java.security.SecureRandom;
 import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -30,7 +33,7 @@ public class BirthdayVoucherService {
 
     private final CustomerRepository customerRepository;
     private final VoucherRepository voucherRepository;
-    private final CustomerVoucherRepository customerVoucherRepository;
+    private final CustomerVoucherGrantService customerVoucherGrantService;
     private final SecureRandom random = new SecureRandom();
 
     // Cấu hình voucher sinh nhật
@@ -41,114 +44,59 @@ public class BirthdayVoucherService {
     public BirthdayVoucherService(
         CustomerRepository customerRepository,
         VoucherRepository voucherRepository,
-        CustomerVoucherRepository customerVoucherRepository
+        CustomerVoucherGrantService customerVoucherGrantService
     ) {
         this.customerRepository = customerRepository;
         this.voucherRepository = voucherRepository;
-        this.customerVoucherRepository = customerVoucherRepository;
+        this.customerVoucherGrantService = customerVoucherGrantService;
     }
 
     /**
      * Scheduled job chạy mỗi ngày lúc 3:00 AM để tặng voucher cho khách hàng có sinh nhật.
+     * Khách hàng được đọc theo keyset (id) từng nhóm, mỗi nhóm được tặng trong một transaction riêng.
      */
     @Scheduled(cron = "0 0 3 * * ?")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void giftBirthdayVouchers() {
         LOG.info("Starting scheduled job to gift birthday vouchers");
 
         LocalDate today = LocalDate.now();
         int month = today.getMonthValue();
         int day = today.getDayOfMonth();
-        int year = today.getYear();
-
-        // Tìm tất cả khách hàng có sinh nhật hôm nay
-        List<Customer> birthdayCustomers = customerRepository.findByBirthdayMonthAndDay(month, day);
-
-        if (birthdayCustomers.isEmpty()) {
-            LOG.info("No customers with birthday today");
-            return;
-        }
-
-        LOG.info("Found {} customers with birthday today", birthdayCustomers.size());
+        String yearString = String.valueOf(today.getYear());
 
+        int foundCount = 0;
         int giftedCount = 0;
-        int skippedCount = 0;
+        Long afterId = 0L;
+        PageRequest chunk = PageRequest.of(0, CustomerVoucherGrantService.CHUNK_SIZE);
 
-        for (Customer customer : birthdayCustomers) {
+        List<Long> customerIds;
+        while (!(customerIds = customerRepository.findIdsByBirthdayMonthAndDayAfter(month, day, afterId, chunk)).isEmpty()) {
+            afterId = customerIds.get(customerIds.size() - 1);
+            foundCount += customerIds.size();
             try {
-                if (giftBirthdayVoucherToCustomer(customer, year)) {
-                    giftedCount++;
-                } else {
-                    skippedCount++;
-                }
+                Iterator<String> codes = generateUniqueVoucherCodes(customerIds.size()).iterator();
+                giftedCount += customerVoucherGrantService.grant(customerIds, yearString, customerId -> createBirthdayVoucher(codes.next()));
             } catch (Exception e) {
-                LOG.error("Error gifting voucher to customer {}: {}", customer.getId(), e.getMessage(), e);
-                skippedCount++;
+                LOG.error("Error gifting birthday vouchers to customers up to {}: {}", afterId, e.getMessage(), e);
             }
         }
 
-        LOG.info("Completed birthday voucher job. Gifted: {}, Skipped: {}", giftedCount, skippedCount);
-    }
-
-    /**
-     * Tặng voucher sinh nhật cho một khách hàng.
-     *
-     * @param customer khách hàng
-     * @param year năm hiện tại
-     * @return true nếu đã tặng thành công, false nếu đã tặng trong năm này
-     */
-    public boolean giftBirthdayVoucherToCustomer(Customer customer, int year) {
-        if (customer == null || customer.getBirthday() == null) {
-            LOG.warn("Customer or birthday is null for customer: {}", customer != null ? customer.getId() : "null");
-            return false;
-        }
-
-        // Kiểm tra xem đã tặng voucher trong năm này chưa
-        String yearString = String.valueOf(year);
-        boolean alreadyGifted = customerVoucherRepository.existsByCustomerIdAndYear(
-            customer.getId(),
-            yearString
-        );
-
-        if (alreadyGifted) {
-            LOG.debug("Customer {} already received birthday voucher in year {}", customer.getId(), year);
-            return false;
+        if (foundCount == 0) {
+            LOG.info("No customers with birthday today");
+            return;
         }
-
-        // Tạo voucher mới
-        Voucher voucher = createBirthdayVoucher(customer);
-        voucher = voucherRepository.save(voucher);
-
-        // Tạo CustomerVoucher để gán voucher cho customer
-        CustomerVoucher customerVoucher = new CustomerVoucher();
-        customerVoucher.setCustomer(customer);
-        customerVoucher.setVoucher(voucher);
-        customerVoucher.setGiftedAt(Instant.now());
-        customerVoucher.setQuarter(yearString);
-        customerVoucher.setUsed(false);
-
-        customerVoucherRepository.save(customerVoucher);
-
-        LOG.info(
-            "Gifted birthday voucher {} to customer {} (ID: {})",
-            voucher.getCode(),
-            customer.getFirstName() + " " + customer.getLastName(),
-            customer.getId()
-        );
-
-        return true;
+        LOG.info("Completed birthday voucher job. Gifted: {}, Skipped: {}", giftedCount, foundCount - giftedCount);
     }
 
     /**
      * Tạo voucher sinh nhật mới.
      *
-     * @param customer khách hàng
+     * @param voucherCode mã voucher (đã kiểm tra không trùng)
      * @return voucher mới
      */
-    private Voucher createBirthdayVoucher(Customer customer) {
+    private Voucher createBirthdayVoucher(String voucherCode) {
         Voucher voucher = new Voucher();
-
-        // Tạo mã voucher unique
-        String voucherCode = generateUniqueVoucherCode();
         voucher.setCode(voucherCode);
 
         // Cấu hình voucher
@@ -169,28 +117,34 @@ public class BirthdayVoucherService {
     }
 
     /**
-     * Tạo mã voucher unique.
+     * Tạo một nhóm mã voucher unique; mã trùng trong database được kiểm tra bằng một truy vấn mỗi vòng.
      *
-     * @return mã voucher unique
+     * @param count số mã cần tạo
+     * @return danh sách mã voucher unique
      */
-    private String generateUniqueVoucherCode() {
-        String code;
+    private List<String> generateUniqueVoucherCodes(int count) {
+        Set<String> codes = new LinkedHashSet<>();
         int attempts = 0;
         int maxAttempts = 10;
 
-        do {
-            // Tạo mã voucher: BIRTH-XXXX (BIRTH + 4 ký tự random)
-            code = "BIRTH-" + generateRandomCode(VOUCHER_CODE_LENGTH);
-            attempts++;
-
-            if (attempts >= maxAttempts) {
-                // Nếu không tạo được mã unique sau nhiều lần, thêm timestamp
-                code = "BIRTH-" + generateRandomCode(VOUCHER_CODE_LENGTH) + "-" + System.currentTimeMillis() % 10000;
-                break;
+        while (codes.size() < count) {
+            Set<String> candidates = new LinkedHashSet<>();
+            while (candidates.size() < count - codes.size()) {
+                // Mã voucher: BIRTH-XXXXXXXX; sau nhiều lần trùng thì thêm hậu tố thời gian
+                String code = "BIRTH-" + generateRandomCode(VOUCHER_CODE_LENGTH);
+                if (attempts >= maxAttempts) {
+                    code = code + "-" + System.currentTimeMillis() % 10000;
+                }
+                if (!codes.contains(code)) {
+                    candidates.add(code);
+                }
             }
-        } while (voucherRepository.findByCode(code).isPresent());
+            voucherRepository.findExistingCodes(candidates).forEach(candidates::remove);
+            codes.addAll(candidates);
+            attempts++;
+        }
 
-        return code;
+        return new ArrayList<>(codes);
     }
 
     /**
@@ -0,0 +1,36 @@
+package com.lumiere.app.service;
+
+import org.springframework.stereotype.Service;
+
+/**
+ * Cấp id cho tin nhắn chat trước khi ghi DB, để tin nhắn đẩy realtime có id dù được ghi ở background.
+ * <p>
+ * Id được giữ theo khối từ dòng {@code chat_message} của bảng {@code id_generator}, theo cùng quy ước pooled-lo với
+ * các {@code @TableGenerator} ({@code next_val} là id còn trống kế tiếp), nên các instance không cấp trùng id.
+ */
+@Service
+public class ChatMessageIdAllocator {
+
+    /** Số id giữ mỗi lần (bằng allocationSize của các {@code @TableGenerator}). */
+    static final int BLOCK_SIZE = 50;
+
+    private final ChatMessageWriteBatchService chatMessageWriteBatchService;
+
+    private long nextId;
+    private long blockEnd;
+
+    public ChatMessageIdAllocator(ChatMessageWriteBatchService chatMessageWriteBatchService) {
+        this.chatMessageWriteBatchService = chatMessageWriteBatchService;
+    }
+
+    /**
+     * Id kế tiếp; giữ khối mới (trong transaction riêng) khi khối hiện tại đã dùng hết.
+     */
+    public synchronized Long nextId() {
+        if (nextId >= blockEnd) {
+            nextId = chatMessageWriteBatchService.reserveIds(BLOCK_SIZE);
+            blockEnd = nextId + BLOCK_SIZE;
+        }
+        return nextId++;
+    }
+}
@@ -0,0 +1,60 @@
+package com.lumiere.app.service;
+
+import com.lumiere.app.domain.ChatMessage;
+import com.lumiere.app.repository.ChatMessageRepository;
+import com.lumiere.app.repository.ChatSessionRepository;
+import jakarta.persistence.EntityManager;
+import java.util.List;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Ghi một batch tin nhắn chat trong transaction riêng (id đã được cấp trước nên INSERT được gom batch).
+ */
+@Service
+@Transactional(propagation = Propagation.REQUIRES_NEW)
+public class ChatMessageWriteBatchService {
+
+    private final ChatMessageRepository chatMessageRepository;
+    private final ChatSessionRepository chatSessionRepository;
+    private final EntityManager entityManager;
+
+    public ChatMessageWriteBatchService(
+        ChatMessageRepository chatMessageRepository,
+        ChatSessionRepository chatSessionRepository,
+        EntityManager entityManager
+    ) {
+        this.chatMessageRepository = chatMessageRepository;
+        this.chatSessionRepository = chatSessionRepository;
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Ghi các tin nhắn theo thứ tự.
+     */
+    public void saveBatch(List<ChatMessageWriteBehindService.PendingChatMessage> messages) {
+        for (ChatMessageWriteBehindService.PendingChatMessage pending : messages) {
+            ChatMessage message = new ChatMessage();
+            message.setId(pending.id());
+            message.setSender(pending.sender());
+            message.setText(pending.text());
+            message.setTimestamp(pending.timestamp());
+            message.setSession(chatSessionRepository.getReferenceById(pending.sessionId()));
+            // persist thay vì save: id đã có sẵn, save sẽ merge và SELECT từng tin nhắn
+            entityManager.persist(message);
+        }
+    }
+
+    /**
+     * Giữ một khối {@code count} id tin nhắn chat liên tiếp.
+     *
+     * @return id đầu tiên của khối
+     */
+    public long reserveIds(int count) {
+        if (chatMessageRepository.reserveIds(count) == 0) {
+            throw new IllegalStateException("Missing 'chat_message' row in id_generator");
+        }
+        return chatMessageRepository.findNextFreeId() - count;
+    }
+}
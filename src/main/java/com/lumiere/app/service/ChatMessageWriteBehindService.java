@@ -0,0 +1,207 @@
+package com.lumiere.app.service;
+
+import com.lumiere.app.config.ApplicationProperties;
+import com.lumiere.app.domain.enumeration.MessageSender;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolationException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Ghi tin nhắn chat ở background (write-behind).
+ * <p>
+ * Thread STOMP chỉ đưa tin nhắn vào một hàng đợi giới hạn rồi gửi tiếp cho client; job chạy mỗi 100ms lấy tin nhắn
+ * ra theo batch và ghi bằng {@link ChatMessageWriteBatchService}. Khi hàng đợi đầy (DB chậm) hoặc tắt
+ * {@code application.chat.write-behind-enabled}, tin nhắn được ghi trực tiếp trên thread gọi để tạo back-pressure
+ * thay vì giữ không giới hạn trong bộ nhớ. Khi ghi lỗi tạm thời (DB không sẵn sàng), tin nhắn chưa ghi được giữ lại
+ * và ghi lại trước các tin nhắn mới với back-off tăng dần; chỉ tin nhắn lỗi vĩnh viễn (ví dụ phiên chat đã bị xóa)
+ * bị bỏ. Tin nhắn còn chờ được ghi khi ứng dụng dừng.
+ */
+@Service
+public class ChatMessageWriteBehindService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ChatMessageWriteBehindService.class);
+
+    /** Back-off khi ghi lỗi tạm thời: 200ms, gấp đôi sau mỗi lần lỗi, tối đa 30s. */
+    private static final long INITIAL_BACKOFF_MS = 200;
+    private static final long MAX_BACKOFF_MS = 30_000;
+
+    /**
+     * Tin nhắn chờ ghi.
+     *
+     * @param id id đã cấp bởi {@link ChatMessageIdAllocator}
+     * @param sessionId phiên chat (đã tồn tại)
+     * @param sender người gửi
+     * @param text nội dung
+     * @param timestamp thời điểm gửi
+     */
+    public record PendingChatMessage(Long id, Long sessionId, MessageSender sender, String text, Instant timestamp) {}
+
+    private final ChatMessageWriteBatchService chatMessageWriteBatchService;
+    private final boolean writeBehindEnabled;
+    private final int batchSize;
+    private final BlockingQueue<PendingChatMessage> queue;
+    private final Counter queuedCounter;
+    private final Counter directCounter;
+    private final Counter failedCounter;
+
+    /** Tin nhắn ghi lỗi tạm thời, được ghi lại trước các tin nhắn trong hàng đợi (truy cập khi giữ khóa của service). */
+    private final Deque<PendingChatMessage> retry = new ArrayDeque<>();
+    private long backoffMs;
+    private long retryAtMillis;
+
+    public ChatMessageWriteBehindService(
+        ChatMessageWriteBatchService chatMessageWriteBatchService,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.chatMessageWriteBatchService = chatMessageWriteBatchService;
+        ApplicationProperties.Chat chat = applicationProperties.getChat();
+        this.writeBehindEnabled = chat.isWriteBehindEnabled();
+        this.batchSize = chat.getWriteBatchSize();
+        this.queue = new ArrayBlockingQueue<>(chat.getWriteQueueCapacity());
+        Gauge.builder("chat.message.write.queue", queue, BlockingQueue::size)
+            .description("Số tin nhắn chat đang chờ ghi")
+            .register(meterRegistry);
+        this.queuedCounter = Counter.builder("chat.message.written")
+            .description("Số tin nhắn chat đã xử lý")
+            .tag("result", "queued")
+            .register(meterRegistry);
+        this.directCounter = Counter.builder("chat.message.written")
+            .description("Số tin nhắn chat đã xử lý")
+            .tag("result", "direct")
+            .register(meterRegistry);
+        this.failedCounter = Counter.builder("chat.message.written")
+            .description("Số tin nhắn chat đã xử lý")
+            .tag("result", "failed")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Đưa tin nhắn vào hàng đợi ghi; ghi trực tiếp nếu hàng đợi đầy.
+     */
+    public void persist(PendingChatMessage message) {
+        if (writeBehindEnabled && queue.offer(message)) {
+            queuedCounter.increment();
+            return;
+        }
+        chatMessageWriteBatchService.saveBatch(List.of(message));
+        directCounter.increment();
+    }
+
+    /**
+     * Scheduled job chạy mỗi 100ms để ghi các tin nhắn đang chờ theo batch (trừ khi đang chờ back-off).
+     */
+    @Scheduled(fixedDelay = 100, initialDelay = 1000)
+    public synchronized void flush() {
+        if (System.currentTimeMillis() < retryAtMillis) {
+            return;
+        }
+        writePending();
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        writePending();
+        int lost = retry.size() + queue.size();
+        if (lost > 0) {
+            failedCounter.increment(lost);
+            LOG.error("Dropping {} chat messages on shutdown: they could not be written", lost);
+        }
+    }
+
+    /**
+     * Ghi các tin nhắn chờ ghi lại rồi các tin nhắn trong hàng đợi, dừng ở lỗi tạm thời đầu tiên.
+     */
+    private void writePending() {
+        List<PendingChatMessage> batch = new ArrayList<>(batchSize);
+        while (true) {
+            while (batch.size() < batchSize && !retry.isEmpty()) {
+                batch.add(retry.poll());
+            }
+            queue.drainTo(batch, batchSize - batch.size());
+            if (batch.isEmpty() || !write(batch)) {
+                return;
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Ghi một batch.
+     *
+     * @return false nếu gặp lỗi tạm thời (các tin nhắn chưa ghi được đưa vào {@link #retry})
+     */
+    private boolean write(List<PendingChatMessage> batch) {
+        try {
+            chatMessageWriteBatchService.saveBatch(batch);
+        } catch (Exception e) {
+            if (!isPermanent(e)) {
+                scheduleRetry(batch, 0, e);
+                return false;
+            }
+            LOG.warn("Writing {} chat messages failed, retrying one by one: {}", batch.size(), e.getMessage());
+            // Tách riêng tin nhắn lỗi (ví dụ phiên chat vừa bị xóa) để không mất cả batch
+            for (int i = 0; i < batch.size(); i++) {
+                PendingChatMessage message = batch.get(i);
+                try {
+                    chatMessageWriteBatchService.saveBatch(List.of(message));
+                } catch (Exception ex) {
+                    if (!isPermanent(ex)) {
+                        scheduleRetry(batch, i, ex);
+                        return false;
+                    }
+                    failedCounter.increment();
+                    LOG.error("Dropping chat message of session {}: {}", message.sessionId(), ex.getMessage());
+                }
+            }
+        }
+        backoffMs = 0;
+        return true;
+    }
+
+    /**
+     * Giữ lại các tin nhắn từ vị trí {@code from} của batch (theo đúng thứ tự, trước các tin nhắn đang chờ ghi lại)
+     * và hoãn lần ghi tiếp theo.
+     */
+    private void scheduleRetry(List<PendingChatMessage> batch, int from, Exception e) {
+        for (int i = batch.size() - 1; i >= from; i--) {
+            retry.addFirst(batch.get(i));
+        }
+        backoffMs = backoffMs == 0 ? INITIAL_BACKOFF_MS : Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+        retryAtMillis = System.currentTimeMillis() + backoffMs;
+        LOG.warn("Writing chat messages failed, retrying {} messages in {} ms: {}", retry.size(), backoffMs, e.getMessage());
+    }
+
+    /**
+     * Lỗi không thể hết khi ghi lại: vi phạm ràng buộc (phiên chat không tồn tại, nội dung quá dài) hoặc dữ liệu không hợp lệ.
+     */
+    private static boolean isPermanent(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (
+                cause instanceof DataIntegrityViolationException ||
+                cause instanceof DataRetrievalFailureException ||
+                cause instanceof InvalidDataAccessApiUsageException ||
+                cause instanceof ConstraintViolationException
+            ) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,317 @@
+package com.lumiere.app.service;
+
+import com.lumiere.app.domain.Customer;
+import com.lumiere.app.domain.FlashSaleProduct;
+import com.lumiere.app.domain.OrderItem;
+import com.lumiere.app.domain.Orders;
+import com.lumiere.app.domain.ProductVariant;
+import com.lumiere.app.domain.Voucher;
+import com.lumiere.app.repository.FlashSaleProductRepository;
+import com.lumiere.app.repository.ProductVariantRepository;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Tính giá cho checkout (đơn hàng từ giỏ và đơn của khách vãng lai).
+ * <p>
+ * Toàn bộ variant và flash sale đang active của giỏ hàng được nạp bằng một truy vấn mỗi loại,
+ * sau đó subtotal, giảm giá flash sale, voucher và điểm tích lũy được tính một lần trong bộ nhớ.
+ */
+@Service
+@Transactional
+public class CheckoutPricingService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CheckoutPricingService.class);
+
+    /** 1 điểm tích lũy = 1000 VND. */
+    public static final BigDecimal POINT_VALUE = BigDecimal.valueOf(1000);
+
+    private final ProductVariantRepository productVariantRepository;
+    private final FlashSaleProductRepository flashSaleProductRepository;
+    private final VoucherService voucherService;
+    private final FlashSaleReservationService flashSaleReservationService;
+
+    public CheckoutPricingService(
+        ProductVariantRepository productVariantRepository,
+        FlashSaleProductRepository flashSaleProductRepository,
+        VoucherService voucherService,
+        FlashSaleReservationService flashSaleReservationService
+    ) {
+        this.productVariantRepository = productVariantRepository;
+        this.flashSaleProductRepository = flashSaleProductRepository;
+        this.voucherService = voucherService;
+        this.flashSaleReservationService = flashSaleReservationService;
+    }
+
+    /**
+     * Tính giá cho danh sách dòng hàng.
+     * Variant không tồn tại được bỏ qua và trả về trong {@link Quote#getMissingVariantIds()}.
+     *
+     * @param requests các dòng hàng (variantId, quantity)
+     * @return báo giá gồm các dòng hợp lệ, subtotal và giảm giá flash sale
+     */
+    public Quote price(List<LineRequest> requests) {
+        Set<Long> variantIds = requests.stream().map(LineRequest::variantId).collect(Collectors.toCollection(LinkedHashSet::new));
+
+        Map<Long, ProductVariant> variants = productVariantRepository
+            .findAllByIdIn(variantIds)
+            .stream()
+            .collect(Collectors.toMap(ProductVariant::getId, Function.identity()));
+
+        Map<Long, FlashSaleProduct> flashSales = variants.isEmpty()
+            ? Collections.emptyMap()
+            : flashSaleProductRepository
+                .findActiveByProductVariantIdIn(variants.keySet(), Instant.now())
+                .stream()
+                .collect(Collectors.toMap(fsp -> fsp.getProductVariant().getId(), Function.identity(), (a, b) -> a));
+
+        Quote quote = new Quote();
+        for (LineRequest request : requests) {
+            ProductVariant variant = variants.get(request.variantId());
+            if (variant == null) {
+                quote.missingVariantIds.add(request.variantId());
+                continue;
+            }
+
+            BigDecimal originalPrice = variant.getPrice() != null ? variant.getPrice() : BigDecimal.ZERO;
+            BigDecimal unitPrice = originalPrice;
+            FlashSaleProduct flashSaleProduct = flashSales.get(variant.getId());
+            if (flashSaleProduct != null && flashSaleProduct.getSalePrice() != null) {
+                unitPrice = flashSaleProduct.getSalePrice();
+            }
+
+            Line line = new Line(variant, flashSaleProduct, request.quantity(), originalPrice, unitPrice);
+            quote.lines.add(line);
+            quote.subtotal = quote.subtotal.add(line.getTotalPrice());
+            quote.flashSaleDiscount = quote.flashSaleDiscount.add(line.getFlashSaleDiscount());
+        }
+
+        if (quote.flashSaleDiscount.compareTo(BigDecimal.ZERO) > 0) {
+            LOG.debug("Flash sale discount: {}", quote.flashSaleDiscount);
+        }
+        return quote;
+    }
+
+    /**
+     * Validate voucher và tính số tiền giảm trên {@code eligibleAmount}.
+     *
+     * @param quote báo giá hiện tại
+     * @param voucherCode mã voucher (bỏ qua nếu rỗng)
+     * @param eligibleAmount số tiền được áp dụng voucher
+     * @return số tiền giảm từ voucher
+     * @throws IllegalArgumentException nếu voucher không hợp lệ
+     */
+    public BigDecimal applyVoucher(Quote quote, String voucherCode, BigDecimal eligibleAmount) {
+        if (voucherCode == null || voucherCode.trim().isEmpty()) {
+            return BigDecimal.ZERO;
+        }
+        try {
+            Voucher voucher = voucherService.validateVoucher(voucherCode, eligibleAmount);
+            quote.voucher = voucher;
+            quote.voucherDiscount = voucherService.calculateDiscountAmount(voucher, eligibleAmount);
+            LOG.debug("Applied voucher: {}, discount amount: {}", voucherCode, quote.voucherDiscount);
+            return quote.voucherDiscount;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Lỗi voucher: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Kiểm tra số điểm tích lũy khách hàng muốn dùng và tính số tiền được trừ.
+     *
+     * @param quote báo giá hiện tại
+     * @param customer khách hàng
+     * @param redeemedPoints số điểm muốn dùng
+     * @return số tiền được trừ từ điểm
+     * @throws IllegalArgumentException nếu khách hàng không đủ điểm
+     */
+    public BigDecimal applyRedeemedPoints(Quote quote, Customer customer, Integer redeemedPoints) {
+        if (redeemedPoints == null || redeemedPoints <= 0) {
+            return BigDecimal.ZERO;
+        }
+        int currentPoints = customer.getLoyaltyPoints() != null ? customer.getLoyaltyPoints() : 0;
+        if (currentPoints < redeemedPoints) {
+            throw new IllegalArgumentException(
+                "Khách hàng không đủ điểm tích lũy. Hiện có: " + currentPoints + ", yêu cầu: " + redeemedPoints
+            );
+        }
+        quote.redeemedPoints = redeemedPoints;
+        quote.pointsDiscount = BigDecimal.valueOf(redeemedPoints).multiply(POINT_VALUE);
+        return quote.pointsDiscount;
+    }
+
+    /**
+     * Giữ suất flash sale cho các dòng hàng của báo giá, gộp số lượng theo flash sale product.
+     *
+     * @throws IllegalArgumentException nếu một flash sale product không còn đủ suất
+     */
+    public void reserveFlashSaleQuantities(Quote quote) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (Line line : quote.lines) {
+            FlashSaleProduct flashSaleProduct = line.getFlashSaleProduct();
+            if (flashSaleProduct != null) {
+                quantities.merge(flashSaleProduct.getId(), line.getQuantity(), Integer::sum);
+            }
+        }
+        if (!quantities.isEmpty()) {
+            flashSaleReservationService.reserve(quantities);
+        }
+    }
+
+    /**
+     * Tạo các OrderItem (chưa lưu) từ báo giá.
+     */
+    public List<OrderItem> buildOrderItems(Orders order, Quote quote) {
+        List<OrderItem> orderItems = new ArrayList<>(quote.lines.size());
+        for (Line line : quote.lines) {
+            OrderItem orderItem = new OrderItem();
+            orderItem.setOrder(order);
+            orderItem.setProductVariant(line.getVariant());
+            orderItem.setQuantity(line.getQuantity());
+            orderItem.setUnitPrice(line.getUnitPrice());
+            orderItem.setTotalPrice(line.getTotalPrice());
+            if (line.getFlashSaleProduct() != null) {
+                orderItem.setFlashSaleProductId(line.getFlashSaleProduct().getId());
+            }
+            orderItems.add(orderItem);
+        }
+        return orderItems;
+    }
+
+    /**
+     * Một dòng hàng cần tính giá.
+     *
+     * @throws IllegalArgumentException nếu thiếu variantId hoặc số lượng không phải số dương
+     */
+    public record LineRequest(Long variantId, Integer quantity) {
+        public LineRequest {
+            if (variantId == null) {
+                throw new IllegalArgumentException("Thiếu sản phẩm trong dòng hàng");
+            }
+            if (quantity == null || quantity <= 0) {
+                throw new IllegalArgumentException("Số lượng không hợp lệ cho sản phẩm " + variantId + ": " + quantity);
+            }
+        }
+    }
+
+    /**
+     * Một dòng hàng đã tính giá.
+     */
+    public static class Line {
+
+        private final ProductVariant variant;
+        private final FlashSaleProduct flashSaleProduct;
+        private final int quantity;
+        private final BigDecimal originalPrice;
+        private final BigDecimal unitPrice;
+
+        Line(ProductVariant variant, FlashSaleProduct flashSaleProduct, int quantity, BigDecimal originalPrice, BigDecimal unitPrice) {
+            this.variant = variant;
+            this.flashSaleProduct = flashSaleProduct;
+            this.quantity = quantity;
+            this.originalPrice = originalPrice;
+            this.unitPrice = unitPrice;
+        }
+
+        public ProductVariant getVariant() {
+            return variant;
+        }
+
+        public FlashSaleProduct getFlashSaleProduct() {
+            return flashSaleProduct;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public BigDecimal getOriginalPrice() {
+            return originalPrice;
+        }
+
+        public BigDecimal getUnitPrice() {
+            return unitPrice;
+        }
+
+        public BigDecimal getTotalPrice() {
+            return unitPrice.multiply(BigDecimal.valueOf(quantity));
+        }
+
+        /**
+         * Số tiền giảm nhờ flash sale (chỉ tính khi giá bán nhỏ hơn giá gốc).
+         */
+        public BigDecimal getFlashSaleDiscount() {
+            if (unitPrice.compareTo(originalPrice) >= 0) {
+                return BigDecimal.ZERO;
+            }
+            return originalPrice.subtract(unitPrice).multiply(BigDecimal.valueOf(quantity));
+        }
+    }
+
+    /**
+     * Kết quả tính giá cho một checkout.
+     */
+    public static class Quote {
+
+        private final List<Line> lines = new ArrayList<>();
+        private final List<Long> missingVariantIds = new ArrayList<>();
+        private BigDecimal subtotal = BigDecimal.ZERO;
+        private BigDecimal flashSaleDiscount = BigDecimal.ZERO;
+        private Voucher voucher;
+        private BigDecimal voucherDiscount = BigDecimal.ZERO;
+        private int redeemedPoints;
+        private BigDecimal pointsDiscount = BigDecimal.ZERO;
+
+        public List<Line> getLines() {
+            return lines;
+        }
+
+        public List<Long> getMissingVariantIds() {
+            return missingVariantIds;
+        }
+
+        public BigDecimal getSubtotal() {
+            return subtotal;
+        }
+
+        public BigDecimal getFlashSaleDiscount() {
+            return flashSaleDiscount;
+        }
+
+        public Voucher getVoucher() {
+            return voucher;
+        }
+
+        public BigDecimal getVoucherDiscount() {
+            return voucherDiscount;
+        }
+
+        public int getRedeemedPoints() {
+            return redeemedPoints;
+        }
+
+        public BigDecimal getPointsDiscount() {
+            return pointsDiscount;
+        }
+
+        /**
+         * Tổng giảm giá lưu vào đơn hàng: flash sale + voucher.
+         */
+        public BigDecimal getDiscountAmount() {
+            return flashSaleDiscount.add(voucherDiscount);
+        }
+    }
+}
@@ -2,12 +2,25 @@ package com.lumiere.app.service;
 
 
 import com.lumiere.app.service.dto.AttachmentDTO;
+import com.lumiere.app.service.dto.ChunkUploadStatusDTO;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.Optional;
 
 public interface ChunkUploadService {
-    void saveChunk(String uploadId, int chunkIndex, MultipartFile file) throws IOException;
+    /**
+     * Ghi một chunk vào đúng vị trí của nó trong file tạm của upload.
+     *
+     * @param chunkSize kích thước chunk của upload (null: lấy theo chunk 0; bắt buộc nếu chunk khác đến trước chunk 0)
+     * @param sha256 checksum SHA-256 (hex) client tính cho chunk (null: không kiểm tra)
+     */
+    void saveChunk(String uploadId, int chunkIndex, Long chunkSize, String sha256, MultipartFile file) throws IOException;
+
+    /**
+     * Các chunk đã nhận của một upload, rỗng nếu upload không tồn tại (chưa bắt đầu, đã hoàn tất hoặc đã bị dọn).
+     */
+    Optional<ChunkUploadStatusDTO> getStatus(String uploadId) throws IOException;
 
     AttachmentDTO mergeChunks(String uploadId, int totalChunks, String fileName) throws IOException;
 }
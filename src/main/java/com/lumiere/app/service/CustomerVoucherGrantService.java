@@ -0,0 +1,101 @@
+package com.lumiere.app.service;
+
+import com.lumiere.app.domain.CustomerVoucher;
+import com.lumiere.app.domain.Voucher;
+import com.lumiere.app.repository.CustomerRepository;
+import com.lumiere.app.repository.CustomerVoucherRepository;
+import com.lumiere.app.repository.VoucherRepository;
+import jakarta.persistence.EntityManager;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Tặng voucher hàng loạt cho khách hàng (voucher sinh nhật, voucher theo quý).
+ * <p>
+ * Mỗi lần gọi xử lý một nhóm khách hàng trong transaction riêng: một truy vấn lọc khách hàng đã nhận voucher
+ * trong kỳ, ghi voucher và CustomerVoucher bằng {@code saveAll}, sau đó flush và clear persistence context
+ * để bộ nhớ không tăng theo số khách hàng.
+ */
+@Service
+@Transactional(propagation = Propagation.REQUIRES_NEW)
+public class CustomerVoucherGrantService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CustomerVoucherGrantService.class);
+
+    /** Số khách hàng xử lý trong một transaction. */
+    public static final int CHUNK_SIZE = 500;
+
+    private final CustomerRepository customerRepository;
+    private final VoucherRepository voucherRepository;
+    private final CustomerVoucherRepository customerVoucherRepository;
+    private final EntityManager entityManager;
+    private final VoucherCacheService voucherCacheService;
+
+    public CustomerVoucherGrantService(
+        CustomerRepository customerRepository,
+        VoucherRepository voucherRepository,
+        CustomerVoucherRepository customerVoucherRepository,
+        EntityManager entityManager,
+        VoucherCacheService voucherCacheService
+    ) {
+        this.customerRepository = customerRepository;
+        this.voucherRepository = voucherRepository;
+        this.customerVoucherRepository = customerVoucherRepository;
+        this.entityManager = entityManager;
+        this.voucherCacheService = voucherCacheService;
+    }
+
+    /**
+     * Tặng voucher cho một nhóm khách hàng, bỏ qua khách hàng đã nhận voucher trong kỳ.
+     *
+     * @param customerIds ID các khách hàng
+     * @param period kỳ tặng voucher, lưu vào {@link CustomerVoucher#getQuarter()} ("2024-Q1" hoặc "2024")
+     * @param voucherFactory tạo voucher (chưa lưu) cho một khách hàng
+     * @return số khách hàng đã được tặng
+     */
+    public int grant(List<Long> customerIds, String period, Function<Long, Voucher> voucherFactory) {
+        if (customerIds.isEmpty()) {
+            return 0;
+        }
+        Set<Long> alreadyGifted = new HashSet<>(customerVoucherRepository.findCustomerIdsByQuarter(period, customerIds));
+
+        List<Voucher> vouchers = new ArrayList<>();
+        List<CustomerVoucher> customerVouchers = new ArrayList<>();
+        Instant now = Instant.now();
+        for (Long customerId : customerIds) {
+            if (alreadyGifted.contains(customerId)) {
+                continue;
+            }
+            Voucher voucher = voucherFactory.apply(customerId);
+            vouchers.add(voucher);
+
+            CustomerVoucher customerVoucher = new CustomerVoucher();
+            customerVoucher.setCustomer(customerRepository.getReferenceById(customerId));
+            customerVoucher.setVoucher(voucher);
+            customerVoucher.setGiftedAt(now);
+            customerVoucher.setQuarter(period);
+            customerVoucher.setUsed(false);
+            customerVouchers.add(customerVoucher);
+        }
+
+        voucherRepository.saveAll(vouchers);
+        customerVoucherRepository.saveAll(customerVouchers);
+        entityManager.flush();
+        entityManager.clear();
+        // Mã mới có thể đang nằm trong cache âm
+        voucherCacheService.evictAllVouchers();
+        voucherCacheService.evictCustomers(customerVouchers.stream().map(cv -> cv.getCustomer().getId()).toList());
+
+        LOG.debug("Granted {} vouchers for period {} ({} already gifted)", vouchers.size(), period, alreadyGifted.size());
+        return vouchers.size();
+    }
+}
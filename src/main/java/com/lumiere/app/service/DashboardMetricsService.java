@@ -0,0 +1,191 @@
+package com.lumiere.app.service;
+
+import com.lumiere.app.config.Constants;
+import com.lumiere.app.domain.AbstractAuditingEntity;
+import com.lumiere.app.domain.Orders;
+import com.lumiere.app.domain.enumeration.OrderStatus;
+import com.lumiere.app.repository.CustomerRepository;
+import com.lumiere.app.repository.DashboardDailyMetricRepository;
+import com.lumiere.app.repository.DashboardProductMetricRepository;
+import com.lumiere.app.repository.OrderItemRepository;
+import com.lumiere.app.repository.OrdersRepository;
+import com.lumiere.app.repository.UserRepository;
+import com.lumiere.app.service.dto.DashboardRebuildResult;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Duy trì bảng số liệu dashboard đã cộng dồn ({@code dashboard_daily_metric}, {@code dashboard_product_metric}).
+ * <p>
+ * Mỗi khi đơn hàng đi vào hoặc ra khỏi nhóm trạng thái được tính doanh thu, số liệu của ngày đặt hàng và
+ * số lượng bán theo sản phẩm được cộng/trừ bằng một câu upsert, nên dashboard chỉ cần đọc số dòng theo ngày
+ * thay vì quét toàn bộ bảng orders và customer. Dữ liệu lịch sử được dựng lại bằng {@link #rebuild(LocalDate, LocalDate)}.
+ */
+@Service
+@Transactional
+public class DashboardMetricsService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DashboardMetricsService.class);
+
+    /** Các trạng thái đơn hàng được tính vào doanh thu và thống kê. */
+    public static final Set<OrderStatus> COUNTED_STATUSES = EnumSet.of(
+        OrderStatus.DELIVERED,
+        OrderStatus.COMPLETED,
+        OrderStatus.CONFIRMED,
+        OrderStatus.PROCESSING,
+        OrderStatus.SHIPPING
+    );
+
+
+    private final DashboardDailyMetricRepository dailyMetricRepository;
+    private final DashboardProductMetricRepository productMetricRepository;
+    private final OrdersRepository ordersRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final CustomerRepository customerRepository;
+    private final UserRepository userRepository;
+
+    public DashboardMetricsService(
+        DashboardDailyMetricRepository dailyMetricRepository,
+        DashboardProductMetricRepository productMetricRepository,
+        OrdersRepository ordersRepository,
+        OrderItemRepository orderItemRepository,
+        CustomerRepository customerRepository,
+        UserRepository userRepository
+    ) {
+        this.dailyMetricRepository = dailyMetricRepository;
+        this.productMetricRepository = productMetricRepository;
+        this.ordersRepository = ordersRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.customerRepository = customerRepository;
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Cập nhật số liệu khi đơn hàng đổi trạng thái. Không làm gì nếu cả hai trạng thái cùng được tính
+     * (hoặc cùng không được tính) vào doanh thu.
+     *
+     * @param order đơn hàng
+     * @param oldStatus trạng thái trước
+     * @param newStatus trạng thái sau
+     */
+    public void onOrderStatusChanged(Orders order, OrderStatus oldStatus, OrderStatus newStatus) {
+        int sign = (COUNTED_STATUSES.contains(newStatus) ? 1 : 0) - (COUNTED_STATUSES.contains(oldStatus) ? 1 : 0);
+        if (sign == 0) {
+            return;
+        }
+        if (order.getPlacedAt() == null) {
+            LOG.warn("Order {} has no placedAt, skip dashboard metrics", order.getId());
+            return;
+        }
+
+        BigDecimal amount = order.getTotalAmount() != null ? order.getTotalAmount() : BigDecimal.ZERO;
+        dailyMetricRepository.increment(toDate(order.getPlacedAt()), amount.multiply(BigDecimal.valueOf(sign)), sign, 0);
+
+        for (Object[] row : orderItemRepository.sumQuantityByProductForOrder(order.getId())) {
+            productMetricRepository.increment((Long) row[0], sign * ((Number) row[1]).longValue());
+        }
+        LOG.debug("Dashboard metrics updated for order {}: {} -> {}", order.getId(), oldStatus, newStatus);
+    }
+
+    /**
+     * Đếm một khách hàng mới khi customer được gắn với tài khoản; ngày tính theo ngày tạo tài khoản.
+     *
+     * @param userId ID tài khoản của khách hàng
+     */
+    public void recordNewCustomer(Long userId) {
+        userRepository
+            .findById(userId)
+            .map(AbstractAuditingEntity::getCreatedDate)
+            .ifPresent(createdDate -> dailyMetricRepository.increment(toDate(createdDate), BigDecimal.ZERO, 0, 1));
+    }
+
+    /**
+     * Dựng lại số liệu theo ngày trong khoảng [fromDate, toDate] từ bảng orders/customer và toàn bộ
+     * số lượng bán theo sản phẩm. Bỏ trống cả hai ngày để dựng lại toàn bộ lịch sử.
+     * Nên chạy ngoài giờ cao điểm: các thay đổi trạng thái đơn xảy ra trong lúc dựng lại có thể bị ghi đè.
+     *
+     * @param fromDate ngày bắt đầu (bao gồm), có thể null
+     * @param toDate ngày kết thúc (bao gồm), có thể null
+     * @return thống kê số dòng đã ghi
+     */
+    public DashboardRebuildResult rebuild(LocalDate fromDate, LocalDate toDate) {
+        if (fromDate != null && toDate != null && fromDate.isAfter(toDate)) {
+            throw new IllegalArgumentException("fromDate phải trước hoặc bằng toDate");
+        }
+        Instant from = fromDate != null ? fromDate.atStartOfDay(Constants.DASHBOARD_ZONE).toInstant() : null;
+        Instant to = toDate != null ? toDate.plusDays(1).atStartOfDay(Constants.DASHBOARD_ZONE).toInstant() : null;
+
+        Map<LocalDate, BigDecimal> revenue = new HashMap<>();
+        Map<LocalDate, Long> orderCounts = new HashMap<>();
+        Map<LocalDate, Long> customerCounts = new HashMap<>();
+        long orders = 0;
+        long customers = 0;
+
+        try (Stream<Object[]> rows = ordersRepository.streamRevenueRows(from, to, COUNTED_STATUSES)) {
+            for (Object[] row : (Iterable<Object[]>) rows::iterator) {
+                if (row[0] == null) {
+                    continue;
+                }
+                LocalDate date = toDate((Instant) row[0]);
+                BigDecimal amount = row[1] != null ? (BigDecimal) row[1] : BigDecimal.ZERO;
+                revenue.merge(date, amount, BigDecimal::add);
+                orderCounts.merge(date, 1L, Long::sum);
+                orders++;
+            }
+        }
+        try (Stream<Instant> createdDates = customerRepository.streamCustomerCreatedDates(from, to)) {
+            for (Instant createdDate : (Iterable<Instant>) createdDates::iterator) {
+                if (createdDate == null) {
+                    continue;
+                }
+                customerCounts.merge(toDate(createdDate), 1L, Long::sum);
+                customers++;
+            }
+        }
+
+        dailyMetricRepository.deleteBetween(fromDate, toDate);
+        Set<LocalDate> dates = new TreeSet<>(revenue.keySet());
+        dates.addAll(customerCounts.keySet());
+        for (LocalDate date : dates) {
+            dailyMetricRepository.increment(
+                date,
+                revenue.getOrDefault(date, BigDecimal.ZERO),
+                orderCounts.getOrDefault(date, 0L),
+                customerCounts.getOrDefault(date, 0L)
+            );
+        }
+
+        productMetricRepository.deleteAllMetrics();
+        List<Object[]> productRows = orderItemRepository.sumQuantityByProduct(COUNTED_STATUSES);
+        for (Object[] row : productRows) {
+            productMetricRepository.increment((Long) row[0], ((Number) row[1]).longValue());
+        }
+
+        LOG.info(
+            "Rebuilt dashboard metrics from {} to {}: {} days, {} orders, {} customers, {} products",
+            fromDate,
+            toDate,
+            dates.size(),
+            orders,
+            customers,
+            productRows.size()
+        );
+        return new DashboardRebuildResult(fromDate, toDate, dates.size(), orders, customers, productRows.size());
+    }
+
+    private static LocalDate toDate(Instant instant) {
+        return LocalDate.ofInstant(instant, Constants.DASHBOARD_ZONE);
+    }
+}
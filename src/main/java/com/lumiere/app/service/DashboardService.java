@@ -1,10 +1,12 @@
 package com.lumiere.app.service;
 
+import com.lumiere.app.service.dto.DashboardRebuildResult;
 import com.lumiere.app.service.dto.DashboardStatsDTO;
 import com.lumiere.app.service.dto.MonthlyRevenueDTO;
 import com.lumiere.app.service.dto.MonthlyCustomerDTO;
 import com.lumiere.app.service.dto.TopProductDTO;
 import com.lumiere.app.service.dto.RecentSaleDTO;
+import java.time.LocalDate;
 import java.util.List;
 
 /**
@@ -47,5 +49,13 @@ public interface DashboardService {
      * @return Danh sách đơn hàng gần đây
      */
     List<RecentSaleDTO> getRecentSales(int limit);
-}
 
+    /**
+     * Dựng lại bảng số liệu dashboard từ dữ liệu đơn hàng và khách hàng.
+     *
+     * @param fromDate ngày bắt đầu (bao gồm), null để dựng lại toàn bộ lịch sử
+     * @param toDate ngày kết thúc (bao gồm), null để dựng lại toàn bộ lịch sử
+     * @return thống kê kết quả dựng lại
+     */
+    DashboardRebuildResult rebuildMetrics(LocalDate fromDate, LocalDate toDate);
+}
@@ -0,0 +1,262 @@
+package com.lumiere.app.service;
+
+import com.lumiere.app.config.ApplicationProperties;
+import com.lumiere.app.config.Constants;
+import com.lumiere.app.domain.FlashSaleEmailCampaign;
+import com.lumiere.app.domain.enumeration.EmailCampaignStatus;
+import com.lumiere.app.repository.FlashSaleEmailCampaignRepository;
+import com.lumiere.app.repository.FlashSaleProductRepository;
+import com.lumiere.app.repository.UserRepository;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Gửi email thông báo flash sale cho toàn bộ người dùng đã kích hoạt.
+ * <p>
+ * Khi tạo flash sale product chỉ ghi một dòng {@link FlashSaleEmailCampaign}; job định kỳ nhận campaign
+ * (UPDATE có điều kiện + lease nên chỉ một instance gửi) rồi giao cho executor {@code campaignRunnerExecutor},
+ * để thread của scheduler dùng chung không bị giữ trong suốt campaign. Campaign đọc người nhận theo keyset trên id,
+ * render template một lần cho mỗi ngôn ngữ và gửi qua executor {@code campaignMailExecutor} với giới hạn
+ * số email mỗi giây. Tiến độ ({@code lastUserId}) được lưu sau mỗi trang nên khi restart chỉ gửi tiếp
+ * từ trang chưa hoàn tất.
+ */
+@Service
+@Transactional
+public class FlashSaleEmailCampaignService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FlashSaleEmailCampaignService.class);
+
+    /** Thời gian giữ campaign; được gia hạn sau mỗi trang. */
+    private static final Duration LEASE = Duration.ofMinutes(5);
+
+    private final FlashSaleEmailCampaignRepository flashSaleEmailCampaignRepository;
+    private final FlashSaleProductRepository flashSaleProductRepository;
+    private final UserRepository userRepository;
+    private final MailService mailService;
+    private final ThreadPoolTaskExecutor campaignMailExecutor;
+    private final ThreadPoolTaskExecutor campaignRunnerExecutor;
+    private final ApplicationProperties.EmailCampaign properties;
+    private final RateLimiter rateLimiter;
+
+    /** Các campaign đang chạy trên instance này. */
+    private final Set<Long> runningCampaignIds = ConcurrentHashMap.newKeySet();
+
+    public FlashSaleEmailCampaignService(
+        FlashSaleEmailCampaignRepository flashSaleEmailCampaignRepository,
+        FlashSaleProductRepository flashSaleProductRepository,
+        UserRepository userRepository,
+        MailService mailService,
+        @Qualifier("campaignMailExecutor") ThreadPoolTaskExecutor campaignMailExecutor,
+        @Qualifier("campaignRunnerExecutor") ThreadPoolTaskExecutor campaignRunnerExecutor,
+        ApplicationProperties applicationProperties
+    ) {
+        this.flashSaleEmailCampaignRepository = flashSaleEmailCampaignRepository;
+        this.flashSaleProductRepository = flashSaleProductRepository;
+        this.userRepository = userRepository;
+        this.mailService = mailService;
+        this.campaignMailExecutor = campaignMailExecutor;
+        this.campaignRunnerExecutor = campaignRunnerExecutor;
+        this.properties = applicationProperties.getEmailCampaign();
+        this.rateLimiter = new RateLimiter(properties.getRatePerSecond());
+    }
+
+    /**
+     * Tạo campaign gửi email cho flash sale product (chạy trong transaction của người gọi).
+     * Gọi nhiều lần cho cùng một flash sale product chỉ tạo một campaign.
+     *
+     * @param flashSaleProductId ID của flash sale product
+     */
+    public void createCampaign(Long flashSaleProductId) {
+        if (flashSaleEmailCampaignRepository.enqueue(flashSaleProductId, Instant.now()) > 0) {
+            LOG.debug("Created flash sale email campaign for flash sale product {}", flashSaleProductId);
+        }
+    }
+
+    /**
+     * Scheduled job chạy mỗi 10 giây để gửi các campaign đang chờ.
+     */
+    @Scheduled(fixedDelay = 10000, initialDelay = 10000)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void scheduleCampaignDispatch() {
+        dispatchPendingCampaigns();
+    }
+
+    /**
+     * Nhận các campaign đang chờ hoặc bị bỏ dở (lease hết hạn) và giao cho {@code campaignRunnerExecutor}.
+     * Chỉ nhận thêm campaign khi còn chỗ trống trên instance này.
+     *
+     * @return số campaign đã nhận
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int dispatchPendingCampaigns() {
+        int dispatched = 0;
+        for (Long campaignId : flashSaleEmailCampaignRepository.findDispatchableIds(Instant.now())) {
+            if (runningCampaignIds.size() >= properties.getConcurrentCampaigns()) {
+                break;
+            }
+            if (runningCampaignIds.contains(campaignId)) {
+                continue;
+            }
+            Instant now = Instant.now();
+            if (flashSaleEmailCampaignRepository.claim(campaignId, now, now.plus(LEASE)) == 0) {
+                continue;
+            }
+            runningCampaignIds.add(campaignId);
+            try {
+                campaignRunnerExecutor.execute(() -> runClaimed(campaignId));
+            } catch (TaskRejectedException e) {
+                // Executor đang tắt: campaign được nhận lại khi lease hết hạn
+                runningCampaignIds.remove(campaignId);
+                LOG.warn("Flash sale email campaign {} could not be started, it will be resumed later", campaignId);
+                break;
+            }
+            dispatched++;
+        }
+        return dispatched;
+    }
+
+    private void runClaimed(Long campaignId) {
+        try {
+            run(campaignId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.warn("Flash sale email campaign {} interrupted, it will be resumed later", campaignId);
+        } catch (Exception e) {
+            LOG.error("Flash sale email campaign {} failed: {}", campaignId, e.getMessage(), e);
+            flashSaleEmailCampaignRepository.finish(campaignId, EmailCampaignStatus.FAILED, Instant.now(), truncate(e.getMessage()));
+        } finally {
+            runningCampaignIds.remove(campaignId);
+        }
+    }
+
+    private void run(Long campaignId) throws InterruptedException {
+        FlashSaleEmailCampaign campaign = flashSaleEmailCampaignRepository
+            .findById(campaignId)
+            .orElseThrow(() -> new IllegalStateException("Campaign not found: " + campaignId));
+
+        List<Object[]> contentRows = flashSaleProductRepository.findEmailContent(campaign.getFlashSaleProductId());
+        if (contentRows.isEmpty()) {
+            throw new IllegalStateException("Flash sale product not found: " + campaign.getFlashSaleProductId());
+        }
+        Object[] content = contentRows.get(0);
+        String flashSaleName = content[0] != null ? (String) content[0] : "Flash Sale";
+        String productName = content[1] != null ? (String) content[1] : "Sản phẩm";
+        String productUrl = content[2] != null ? "/products/" + content[2] : "";
+        BigDecimal salePrice = (BigDecimal) content[3];
+        BigDecimal originalPrice = content[4] != null ? (BigDecimal) content[4] : BigDecimal.ZERO;
+
+        // Template được render một lần cho mỗi ngôn ngữ
+        Map<String, MailService.PreparedEmail> emailsByLanguage = new HashMap<>();
+
+        long lastUserId = campaign.getLastUserId();
+        long totalSent = campaign.getSentCount();
+        LOG.info("Sending flash sale email campaign {} from user id {}", campaignId, lastUserId);
+
+        while (true) {
+            List<Object[]> recipients = userRepository.findEmailRecipientsAfter(lastUserId, PageRequest.of(0, properties.getPageSize()));
+            if (recipients.isEmpty()) {
+                break;
+            }
+
+            List<CompletableFuture<Boolean>> results = new ArrayList<>(recipients.size());
+            for (Object[] recipient : recipients) {
+                String login = (String) recipient[1];
+                String email = (String) recipient[2];
+                String langKey = recipient[3] != null ? (String) recipient[3] : Constants.DEFAULT_LANGUAGE;
+                MailService.PreparedEmail prepared = emailsByLanguage.computeIfAbsent(langKey, key ->
+                    mailService.prepareFlashSaleNotificationEmail(key, flashSaleName, productName, salePrice, originalPrice, productUrl)
+                );
+                results.add(CompletableFuture.supplyAsync(() -> send(prepared, login, email), campaignMailExecutor));
+            }
+
+            long sent = 0;
+            for (CompletableFuture<Boolean> result : results) {
+                if (Boolean.TRUE.equals(result.join())) {
+                    sent++;
+                }
+            }
+            lastUserId = (Long) recipients.get(recipients.size() - 1)[0];
+            totalSent += sent;
+            flashSaleEmailCampaignRepository.recordProgress(
+                campaignId,
+                lastUserId,
+                sent,
+                recipients.size() - sent,
+                Instant.now().plus(LEASE)
+            );
+
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException();
+            }
+            if (recipients.size() < properties.getPageSize()) {
+                break;
+            }
+        }
+
+        flashSaleEmailCampaignRepository.finish(campaignId, EmailCampaignStatus.COMPLETED, Instant.now(), null);
+        LOG.info("Completed flash sale email campaign {}: {} emails sent", campaignId, totalSent);
+    }
+
+    private boolean send(MailService.PreparedEmail prepared, String login, String email) {
+        try {
+            rateLimiter.acquire();
+            return mailService.sendPreparedEmail(prepared, login, email);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            LOG.warn("Failed to send flash sale email to user '{}': {}", email, e.getMessage());
+            return false;
+        }
+    }
+
+    private static String truncate(String message) {
+        return message != null && message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+
+    /**
+     * Giới hạn số lần gửi mỗi giây: mỗi lần gửi được cấp một khe thời gian cách nhau đều.
+     */
+    static final class RateLimiter {
+
+        private final long intervalNanos;
+        private long nextSlot = System.nanoTime();
+
+        RateLimiter(double permitsPerSecond) {
+            this.intervalNanos = permitsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond) : 0L;
+        }
+
+        void acquire() throws InterruptedException {
+            long waitNanos = reserve();
+            if (waitNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+        }
+
+        private synchronized long reserve() {
+            long now = System.nanoTime();
+            long slot = Math.max(now, nextSlot);
+            nextSlot = slot + intervalNanos;
+            return slot - now;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.lumiere.app.service;
+
+import com.lumiere.app.repository.FlashSaleProductRepository;
+import java.util.Map;
+import java.util.TreeMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Service giữ suất flash sale khi đặt hàng.
+ * <p>
+ * Mỗi lần giữ suất là một câu lệnh {@code UPDATE} có điều kiện ({@code sold + ? <= quantity}) nên không mất
+ * cập nhật khi nhiều đơn cùng mua một SKU và không thể bán vượt số lượng flash sale.
+ * Khóa dòng chỉ được giữ đến khi transaction của đơn hàng commit.
+ */
+@Service
+@Transactional
+public class FlashSaleReservationService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FlashSaleReservationService.class);
+
+    private final FlashSaleProductRepository flashSaleProductRepository;
+
+    public FlashSaleReservationService(FlashSaleProductRepository flashSaleProductRepository) {
+        this.flashSaleProductRepository = flashSaleProductRepository;
+    }
+
+    /**
+     * Giữ suất cho nhiều flash sale product trong cùng transaction.
+     * Các dòng được cập nhật theo thứ tự id tăng dần để tránh deadlock giữa các đơn hàng chứa nhiều SKU hot.
+     *
+     * @param quantitiesByFlashSaleProductId số lượng cần giữ theo flash sale product id
+     * @throws IllegalArgumentException nếu một flash sale product không còn đủ suất; transaction sẽ rollback
+     */
+    public void reserve(Map<Long, Integer> quantitiesByFlashSaleProductId) {
+        for (Map.Entry<Long, Integer> entry : new TreeMap<>(quantitiesByFlashSaleProductId).entrySet()) {
+            Integer quantity = entry.getValue();
+            if (quantity == null || quantity <= 0) {
+                continue;
+            }
+            int updated = flashSaleProductRepository.reserveQuantity(entry.getKey(), quantity);
+            if (updated == 0) {
+                LOG.info("Flash sale product {} sold out, cannot reserve {} units", entry.getKey(), quantity);
+                throw new IllegalArgumentException("Sản phẩm flash sale đã hết suất. Vui lòng cập nhật lại giỏ hàng.");
+            }
+        }
+    }
+
+    /**
+     * Trả lại suất flash sale đã giữ (ví dụ khi đơn hàng bị hủy), theo cùng thứ tự id tăng dần như {@link #reserve(Map)}.
+     *
+     * @param quantitiesByFlashSaleProductId số lượng cần trả theo flash sale product id
+     */
+    public void release(Map<Long, Integer> quantitiesByFlashSaleProductId) {
+        for (Map.Entry<Long, Integer> entry : new TreeMap<>(quantitiesByFlashSaleProductId).entrySet()) {
+            Integer quantity = entry.getValue();
+            if (quantity == null || quantity <= 0) {
+                continue;
+            }
+            if (flashSaleProductRepository.releaseQuantity(entry.getKey(), quantity) == 0) {
+                LOG.warn("Could not release {} units of flash sale product {}", quantity, entry.getKey());
+            }
+        }
+    }
+}
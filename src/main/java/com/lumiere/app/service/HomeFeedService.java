@@ -0,0 +1,232 @@
+package com.lumiere.app.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.lumiere.app.config.ApplicationProperties;
+import com.lumiere.app.domain.enumeration.OrderStatus;
+import com.lumiere.app.service.dto.CategoryWithProductsDTO;
+import com.lumiere.app.service.dto.ProductDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
+
+/**
+ * Snapshot trong bộ nhớ của các khối trên trang chủ (bán chạy, hàng mới về, mua sắm theo danh mục).
+ * <p>
+ * Mỗi khối được tính sẵn một lần với số lượng tối đa rồi cắt theo {@code limit} của request, nên endpoint trang chủ
+ * không chạm database. Snapshot được làm mới bất đồng bộ trên {@code homeFeedExecutor}: khi sản phẩm, danh mục hoặc
+ * trạng thái đơn hàng thay đổi (sau khi transaction commit) và định kỳ; trong lúc làm mới (hoặc khi làm mới lỗi)
+ * request vẫn nhận snapshot cũ. Mỗi snapshot có {@code version} là hash nội dung, dùng làm ETag.
+ */
+@Service
+public class HomeFeedService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HomeFeedService.class);
+
+    /** Số sản phẩm tối đa được tính sẵn cho khối bán chạy và hàng mới về. */
+    public static final int MAX_PRODUCTS = 50;
+
+    /** Số sản phẩm mẫu tối đa được tính sẵn cho mỗi danh mục. */
+    public static final int MAX_PRODUCTS_PER_CATEGORY = 12;
+
+    /** Tên cache trong {@code application.cache.regions} và trong metrics. */
+    public static final String CACHE_NAME = "home-feed";
+
+    /**
+     * Snapshot cũ hơn khoảng này sẽ được làm mới ở lần đọc kế tiếp (vẫn trả snapshot cũ trong lúc chờ);
+     * ghi đè bằng {@code application.cache.regions.home-feed.refresh-after-write-seconds}.
+     */
+    private static final Duration DEFAULT_REFRESH_AFTER_WRITE = Duration.ofMinutes(10);
+
+    /** Các trạng thái đơn hàng được tính vào khối bán chạy (khớp với {@link HomeService#getBestSellingProducts}). */
+    private static final Set<OrderStatus> SOLD_STATUSES = EnumSet.of(
+        OrderStatus.CONFIRMED,
+        OrderStatus.PROCESSING,
+        OrderStatus.SHIPPING,
+        OrderStatus.DELIVERED,
+        OrderStatus.COMPLETED
+    );
+
+    /**
+     * Các khối trên trang chủ.
+     */
+    public enum Feed {
+        BEST_SELLING,
+        NEW_ARRIVALS,
+        SHOP_BY_CATEGORY,
+    }
+
+    /**
+     * Một khối đã tính sẵn.
+     *
+     * @param items dữ liệu với số lượng tối đa
+     * @param version hash nội dung của {@code items}
+     * @param generatedAt thời điểm tính
+     */
+    public record Snapshot(List<?> items, String version, Instant generatedAt) {}
+
+    /**
+     * Dữ liệu trả cho một request, kèm ETag tương ứng với nội dung và {@code limit}.
+     */
+    public record FeedView<T>(List<T> items, String etag) {}
+
+    private final HomeService homeService;
+    private final ObjectMapper objectMapper;
+    private final LoadingCache<Feed, Snapshot> snapshots;
+    private final Set<Feed> dirtyFeeds = ConcurrentHashMap.newKeySet();
+
+    public HomeFeedService(
+        HomeService homeService,
+        ObjectMapper objectMapper,
+        @Qualifier("homeFeedExecutor") Executor homeFeedExecutor,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.homeService = homeService;
+        this.objectMapper = objectMapper;
+
+        ApplicationProperties.CacheRegion region = applicationProperties.getCache().getRegion(CACHE_NAME);
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+            .refreshAfterWrite(
+                region.getRefreshAfterWriteSeconds() != null
+                    ? Duration.ofSeconds(region.getRefreshAfterWriteSeconds())
+                    : DEFAULT_REFRESH_AFTER_WRITE
+            )
+            .executor(homeFeedExecutor);
+        boolean statisticsEnabled = !Boolean.FALSE.equals(region.getStatisticsEnabled());
+        if (statisticsEnabled) {
+            builder.recordStats();
+        }
+        this.snapshots = builder.build(this::load);
+        if (statisticsEnabled) {
+            CaffeineCacheMetrics.monitor(meterRegistry, snapshots, CACHE_NAME, "cache.manager", "application");
+        }
+        // Làm nóng toàn bộ snapshot ở lượt đầu của job
+        this.dirtyFeeds.addAll(EnumSet.allOf(Feed.class));
+    }
+
+    public FeedView<ProductDTO> getBestSellingProducts(int limit) {
+        return productView(Feed.BEST_SELLING, limit);
+    }
+
+    public FeedView<ProductDTO> getNewArrivals(int limit) {
+        return productView(Feed.NEW_ARRIVALS, limit);
+    }
+
+    @SuppressWarnings("unchecked")
+    public FeedView<CategoryWithProductsDTO> getShopByCategory(int productsPerCategory) {
+        int size = clamp(productsPerCategory, MAX_PRODUCTS_PER_CATEGORY);
+        Snapshot snapshot = snapshots.get(Feed.SHOP_BY_CATEGORY);
+        List<CategoryWithProductsDTO> categories = (List<CategoryWithProductsDTO>) snapshot.items();
+        List<CategoryWithProductsDTO> items = new ArrayList<>(categories.size());
+        for (CategoryWithProductsDTO category : categories) {
+            CategoryWithProductsDTO view = new CategoryWithProductsDTO(category.getId(), category.getName(), category.getFatherId());
+            List<ProductDTO> products = category.getProducts();
+            view.setProducts(products.size() > size ? products.subList(0, size) : products);
+            items.add(view);
+        }
+        return new FeedView<>(items, etag(snapshot, size));
+    }
+
+    /**
+     * Đánh dấu các khối cần làm mới sau khi transaction hiện tại commit.
+     */
+    public void markChanged(Feed... feeds) {
+        List<Feed> changed = List.of(feeds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        dirtyFeeds.addAll(changed);
+                    }
+                }
+            );
+        } else {
+            dirtyFeeds.addAll(changed);
+        }
+    }
+
+    /**
+     * Đánh dấu toàn bộ khối cần làm mới (sản phẩm được tạo, sửa hoặc xóa).
+     */
+    public void markProductsChanged() {
+        markChanged(Feed.values());
+    }
+
+    /**
+     * Đánh dấu khối bán chạy cần làm mới khi đơn hàng vào hoặc ra khỏi nhóm trạng thái được tính.
+     */
+    public void onOrderStatusChanged(OrderStatus oldStatus, OrderStatus newStatus) {
+        if (SOLD_STATUSES.contains(oldStatus) != SOLD_STATUSES.contains(newStatus)) {
+            markChanged(Feed.BEST_SELLING);
+        }
+    }
+
+    /**
+     * Scheduled job chạy mỗi 30 giây để làm mới bất đồng bộ các khối đã bị đánh dấu.
+     */
+    @Scheduled(fixedDelay = 30000, initialDelay = 5000)
+    public void refreshDirtyFeeds() {
+        for (Feed feed : Feed.values()) {
+            if (dirtyFeeds.remove(feed)) {
+                snapshots.refresh(feed);
+            }
+        }
+    }
+
+    /**
+     * Scheduled job chạy mỗi 10 phút để làm mới toàn bộ khối (số liệu bán chạy thay đổi liên tục theo đơn hàng).
+     */
+    @Scheduled(fixedDelay = 600000, initialDelay = 600000)
+    public void refreshAll() {
+        dirtyFeeds.addAll(EnumSet.allOf(Feed.class));
+        refreshDirtyFeeds();
+    }
+
+    @SuppressWarnings("unchecked")
+    private FeedView<ProductDTO> productView(Feed feed, int limit) {
+        int size = clamp(limit, MAX_PRODUCTS);
+        Snapshot snapshot = snapshots.get(feed);
+        List<ProductDTO> products = (List<ProductDTO>) snapshot.items();
+        return new FeedView<>(products.size() > size ? products.subList(0, size) : products, etag(snapshot, size));
+    }
+
+    private Snapshot load(Feed feed) throws JsonProcessingException {
+        long start = System.nanoTime();
+        List<?> items =
+            switch (feed) {
+                case BEST_SELLING -> homeService.getBestSellingProducts(MAX_PRODUCTS);
+                case NEW_ARRIVALS -> homeService.getNewArrivals(MAX_PRODUCTS);
+                case SHOP_BY_CATEGORY -> homeService.getShopByCategory(MAX_PRODUCTS_PER_CATEGORY);
+            };
+        String version = DigestUtils.md5DigestAsHex(objectMapper.writeValueAsBytes(items));
+        LOG.debug("Loaded home feed {} ({} items, version {}) in {} ms", feed, items.size(), version, (System.nanoTime() - start) / 1_000_000);
+        return new Snapshot(List.copyOf(items), version, Instant.now());
+    }
+
+    private static int clamp(int requested, int max) {
+        return Math.max(0, Math.min(requested, max));
+    }
+
+    private static String etag(Snapshot snapshot, int size) {
+        return "\"" + snapshot.version() + "-" + size + "\"";
+    }
+}
@@ -0,0 +1,339 @@
+package com.lumiere.app.service;
+
+import com.lumiere.app.config.ApplicationProperties;
+import com.lumiere.app.domain.Attachment;
+import com.lumiere.app.repository.AttachmentRepository;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Sinh các bản resize (thumb, card, detail) cho ảnh upload, lưu tại {@code attachments/<size>/<tên file>}.
+ * <p>
+ * Ảnh được xử lý trên {@code imageDerivativeExecutor} ngay sau khi gộp chunk; khi hàng đợi đầy hoặc ứng dụng
+ * restart, job định kỳ quét các attachment chưa xử lý ({@code derivatives} null) và làm lại. Lượt quét đi tiếp theo
+ * con trỏ ID nên các ảnh lỗi vĩnh viễn (ví dụ file hỏng) không chặn các upload mới hơn. Việc xử lý idempotent:
+ * file đã có không bị ghi lại và {@code derivatives} chỉ được ghi lần đầu. Chỉ dùng ImageIO của JDK; bản WebP
+ * chỉ được sinh khi có ImageIO writer cho WebP trên classpath.
+ */
+@Service
+public class ImageDerivativeService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ImageDerivativeService.class);
+
+    /** Số attachment chưa xử lý quét mỗi lượt. */
+    public static final int SWEEP_BATCH_SIZE = 100;
+
+    /** Ảnh lớn hơn số pixel này bị bỏ qua (tránh decompression bomb). */
+    private static final long MAX_SOURCE_PIXELS = 40_000_000L;
+
+    private static final float JPEG_QUALITY = 0.85f;
+
+    /**
+     * Các kích thước sinh sẵn (chiều rộng tối đa, giữ tỉ lệ).
+     */
+    public enum Derivative {
+        THUMB("thumb", 160),
+        CARD("card", 480),
+        DETAIL("detail", 1200);
+
+        private final String code;
+        private final int maxWidth;
+
+        Derivative(String code, int maxWidth) {
+            this.code = code;
+            this.maxWidth = maxWidth;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public int getMaxWidth() {
+            return maxWidth;
+        }
+
+        public static Optional<Derivative> fromCode(String code) {
+            for (Derivative derivative : values()) {
+                if (derivative.code.equalsIgnoreCase(code)) {
+                    return Optional.of(derivative);
+                }
+            }
+            return Optional.empty();
+        }
+    }
+
+    /** Đánh dấu có bản WebP trong {@link Attachment#getDerivatives()}. */
+    public static final String WEBP = "webp";
+
+    private final AttachmentRepository attachmentRepository;
+    private final Executor imageDerivativeExecutor;
+    private final Path attachmentsDir;
+    private final boolean webpEnabled;
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    /** ID attachment cuối cùng của lượt quét trước; quay lại từ đầu khi đã quét hết. */
+    private volatile long sweepCursor;
+
+    public ImageDerivativeService(
+        AttachmentRepository attachmentRepository,
+        @Qualifier("imageDerivativeExecutor") Executor imageDerivativeExecutor,
+        Path mediaRoot,
+        ApplicationProperties applicationProperties
+    ) {
+        this.attachmentRepository = attachmentRepository;
+        this.imageDerivativeExecutor = imageDerivativeExecutor;
+        this.attachmentsDir = mediaRoot.resolve("attachments");
+        this.webpEnabled = applicationProperties.getMedia().isWebpEnabled() && ImageIO.getImageWritersByFormatName(WEBP).hasNext();
+    }
+
+    /**
+     * Đường dẫn tương đối (so với thư mục attachments) của một bản resize.
+     */
+    public static String derivativeName(Derivative derivative, String name, boolean webp) {
+        String fileName = webp ? baseName(name) + "." + WEBP : name;
+        return derivative.getCode() + "/" + fileName;
+    }
+
+    /**
+     * Đưa attachment vào hàng đợi xử lý (bỏ qua nếu đang xử lý hoặc hàng đợi đầy).
+     */
+    public void submit(Long attachmentId) {
+        if (attachmentId == null || !inFlight.add(attachmentId)) {
+            return;
+        }
+        try {
+            imageDerivativeExecutor.execute(() -> {
+                try {
+                    generate(attachmentId);
+                } catch (RuntimeException e) {
+                    LOG.warn("Failed to generate derivatives for attachment {}: {}", attachmentId, e.getMessage());
+                } finally {
+                    inFlight.remove(attachmentId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(attachmentId);
+            LOG.debug("Derivative queue full, attachment {} will be picked up by the sweep", attachmentId);
+        }
+    }
+
+    /**
+     * Scheduled job chạy mỗi 5 phút để xử lý các attachment chưa có bản resize.
+     */
+    @Scheduled(fixedDelay = 300000, initialDelay = 60000)
+    public void sweepPending() {
+        List<Long> ids = attachmentRepository.findIdsWithoutDerivativesAfter(sweepCursor, PageRequest.of(0, SWEEP_BATCH_SIZE));
+        sweepCursor = ids.size() < SWEEP_BATCH_SIZE ? 0L : ids.get(ids.size() - 1);
+        ids.forEach(this::submit);
+        if (!ids.isEmpty()) {
+            LOG.debug("Submitted {} attachments for derivative generation", ids.size());
+        }
+    }
+
+    /**
+     * Sinh các bản resize của một attachment (không làm gì nếu đã xử lý).
+     */
+    public void generate(Long attachmentId) {
+        Attachment attachment = attachmentRepository.findById(attachmentId).orElse(null);
+        if (attachment == null || attachment.getDerivatives() != null) {
+            return;
+        }
+        String name = attachment.getName();
+        String format = formatOf(name);
+        Path source = attachmentsDir.resolve(name).normalize();
+        if (format == null || !source.startsWith(attachmentsDir) || !Files.isRegularFile(source)) {
+            attachmentRepository.markDerivatives(attachmentId, "");
+            return;
+        }
+
+        List<String> generated = new ArrayList<>();
+        try {
+            BufferedImage image = read(source);
+            if (image == null) {
+                attachmentRepository.markDerivatives(attachmentId, "");
+                return;
+            }
+            for (Derivative derivative : Derivative.values()) {
+                BufferedImage scaled = null;
+                Path target = attachmentsDir.resolve(derivativeName(derivative, name, false));
+                if (!Files.exists(target)) {
+                    scaled = scale(image, derivative.getMaxWidth());
+                    write(scaled, format, target);
+                }
+                if (webpEnabled) {
+                    Path webpTarget = attachmentsDir.resolve(derivativeName(derivative, name, true));
+                    if (!Files.exists(webpTarget)) {
+                        write(scaled != null ? scaled : scale(image, derivative.getMaxWidth()), WEBP, webpTarget);
+                    }
+                }
+                generated.add(derivative.getCode());
+            }
+            if (webpEnabled) {
+                generated.add(WEBP);
+            }
+        } catch (IOException e) {
+            // Để lại derivatives = null: được thử lại khi con trỏ quét quay lại attachment này
+            LOG.warn("Cannot generate derivatives for attachment {} ({}): {}", attachmentId, name, e.getMessage());
+            return;
+        }
+        attachmentRepository.markDerivatives(attachmentId, String.join(",", generated));
+        LOG.debug("Generated derivatives {} for attachment {}", generated, attachmentId);
+    }
+
+    /**
+     * Xóa các bản resize của một file (khi attachment bị xóa).
+     *
+     * @return tên tương đối của các bản resize có thể đã tồn tại
+     */
+    public List<String> deleteDerivatives(String name) {
+        List<String> names = new ArrayList<>();
+        for (Derivative derivative : Derivative.values()) {
+            names.add(derivativeName(derivative, name, false));
+            names.add(derivativeName(derivative, name, true));
+        }
+        for (String derivativeName : names) {
+            try {
+                Files.deleteIfExists(attachmentsDir.resolve(derivativeName).normalize());
+            } catch (IOException e) {
+                LOG.warn("Cannot delete derivative {}: {}", derivativeName, e.getMessage());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Đọc ảnh, kiểm tra kích thước trước khi giải nén.
+     *
+     * @return ảnh, hoặc null nếu không đọc được hoặc quá lớn
+     */
+    private static BufferedImage read(Path source) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > MAX_SOURCE_PIXELS) {
+                    LOG.warn("Skipping derivatives for {}: image too large", source.getFileName());
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Thu nhỏ ảnh về chiều rộng tối đa (giảm một nửa nhiều lần rồi nội suy bilinear để giữ chất lượng).
+     * Ảnh đã nhỏ hơn được giữ nguyên kích thước.
+     */
+    private static BufferedImage scale(BufferedImage image, int maxWidth) {
+        int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int targetWidth = Math.min(width, maxWidth);
+        int targetHeight = Math.max(1, (int) Math.round((double) height * targetWidth / width));
+
+        BufferedImage current = image;
+        do {
+            if (width > targetWidth * 2) {
+                width /= 2;
+                height = Math.max(1, height / 2);
+            } else {
+                width = targetWidth;
+                height = targetHeight;
+            }
+            BufferedImage next = new BufferedImage(width, height, type);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    /**
+     * Ghi ảnh qua file tạm rồi move atomic, để request đọc song song không thấy file ghi dở.
+     */
+    private static void write(BufferedImage image, String format, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path staging = target.resolveSibling(target.getFileName() + ".part");
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            throw new IOException("No image writer for " + format);
+        }
+        ImageWriter writer = writers.next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(staging.toFile())) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if ("jpeg".equals(format)) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } catch (IOException e) {
+            Files.deleteIfExists(staging);
+            throw e;
+        } finally {
+            writer.dispose();
+        }
+        Files.move(staging, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Định dạng ghi bản resize theo phần mở rộng (null nếu không xử lý: PDF, GIF động, ...).
+     */
+    private static String formatOf(String name) {
+        if (name == null) {
+            return null;
+        }
+        String lower = name.toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".jpg") || lower.endsWith(".jpeg")) {
+            return "jpeg";
+        }
+        if (lower.endsWith(".png")) {
+            return "png";
+        }
+        return null;
+    }
+
+    private static String baseName(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+}
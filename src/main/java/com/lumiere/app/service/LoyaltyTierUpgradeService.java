@@ -3,7 +3,8 @@ package com.lumiere.app.service;
 import com.lumiere.app.domain.Customer;
 import com.lumiere.app.domain.enumeration.CustomerTier;
 import com.lumiere.app.repository.CustomerRepository;
-import java.util.List;
+import java.util.EnumMap;
+import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -33,19 +34,37 @@ public class LoyaltyTierUpgradeService {
      * Scheduled job chạy mỗi ngày lúc 2:00 AM để kiểm tra và nâng cấp tier cho khách hàng.
      */
     @Scheduled(cron = "0 0 2 * * ?")
-    public void upgradeCustomerTiers() {
+    public void scheduleTierUpgrade() {
         LOG.info("Starting scheduled job to upgrade customer tiers");
-        
-        List<Customer> customers = customerRepository.findAll();
-        int upgradedCount = 0;
-
-        for (Customer customer : customers) {
-            if (upgradeCustomerTier(customer)) {
-                upgradedCount++;
-            }
-        }
+        upgradeCustomerTiers();
+    }
 
-        LOG.info("Completed tier upgrade job. Upgraded {} customers", upgradedCount);
+    /**
+     * Tính lại tier cho toàn bộ khách hàng dựa trên điểm tích lũy.
+     * Mỗi tier là một câu {@code UPDATE} theo khoảng điểm, không nạp Customer vào bộ nhớ.
+     *
+     * @return số khách hàng đã chuyển sang từng tier
+     */
+    public Map<CustomerTier, Integer> upgradeCustomerTiers() {
+        Map<CustomerTier, Integer> moved = new EnumMap<>(CustomerTier.class);
+        moved.put(CustomerTier.GOLD, customerRepository.updateTierForPointsRange(CustomerTier.GOLD, GOLD_MIN_POINTS, null));
+        moved.put(
+            CustomerTier.SILVER,
+            customerRepository.updateTierForPointsRange(CustomerTier.SILVER, SILVER_MIN_POINTS, GOLD_MIN_POINTS)
+        );
+        moved.put(
+            CustomerTier.BRONZE,
+            customerRepository.updateTierForPointsRange(CustomerTier.BRONZE, Integer.MIN_VALUE, SILVER_MIN_POINTS)
+        );
+
+        LOG.info(
+            "Completed tier upgrade job. Moved {} customers (GOLD: {}, SILVER: {}, BRONZE: {})",
+            moved.values().stream().mapToInt(Integer::intValue).sum(),
+            moved.get(CustomerTier.GOLD),
+            moved.get(CustomerTier.SILVER),
+            moved.get(CustomerTier.BRONZE)
+        );
+        return moved;
     }
 
     /**
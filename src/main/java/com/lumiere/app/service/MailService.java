@@ -1,5 +1,6 @@
 package com.lumiere.app.service;
 
+import com.lumiere.app.config.Constants;
 import com.lumiere.app.domain.User;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
@@ -13,6 +14,7 @@ import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.web.util.HtmlUtils;
 import org.thymeleaf.context.Context;
 import org.thymeleaf.spring6.SpringTemplateEngine;
 import tech.jhipster.config.JHipsterProperties;
@@ -31,6 +33,9 @@ public class MailService {
 
     private static final String BASE_URL = "baseUrl";
 
+    /** Chỗ giữ tên người nhận trong email render một lần cho nhiều người. */
+    public static final String RECIPIENT_LOGIN_PLACEHOLDER = "%%RECIPIENT_LOGIN%%";
+
     private final JHipsterProperties jHipsterProperties;
 
     private final JavaMailSender javaMailSender;
@@ -56,7 +61,7 @@ public class MailService {
         sendEmailSync(to, subject, content, isMultipart, isHtml);
     }
 
-    private void sendEmailSync(String to, String subject, String content, boolean isMultipart, boolean isHtml) {
+    private boolean sendEmailSync(String to, String subject, String content, boolean isMultipart, boolean isHtml) {
         LOG.debug(
             "Send email[multipart '{}' and html '{}'] to '{}' with subject '{}' and content={}",
             isMultipart,
@@ -76,8 +81,10 @@ public class MailService {
             message.setText(content, isHtml);
             javaMailSender.send(mimeMessage);
             LOG.debug("Sent email to User '{}'", to);
+            return true;
         } catch (MailException | MessagingException e) {
             LOG.warn("Email could not be sent to user '{}'", to, e);
+            return false;
         }
     }
 
@@ -119,42 +126,31 @@ public class MailService {
     }
 
     /**
-     * Gửi email thông báo flash sale cho người dùng.
+     * Render email thông báo flash sale một lần cho một ngôn ngữ, dùng chung cho mọi người nhận.
+     * Tên người nhận được để dưới dạng {@link #RECIPIENT_LOGIN_PLACEHOLDER} và thay khi gửi,
+     * xem {@link #sendPreparedEmail(PreparedEmail, String, String)}.
      *
-     * @param user người dùng nhận email
+     * @param langKey ngôn ngữ của người nhận
      * @param flashSaleName tên flash sale
      * @param productName tên sản phẩm
      * @param salePrice giá giảm
      * @param originalPrice giá gốc
      * @param productUrl URL sản phẩm
+     * @return tiêu đề và nội dung email
      */
-    @Async
-    public void sendFlashSaleNotificationEmail(
-        User user,
+    public PreparedEmail prepareFlashSaleNotificationEmail(
+        String langKey,
         String flashSaleName,
         String productName,
         java.math.BigDecimal salePrice,
         java.math.BigDecimal originalPrice,
         String productUrl
     ) {
-        sendFlashSaleNotificationEmailSync(user, flashSaleName, productName, salePrice, originalPrice, productUrl);
-    }
-
-    private void sendFlashSaleNotificationEmailSync(
-        User user,
-        String flashSaleName,
-        String productName,
-        java.math.BigDecimal salePrice,
-        java.math.BigDecimal originalPrice,
-        String productUrl
-    ) {
-        if (user.getEmail() == null) {
-            LOG.debug("Email doesn't exist for user '{}'", user.getLogin());
-            return;
-        }
-        Locale locale = Locale.forLanguageTag(user.getLangKey());
+        Locale locale = Locale.forLanguageTag(langKey != null ? langKey : Constants.DEFAULT_LANGUAGE);
+        User recipient = new User();
+        recipient.setLogin(RECIPIENT_LOGIN_PLACEHOLDER);
         Context context = new Context(locale);
-        context.setVariable(USER, user);
+        context.setVariable(USER, recipient);
         context.setVariable(BASE_URL, jHipsterProperties.getMail().getBaseUrl());
         context.setVariable("flashSaleName", flashSaleName);
         context.setVariable("productName", productName);
@@ -164,9 +160,27 @@ public class MailService {
         context.setVariable("discountPercent", calculateDiscountPercent(originalPrice, salePrice));
         String content = templateEngine.process("mail/flashSaleNotification", context);
         String subject = messageSource.getMessage("email.flashSale.title", new Object[] { flashSaleName }, locale);
-        sendEmailSync(user.getEmail(), subject, content, false, true);
+        return new PreparedEmail(subject, content);
+    }
+
+    /**
+     * Gửi email đã render sẵn (đồng bộ, trên thread của người gọi).
+     *
+     * @param email email đã render bởi {@code prepare...Email}
+     * @param login login của người nhận, thay cho {@link #RECIPIENT_LOGIN_PLACEHOLDER}
+     * @param to địa chỉ email người nhận
+     * @return true nếu gửi thành công
+     */
+    public boolean sendPreparedEmail(PreparedEmail email, String login, String to) {
+        String content = email.content().replace(RECIPIENT_LOGIN_PLACEHOLDER, HtmlUtils.htmlEscape(login != null ? login : ""));
+        return sendEmailSync(to, email.subject(), content, false, true);
     }
 
+    /**
+     * Email đã render, chưa gắn người nhận.
+     */
+    public record PreparedEmail(String subject, String content) {}
+
     private int calculateDiscountPercent(java.math.BigDecimal originalPrice, java.math.BigDecimal salePrice) {
         if (originalPrice == null || salePrice == null || originalPrice.compareTo(java.math.BigDecimal.ZERO) == 0) {
             return 0;
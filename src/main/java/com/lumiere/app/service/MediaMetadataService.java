@@ -0,0 +1,110 @@
+package com.lumiere.app.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lumiere.app.config.ApplicationProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Optional;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Metadata (đường dẫn, kích thước, thời điểm sửa, content type, ETag) của các file media đã upload.
+ * <p>
+ * File media có tên UUID và không bị ghi đè, nên metadata được giữ trong một cache giới hạn thay vì gọi
+ * {@code stat}/{@code probeContentType} ở mỗi request. Entry bị xóa khi file bị xóa hoặc khi phát hiện file không
+ * còn tồn tại lúc phục vụ.
+ */
+@Service
+public class MediaMetadataService {
+
+    /** Tên cache trong {@code application.cache.regions} và trong metrics. */
+    public static final String CACHE_NAME = "media-metadata";
+
+    private static final long DEFAULT_MAX_ENTRIES = 20_000;
+
+    private static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofHours(1);
+
+    /**
+     * Metadata của một file media.
+     *
+     * @param name tên file, tương đối so với thư mục attachments (ví dụ {@code thumb/<uuid>.jpg} cho bản resize)
+     * @param path đường dẫn file
+     * @param size kích thước (byte)
+     * @param lastModified thời điểm sửa (epoch millis)
+     * @param contentType content type đoán theo phần mở rộng
+     * @param etag ETag mạnh (kích thước và thời điểm sửa)
+     */
+    public record MediaMetadata(String name, Path path, long size, long lastModified, String contentType, String etag) {}
+
+    private final Path attachmentsDir;
+    private final Cache<String, Optional<MediaMetadata>> metadata;
+
+    public MediaMetadataService(Path mediaRoot, ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        this.attachmentsDir = mediaRoot.resolve("attachments");
+
+        ApplicationProperties.CacheRegion region = applicationProperties.getCache().getRegion(CACHE_NAME);
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+            .maximumSize(region.getMaxEntries() != null ? region.getMaxEntries() : DEFAULT_MAX_ENTRIES)
+            .expireAfterWrite(
+                region.getTimeToLiveSeconds() != null ? Duration.ofSeconds(region.getTimeToLiveSeconds()) : DEFAULT_TIME_TO_LIVE
+            );
+        boolean statisticsEnabled = !Boolean.FALSE.equals(region.getStatisticsEnabled());
+        if (statisticsEnabled) {
+            builder.recordStats();
+        }
+        this.metadata = builder.build();
+        if (statisticsEnabled) {
+            CaffeineCacheMetrics.monitor(meterRegistry, metadata, CACHE_NAME, "cache.manager", "application");
+        }
+    }
+
+    /**
+     * Metadata của file media theo tên tương đối (tên đã được kiểm tra định dạng).
+     *
+     * @return metadata, hoặc rỗng nếu file không tồn tại
+     */
+    public Optional<MediaMetadata> find(String name) {
+        Optional<MediaMetadata> cached = metadata.get(name, this::load);
+        if (cached.isEmpty()) {
+            // Không cache kết quả "không tồn tại": file có thể vừa được upload xong
+            metadata.invalidate(name);
+        }
+        return cached;
+    }
+
+    /**
+     * Xóa metadata của file (file bị xóa hoặc không còn đọc được).
+     */
+    public void evict(String name) {
+        metadata.invalidate(name);
+    }
+
+    private Optional<MediaMetadata> load(String name) {
+        Path file = attachmentsDir.resolve(name).normalize();
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                return Optional.empty();
+            }
+            long size = attributes.size();
+            long lastModified = attributes.lastModifiedTime().toMillis();
+            String contentType = MediaTypeFactory.getMediaType(name).orElse(MediaType.APPLICATION_OCTET_STREAM).toString();
+            String etag = "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + "\"";
+            return Optional.of(new MediaMetadata(name, file, size, lastModified, contentType, etag));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.lumiere.app.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lumiere.app.config.ApplicationProperties;
+import com.lumiere.app.repository.OptionSelectRepository;
+import com.lumiere.app.repository.OptionVariantRepository;
+import com.lumiere.app.service.dto.OptionAvailabilityDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Index trong bộ nhớ của các tổ hợp option theo sản phẩm: key canonical của tổ hợp ({@link #keyOf}) → variantId.
+ * <p>
+ * Index của một sản phẩm được dựng khi cần bằng một truy vấn (variantId, selectId) và bị xóa khi mapping option của
+ * sản phẩm thay đổi (gán, thay thế, đồng bộ mix, xóa sản phẩm, variant, option group hoặc option select), cả ngay lập
+ * tức lẫn sau khi transaction commit để request đọc song song không dựng lại index từ dữ liệu cũ. Sản phẩm sở hữu một
+ * option select được ghi nhớ riêng (không đổi theo thời gian; cache có giới hạn, bị xóa cùng index của sản phẩm), nên
+ * tìm variant theo các option đã chọn chỉ còn một lần tra bảng băm.
+ */
+@Service
+@Transactional(readOnly = true)
+public class OptionCombinationIndexService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OptionCombinationIndexService.class);
+
+    /** Tên cache trong {@code application.cache.regions} và trong metrics. */
+    public static final String CACHE_NAME = "option-index";
+
+    private static final long DEFAULT_MAX_ENTRIES = 10_000;
+
+    private static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofHours(1);
+
+    /** Số option select tối đa được ghi nhớ sản phẩm sở hữu. */
+    private static final long MAX_SELECT_OWNERS = 100_000;
+
+    /**
+     * Index của một sản phẩm.
+     *
+     * @param variantIdByKey key canonical → variantId
+     * @param selectIdsByKey key canonical → các selectId (tăng dần)
+     */
+    record ProductIndex(Map<String, Long> variantIdByKey, Map<String, List<Long>> selectIdsByKey) {}
+
+    private final OptionVariantRepository optionVariantRepository;
+    private final OptionSelectRepository optionSelectRepository;
+    private final Cache<Long, ProductIndex> indexes;
+    private final Cache<Long, Long> productIdBySelectId = Caffeine.newBuilder().maximumSize(MAX_SELECT_OWNERS).build();
+
+    public OptionCombinationIndexService(
+        OptionVariantRepository optionVariantRepository,
+        OptionSelectRepository optionSelectRepository,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.optionVariantRepository = optionVariantRepository;
+        this.optionSelectRepository = optionSelectRepository;
+
+        ApplicationProperties.CacheRegion region = applicationProperties.getCache().getRegion(CACHE_NAME);
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+            .maximumSize(region.getMaxEntries() != null ? region.getMaxEntries() : DEFAULT_MAX_ENTRIES)
+            .expireAfterWrite(
+                region.getTimeToLiveSeconds() != null ? Duration.ofSeconds(region.getTimeToLiveSeconds()) : DEFAULT_TIME_TO_LIVE
+            );
+        boolean statisticsEnabled = !Boolean.FALSE.equals(region.getStatisticsEnabled());
+        if (statisticsEnabled) {
+            builder.recordStats();
+        }
+        this.indexes = builder.build();
+        if (statisticsEnabled) {
+            CaffeineCacheMetrics.monitor(meterRegistry, indexes, CACHE_NAME, "cache.manager", "application");
+        }
+    }
+
+    /**
+     * Key canonical của một tổ hợp option: các selectId tăng dần nối bằng "-".
+     */
+    public static String keyOf(Collection<Long> selectIds) {
+        List<Long> sorted = new ArrayList<>(selectIds);
+        Collections.sort(sorted);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < sorted.size(); i++) {
+            if (i > 0) sb.append("-");
+            sb.append(sorted.get(i));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Tìm variant có đúng tập option đã chọn.
+     *
+     * @return variantId, hoặc null nếu không có variant (hoặc các option thuộc nhiều sản phẩm)
+     */
+    public Long findVariantId(Collection<Long> selectIds) {
+        Set<Long> distinct = new LinkedHashSet<>(selectIds);
+        ProductIndex index = indexFor(distinct);
+        return index != null ? index.variantIdByKey().get(keyOf(distinct)) : null;
+    }
+
+    /**
+     * Các tổ hợp có variant chứa toàn bộ option đã chọn (có thể chọn rỗng để lấy tất cả tổ hợp của sản phẩm).
+     *
+     * @param productId sản phẩm
+     * @param selectIds các option đã chọn
+     */
+    public OptionAvailabilityDTO findAvailableCombinations(Long productId, Collection<Long> selectIds) {
+        ProductIndex index = indexes.get(productId, this::build);
+        List<OptionAvailabilityDTO.Combination> combinations = new ArrayList<>();
+        Set<Long> availableSelectIds = new TreeSet<>();
+        for (Map.Entry<String, List<Long>> entry : index.selectIdsByKey().entrySet()) {
+            if (entry.getValue().containsAll(selectIds)) {
+                combinations.add(new OptionAvailabilityDTO.Combination(entry.getValue(), index.variantIdByKey().get(entry.getKey())));
+                availableSelectIds.addAll(entry.getValue());
+            }
+        }
+        return new OptionAvailabilityDTO(combinations, availableSelectIds);
+    }
+
+    /**
+     * Xóa index của các sản phẩm (ngay lập tức và sau khi transaction hiện tại commit).
+     */
+    public void invalidate(Collection<Long> productIds) {
+        List<Long> ids = productIds.stream().filter(id -> id != null).toList();
+        if (ids.isEmpty()) {
+            return;
+        }
+        forgetSelects(ids);
+        indexes.invalidateAll(ids);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        forgetSelects(ids);
+                        indexes.invalidateAll(ids);
+                    }
+                }
+            );
+        }
+    }
+
+    /**
+     * Xóa sản phẩm sở hữu đã ghi nhớ của các option select trong index hiện tại của các sản phẩm.
+     */
+    private void forgetSelects(List<Long> productIds) {
+        for (Long productId : productIds) {
+            ProductIndex index = indexes.getIfPresent(productId);
+            if (index != null) {
+                index.selectIdsByKey().values().forEach(productIdBySelectId::invalidateAll);
+            }
+        }
+    }
+
+    private ProductIndex indexFor(Set<Long> selectIds) {
+        Long productId = null;
+        List<Long> unknown = new ArrayList<>();
+        for (Long selectId : selectIds) {
+            Long owner = productIdBySelectId.getIfPresent(selectId);
+            if (owner == null) {
+                unknown.add(selectId);
+            } else if (productId == null) {
+                productId = owner;
+            } else if (!productId.equals(owner)) {
+                return null;
+            }
+        }
+        if (!unknown.isEmpty()) {
+            List<Long> owners = optionSelectRepository.findProductIdsByIdIn(unknown);
+            if (owners.size() != 1 || (productId != null && !productId.equals(owners.get(0)))) {
+                return null;
+            }
+            productId = owners.get(0);
+        }
+        return indexes.get(productId, this::build);
+    }
+
+    private ProductIndex build(Long productId) {
+        Map<Long, List<Long>> selectIdsByVariant = new HashMap<>();
+        for (Object[] row : optionVariantRepository.findVariantSelectPairsByProductId(productId)) {
+            selectIdsByVariant.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((Long) row[1]);
+        }
+
+        Map<String, Long> variantIdByKey = new HashMap<>();
+        Map<String, List<Long>> selectIdsByKey = new HashMap<>();
+        for (Map.Entry<Long, List<Long>> entry : selectIdsByVariant.entrySet()) {
+            List<Long> sorted = entry.getValue().stream().distinct().sorted().toList();
+            String key = keyOf(sorted);
+            // Giữ variant có ID nhỏ nhất nếu hai variant trùng tổ hợp
+            variantIdByKey.merge(key, entry.getKey(), Math::min);
+            selectIdsByKey.put(key, sorted);
+            for (Long selectId : sorted) {
+                productIdBySelectId.put(selectId, productId);
+            }
+        }
+        LOG.debug("Built option index for product {} ({} combinations)", productId, variantIdByKey.size());
+        return new ProductIndex(Map.copyOf(variantIdByKey), Map.copyOf(selectIdsByKey));
+    }
+}
@@ -2,6 +2,7 @@
 package com.lumiere.app.service;
 
 import com.lumiere.app.service.dto.GroupSelectReq;
+import com.lumiere.app.service.dto.OptionAvailabilityDTO;
 import com.lumiere.app.service.dto.OptionVariantDTO;
 import com.lumiere.app.service.dto.ProductVariantDTO;
 import com.lumiere.app.service.dto.SyncMixResult;
@@ -20,4 +21,10 @@ public interface OptionVariantService {
 
     @Transactional(readOnly = true)
     ProductVariantDTO findVariantBySelectOptionIds(List<Long> selectOptions);
+
+    /**
+     * Các tổ hợp option còn chọn được của sản phẩm khi đã chọn một phần option.
+     */
+    @Transactional(readOnly = true)
+    OptionAvailabilityDTO findAvailableCombinations(Long productId, List<Long> selectOptions);
 }
@@ -0,0 +1,294 @@
+package com.lumiere.app.service;
+
+import com.lumiere.app.domain.Inventory;
+import com.lumiere.app.domain.OrderStatusHistory;
+import com.lumiere.app.domain.OrderStockAllocation;
+import com.lumiere.app.domain.Orders;
+import com.lumiere.app.domain.ProductVariant;
+import com.lumiere.app.domain.enumeration.OrderStatus;
+import com.lumiere.app.domain.enumeration.StockMovementReason;
+import com.lumiere.app.repository.InventoryRepository;
+import com.lumiere.app.repository.OrderStockAllocationRepository;
+import com.lumiere.app.repository.OrderStatusHistoryRepository;
+import com.lumiere.app.repository.OrdersRepository;
+import com.lumiere.app.repository.ProductVariantRepository;
+import com.lumiere.app.service.dto.OrderStockProcessingMessage;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Trừ tồn kho cho một batch đơn hàng mới.
+ * <p>
+ * Các inventory liên quan đến cả batch được khóa một lần (theo thứ tự id), sau đó các đơn hàng được
+ * phân bổ lần lượt theo thứ tự message trên số tồn còn lại trong bộ nhớ. Đơn hàng nào không đủ hàng
+ * bị hủy và không trừ kho dòng nào; các đơn còn lại được trừ bằng một câu {@code UPDATE} cho mỗi inventory.
+ * Nhờ vậy một SKU bán chạy chỉ bị khóa một lần cho mỗi batch thay vì một lần cho mỗi đơn.
+ * Phần xuất kho của từng đơn được ghi vào sổ kho qua {@link StockLedgerService}.
+ * <p>
+ * Các đơn hàng của batch được khóa trước (theo thứ tự id), nên việc trừ kho, thao tác hủy đơn và việc hoàn kho trên
+ * cùng đơn hàng diễn ra tuần tự. Đơn đã bị hủy không bị trừ kho. Số lượng đã xuất khỏi từng inventory của đơn được ghi
+ * vào {@code order_stock_allocation} cùng transaction; các dòng này cho biết đơn đang giữ hàng ở kho nào (hàng được hoàn
+ * về đúng các kho đó khi hủy đơn) và giúp bỏ qua message gửi lại (outbox gửi theo kiểu at-least-once).
+ */
+@Service
+@Transactional
+public class OrderStockAllocationService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OrderStockAllocationService.class);
+
+    private final InventoryRepository inventoryRepository;
+    private final ProductVariantRepository productVariantRepository;
+    private final OrdersRepository ordersRepository;
+    private final OrderStatusHistoryRepository orderStatusHistoryRepository;
+    private final OrderStockAllocationRepository orderStockAllocationRepository;
+    private final DashboardMetricsService dashboardMetricsService;
+    private final StockLedgerService stockLedgerService;
+    private final HomeFeedService homeFeedService;
+    private final OrderStockRestoreService orderStockRestoreService;
+
+    public OrderStockAllocationService(
+        InventoryRepository inventoryRepository,
+        ProductVariantRepository productVariantRepository,
+        OrdersRepository ordersRepository,
+        OrderStatusHistoryRepository orderStatusHistoryRepository,
+        OrderStockAllocationRepository orderStockAllocationRepository,
+        DashboardMetricsService dashboardMetricsService,
+        StockLedgerService stockLedgerService,
+        HomeFeedService homeFeedService,
+        OrderStockRestoreService orderStockRestoreService
+    ) {
+        this.inventoryRepository = inventoryRepository;
+        this.productVariantRepository = productVariantRepository;
+        this.ordersRepository = ordersRepository;
+        this.orderStatusHistoryRepository = orderStatusHistoryRepository;
+        this.orderStockAllocationRepository = orderStockAllocationRepository;
+        this.dashboardMetricsService = dashboardMetricsService;
+        this.stockLedgerService = stockLedgerService;
+        this.homeFeedService = homeFeedService;
+        this.orderStockRestoreService = orderStockRestoreService;
+    }
+
+    /**
+     * Trừ tồn kho cho các đơn hàng theo thứ tự, hủy các đơn không đủ hàng. Message của đơn đã được trừ kho,
+     * đã bị hủy hoặc không còn tồn tại bị bỏ qua.
+     *
+     * @param messages các message của batch (theo thứ tự nhận)
+     * @return số đơn hàng bị hủy do không đủ hàng
+     */
+    public int allocate(List<OrderStockProcessingMessage> messages) {
+        messages = pendingAllocation(messages);
+        if (messages.isEmpty()) {
+            return 0;
+        }
+
+        Set<Long> variantIds = new LinkedHashSet<>();
+        for (OrderStockProcessingMessage message : messages) {
+            for (OrderStockProcessingMessage.StockDeductionItem item : message.getItems()) {
+                variantIds.add(item.getVariantId());
+            }
+        }
+
+        Map<Long, ProductVariant> variants = productVariantRepository
+            .findAllByIdIn(variantIds)
+            .stream()
+            .collect(Collectors.toMap(ProductVariant::getId, Function.identity()));
+
+        // Khóa tất cả inventory của batch một lần, theo thứ tự id để tránh deadlock giữa các consumer
+        List<Long> inventoryIds = inventoryRepository.findActiveIdsByProductVariantIds(variantIds);
+        Map<Long, List<Inventory>> inventoriesByVariant = new HashMap<>();
+        Map<Long, Inventory> inventoriesById = new HashMap<>();
+        Map<Long, Long> remaining = new HashMap<>();
+        if (!inventoryIds.isEmpty()) {
+            for (Inventory inventory : inventoryRepository.findAllByIdForUpdate(inventoryIds)) {
+                inventoriesByVariant.computeIfAbsent(inventory.getProductVariant().getId(), id -> new ArrayList<>()).add(inventory);
+                inventoriesById.put(inventory.getId(), inventory);
+                remaining.put(inventory.getId(), inventory.getStockQuantity() != null ? inventory.getStockQuantity() : 0L);
+            }
+        }
+
+        Instant now = Instant.now();
+        Map<Long, Long> deductions = new LinkedHashMap<>();
+        List<OrderStockAllocation> allocations = new ArrayList<>();
+        List<StockLedgerService.Movement> movements = new ArrayList<>();
+        int cancelledCount = 0;
+        for (OrderStockProcessingMessage message : messages) {
+            Map<Long, Long> required = new LinkedHashMap<>();
+            for (OrderStockProcessingMessage.StockDeductionItem item : message.getItems()) {
+                required.merge(item.getVariantId(), item.getQuantity(), Long::sum);
+            }
+
+            String shortage = findShortage(required, variants, inventoriesByVariant, remaining);
+            if (shortage != null) {
+                cancelOrderDueToInsufficientStock(message.getOrderId(), shortage);
+                cancelledCount++;
+                continue;
+            }
+
+            Map<Long, Long> orderDeductions = new LinkedHashMap<>();
+            required.forEach((variantId, quantity) -> allocate(inventoriesByVariant.get(variantId), quantity, remaining, orderDeductions));
+            String note = "Đơn hàng #" + message.getOrderId();
+            orderDeductions.forEach((inventoryId, quantity) -> {
+                deductions.merge(inventoryId, quantity, Long::sum);
+                allocations.add(
+                    new OrderStockAllocation().orderId(message.getOrderId()).inventoryId(inventoryId).quantity(quantity).allocatedAt(now)
+                );
+                Inventory inventory = inventoriesById.get(inventoryId);
+                Long warehouseId = inventory.getWarehouse() != null ? inventory.getWarehouse().getId() : null;
+                movements.add(
+                    new StockLedgerService.Movement(inventory.getProductVariant().getId(), warehouseId, -quantity, StockMovementReason.SALE, note)
+                );
+            });
+            LOG.debug("Allocated stock for order {}", message.getOrderId());
+        }
+
+        deductions.forEach((inventoryId, quantity) -> {
+            // Inventory đã bị khóa nên câu lệnh luôn cập nhật được; nếu không, rollback cả batch để xử lý lại
+            if (inventoryRepository.deductStockQuantity(inventoryId, quantity) == 0) {
+                throw new IllegalStateException("Không thể cập nhật tồn kho cho inventory " + inventoryId);
+            }
+        });
+        stockLedgerService.record(movements);
+        orderStockAllocationRepository.saveAll(allocations);
+
+        LOG.info(
+            "Processed stock deduction for {} orders ({} cancelled), {} variants, {} inventories updated",
+            messages.size(),
+            cancelledCount,
+            variantIds.size(),
+            deductions.size()
+        );
+        return cancelledCount;
+    }
+
+    /**
+     * Kiểm tra đơn hàng có đủ hàng với số tồn còn lại của batch.
+     *
+     * @return lý do không đủ hàng, hoặc null nếu đủ
+     */
+    private static String findShortage(
+        Map<Long, Long> required,
+        Map<Long, ProductVariant> variants,
+        Map<Long, List<Inventory>> inventoriesByVariant,
+        Map<Long, Long> remaining
+    ) {
+        for (Map.Entry<Long, Long> entry : required.entrySet()) {
+            ProductVariant variant = variants.get(entry.getKey());
+            if (variant == null) {
+                return "Product variant not found: " + entry.getKey();
+            }
+            List<Inventory> inventories = inventoriesByVariant.get(entry.getKey());
+            if (inventories == null) {
+                return "Sản phẩm " + variant.getSku() + " không có trong kho. Vui lòng kiểm tra lại.";
+            }
+            long totalAvailable = inventories.stream().mapToLong(inventory -> remaining.get(inventory.getId())).sum();
+            if (totalAvailable < entry.getValue()) {
+                return (
+                    "Sản phẩm " + variant.getSku() + " không đủ số lượng. " + "Có sẵn: " + totalAvailable + ", yêu cầu: " + entry.getValue()
+                );
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Khóa các đơn hàng của batch và giữ lại message của các đơn cần trừ kho: bỏ đơn đã được trừ kho (message gửi lại
+     * hoặc lặp lại trong batch), đơn đã bị hủy và đơn không còn tồn tại.
+     */
+    private List<OrderStockProcessingMessage> pendingAllocation(List<OrderStockProcessingMessage> messages) {
+        Set<Long> orderIds = messages.stream().map(OrderStockProcessingMessage::getOrderId).collect(Collectors.toCollection(LinkedHashSet::new));
+        Map<Long, OrderStatus> statuses = new HashMap<>();
+        for (Orders order : ordersRepository.findAllByIdForUpdate(orderIds)) {
+            statuses.put(order.getId(), order.getStatus());
+        }
+        Set<Long> allocated = new HashSet<>(orderStockAllocationRepository.findAllocatedOrderIds(orderIds));
+
+        List<OrderStockProcessingMessage> pending = new ArrayList<>(messages.size());
+        for (OrderStockProcessingMessage message : messages) {
+            Long orderId = message.getOrderId();
+            if (!statuses.containsKey(orderId)) {
+                LOG.warn("Order {} not found, skipping stock processing message", orderId);
+            } else if (statuses.get(orderId) == OrderStatus.CANCELLED) {
+                LOG.info("Order {} is cancelled, skipping stock processing message", orderId);
+            } else if (!allocated.add(orderId)) {
+                LOG.info("Skipping duplicate stock processing message for order {}", orderId);
+            } else {
+                pending.add(message);
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Phân bổ số lượng vào các inventory theo thứ tự ưu tiên (từ nhiều đến ít).
+     */
+    private static void allocate(List<Inventory> inventories, long quantity, Map<Long, Long> remaining, Map<Long, Long> deductions) {
+        inventories.sort(Comparator.comparing((Inventory inventory) -> remaining.get(inventory.getId())).reversed());
+        long remainingQuantity = quantity;
+        for (Inventory inventory : inventories) {
+            if (remainingQuantity <= 0) {
+                break;
+            }
+            long deductAmount = Math.min(remainingQuantity, remaining.get(inventory.getId()));
+            if (deductAmount > 0) {
+                remaining.merge(inventory.getId(), -deductAmount, Long::sum);
+                deductions.merge(inventory.getId(), deductAmount, Long::sum);
+                remainingQuantity -= deductAmount;
+            }
+        }
+    }
+
+    /**
+     * Hủy đơn hàng do không đủ stock.
+     *
+     * @param orderId ID đơn hàng
+     * @param reason lý do hủy
+     */
+    private void cancelOrderDueToInsufficientStock(Long orderId, String reason) {
+        Orders order = ordersRepository.findById(orderId).orElse(null);
+        if (order == null) {
+            LOG.warn("Order {} not found, cannot cancel: {}", orderId, reason);
+            return;
+        }
+
+        // Chỉ hủy nếu đơn hàng chưa bị hủy hoặc đã giao
+        if (
+            order.getStatus() == OrderStatus.CANCELLED || order.getStatus() == OrderStatus.DELIVERED || order.getStatus() == OrderStatus.COMPLETED
+        ) {
+            LOG.warn("Order {} cannot be cancelled, current status: {}", orderId, order.getStatus());
+            return;
+        }
+
+        OrderStatus oldStatus = order.getStatus();
+        order.setStatus(OrderStatus.CANCELLED);
+        ordersRepository.save(order);
+        dashboardMetricsService.onOrderStatusChanged(order, oldStatus, OrderStatus.CANCELLED);
+        homeFeedService.onOrderStatusChanged(oldStatus, OrderStatus.CANCELLED);
+
+        // Tạo lịch sử trạng thái
+        OrderStatusHistory history = new OrderStatusHistory();
+        history.setOrder(order);
+        history.setStatus(OrderStatus.CANCELLED);
+        history.setDescription("Đơn hàng bị hủy do không đủ số lượng sản phẩm trong kho: " + reason);
+        history.setTimestamp(Instant.now());
+        orderStatusHistoryRepository.save(history);
+
+        // Đơn chưa được trừ kho nên chỉ cần trả lại suất flash sale đã giữ lúc đặt hàng
+        orderStockRestoreService.enqueue(orderId);
+
+        LOG.warn("Order {} cancelled due to insufficient stock: {}", orderId, reason);
+    }
+}
@@ -0,0 +1,247 @@
+package com.lumiere.app.service;
+
+import com.lumiere.app.domain.Inventory;
+import com.lumiere.app.domain.OrderStockAllocation;
+import com.lumiere.app.domain.OrderStockRestoration;
+import com.lumiere.app.domain.Orders;
+import com.lumiere.app.domain.enumeration.OrderStatus;
+import com.lumiere.app.domain.enumeration.StockMovementReason;
+import com.lumiere.app.domain.enumeration.StockRestorationStatus;
+import com.lumiere.app.repository.InventoryRepository;
+import com.lumiere.app.repository.OrderItemRepository;
+import com.lumiere.app.repository.OrderStockAllocationRepository;
+import com.lumiere.app.repository.OrderStockRestorationRepository;
+import com.lumiere.app.repository.OrdersRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Hoàn kho cho các đơn hàng trong hàng đợi {@link OrderStockRestoration}.
+ * <p>
+ * Mỗi lần gọi chạy trong transaction riêng: khóa các dòng PENDING (SKIP LOCKED để nhiều instance chạy song song
+ * không xử lý trùng) và các đơn hàng của chúng, cộng lại số lượng đã trừ vào đúng các inventory nguồn theo các dòng
+ * {@link OrderStockAllocation} bằng các câu {@code UPDATE} atomic, xóa các dòng phân bổ rồi đánh dấu COMPLETED.
+ * Việc cộng kho, xóa phân bổ và đánh dấu cùng commit hoặc cùng rollback, nên số hàng đã trừ chỉ được hoàn một lần
+ * dù đơn bị hủy nhiều lần. Phần nhập lại kho được ghi vào sổ kho qua {@link StockLedgerService}; suất flash sale
+ * đã giữ cho đơn được trả lại qua {@link FlashSaleReservationService} trong cùng transaction.
+ */
+@Service
+@Transactional(propagation = Propagation.REQUIRES_NEW)
+public class OrderStockRestoreBatchService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OrderStockRestoreBatchService.class);
+
+    /** Số lần thất bại tối đa trước khi chuyển sang FAILED. */
+    public static final int MAX_ATTEMPTS = 5;
+
+    private final OrderStockRestorationRepository orderStockRestorationRepository;
+    private final OrderStockAllocationRepository orderStockAllocationRepository;
+    private final OrdersRepository ordersRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final InventoryRepository inventoryRepository;
+    private final StockLedgerService stockLedgerService;
+    private final FlashSaleReservationService flashSaleReservationService;
+    private final Timer latencyTimer;
+    private final Counter restoredCounter;
+    private final Counter failedCounter;
+
+    public OrderStockRestoreBatchService(
+        OrderStockRestorationRepository orderStockRestorationRepository,
+        OrderStockAllocationRepository orderStockAllocationRepository,
+        OrdersRepository ordersRepository,
+        OrderItemRepository orderItemRepository,
+        InventoryRepository inventoryRepository,
+        StockLedgerService stockLedgerService,
+        FlashSaleReservationService flashSaleReservationService,
+        MeterRegistry meterRegistry
+    ) {
+        this.orderStockRestorationRepository = orderStockRestorationRepository;
+        this.orderStockAllocationRepository = orderStockAllocationRepository;
+        this.ordersRepository = ordersRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.inventoryRepository = inventoryRepository;
+        this.stockLedgerService = stockLedgerService;
+        this.flashSaleReservationService = flashSaleReservationService;
+        this.latencyTimer = Timer.builder("order.stock.restoration.latency")
+            .description("Thời gian từ lúc hủy đơn đến lúc hoàn kho")
+            .register(meterRegistry);
+        this.restoredCounter = Counter.builder("order.stock.restoration.processed")
+            .description("Số đơn hàng đã hoàn kho")
+            .tag("result", "restored")
+            .register(meterRegistry);
+        this.failedCounter = Counter.builder("order.stock.restoration.processed")
+            .description("Số đơn hàng đã hoàn kho")
+            .tag("result", "failed")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Hoàn kho cho tối đa {@code batchSize} đơn hàng đang chờ.
+     *
+     * @return số đơn hàng đã xử lý
+     */
+    public int restoreBatch(int batchSize) {
+        List<OrderStockRestoration> restorations = orderStockRestorationRepository.findByStatusForUpdate(
+            StockRestorationStatus.PENDING,
+            PageRequest.of(0, batchSize)
+        );
+        if (restorations.isEmpty()) {
+            return 0;
+        }
+        restore(restorations);
+        return restorations.size();
+    }
+
+    /**
+     * Hoàn kho cho một đơn hàng (dùng khi cả batch thất bại, để tách riêng đơn hàng lỗi).
+     *
+     * @return true nếu đã xử lý
+     */
+    public boolean restoreOne(Long restorationId) {
+        return orderStockRestorationRepository
+            .findByIdAndStatusForUpdate(restorationId, StockRestorationStatus.PENDING)
+            .map(restoration -> {
+                restore(List.of(restoration));
+                return true;
+            })
+            .orElse(false);
+    }
+
+    /**
+     * Ghi nhận một lần xử lý thất bại; chuyển sang FAILED khi vượt quá {@link #MAX_ATTEMPTS}.
+     */
+    public void recordFailure(Long restorationId, String error) {
+        orderStockRestorationRepository
+            .findById(restorationId)
+            .filter(restoration -> restoration.getStatus() == StockRestorationStatus.PENDING)
+            .ifPresent(restoration -> {
+                restoration.setAttempts(restoration.getAttempts() + 1);
+                restoration.setLastError(error != null && error.length() > 1000 ? error.substring(0, 1000) : error);
+                if (restoration.getAttempts() >= MAX_ATTEMPTS) {
+                    restoration.setStatus(StockRestorationStatus.FAILED);
+                    failedCounter.increment();
+                    LOG.error("Giving up stock restoration for order {} after {} attempts", restoration.getOrderId(), MAX_ATTEMPTS);
+                }
+            });
+    }
+
+    private void restore(List<OrderStockRestoration> restorations) {
+        Set<Long> orderIds = restorations.stream().map(OrderStockRestoration::getOrderId).collect(Collectors.toCollection(TreeSet::new));
+
+        // Khóa các đơn hàng (theo thứ tự id) để xử lý tuần tự với việc trừ kho, thao tác đổi trạng thái và các dòng
+        // hoàn kho khác của cùng đơn; đơn đã được chuyển khỏi CANCELLED trước khi xử lý thì không hoàn kho
+        Set<Long> cancelledOrderIds = new TreeSet<>();
+        for (Orders order : ordersRepository.findAllByIdForUpdate(orderIds)) {
+            if (order.getStatus() == OrderStatus.CANCELLED) {
+                cancelledOrderIds.add(order.getId());
+            }
+        }
+
+        int inventoryCount = cancelledOrderIds.isEmpty() ? 0 : restoreAllocations(cancelledOrderIds);
+
+        // Trả lại suất flash sale đã giữ lúc đặt hàng (không phụ thuộc việc đơn đã được trừ kho hay chưa). Suất chỉ được
+        // giữ một lần khi đặt hàng, nên đơn đã có lần hoàn kho COMPLETED (bị hủy lại sau khi mở lại) không trả lần nữa
+        Set<Long> firstCancellationIds = new TreeSet<>(cancelledOrderIds);
+        if (!firstCancellationIds.isEmpty()) {
+            firstCancellationIds.removeAll(
+                orderStockRestorationRepository.findOrderIdsByStatus(cancelledOrderIds, StockRestorationStatus.COMPLETED)
+            );
+        }
+        if (!firstCancellationIds.isEmpty()) {
+            Map<Long, Integer> flashSaleQuantities = new HashMap<>();
+            for (Object[] row : orderItemRepository.sumFlashSaleQuantityForOrders(firstCancellationIds, OrderStatus.CANCELLED)) {
+                flashSaleQuantities.put((Long) row[0], ((Number) row[1]).intValue());
+            }
+            if (!flashSaleQuantities.isEmpty()) {
+                flashSaleReservationService.release(flashSaleQuantities);
+            }
+        }
+
+        Instant now = Instant.now();
+        List<OrderStockRestoration> skipped = new ArrayList<>();
+        for (OrderStockRestoration restoration : restorations) {
+            if (!cancelledOrderIds.contains(restoration.getOrderId())) {
+                // Không làm gì cho lần hủy này: bỏ dòng để lần hủy sau vẫn trả lại suất flash sale
+                skipped.add(restoration);
+                continue;
+            }
+            restoration.setStatus(StockRestorationStatus.COMPLETED);
+            restoration.setProcessedAt(now);
+            latencyTimer.record(Duration.between(restoration.getCreatedAt(), now));
+        }
+        if (!skipped.isEmpty()) {
+            orderStockRestorationRepository.deleteAllInBatch(skipped);
+            LOG.debug("Skipped stock restoration for {} orders that are no longer cancelled", skipped.size());
+        }
+        restoredCounter.increment(restorations.size() - skipped.size());
+        LOG.info("Restored stock for {} cancelled orders ({} inventories)", cancelledOrderIds.size(), inventoryCount);
+    }
+
+    /**
+     * Cộng lại số lượng đã trừ vào đúng các inventory nguồn theo các dòng {@link OrderStockAllocation} của đơn hàng,
+     * rồi xóa các dòng đó (đơn không còn giữ hàng, nên hủy lại hoặc xử lý lại không hoàn kho lần hai).
+     *
+     * @return số inventory đã cộng lại
+     */
+    private int restoreAllocations(Set<Long> orderIds) {
+        List<OrderStockAllocation> allocations = orderStockAllocationRepository.findAllByOrderIdInOrderById(orderIds);
+        if (allocations.isEmpty()) {
+            return 0;
+        }
+
+        // Gộp theo inventory và cập nhật theo thứ tự id, cùng thứ tự khóa với lúc trừ kho
+        Map<Long, Long> quantityByInventory = new TreeMap<>();
+        for (OrderStockAllocation allocation : allocations) {
+            quantityByInventory.merge(allocation.getInventoryId(), allocation.getQuantity(), Long::sum);
+        }
+        Map<Long, Inventory> inventories = new HashMap<>();
+        for (Inventory inventory : inventoryRepository.findAllById(quantityByInventory.keySet())) {
+            inventories.put(inventory.getId(), inventory);
+        }
+
+        String note = "Hoàn kho đơn hàng bị hủy #" + orderIds.stream().map(String::valueOf).collect(Collectors.joining(", #"));
+        if (note.length() > 255) {
+            note = "Hoàn kho " + orderIds.size() + " đơn hàng bị hủy";
+        }
+        List<StockLedgerService.Movement> movements = new ArrayList<>();
+        for (Map.Entry<Long, Long> entry : quantityByInventory.entrySet()) {
+            Inventory inventory = inventories.get(entry.getKey());
+            if (inventory == null || inventory.getProductVariant() == null) {
+                LOG.warn("Inventory {} no longer exists, cannot restore {} units", entry.getKey(), entry.getValue());
+                continue;
+            }
+            inventoryRepository.increaseStockQuantity(inventory.getId(), entry.getValue());
+            Long warehouseId = inventory.getWarehouse() != null ? inventory.getWarehouse().getId() : null;
+            movements.add(
+                new StockLedgerService.Movement(
+                    inventory.getProductVariant().getId(),
+                    warehouseId,
+                    entry.getValue(),
+                    StockMovementReason.ORDER_CANCELLED,
+                    note
+                )
+            );
+            LOG.debug("Restored {} units to inventory {}", entry.getValue(), inventory.getId());
+        }
+        stockLedgerService.record(movements);
+        orderStockAllocationRepository.deleteAllInBatch(allocations);
+        return movements.size();
+    }
+}
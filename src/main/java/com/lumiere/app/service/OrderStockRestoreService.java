@@ -1,22 +1,27 @@
 package com.lumiere.app.service;
 
-import com.lumiere.app.domain.OrderItem;
-import com.lumiere.app.domain.Orders;
-import com.lumiere.app.domain.ProductVariant;
-import com.lumiere.app.domain.enumeration.OrderStatus;
-import com.lumiere.app.repository.OrderItemRepository;
-import com.lumiere.app.repository.OrdersRepository;
-import com.lumiere.app.repository.ProductVariantRepository;
+import com.lumiere.app.domain.enumeration.StockRestorationStatus;
+import com.lumiere.app.repository.OrderStockRestorationRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Instant;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Service để restore stock khi đơn hàng bị hủy.
+ * <p>
+ * Khi hủy đơn, đơn hàng được thêm vào hàng đợi {@code order_stock_restoration} trong cùng transaction.
+ * Job định kỳ chỉ đọc các dòng PENDING và hoàn kho theo batch qua {@link OrderStockRestoreBatchService},
+ * thay vì quét toàn bộ bảng orders.
  */
 @Service
 @Transactional
@@ -24,177 +29,101 @@ public class OrderStockRestoreService {
 
     private static final Logger LOG = LoggerFactory.getLogger(OrderStockRestoreService.class);
 
-    private final OrdersRepository ordersRepository;
-    private final OrderItemRepository orderItemRepository;
-    private final ProductVariantRepository productVariantRepository;
+    /** Số đơn hàng hoàn kho trong một transaction. */
+    public static final int BATCH_SIZE = 100;
+
+    private final OrderStockRestorationRepository orderStockRestorationRepository;
+    private final OrderStockRestoreBatchService orderStockRestoreBatchService;
+    private final AtomicLong backlog = new AtomicLong();
+    private final Timer jobTimer;
 
     public OrderStockRestoreService(
-        OrdersRepository ordersRepository,
-        OrderItemRepository orderItemRepository,
-        ProductVariantRepository productVariantRepository
+        OrderStockRestorationRepository orderStockRestorationRepository,
+        OrderStockRestoreBatchService orderStockRestoreBatchService,
+        MeterRegistry meterRegistry
     ) {
-        this.ordersRepository = ordersRepository;
-        this.orderItemRepository = orderItemRepository;
-        this.productVariantRepository = productVariantRepository;
+        this.orderStockRestorationRepository = orderStockRestorationRepository;
+        this.orderStockRestoreBatchService = orderStockRestoreBatchService;
+        Gauge.builder("order.stock.restoration.backlog", backlog, AtomicLong::get)
+            .description("Số đơn hàng bị hủy đang chờ hoàn kho")
+            .register(meterRegistry);
+        this.jobTimer = Timer.builder("order.stock.restoration.job")
+            .description("Thời gian chạy một lượt job hoàn kho")
+            .register(meterRegistry);
     }
 
     /**
-     * Restore stock cho một đơn hàng bị hủy.
-     * Method này được gọi async khi đơn hàng bị hủy.
+     * Thêm đơn hàng bị hủy vào hàng đợi hoàn kho.
+     * Chạy trong transaction của thao tác hủy đơn; gọi nhiều lần khi đơn đang chờ hoàn kho chỉ tạo một dòng.
      *
      * @param orderId ID của đơn hàng bị hủy
      */
-    @Async
-    public void restoreStockForCancelledOrder(Long orderId) {
-        LOG.info("Starting to restore stock for cancelled order: {}", orderId);
-        
-        try {
-            Orders order = ordersRepository.findById(orderId)
-                .orElseThrow(() -> new IllegalArgumentException("Order not found: " + orderId));
-
-            // Chỉ restore stock cho đơn hàng đã bị hủy
-            if (order.getStatus() != OrderStatus.CANCELLED) {
-                LOG.warn("Order {} is not cancelled, skipping stock restoration", orderId);
-                return;
-            }
-
-            // Lấy tất cả order items của đơn hàng
-            List<OrderItem> orderItems = orderItemRepository.findAllByOrderIdWithVariants(orderId);
-            
-            if (orderItems.isEmpty()) {
-                LOG.warn("No order items found for order: {}", orderId);
-                return;
-            }
-
-            int restoredCount = 0;
-            for (OrderItem orderItem : orderItems) {
-                if (orderItem.getProductVariant() == null) {
-                    LOG.warn("OrderItem {} has no product variant, skipping", orderItem.getId());
-                    continue;
-                }
-
-                ProductVariant variant = orderItem.getProductVariant();
-                Integer quantity = orderItem.getQuantity();
-                
-                if (quantity == null || quantity <= 0) {
-                    LOG.warn("OrderItem {} has invalid quantity: {}, skipping", orderItem.getId(), quantity);
-                    continue;
-                }
-
-                // Restore stock vào ProductVariant
-                restoreProductVariantStock(variant, quantity.longValue());
-                
-                restoredCount++;
-                LOG.debug("Restored {} units of product variant {} (SKU: {}) for order {}", 
-                    quantity, variant.getId(), variant.getSku(), orderId);
-            }
-
-            LOG.info("Successfully restored stock for order {}. Restored {} items", orderId, restoredCount);
-            
-        } catch (Exception e) {
-            LOG.error("Error restoring stock for cancelled order {}: {}", orderId, e.getMessage(), e);
-            throw new RuntimeException("Failed to restore stock for order: " + orderId, e);
+    public void enqueue(Long orderId) {
+        if (orderStockRestorationRepository.enqueue(orderId, Instant.now()) > 0) {
+            LOG.debug("Queued stock restoration for cancelled order: {}", orderId);
+        } else {
+            LOG.debug("Stock restoration for order {} is already queued", orderId);
         }
     }
 
     /**
-     * Restore stock vào ProductVariant.
-     *
-     * @param variant ProductVariant cần restore stock
-     * @param quantity Số lượng cần restore
+     * Scheduled job chạy mỗi 30 giây để hoàn kho cho các đơn hàng trong hàng đợi.
      */
-    private void restoreProductVariantStock(ProductVariant variant, Long quantity) {
-        Long currentStock = variant.getStockQuantity() != null ? variant.getStockQuantity() : 0L;
-        variant.setStockQuantity(currentStock + quantity);
-        productVariantRepository.save(variant);
-        LOG.debug("Restored {} units to ProductVariant {}. New stock: {}", 
-            quantity, variant.getId(), variant.getStockQuantity());
+    @Scheduled(fixedDelay = 30000, initialDelay = 30000)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void scheduleStockRestoration() {
+        processPendingRestorations();
     }
 
     /**
-     * Scheduled job chạy mỗi giờ để xử lý các đơn hàng bị hủy chưa được restore stock.
-     * Job này là backup để đảm bảo không có đơn hàng nào bị bỏ sót.
+     * Xử lý các đơn hàng đang chờ hoàn kho theo batch.
+     * Nếu một batch thất bại, từng đơn của batch được xử lý riêng để đơn lỗi không chặn các đơn khác;
+     * đơn lỗi được thử lại ở lượt sau.
+     *
+     * @return số đơn hàng đã hoàn kho
      */
-    @Scheduled(cron = "0 0 * * * ?") // Chạy mỗi giờ
-    public void processCancelledOrdersStockRestoration() {
-        LOG.info("Starting scheduled job to restore stock for cancelled orders");
-        
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int processPendingRestorations() {
+        Timer.Sample sample = Timer.start();
+        int processedCount = 0;
         try {
-            // Lấy tất cả đơn hàng bị hủy trong 24 giờ qua
-            List<Orders> cancelledOrders = ordersRepository.findAll().stream()
-                .filter(order -> order.getStatus() == OrderStatus.CANCELLED)
-                .filter(order -> {
-                    // Chỉ xử lý đơn hàng bị hủy trong 24 giờ qua
-                    java.time.Instant oneDayAgo = java.time.Instant.now().minusSeconds(24 * 60 * 60);
-                    return order.getPlacedAt() != null && order.getPlacedAt().isAfter(oneDayAgo);
-                })
-                .toList();
-
-            if (cancelledOrders.isEmpty()) {
-                LOG.info("No cancelled orders found to process");
-                return;
-            }
-
-            LOG.info("Found {} cancelled orders to process", cancelledOrders.size());
-            
-            int processedCount = 0;
-            for (Orders order : cancelledOrders) {
+            while (true) {
+                int restored;
                 try {
-                    // Kiểm tra xem đơn hàng đã có order items chưa
-                    List<OrderItem> orderItems = orderItemRepository.findAllByOrderId(order.getId());
-                    if (orderItems.isEmpty()) {
-                        continue;
-                    }
-
-                    // Restore stock cho đơn hàng này
-                    restoreStockForCancelledOrderSync(order.getId());
-                    processedCount++;
-                    
+                    restored = orderStockRestoreBatchService.restoreBatch(BATCH_SIZE);
                 } catch (Exception e) {
-                    LOG.error("Error processing cancelled order {}: {}", order.getId(), e.getMessage(), e);
+                    LOG.warn("Stock restoration batch failed, retrying orders one by one: {}", e.getMessage());
+                    processedCount += processOneByOne();
+                    break;
+                }
+                processedCount += restored;
+                if (restored < BATCH_SIZE) {
+                    break;
                 }
             }
-
-            LOG.info("Completed scheduled job. Processed {} cancelled orders", processedCount);
-            
-        } catch (Exception e) {
-            LOG.error("Error in scheduled job to restore stock for cancelled orders: {}", e.getMessage(), e);
-        }
-    }
-
-    /**
-     * Restore stock synchronously (dùng trong scheduled job).
-     *
-     * @param orderId ID của đơn hàng
-     */
-    private void restoreStockForCancelledOrderSync(Long orderId) {
-        Orders order = ordersRepository.findById(orderId)
-            .orElseThrow(() -> new IllegalArgumentException("Order not found: " + orderId));
-
-        if (order.getStatus() != OrderStatus.CANCELLED) {
-            return;
+        } finally {
+            backlog.set(orderStockRestorationRepository.countByStatus(StockRestorationStatus.PENDING));
+            sample.stop(jobTimer);
         }
-
-        List<OrderItem> orderItems = orderItemRepository.findAllByOrderIdWithVariants(orderId);
-        
-        if (orderItems.isEmpty()) {
-            return;
+        if (processedCount > 0) {
+            LOG.info("Completed stock restoration job. Processed {} cancelled orders, {} pending", processedCount, backlog.get());
         }
+        return processedCount;
+    }
 
-        for (OrderItem orderItem : orderItems) {
-            if (orderItem.getProductVariant() == null) {
-                continue;
-            }
-
-            ProductVariant variant = orderItem.getProductVariant();
-            Integer quantity = orderItem.getQuantity();
-            
-            if (quantity == null || quantity <= 0) {
-                continue;
+    private int processOneByOne() {
+        List<Long> ids = orderStockRestorationRepository.findIdsByStatus(StockRestorationStatus.PENDING, PageRequest.of(0, BATCH_SIZE));
+        int processedCount = 0;
+        for (Long id : ids) {
+            try {
+                if (orderStockRestoreBatchService.restoreOne(id)) {
+                    processedCount++;
+                }
+            } catch (Exception e) {
+                LOG.error("Error restoring stock for restoration {}: {}", id, e.getMessage(), e);
+                orderStockRestoreBatchService.recordFailure(id, e.getMessage());
             }
-
-            restoreProductVariantStock(variant, quantity.longValue());
         }
+        return processedCount;
     }
 }
-
@@ -1,6 +1,7 @@
 package com.lumiere.app.service;
 
 import com.lumiere.app.service.dto.OrdersDTO;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
@@ -62,11 +63,14 @@ public interface OrdersService {
     void writeOrderInvoiceExcel(Long orderId, HttpServletResponse response);
 
     /**
-     * Xuất Excel danh sách đơn hàng.
+     * Xuất Excel danh sách đơn hàng (streaming, bộ nhớ không phụ thuộc số đơn hàng).
      *
+     * @param fromDate ngày bắt đầu (bao gồm), {@code null} nếu không lọc
+     * @param toDate ngày kết thúc (bao gồm), {@code null} nếu không lọc
+     * @param statuses các trạng thái cần xuất, rỗng hoặc {@code null} để xuất tất cả
      * @param response HTTP response để ghi file Excel
      */
-    void exportOrdersToExcel(HttpServletResponse response);
+    void exportOrdersToExcel(LocalDate fromDate, LocalDate toDate, List<com.lumiere.app.domain.enumeration.OrderStatus> statuses, HttpServletResponse response);
 
     /**
      * Tạo đơn hàng từ giỏ hàng của khách hàng hiện tại.
@@ -0,0 +1,140 @@
+package com.lumiere.app.service;
+
+import com.lumiere.app.domain.OutboxEvent;
+import com.lumiere.app.domain.enumeration.OutboxEventStatus;
+import com.lumiere.app.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Gửi một batch message của outbox lên Kafka.
+ * <p>
+ * Mỗi lần gọi chạy trong transaction riêng: khóa các dòng PENDING theo thứ tự id (SKIP LOCKED để nhiều instance
+ * chạy song song không gửi trùng), gửi cả batch, chờ Kafka xác nhận rồi đánh dấu SENT. Một batch chỉ chứa message cũ
+ * nhất đang chờ của mỗi key, nên message cùng key được gửi đúng thứ tự: message sau không thể vượt message trước
+ * đang gửi ở instance khác hoặc gửi lỗi (chờ retry). Message bị bỏ (FAILED) không còn chặn các message sau của key.
+ * Nếu instance dừng giữa chừng, message có thể được gửi lại (at-least-once); consumer cần xử lý idempotent.
+ */
+@Service
+@Transactional(propagation = Propagation.REQUIRES_NEW)
+public class OutboxRelayBatchService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OutboxRelayBatchService.class);
+
+    /** Số lần gửi thất bại tối đa trước khi chuyển sang FAILED. */
+    public static final int MAX_ATTEMPTS = 10;
+
+    /** Thời gian chờ Kafka xác nhận một batch. */
+    private static final long SEND_TIMEOUT_SECONDS = 30;
+
+    /**
+     * Kết quả gửi một batch.
+     *
+     * @param sent số message đã gửi
+     * @param failed số message gửi thất bại (sẽ thử lại ở lượt sau)
+     */
+    public record RelayResult(int sent, int failed) {
+        public int total() {
+            return sent + failed;
+        }
+    }
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final KafkaTemplate<String, String> outboxKafkaTemplate;
+    private final Timer publishLatencyTimer;
+    private final Counter sentCounter;
+    private final Counter failedCounter;
+
+    public OutboxRelayBatchService(
+        OutboxEventRepository outboxEventRepository,
+        @Qualifier("outboxKafkaTemplate") KafkaTemplate<String, String> outboxKafkaTemplate,
+        MeterRegistry meterRegistry
+    ) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.outboxKafkaTemplate = outboxKafkaTemplate;
+        this.publishLatencyTimer = Timer.builder("outbox.publish.latency")
+            .description("Thời gian từ lúc ghi outbox đến lúc Kafka xác nhận message")
+            .register(meterRegistry);
+        this.sentCounter = Counter.builder("outbox.published")
+            .description("Số message outbox đã xử lý")
+            .tag("result", "sent")
+            .register(meterRegistry);
+        this.failedCounter = Counter.builder("outbox.published")
+            .description("Số message outbox đã xử lý")
+            .tag("result", "failed")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Gửi tối đa {@code batchSize} message đang chờ.
+     */
+    public RelayResult relayBatch(int batchSize) {
+        List<OutboxEvent> events = outboxEventRepository.findKeyHeadsByStatusForUpdate(OutboxEventStatus.PENDING, PageRequest.of(0, batchSize));
+        if (events.isEmpty()) {
+            return new RelayResult(0, 0);
+        }
+
+        List<CompletableFuture<SendResult<String, String>>> futures = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            futures.add(outboxKafkaTemplate.send(event.getTopic(), event.getMessageKey(), event.getPayload()));
+        }
+
+        Instant deadline = Instant.now().plusSeconds(SEND_TIMEOUT_SECONDS);
+        int sent = 0;
+        int failed = 0;
+        for (int i = 0; i < events.size(); i++) {
+            OutboxEvent event = events.get(i);
+            try {
+                long waitMillis = Math.max(0, Duration.between(Instant.now(), deadline).toMillis());
+                futures.get(i).get(waitMillis, TimeUnit.MILLISECONDS);
+                Instant now = Instant.now();
+                event.setStatus(OutboxEventStatus.SENT);
+                event.setSentAt(now);
+                publishLatencyTimer.record(Duration.between(event.getCreatedAt(), now));
+                sent++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                recordFailure(event, "Interrupted");
+                failed++;
+            } catch (ExecutionException | TimeoutException e) {
+                recordFailure(event, e.getCause() != null ? e.getCause().getMessage() : e.toString());
+                failed++;
+            }
+        }
+        sentCounter.increment(sent);
+        if (failed > 0) {
+            LOG.warn("Outbox relay: {} messages sent, {} failed", sent, failed);
+        } else {
+            LOG.debug("Outbox relay: {} messages sent", sent);
+        }
+        return new RelayResult(sent, failed);
+    }
+
+    private void recordFailure(OutboxEvent event, String error) {
+        event.setAttempts(event.getAttempts() + 1);
+        event.setLastError(error != null && error.length() > 1000 ? error.substring(0, 1000) : error);
+        if (event.getAttempts() >= MAX_ATTEMPTS) {
+            event.setStatus(OutboxEventStatus.FAILED);
+            failedCounter.increment();
+            LOG.error("Giving up outbox message {} for topic {} after {} attempts", event.getId(), event.getTopic(), MAX_ATTEMPTS);
+        }
+    }
+}
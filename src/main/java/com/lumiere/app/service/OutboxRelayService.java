@@ -0,0 +1,111 @@
+package com.lumiere.app.service;
+
+import com.lumiere.app.domain.enumeration.OutboxEventStatus;
+import com.lumiere.app.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Đẩy các message trong outbox lên Kafka.
+ * <p>
+ * Job chạy mỗi giây, gửi theo batch qua {@link OutboxRelayBatchService} cho đến khi hết message đang chờ hoặc
+ * Kafka báo lỗi. Độ trễ gửi được theo dõi qua gauge {@code outbox.lag} (tuổi của message chờ lâu nhất, giây)
+ * và {@code outbox.backlog} (số message đang chờ).
+ */
+@Service
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class OutboxRelayService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OutboxRelayService.class);
+
+    /** Số message gửi trong một transaction. */
+    public static final int BATCH_SIZE = 200;
+
+    /** Message đã gửi được giữ lại số ngày này để tra cứu. */
+    private static final int RETENTION_DAYS = 7;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxRelayBatchService outboxRelayBatchService;
+    private final AtomicLong backlog = new AtomicLong();
+    private final AtomicLong lagSeconds = new AtomicLong();
+
+    public OutboxRelayService(
+        OutboxEventRepository outboxEventRepository,
+        OutboxRelayBatchService outboxRelayBatchService,
+        MeterRegistry meterRegistry
+    ) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.outboxRelayBatchService = outboxRelayBatchService;
+        Gauge.builder("outbox.backlog", backlog, AtomicLong::get)
+            .description("Số message outbox đang chờ gửi")
+            .register(meterRegistry);
+        Gauge.builder("outbox.lag", lagSeconds, AtomicLong::get)
+            .description("Tuổi của message outbox chờ lâu nhất")
+            .baseUnit("seconds")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Scheduled job chạy mỗi giây để gửi các message đang chờ.
+     */
+    @Scheduled(fixedDelay = 1000, initialDelay = 10000)
+    public void scheduleRelay() {
+        relayPending();
+    }
+
+    /**
+     * Gửi các message đang chờ theo batch.
+     *
+     * @return số message đã gửi
+     */
+    public int relayPending() {
+        int sentCount = 0;
+        try {
+            while (true) {
+                OutboxRelayBatchService.RelayResult result = outboxRelayBatchService.relayBatch(BATCH_SIZE);
+                sentCount += result.sent();
+                // Kafka lỗi: dừng lượt này, thử lại ở lượt sau. Batch không đầy vẫn có thể còn message đang chờ
+                // (mỗi batch chỉ lấy message đầu tiên của mỗi key) nên chỉ dừng khi không còn message nào.
+                if (result.failed() > 0 || result.total() == 0) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            LOG.warn("Outbox relay failed: {}", e.getMessage());
+        } finally {
+            updateLag();
+        }
+        return sentCount;
+    }
+
+    /**
+     * Scheduled job chạy hằng ngày lúc 03:30 để xóa các message đã gửi quá {@value #RETENTION_DAYS} ngày.
+     */
+    @Scheduled(cron = "0 30 3 * * *")
+    public void purgeSent() {
+        int deleted = outboxEventRepository.deleteSentBefore(Instant.now().minus(RETENTION_DAYS, ChronoUnit.DAYS));
+        if (deleted > 0) {
+            LOG.info("Purged {} sent outbox messages", deleted);
+        }
+    }
+
+    private void updateLag() {
+        try {
+            backlog.set(outboxEventRepository.countByStatus(OutboxEventStatus.PENDING));
+            Instant oldest = outboxEventRepository.findOldestCreatedAt(OutboxEventStatus.PENDING);
+            lagSeconds.set(oldest != null ? Math.max(0, Duration.between(oldest, Instant.now()).toSeconds()) : 0);
+        } catch (Exception e) {
+            LOG.debug("Cannot update outbox lag: {}", e.getMessage());
+        }
+    }
+}
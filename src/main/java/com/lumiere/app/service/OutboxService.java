@@ -0,0 +1,52 @@
+package com.lumiere.app.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lumiere.app.domain.OutboxEvent;
+import com.lumiere.app.repository.OutboxEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Ghi message Kafka vào outbox ({@code outbox_event}) thay vì gửi trực tiếp.
+ * <p>
+ * Message được ghi trong transaction của thao tác nghiệp vụ: đơn hàng commit thì message chắc chắn được gửi,
+ * rollback thì message cũng bị hủy. Request chỉ tốn một câu INSERT cục bộ; {@link OutboxRelayService} gửi
+ * message lên Kafka ở background.
+ */
+@Service
+@Transactional
+public class OutboxService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OutboxService.class);
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+
+    public OutboxService(OutboxEventRepository outboxEventRepository, ObjectMapper objectMapper) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Thêm message vào outbox (trong transaction hiện tại nếu có).
+     *
+     * @param topic topic Kafka
+     * @param key key của message (các message cùng key được gửi theo thứ tự ghi), có thể null
+     * @param message nội dung, được serialize thành JSON
+     */
+    public void enqueue(String topic, String key, Object message) {
+        OutboxEvent event = new OutboxEvent();
+        event.setTopic(topic);
+        event.setMessageKey(key);
+        try {
+            event.setPayload(objectMapper.writeValueAsString(message));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize outbox message for topic " + topic, e);
+        }
+        outboxEventRepository.save(event);
+        LOG.debug("Queued outbox message for topic {} with key {}", topic, key);
+    }
+}
@@ -0,0 +1,235 @@
+package com.lumiere.app.service;
+
+import com.lumiere.app.repository.FlashSaleProductRepository;
+import com.lumiere.app.repository.ProductSearchIndexRepository;
+import com.lumiere.app.repository.ProductVariantRepository;
+import com.lumiere.app.service.dto.ProductSearchFacetsDTO;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Duy trì read model {@code product_search_index} cho tìm kiếm sản phẩm.
+ * <p>
+ * Các service thay đổi product, variant (giá, tồn kho), flash sale hoặc rating chỉ đánh dấu sản phẩm cần cập nhật;
+ * sau khi transaction commit, ID sản phẩm được đưa vào hàng đợi trong bộ nhớ và job chạy mỗi giây dựng lại các dòng
+ * bằng một câu upsert cho mỗi nhóm. Việc dựng lại chạy ngoài transaction nghiệp vụ nên không giữ thêm khóa trên
+ * product_variant trong lúc trừ kho. Job hằng đêm dựng lại toàn bộ read model, bù cho các cập nhật bị mất khi restart.
+ */
+@Service
+@Transactional
+public class ProductSearchIndexService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProductSearchIndexService.class);
+
+    /** Số sản phẩm dựng lại trong một câu upsert. */
+    public static final int BATCH_SIZE = 500;
+
+    /** Cận trên của các khoảng giá cho facet giá (VND). */
+    public static final List<BigDecimal> PRICE_BUCKET_BOUNDS = List.of(
+        BigDecimal.valueOf(200_000),
+        BigDecimal.valueOf(500_000),
+        BigDecimal.valueOf(1_000_000),
+        BigDecimal.valueOf(2_000_000),
+        BigDecimal.valueOf(5_000_000)
+    );
+
+    private final ProductSearchIndexRepository productSearchIndexRepository;
+    private final ProductVariantRepository productVariantRepository;
+    private final FlashSaleProductRepository flashSaleProductRepository;
+    private final Set<Long> pendingProductIds = ConcurrentHashMap.newKeySet();
+    private volatile Instant lastFlashSaleCheck = Instant.now();
+
+    public ProductSearchIndexService(
+        ProductSearchIndexRepository productSearchIndexRepository,
+        ProductVariantRepository productVariantRepository,
+        FlashSaleProductRepository flashSaleProductRepository
+    ) {
+        this.productSearchIndexRepository = productSearchIndexRepository;
+        this.productVariantRepository = productVariantRepository;
+        this.flashSaleProductRepository = flashSaleProductRepository;
+    }
+
+    /**
+     * Đánh dấu các sản phẩm cần cập nhật read model (sau khi transaction hiện tại commit).
+     */
+    public void markProductsChanged(Collection<Long> productIds) {
+        List<Long> ids = productIds.stream().filter(id -> id != null).toList();
+        if (ids.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        pendingProductIds.addAll(ids);
+                    }
+                }
+            );
+        } else {
+            pendingProductIds.addAll(ids);
+        }
+    }
+
+    /**
+     * Đánh dấu sản phẩm của các variant cần cập nhật read model (giá hoặc tồn kho thay đổi).
+     */
+    public void markProductVariantsChanged(Collection<Long> productVariantIds) {
+        if (!productVariantIds.isEmpty()) {
+            markProductsChanged(productVariantRepository.findProductIdsByIdIn(productVariantIds));
+        }
+    }
+
+    /**
+     * Đánh dấu các sản phẩm của một flash sale cần cập nhật read model.
+     */
+    public void markFlashSaleChanged(Long flashSaleId) {
+        markProductsChanged(flashSaleProductRepository.findProductIdsByFlashSaleId(flashSaleId));
+    }
+
+    /**
+     * Đánh dấu sản phẩm của một flash sale product cần cập nhật read model.
+     */
+    public void markFlashSaleProductChanged(Long flashSaleProductId) {
+        markProductsChanged(flashSaleProductRepository.findProductIdsById(flashSaleProductId));
+    }
+
+    /**
+     * Đánh dấu các sản phẩm thuộc danh mục (và danh mục con) cần cập nhật read model, ví dụ khi đổi danh mục cha.
+     */
+    public void markCategoryChanged(Long categoryId) {
+        markProductsChanged(productSearchIndexRepository.findProductIdsInCategoryTree(categoryId, "%/" + categoryId + "/%"));
+    }
+
+    /**
+     * Scheduled job chạy mỗi giây để dựng lại các dòng read model đang chờ.
+     */
+    @Scheduled(fixedDelay = 1000, initialDelay = 10000)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void flushPendingProducts() {
+        if (pendingProductIds.isEmpty()) {
+            return;
+        }
+        List<Long> batch = new ArrayList<>(BATCH_SIZE);
+        Iterator<Long> iterator = pendingProductIds.iterator();
+        while (iterator.hasNext()) {
+            batch.add(iterator.next());
+            iterator.remove();
+            if (batch.size() == BATCH_SIZE || !iterator.hasNext()) {
+                try {
+                    productSearchIndexRepository.refresh(batch, Instant.now());
+                    LOG.debug("Refreshed product search index for {} products", batch.size());
+                } catch (RuntimeException e) {
+                    // Thử lại ở lượt sau
+                    pendingProductIds.addAll(batch);
+                    LOG.warn("Failed to refresh product search index for {} products: {}", batch.size(), e.getMessage());
+                    return;
+                }
+                batch = new ArrayList<>(BATCH_SIZE);
+            }
+        }
+    }
+
+    /**
+     * Scheduled job chạy mỗi phút để cập nhật cờ flash sale của các sản phẩm có flash sale vừa bắt đầu hoặc kết thúc.
+     */
+    @Scheduled(fixedDelay = 60000, initialDelay = 60000)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void refreshFlashSaleBoundaries() {
+        Instant now = Instant.now();
+        List<Long> productIds = productSearchIndexRepository.findProductIdsWithFlashSaleBoundaryBetween(lastFlashSaleCheck, now);
+        lastFlashSaleCheck = now;
+        if (!productIds.isEmpty()) {
+            LOG.debug("Flash sale started or ended for {} products", productIds.size());
+            pendingProductIds.addAll(productIds);
+        }
+    }
+
+    /**
+     * Scheduled job chạy mỗi ngày lúc 3:30 AM để dựng lại toàn bộ read model.
+     */
+    @Scheduled(cron = "0 30 3 * * ?")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void scheduleRebuild() {
+        rebuildAll();
+    }
+
+    /**
+     * Dựng lại toàn bộ read model theo từng nhóm sản phẩm (mỗi nhóm một transaction).
+     *
+     * @return số sản phẩm đã dựng lại
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int rebuildAll() {
+        LOG.info("Starting product search index rebuild");
+        int count = 0;
+        Long afterId = 0L;
+        while (true) {
+            List<Long> ids = productSearchIndexRepository.findProductIdsAfter(afterId, PageRequest.of(0, BATCH_SIZE));
+            if (ids.isEmpty()) {
+                break;
+            }
+            productSearchIndexRepository.refresh(ids, Instant.now());
+            count += ids.size();
+            afterId = ids.get(ids.size() - 1);
+        }
+        int deleted = productSearchIndexRepository.deleteOrphans();
+        LOG.info("Completed product search index rebuild. {} products refreshed, {} orphan rows deleted", count, deleted);
+        return count;
+    }
+
+    /**
+     * Đếm sản phẩm theo danh mục và theo khoảng giá.
+     *
+     * @param categoryIds lọc theo danh mục (chỉ áp dụng cho facet giá)
+     * @param minPrice giá thấp nhất (chỉ áp dụng cho facet danh mục)
+     * @param maxPrice giá cao nhất (chỉ áp dụng cho facet danh mục)
+     * @param inStock chỉ sản phẩm còn hàng / hết hàng
+     * @param onFlashSale chỉ sản phẩm đang / không flash sale
+     */
+    @Transactional(readOnly = true)
+    public ProductSearchFacetsDTO findFacets(
+        List<Long> categoryIds,
+        BigDecimal minPrice,
+        BigDecimal maxPrice,
+        Boolean inStock,
+        Boolean onFlashSale
+    ) {
+        if (categoryIds != null && categoryIds.isEmpty()) {
+            categoryIds = null;
+        }
+
+        List<ProductSearchFacetsDTO.CategoryFacet> categories = productSearchIndexRepository
+            .countByCategory(minPrice, maxPrice, inStock, onFlashSale)
+            .stream()
+            .map(row -> new ProductSearchFacetsDTO.CategoryFacet((Long) row[0], (String) row[1], ((Number) row[2]).longValue()))
+            .toList();
+
+        List<BigDecimal> bounds = PRICE_BUCKET_BOUNDS;
+        Object[] counts = productSearchIndexRepository
+            .countByPriceBucket(categoryIds, inStock, onFlashSale, bounds.get(0), bounds.get(1), bounds.get(2), bounds.get(3), bounds.get(4))
+            .get(0);
+        List<ProductSearchFacetsDTO.PriceBucket> priceBuckets = new ArrayList<>(counts.length);
+        for (int i = 0; i < counts.length; i++) {
+            BigDecimal from = i == 0 ? BigDecimal.ZERO : bounds.get(i - 1);
+            BigDecimal to = i < bounds.size() ? bounds.get(i) : null;
+            priceBuckets.add(new ProductSearchFacetsDTO.PriceBucket(from, to, ((Number) counts[i]).longValue()));
+        }
+        return new ProductSearchFacetsDTO(categories, priceBuckets);
+    }
+}
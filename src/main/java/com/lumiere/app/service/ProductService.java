@@ -56,10 +56,23 @@ public interface ProductService {
      */
     void delete(Long id);
 
+    /**
+     * Tìm sản phẩm theo danh mục, khoảng giá (giá thấp nhất của các variant), tồn kho và flash sale.
+     *
+     * @param categoryIds danh mục (null hoặc rỗng: mọi danh mục)
+     * @param minPrice giá thấp nhất
+     * @param maxPrice giá cao nhất
+     * @param inStock chỉ sản phẩm còn hàng / hết hàng (null: không lọc)
+     * @param onFlashSale chỉ sản phẩm đang / không flash sale (null: không lọc)
+     * @param pageable the pagination information.
+     * @return the list of entities.
+     */
     Page<ProductDTO> searchProducts(
         List<Long> categoryIds,
         BigDecimal minPrice,
         BigDecimal maxPrice,
+        Boolean inStock,
+        Boolean onFlashSale,
         Pageable pageable
     );
 
@@ -0,0 +1,105 @@
+package com.lumiere.app.service;
+
+import com.lumiere.app.domain.ProductReview;
+import com.lumiere.app.domain.enumeration.RatingType;
+import com.lumiere.app.domain.enumeration.ReviewStatus;
+import com.lumiere.app.repository.ProductRepository;
+import com.lumiere.app.utils.RatingUtils;
+import java.util.List;
+import java.util.Objects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Cập nhật rating của sản phẩm khi review được tạo, duyệt, từ chối hoặc xóa.
+ * <p>
+ * Product lưu tổng số sao ({@code ratingSum}) và số review đã duyệt ({@code reviewCount}); mỗi thay đổi của review
+ * chỉ cộng/trừ phần chênh lệch bằng một câu {@code UPDATE} trong cùng transaction với thao tác review,
+ * nên trang sản phẩm thấy rating mới ngay sau khi commit và không phải đọc lại toàn bộ review.
+ */
+@Service
+@Transactional
+public class ReviewRatingListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReviewRatingListener.class);
+
+    private final ProductRepository productRepository;
+    private final ProductSearchIndexService productSearchIndexService;
+
+    public ReviewRatingListener(ProductRepository productRepository, ProductSearchIndexService productSearchIndexService) {
+        this.productRepository = productRepository;
+        this.productSearchIndexService = productSearchIndexService;
+    }
+
+    /**
+     * Review mới được tạo (chỉ tính vào rating nếu được tạo ở trạng thái APPROVED).
+     */
+    public void onReviewCreated(ProductReview review) {
+        onReviewChanged(null, null, null, productIdOf(review), review.getStatus(), review.getRating());
+    }
+
+    /**
+     * Review bị xóa.
+     */
+    public void onReviewDeleted(ProductReview review) {
+        onReviewChanged(productIdOf(review), review.getStatus(), review.getRating(), null, null, null);
+    }
+
+    /**
+     * Review thay đổi trạng thái, số sao hoặc sản phẩm.
+     *
+     * @param oldProductId sản phẩm trước khi đổi (null nếu review mới)
+     * @param oldStatus trạng thái trước khi đổi
+     * @param oldRating số sao trước khi đổi
+     * @param newProductId sản phẩm sau khi đổi (null nếu review bị xóa)
+     * @param newStatus trạng thái sau khi đổi
+     * @param newRating số sao sau khi đổi
+     */
+    public void onReviewChanged(
+        Long oldProductId,
+        ReviewStatus oldStatus,
+        RatingType oldRating,
+        Long newProductId,
+        ReviewStatus newStatus,
+        RatingType newRating
+    ) {
+        boolean oldCounted = oldProductId != null && oldStatus == ReviewStatus.APPROVED;
+        boolean newCounted = newProductId != null && newStatus == ReviewStatus.APPROVED;
+
+        if (oldCounted && newCounted && Objects.equals(oldProductId, newProductId)) {
+            long sumDelta = stars(newRating) - stars(oldRating);
+            if (sumDelta != 0) {
+                applyDelta(newProductId, sumDelta, 0);
+            }
+            return;
+        }
+        if (oldCounted) {
+            applyDelta(oldProductId, -stars(oldRating), -1);
+        }
+        if (newCounted) {
+            applyDelta(newProductId, stars(newRating), 1);
+        }
+    }
+
+    private void applyDelta(Long productId, long sumDelta, int countDelta) {
+        if (productRepository.applyRatingDelta(productId, sumDelta, countDelta) == 0) {
+            LOG.warn("Product {} not found, cannot apply rating delta", productId);
+            return;
+        }
+        productSearchIndexService.markProductsChanged(List.of(productId));
+        LOG.debug("Applied rating delta to product {}: sum {}, count {}", productId, sumDelta, countDelta);
+    }
+
+    private static long stars(RatingType rating) {
+        return (long) RatingUtils.toNumber(rating);
+    }
+
+    /**
+     * ID sản phẩm của review (null nếu review không gắn sản phẩm).
+     */
+    public static Long productIdOf(ProductReview review) {
+        return review.getProduct() != null ? review.getProduct().getId() : null;
+    }
+}
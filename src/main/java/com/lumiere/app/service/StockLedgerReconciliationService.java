@@ -0,0 +1,158 @@
+package com.lumiere.app.service;
+
+import com.lumiere.app.repository.InventoryRepository;
+import com.lumiere.app.repository.ProductVariantRepository;
+import com.lumiere.app.repository.StockMovementRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Đối soát tồn kho (inventory và tồn kho tổng của variant) với sổ kho {@code stock_movement}.
+ * <p>
+ * Bước phát hiện lệch chỉ đọc ba truy vấn tổng hợp (tổng movement theo variant / warehouse, tồn kho của inventory,
+ * tồn kho của variant) và không khóa gì. Chỉ các variant bị lệch được kiểm tra lại và sửa qua
+ * {@link StockLedgerService#rebuildProductVariant(Long, boolean)}, mỗi variant trong một transaction có khóa.
+ */
+@Service
+public class StockLedgerReconciliationService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StockLedgerReconciliationService.class);
+
+    private final StockMovementRepository stockMovementRepository;
+    private final InventoryRepository inventoryRepository;
+    private final ProductVariantRepository productVariantRepository;
+    private final StockLedgerService stockLedgerService;
+    private final AtomicLong driftedVariants = new AtomicLong();
+
+    public StockLedgerReconciliationService(
+        StockMovementRepository stockMovementRepository,
+        InventoryRepository inventoryRepository,
+        ProductVariantRepository productVariantRepository,
+        StockLedgerService stockLedgerService,
+        MeterRegistry meterRegistry
+    ) {
+        this.stockMovementRepository = stockMovementRepository;
+        this.inventoryRepository = inventoryRepository;
+        this.productVariantRepository = productVariantRepository;
+        this.stockLedgerService = stockLedgerService;
+        Gauge.builder("stock.ledger.drifted.variants", driftedVariants, AtomicLong::get)
+            .description("Số variant có tồn kho lệch với sổ kho ở lần đối soát gần nhất")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Scheduled job chạy mỗi ngày lúc 4:00 AM để đối soát và sửa tồn kho theo sổ kho.
+     */
+    @Scheduled(cron = "0 0 4 * * ?")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void scheduleReconciliation() {
+        reconcile(true);
+    }
+
+    /**
+     * Đối soát tồn kho với sổ kho.
+     *
+     * @param correct true để sửa các chỗ lệch, false chỉ để báo cáo
+     * @return các chỗ lệch tìm thấy
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Result reconcile(boolean correct) {
+        LOG.info("Starting stock ledger reconciliation (correct: {})", correct);
+        Set<Long> suspects = findSuspectVariantIds();
+
+        List<StockLedgerService.Drift> drifts = new ArrayList<>();
+        int failedCount = 0;
+        for (Long productVariantId : suspects) {
+            try {
+                drifts.addAll(stockLedgerService.rebuildProductVariant(productVariantId, correct));
+            } catch (RuntimeException e) {
+                failedCount++;
+                LOG.error("Failed to reconcile stock of product variant {}", productVariantId, e);
+            }
+        }
+
+        long driftedCount = drifts.stream().map(StockLedgerService.Drift::productVariantId).distinct().count();
+        driftedVariants.set(driftedCount);
+        LOG.info(
+            "Completed stock ledger reconciliation. {} drifted variants, {} drifts, {} failed (corrected: {})",
+            driftedCount,
+            drifts.size(),
+            failedCount,
+            correct
+        );
+        return new Result(suspects.size(), driftedCount, failedCount, correct, drifts);
+    }
+
+    /**
+     * Các variant có thể bị lệch, tính từ dữ liệu đọc không khóa.
+     */
+    private Set<Long> findSuspectVariantIds() {
+        // Tồn kho theo sổ kho và theo inventory, khóa "variantId:warehouseId"
+        Map<String, Long> ledger = new HashMap<>();
+        Map<String, Long> keyVariant = new HashMap<>();
+        for (Object[] row : stockMovementRepository.sumByProductVariantAndWarehouse()) {
+            String key = row[0] + ":" + row[1];
+            ledger.put(key, ((Number) row[2]).longValue());
+            keyVariant.put(key, (Long) row[0]);
+        }
+
+        Map<String, Long> inventory = new HashMap<>();
+        Map<Long, Long> inventoryTotals = new HashMap<>();
+        for (Object[] row : inventoryRepository.findAllStockSnapshots()) {
+            if (row[1] == null) {
+                continue;
+            }
+            long quantity = row[3] != null ? ((Number) row[3]).longValue() : 0L;
+            String key = row[1] + ":" + row[2];
+            inventory.merge(key, quantity, Long::sum);
+            keyVariant.put(key, (Long) row[1]);
+            inventoryTotals.merge((Long) row[1], quantity, Long::sum);
+        }
+
+        Set<Long> suspects = new TreeSet<>();
+        keyVariant.forEach((key, variantId) -> {
+            if (ledger.getOrDefault(key, 0L).longValue() != inventory.getOrDefault(key, 0L).longValue()) {
+                suspects.add(variantId);
+            }
+        });
+        for (Object[] row : productVariantRepository.findAllStockQuantities()) {
+            Long variantId = (Long) row[0];
+            Long stored = row[1] != null ? ((Number) row[1]).longValue() : null;
+            if (!Objects.equals(stored, inventoryTotals.getOrDefault(variantId, 0L))) {
+                suspects.add(variantId);
+            }
+        }
+        return suspects;
+    }
+
+    /**
+     * Kết quả một lần đối soát.
+     *
+     * @param checkedVariants số variant được kiểm tra lại (có khóa)
+     * @param driftedVariants số variant thực sự bị lệch
+     * @param failedVariants số variant đối soát thất bại
+     * @param corrected các chỗ lệch đã được sửa hay chưa
+     * @param drifts chi tiết các chỗ lệch
+     */
+    public record Result(
+        int checkedVariants,
+        long driftedVariants,
+        int failedVariants,
+        boolean corrected,
+        List<StockLedgerService.Drift> drifts
+    ) {}
+}
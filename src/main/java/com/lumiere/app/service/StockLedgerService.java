@@ -0,0 +1,218 @@
+package com.lumiere.app.service;
+
+import com.lumiere.app.domain.Inventory;
+import com.lumiere.app.domain.StockMovement;
+import com.lumiere.app.domain.enumeration.StockMovementReason;
+import com.lumiere.app.repository.InventoryRepository;
+import com.lumiere.app.repository.ProductVariantRepository;
+import com.lumiere.app.repository.StockMovementRepository;
+import com.lumiere.app.repository.WarehouseRepository;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Sổ kho: mọi thay đổi tồn kho được ghi thành {@link StockMovement} (chỉ thêm, không sửa).
+ * <p>
+ * Tồn kho theo variant / warehouse ({@code Inventory.stockQuantity}) và tồn kho tổng của variant
+ * ({@code ProductVariant.stockQuantity}) là projection của sổ kho: người gọi cập nhật inventory bằng câu
+ * UPDATE atomic, sau đó ghi movement qua {@link #record(List)} trong cùng transaction; tồn kho tổng của variant
+ * được cộng dồn tại đây. Trang sản phẩm chỉ cần đọc {@code ProductVariant.stockQuantity} (theo khóa chính).
+ * {@link #rebuildProductVariant(Long, boolean)} dựng lại projection từ sổ kho, xem {@link StockLedgerReconciliationService}.
+ */
+@Service
+@Transactional
+public class StockLedgerService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StockLedgerService.class);
+
+    private final StockMovementRepository stockMovementRepository;
+    private final ProductVariantRepository productVariantRepository;
+    private final InventoryRepository inventoryRepository;
+    private final WarehouseRepository warehouseRepository;
+    private final ProductSearchIndexService productSearchIndexService;
+
+    public StockLedgerService(
+        StockMovementRepository stockMovementRepository,
+        ProductVariantRepository productVariantRepository,
+        InventoryRepository inventoryRepository,
+        WarehouseRepository warehouseRepository,
+        ProductSearchIndexService productSearchIndexService
+    ) {
+        this.stockMovementRepository = stockMovementRepository;
+        this.productVariantRepository = productVariantRepository;
+        this.inventoryRepository = inventoryRepository;
+        this.warehouseRepository = warehouseRepository;
+        this.productSearchIndexService = productSearchIndexService;
+    }
+
+    /**
+     * Ghi các thay đổi tồn kho đã được áp dụng vào inventory và cập nhật tồn kho tổng của variant.
+     *
+     * @param movements các thay đổi (bỏ qua thay đổi bằng 0)
+     */
+    public void record(List<Movement> movements) {
+        Instant now = Instant.now();
+        List<StockMovement> entities = new ArrayList<>(movements.size());
+        Map<Long, Long> deltaByVariant = new LinkedHashMap<>();
+        for (Movement movement : movements) {
+            if (movement.quantityChange() == 0) {
+                continue;
+            }
+            StockMovement entity = new StockMovement();
+            entity.setProductVariant(productVariantRepository.getReferenceById(movement.productVariantId()));
+            entity.setWarehouse(movement.warehouseId() != null ? warehouseRepository.getReferenceById(movement.warehouseId()) : null);
+            entity.setQuantityChange(movement.quantityChange());
+            entity.setReason(movement.reason());
+            entity.setNote(movement.note());
+            entity.setCreatedAt(now);
+            entities.add(entity);
+            deltaByVariant.merge(movement.productVariantId(), movement.quantityChange(), Long::sum);
+        }
+        if (entities.isEmpty()) {
+            return;
+        }
+        stockMovementRepository.saveAll(entities);
+        deltaByVariant.forEach((variantId, delta) -> {
+            if (delta != 0) {
+                productVariantRepository.adjustStockQuantity(variantId, delta);
+            }
+        });
+        productSearchIndexService.markProductVariantsChanged(deltaByVariant.keySet());
+    }
+
+    /**
+     * Ghi một thay đổi tồn kho nhập tay (không qua inventory): áp dụng vào inventory của variant / warehouse
+     * (tạo inventory nếu chưa có) rồi ghi vào sổ kho.
+     *
+     * @param stockMovement movement chưa lưu
+     * @return movement đã lưu
+     * @throws IllegalArgumentException nếu thiếu variant hoặc tồn kho không đủ cho movement xuất kho
+     */
+    public StockMovement apply(StockMovement stockMovement) {
+        if (stockMovement.getProductVariant() == null || stockMovement.getProductVariant().getId() == null) {
+            throw new IllegalArgumentException("Biến thể sản phẩm không được để trống");
+        }
+        Long variantId = stockMovement.getProductVariant().getId();
+        Long warehouseId = stockMovement.getWarehouse() != null ? stockMovement.getWarehouse().getId() : null;
+        long delta = stockMovement.getQuantityChange() != null ? stockMovement.getQuantityChange() : 0L;
+
+        List<Long> inventoryIds = inventoryRepository.findIdsByProductVariantIdAndWarehouseId(variantId, warehouseId);
+        if (inventoryIds.isEmpty()) {
+            if (delta < 0) {
+                throw new IllegalArgumentException("Không có tồn kho của biến thể sản phẩm trong kho này để xuất");
+            }
+            Inventory inventory = new Inventory();
+            inventory.setProductVariant(productVariantRepository.getReferenceById(variantId));
+            inventory.setWarehouse(warehouseId != null ? warehouseRepository.getReferenceById(warehouseId) : null);
+            inventory.setStockQuantity(delta);
+            inventoryRepository.save(inventory);
+        } else if (delta < 0) {
+            // Xuất kho có điều kiện: không để tồn kho âm
+            if (inventoryRepository.deductStockQuantity(inventoryIds.get(0), -delta) == 0) {
+                throw new IllegalArgumentException("Tồn kho của biến thể sản phẩm trong kho này không đủ để xuất " + -delta);
+            }
+        } else {
+            inventoryRepository.increaseStockQuantity(inventoryIds.get(0), delta);
+        }
+
+        if (stockMovement.getCreatedAt() == null) {
+            stockMovement.setCreatedAt(Instant.now());
+        }
+        stockMovement = stockMovementRepository.save(stockMovement);
+        if (delta != 0) {
+            productVariantRepository.adjustStockQuantity(variantId, delta);
+            productSearchIndexService.markProductVariantsChanged(List.of(variantId));
+        }
+        return stockMovement;
+    }
+
+    /**
+     * Dựng lại tồn kho của một variant từ sổ kho (trong transaction riêng, khóa các inventory của variant).
+     *
+     * @param productVariantId ID của variant
+     * @param correct true để sửa projection, false chỉ để báo lệch
+     * @return các chỗ lệch tìm thấy
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public List<Drift> rebuildProductVariant(Long productVariantId, boolean correct) {
+        List<Inventory> inventories = inventoryRepository.findAllByProductVariantIdForUpdate(productVariantId);
+
+        Map<Long, Long> ledger = new HashMap<>();
+        for (Object[] row : stockMovementRepository.sumByWarehouseForProductVariant(productVariantId)) {
+            ledger.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+
+        List<Drift> drifts = new ArrayList<>();
+        Map<Long, List<Inventory>> inventoriesByWarehouse = new LinkedHashMap<>();
+        for (Inventory inventory : inventories) {
+            Long warehouseId = inventory.getWarehouse() != null ? inventory.getWarehouse().getId() : null;
+            inventoriesByWarehouse.computeIfAbsent(warehouseId, id -> new ArrayList<>()).add(inventory);
+        }
+
+        long total = 0;
+        for (Map.Entry<Long, List<Inventory>> entry : inventoriesByWarehouse.entrySet()) {
+            List<Inventory> group = entry.getValue();
+            long actual = group.stream().mapToLong(inventory -> Objects.requireNonNullElse(inventory.getStockQuantity(), 0L)).sum();
+            long expected = ledger.getOrDefault(entry.getKey(), 0L);
+            if (actual != expected) {
+                drifts.add(new Drift(productVariantId, entry.getKey(), expected, actual));
+                // Nhiều inventory cho cùng warehouse: không biết chia thế nào, chỉ báo lệch
+                if (correct && group.size() == 1) {
+                    inventoryRepository.updateStockQuantity(group.get(0).getId(), expected);
+                    actual = expected;
+                }
+            }
+            total += actual;
+        }
+        for (Map.Entry<Long, Long> entry : ledger.entrySet()) {
+            if (!inventoriesByWarehouse.containsKey(entry.getKey()) && entry.getValue() != 0) {
+                drifts.add(new Drift(productVariantId, entry.getKey(), entry.getValue(), 0L));
+            }
+        }
+
+        Long variantStock = productVariantRepository.findById(productVariantId).map(pv -> pv.getStockQuantity()).orElse(null);
+        if (variantStock == null || variantStock != total) {
+            drifts.add(new Drift(productVariantId, null, total, variantStock != null ? variantStock : 0L));
+            if (correct) {
+                productVariantRepository.updateStockQuantity(productVariantId, total);
+                productSearchIndexService.markProductVariantsChanged(List.of(productVariantId));
+            }
+        }
+
+        if (!drifts.isEmpty()) {
+            LOG.warn("Stock drift for product variant {}: {}", productVariantId, drifts);
+        }
+        return drifts;
+    }
+
+    /**
+     * Một thay đổi tồn kho.
+     *
+     * @param productVariantId variant
+     * @param warehouseId warehouse (có thể null)
+     * @param quantityChange số lượng thay đổi (âm khi xuất kho)
+     * @param reason lý do
+     * @param note ghi chú, ví dụ mã đơn hàng
+     */
+    public record Movement(Long productVariantId, Long warehouseId, long quantityChange, StockMovementReason reason, String note) {}
+
+    /**
+     * Độ lệch giữa sổ kho và projection.
+     *
+     * @param productVariantId variant
+     * @param warehouseId warehouse; null khi là tồn kho tổng của variant
+     * @param expected giá trị tính từ sổ kho
+     * @param actual giá trị đang lưu
+     */
+    public record Drift(Long productVariantId, Long warehouseId, long expected, long actual) {}
+}
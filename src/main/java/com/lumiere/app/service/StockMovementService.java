@@ -56,11 +56,4 @@ public interface StockMovementService {
      * @return the entity.
      */
     Optional<StockMovementDTO> findOne(Long id);
-
-    /**
-     * Delete the "id" stockMovement.
-     *
-     * @param id the id of the entity.
-     */
-    void delete(Long id);
 }
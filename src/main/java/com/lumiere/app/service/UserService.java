@@ -45,18 +45,22 @@ public class UserService {
 
     private final CustomerRepository customerRepository;
 
+    private final DashboardMetricsService dashboardMetricsService;
+
     public UserService(
         UserRepository userRepository,
         PasswordEncoder passwordEncoder,
         AuthorityRepository authorityRepository,
         CacheManager cacheManager,
-        CustomerRepository customerRepository
+        CustomerRepository customerRepository,
+        DashboardMetricsService dashboardMetricsService
     ) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.authorityRepository = authorityRepository;
         this.cacheManager = cacheManager;
         this.customerRepository = customerRepository;
+        this.dashboardMetricsService = dashboardMetricsService;
     }
 
     public Optional<User> activateRegistration(String key) {
@@ -146,8 +150,12 @@ public class UserService {
             customerRepository
                 .findById(customerId)
                 .ifPresent(customer -> {
+                    boolean firstAccount = customer.getUser() == null;
                     customer.setUser(newUser);
                     customerRepository.save(customer);
+                    if (firstAccount) {
+                        dashboardMetricsService.recordNewCustomer(newUser.getId());
+                    }
                     LOG.debug("Linked Customer {} to User {}", customerId, newUser.getLogin());
                 });
         }
@@ -0,0 +1,258 @@
+package com.lumiere.app.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lumiere.app.config.ApplicationProperties;
+import com.lumiere.app.domain.Voucher;
+import com.lumiere.app.domain.enumeration.VoucherStatus;
+import com.lumiere.app.domain.enumeration.VoucherType;
+import com.lumiere.app.repository.CustomerVoucherRepository;
+import com.lumiere.app.repository.VoucherRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Cache trong bộ nhớ cho việc kiểm tra mã voucher (ô nhập voucher gọi ở mỗi lần gõ phím và lại lúc checkout).
+ * <p>
+ * Gồm ba cache giới hạn:
+ * <ul>
+ *     <li>mã voucher → {@link VoucherRule} (bản chụp bất biến của quy tắc voucher);</li>
+ *     <li>mã không tồn tại (cache âm, thời gian sống ngắn) để các request dò mã ngẫu nhiên lặp lại không xuống DB;</li>
+ *     <li>khách hàng → {@link CustomerVouchers} (các voucherId được tặng, dạng mảng đã sắp xếp).</li>
+ * </ul>
+ * Entry bị xóa khi voucher được sửa, được dùng, hết hạn hoặc được tặng, cả ngay lập tức lẫn sau khi transaction
+ * commit. Số lượt đã dùng trong bản chụp chỉ dùng để báo lỗi sớm; giới hạn thật được kiểm tra bởi câu {@code UPDATE}
+ * có điều kiện khi checkout ({@link VoucherService#redeemVoucher}), nên cache cũ (ví dụ ở instance khác) không làm
+ * voucher bị dùng quá giới hạn.
+ */
+@Service
+public class VoucherCacheService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VoucherCacheService.class);
+
+    /** Tên các cache trong {@code application.cache.regions} và trong metrics. */
+    public static final String CACHE_NAME = "voucher";
+    public static final String UNKNOWN_CODE_CACHE_NAME = "voucher-unknown-code";
+    public static final String CUSTOMER_CACHE_NAME = "customer-voucher";
+
+    private static final long DEFAULT_MAX_ENTRIES = 10_000;
+    private static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofMinutes(10);
+    private static final long DEFAULT_UNKNOWN_CODE_MAX_ENTRIES = 50_000;
+    private static final Duration DEFAULT_UNKNOWN_CODE_TIME_TO_LIVE = Duration.ofMinutes(1);
+    private static final long DEFAULT_CUSTOMER_MAX_ENTRIES = 20_000;
+
+    /**
+     * Bản chụp bất biến của quy tắc voucher.
+     */
+    public record VoucherRule(
+        Long id,
+        String code,
+        VoucherType type,
+        BigDecimal value,
+        VoucherStatus status,
+        Instant startDate,
+        Instant endDate,
+        Integer usageLimit,
+        Integer usageCount
+    ) {
+        static VoucherRule of(Voucher voucher) {
+            return new VoucherRule(
+                voucher.getId(),
+                voucher.getCode(),
+                voucher.getType(),
+                voucher.getValue(),
+                voucher.getStatus(),
+                voucher.getStartDate(),
+                voucher.getEndDate(),
+                voucher.getUsageLimit(),
+                voucher.getUsageCount()
+            );
+        }
+
+        /**
+         * Voucher tách rời (không được quản lý bởi persistence context) dựng từ bản chụp; chỉ dùng để đọc và để tham
+         * chiếu từ đơn hàng.
+         */
+        public Voucher toVoucher() {
+            return new Voucher()
+                .id(id)
+                .code(code)
+                .type(type)
+                .value(value)
+                .status(status)
+                .startDate(startDate)
+                .endDate(endDate)
+                .usageLimit(usageLimit)
+                .usageCount(usageCount);
+        }
+    }
+
+    /**
+     * Các voucher được tặng cho một khách hàng.
+     *
+     * @param unusedVoucherIds voucherId chưa dùng (tăng dần)
+     * @param usedVoucherIds voucherId đã dùng (tăng dần)
+     */
+    public record CustomerVouchers(long[] unusedVoucherIds, long[] usedVoucherIds) {
+        public Eligibility eligibility(long voucherId) {
+            if (Arrays.binarySearch(unusedVoucherIds, voucherId) >= 0) {
+                return Eligibility.ELIGIBLE;
+            }
+            return Arrays.binarySearch(usedVoucherIds, voucherId) >= 0 ? Eligibility.USED : Eligibility.NOT_GIFTED;
+        }
+    }
+
+    /**
+     * Tư cách dùng voucher của khách hàng.
+     */
+    public enum Eligibility {
+        ELIGIBLE,
+        NOT_GIFTED,
+        USED,
+    }
+
+    private final VoucherRepository voucherRepository;
+    private final CustomerVoucherRepository customerVoucherRepository;
+    private final Cache<String, VoucherRule> rules;
+    private final Cache<String, Boolean> unknownCodes;
+    private final Cache<Long, CustomerVouchers> customerVouchers;
+
+    public VoucherCacheService(
+        VoucherRepository voucherRepository,
+        CustomerVoucherRepository customerVoucherRepository,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.voucherRepository = voucherRepository;
+        this.customerVoucherRepository = customerVoucherRepository;
+        this.rules = buildCache(applicationProperties, meterRegistry, CACHE_NAME, DEFAULT_MAX_ENTRIES, DEFAULT_TIME_TO_LIVE);
+        this.unknownCodes = buildCache(
+            applicationProperties,
+            meterRegistry,
+            UNKNOWN_CODE_CACHE_NAME,
+            DEFAULT_UNKNOWN_CODE_MAX_ENTRIES,
+            DEFAULT_UNKNOWN_CODE_TIME_TO_LIVE
+        );
+        this.customerVouchers = buildCache(
+            applicationProperties,
+            meterRegistry,
+            CUSTOMER_CACHE_NAME,
+            DEFAULT_CUSTOMER_MAX_ENTRIES,
+            DEFAULT_TIME_TO_LIVE
+        );
+    }
+
+    private static <K, V> Cache<K, V> buildCache(
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry,
+        String name,
+        long defaultMaxEntries,
+        Duration defaultTimeToLive
+    ) {
+        ApplicationProperties.CacheRegion region = applicationProperties.getCache().getRegion(name);
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+            .maximumSize(region.getMaxEntries() != null ? region.getMaxEntries() : defaultMaxEntries)
+            .expireAfterWrite(region.getTimeToLiveSeconds() != null ? Duration.ofSeconds(region.getTimeToLiveSeconds()) : defaultTimeToLive);
+        boolean statisticsEnabled = !Boolean.FALSE.equals(region.getStatisticsEnabled());
+        if (statisticsEnabled) {
+            builder.recordStats();
+        }
+        Cache<K, V> cache = builder.build();
+        if (statisticsEnabled) {
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, name, "cache.manager", "application");
+        }
+        return cache;
+    }
+
+    /**
+     * Quy tắc của voucher theo mã (đã chuẩn hóa: bỏ khoảng trắng, viết hoa).
+     *
+     * @return quy tắc, hoặc rỗng nếu mã không tồn tại
+     */
+    public Optional<VoucherRule> findByCode(String code) {
+        if (unknownCodes.getIfPresent(code) != null) {
+            return Optional.empty();
+        }
+        VoucherRule rule = rules.get(code, this::load);
+        if (rule == null) {
+            unknownCodes.put(code, Boolean.TRUE);
+        }
+        return Optional.ofNullable(rule);
+    }
+
+    /**
+     * Tư cách dùng voucher của khách hàng (được tặng và chưa dùng).
+     */
+    public Eligibility eligibility(Long customerId, Long voucherId) {
+        return customerVouchers.get(customerId, this::loadCustomer).eligibility(voucherId);
+    }
+
+    /**
+     * Xóa bản chụp của voucher (voucher được dùng hoặc đổi trạng thái).
+     */
+    public void evictVoucher(Long voucherId) {
+        // Cache nhỏ (giới hạn số entry) nên quét theo id thay vì giữ thêm một index id → mã
+        afterCommit(() -> rules.asMap().values().removeIf(rule -> rule.id().equals(voucherId)));
+    }
+
+    /**
+     * Xóa toàn bộ bản chụp và cache âm (voucher được tạo, sửa hoặc xóa).
+     */
+    public void evictAllVouchers() {
+        afterCommit(() -> {
+            rules.invalidateAll();
+            unknownCodes.invalidateAll();
+        });
+    }
+
+    /**
+     * Xóa danh sách voucher của các khách hàng (được tặng hoặc dùng voucher).
+     */
+    public void evictCustomers(Collection<Long> customerIds) {
+        List<Long> ids = customerIds.stream().filter(id -> id != null).toList();
+        if (!ids.isEmpty()) {
+            afterCommit(() -> customerVouchers.invalidateAll(ids));
+        }
+    }
+
+    /**
+     * Chạy ngay lập tức và sau khi transaction hiện tại commit, để request đọc song song không nạp lại dữ liệu cũ.
+     */
+    private static void afterCommit(Runnable eviction) {
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        eviction.run();
+                    }
+                }
+            );
+        }
+    }
+
+    private VoucherRule load(String code) {
+        return voucherRepository.findByCode(code).map(VoucherRule::of).orElse(null);
+    }
+
+    private CustomerVouchers loadCustomer(Long customerId) {
+        List<Object[]> rows = customerVoucherRepository.findVoucherUsageByCustomerId(customerId);
+        long[] unused = rows.stream().filter(row -> !Boolean.TRUE.equals(row[1])).mapToLong(row -> (Long) row[0]).sorted().toArray();
+        long[] used = rows.stream().filter(row -> Boolean.TRUE.equals(row[1])).mapToLong(row -> (Long) row[0]).sorted().toArray();
+        LOG.debug("Loaded {} vouchers of customer {}", rows.size(), customerId);
+        return new CustomerVouchers(unused, used);
+    }
+}
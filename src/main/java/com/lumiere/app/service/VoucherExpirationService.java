@@ -27,12 +27,16 @@ public class VoucherExpirationService {
 
     private final NotificationProducerService notificationProducerService;
 
+    private final VoucherCacheService voucherCacheService;
+
     public VoucherExpirationService(
         VoucherRepository voucherRepository,
-        NotificationProducerService notificationProducerService
+        NotificationProducerService notificationProducerService,
+        VoucherCacheService voucherCacheService
     ) {
         this.voucherRepository = voucherRepository;
         this.notificationProducerService = notificationProducerService;
+        this.voucherCacheService = voucherCacheService;
     }
 
     /**
@@ -56,6 +60,7 @@ public class VoucherExpirationService {
                 try {
                     voucher.setStatus(VoucherStatus.INACTIVE);
                     voucherRepository.save(voucher);
+                    voucherCacheService.evictVoucher(voucher.getId());
                     updatedCount++;
                     LOG.debug("Updated voucher {} (code: {}) to INACTIVE", voucher.getId(), voucher.getCode());
                 } catch (Exception e) {
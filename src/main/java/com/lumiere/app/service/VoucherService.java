@@ -96,11 +96,27 @@ public interface VoucherService {
     BigDecimal calculateDiscountAmount(Voucher voucher, BigDecimal orderAmount);
 
     /**
-     * Áp dụng voucher và tăng usage count.
+     * Kết quả dùng một lượt voucher.
+     */
+    enum RedemptionResult {
+        /** Đã dùng voucher. */
+        REDEEMED,
+        /** Voucher đã hết lượt hoặc không còn active. */
+        EXHAUSTED,
+        /** Khách hàng không có voucher này hoặc đã dùng. */
+        NOT_AVAILABLE_FOR_CUSTOMER,
+    }
+
+    /**
+     * Dùng một lượt voucher (atomic): tăng usage count nếu chưa đạt giới hạn, chuyển trạng thái khi hết lượt và
+     * đánh dấu voucher của khách hàng là đã dùng. Cần được gọi trong transaction của checkout; nếu kết quả không
+     * phải {@link RedemptionResult#REDEEMED} thì không có gì thay đổi.
      *
-     * @param voucher voucher
+     * @param voucherId ID của voucher
+     * @param customerId ID của khách hàng (null cho khách vãng lai)
+     * @return kết quả
      */
-    void applyVoucher(Voucher voucher);
+    RedemptionResult redeemVoucher(Long voucherId, Long customerId);
 
     /**
      * Tính tiền giảm giá từ voucher code với kiểm tra tư cách sử dụng.
@@ -111,13 +127,4 @@ public interface VoucherService {
      * @throws IllegalArgumentException nếu voucher không hợp lệ hoặc khách hàng không có quyền sử dụng
      */
     VoucherCalculateResponseDTO calculateDiscount(VoucherCalculateRequestDTO request, Long customerId);
-
-    /**
-     * Đánh dấu voucher đã được sử dụng bởi khách hàng.
-     *
-     * @param voucherId ID của voucher
-     * @param customerId ID của khách hàng
-     * @throws IllegalArgumentException nếu không tìm thấy customer voucher
-     */
-    void markVoucherAsUsed(Long voucherId, Long customerId);
 }
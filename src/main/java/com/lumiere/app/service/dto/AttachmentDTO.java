@@ -34,6 +34,9 @@ public class AttachmentDTO implements Serializable {
     @NotNull
     private Instant uploadedAt;
 
+    @Size(max = 100)
+    private String derivatives;
+
     public Long getId() {
         return id;
     }
@@ -98,6 +101,14 @@ public class AttachmentDTO implements Serializable {
         this.uploadedAt = uploadedAt;
     }
 
+    public String getDerivatives() {
+        return derivatives;
+    }
+
+    public void setDerivatives(String derivatives) {
+        this.derivatives = derivatives;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -131,6 +142,7 @@ public class AttachmentDTO implements Serializable {
             ", contentType='" + getContentType() + "'" +
             ", size=" + getSize() +
             ", uploadedAt='" + getUploadedAt() + "'" +
+            ", derivatives='" + getDerivatives() + "'" +
             "}";
     }
 }
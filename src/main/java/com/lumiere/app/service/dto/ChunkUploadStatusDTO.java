@@ -0,0 +1,20 @@
+package com.lumiere.app.service.dto;
+
+import java.util.List;
+
+/**
+ * Trạng thái một upload theo chunk, để client biết cần gửi lại những chunk nào khi tiếp tục upload.
+ *
+ * @param uploadId mã upload
+ * @param chunkSize kích thước chunk (byte) của upload, mọi chunk trừ chunk cuối có đúng kích thước này
+ * @param receivedChunks các chunk đã nhận và đã kiểm tra (theo index tăng dần)
+ * @param receivedBytes tổng số byte đã nhận
+ */
+public record ChunkUploadStatusDTO(String uploadId, long chunkSize, List<ReceivedChunk> receivedChunks, long receivedBytes) {
+    /**
+     * @param index index của chunk
+     * @param size kích thước (byte)
+     * @param sha256 checksum SHA-256 (hex) của nội dung chunk
+     */
+    public record ReceivedChunk(int index, long size, String sha256) {}
+}
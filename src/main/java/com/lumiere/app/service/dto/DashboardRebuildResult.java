@@ -0,0 +1,15 @@
+package com.lumiere.app.service.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Kết quả dựng lại bảng số liệu dashboard.
+ *
+ * @param fromDate ngày bắt đầu (null = toàn bộ lịch sử)
+ * @param toDate ngày kết thúc (null = toàn bộ lịch sử)
+ * @param days số dòng ngày đã ghi
+ * @param orders số đơn hàng đã cộng vào doanh thu
+ * @param customers số khách hàng mới đã đếm
+ * @param products số sản phẩm có số lượng bán
+ */
+public record DashboardRebuildResult(LocalDate fromDate, LocalDate toDate, int days, long orders, long customers, int products) {}
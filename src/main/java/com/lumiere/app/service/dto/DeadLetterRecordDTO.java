@@ -0,0 +1,27 @@
+package com.lumiere.app.service.dto;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Một message trong dead-letter topic của Kafka.
+ *
+ * @param topic dead-letter topic
+ * @param partition partition
+ * @param offset offset
+ * @param timestamp thời điểm message được gửi vào DLT
+ * @param key key (UTF-8, có thể null)
+ * @param value nội dung message (UTF-8)
+ * @param exceptionMessage lỗi khiến message bị chuyển sang DLT (header {@code kafka_dlt-exception-message})
+ * @param headers toàn bộ header (UTF-8)
+ */
+public record DeadLetterRecordDTO(
+    String topic,
+    int partition,
+    long offset,
+    Instant timestamp,
+    String key,
+    String value,
+    String exceptionMessage,
+    Map<String, String> headers
+) {}
@@ -0,0 +1,18 @@
+package com.lumiere.app.service.dto;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Các tổ hợp option còn chọn được khi khách hàng đã chọn một phần option trên trang sản phẩm.
+ *
+ * @param combinations các tổ hợp có variant và chứa toàn bộ option đã chọn
+ * @param availableSelectIds hợp các option của {@code combinations}; option không nằm trong tập này cần làm mờ
+ */
+public record OptionAvailabilityDTO(List<Combination> combinations, Set<Long> availableSelectIds) {
+    /**
+     * @param selectIds các option của tổ hợp (tăng dần)
+     * @param variantId variant tương ứng
+     */
+    public record Combination(List<Long> selectIds, Long variantId) {}
+}
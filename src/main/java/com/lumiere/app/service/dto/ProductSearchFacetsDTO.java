@@ -0,0 +1,27 @@
+package com.lumiere.app.service.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Số sản phẩm theo danh mục và theo khoảng giá cho trang tìm kiếm.
+ * Facet danh mục bỏ qua bộ lọc danh mục, facet giá bỏ qua bộ lọc giá (các bộ lọc khác vẫn áp dụng).
+ *
+ * @param categories số sản phẩm theo danh mục
+ * @param priceBuckets số sản phẩm theo khoảng giá thấp nhất của sản phẩm
+ */
+public record ProductSearchFacetsDTO(List<CategoryFacet> categories, List<PriceBucket> priceBuckets) {
+    /**
+     * @param categoryId danh mục (null cho sản phẩm chưa gán danh mục)
+     * @param categoryPath đường dẫn danh mục từ gốc, dạng {@code /1/5/12/}
+     * @param count số sản phẩm
+     */
+    public record CategoryFacet(Long categoryId, String categoryPath, long count) {}
+
+    /**
+     * @param from giá từ (bao gồm)
+     * @param to giá đến (không bao gồm, null cho khoảng cuối)
+     * @param count số sản phẩm
+     */
+    public record PriceBucket(BigDecimal from, BigDecimal to, long count) {}
+}
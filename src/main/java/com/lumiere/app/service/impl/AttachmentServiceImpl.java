@@ -3,6 +3,8 @@ package com.lumiere.app.service.impl;
 import com.lumiere.app.domain.Attachment;
 import com.lumiere.app.repository.AttachmentRepository;
 import com.lumiere.app.service.AttachmentService;
+import com.lumiere.app.service.ImageDerivativeService;
+import com.lumiere.app.service.MediaMetadataService;
 import com.lumiere.app.service.dto.AttachmentDTO;
 import com.lumiere.app.service.mapper.AttachmentMapper;
 import java.nio.file.Files;
@@ -24,11 +26,21 @@ public class AttachmentServiceImpl implements AttachmentService {
     private final Path mediaRoot;
 
     private final AttachmentMapper attachmentMapper;
+    private final MediaMetadataService mediaMetadataService;
+    private final ImageDerivativeService imageDerivativeService;
 
-    public AttachmentServiceImpl(AttachmentRepository attachmentRepository, Path mediaRoot, AttachmentMapper attachmentMapper) {
+    public AttachmentServiceImpl(
+        AttachmentRepository attachmentRepository,
+        Path mediaRoot,
+        AttachmentMapper attachmentMapper,
+        MediaMetadataService mediaMetadataService,
+        ImageDerivativeService imageDerivativeService
+    ) {
         this.attachmentRepository = attachmentRepository;
         this.mediaRoot = mediaRoot;
         this.attachmentMapper = attachmentMapper;
+        this.mediaMetadataService = mediaMetadataService;
+        this.imageDerivativeService = imageDerivativeService;
     }
 
     @Override
@@ -95,6 +107,8 @@ public class AttachmentServiceImpl implements AttachmentService {
                     try {
                         Files.deleteIfExists(mediaRoot.resolve("attachments").resolve(name).normalize());
                     } catch (Exception ignored) {}
+                    mediaMetadataService.evict(name);
+                    imageDerivativeService.deleteDerivatives(name).forEach(mediaMetadataService::evict);
                     try {
                         Files.deleteIfExists(Path.of("D:\\Lumiere_FrontEnd\\public\\uploads\\attachments").resolve(name).normalize());
                     } catch (Exception ignored) {}
@@ -3,6 +3,8 @@ package com.lumiere.app.service.impl;
 import com.lumiere.app.domain.Category;
 import com.lumiere.app.repository.CategoryRepository;
 import com.lumiere.app.service.CategoryService;
+import com.lumiere.app.service.HomeFeedService;
+import com.lumiere.app.service.ProductSearchIndexService;
 import com.lumiere.app.service.dto.CategoryDTO;
 import com.lumiere.app.service.mapper.CategoryMapper;
 import org.slf4j.Logger;
@@ -22,10 +24,19 @@ public class CategoryServiceImpl implements CategoryService {
 
     private final CategoryRepository categoryRepository;
     private final CategoryMapper categoryMapper;
+    private final ProductSearchIndexService productSearchIndexService;
+    private final HomeFeedService homeFeedService;
 
-    public CategoryServiceImpl(CategoryRepository categoryRepository, CategoryMapper categoryMapper) {
+    public CategoryServiceImpl(
+        CategoryRepository categoryRepository,
+        CategoryMapper categoryMapper,
+        ProductSearchIndexService productSearchIndexService,
+        HomeFeedService homeFeedService
+    ) {
         this.categoryRepository = categoryRepository;
         this.categoryMapper = categoryMapper;
+        this.productSearchIndexService = productSearchIndexService;
+        this.homeFeedService = homeFeedService;
     }
 
     @Override
@@ -33,6 +44,7 @@ public class CategoryServiceImpl implements CategoryService {
         log.debug("Request to save Category : {}", dto);
         Category entity = categoryMapper.toEntity(dto);
         entity = categoryRepository.save(entity);
+        homeFeedService.markChanged(HomeFeedService.Feed.SHOP_BY_CATEGORY);
         return categoryMapper.toDto(entity);
     }
 
@@ -41,6 +53,9 @@ public class CategoryServiceImpl implements CategoryService {
         log.debug("Request to update Category : {}", dto);
         Category entity = categoryMapper.toEntity(dto);
         entity = categoryRepository.save(entity);
+        // Danh mục cha có thể thay đổi: dựng lại đường dẫn danh mục của các sản phẩm trong cây
+        productSearchIndexService.markCategoryChanged(entity.getId());
+        homeFeedService.markChanged(HomeFeedService.Feed.SHOP_BY_CATEGORY);
         return categoryMapper.toDto(entity);
     }
 
@@ -54,7 +69,11 @@ public class CategoryServiceImpl implements CategoryService {
                 return existing;
             })
             .map(categoryRepository::save)
-            .map(categoryMapper::toDto);
+            .map(entity -> {
+                productSearchIndexService.markCategoryChanged(entity.getId());
+                homeFeedService.markChanged(HomeFeedService.Feed.SHOP_BY_CATEGORY);
+                return categoryMapper.toDto(entity);
+            });
     }
 
     @Override
@@ -74,6 +93,8 @@ public class CategoryServiceImpl implements CategoryService {
     @Override
     public void delete(Long id) {
         log.debug("Request to delete Category : {}", id);
+        productSearchIndexService.markCategoryChanged(id);
         categoryRepository.deleteById(id);
+        homeFeedService.markChanged(HomeFeedService.Feed.SHOP_BY_CATEGORY);
     }
 }
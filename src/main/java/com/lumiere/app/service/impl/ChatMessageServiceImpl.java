@@ -5,6 +5,7 @@ import com.lumiere.app.domain.ContactMessage;
 import com.lumiere.app.domain.enumeration.MessageSender;
 import com.lumiere.app.repository.ChatMessageRepository;
 import com.lumiere.app.repository.ContactMessageRepository;
+import com.lumiere.app.service.ChatMessageIdAllocator;
 import com.lumiere.app.service.ChatMessageService;
 import com.lumiere.app.service.dto.ChatMessageDTO;
 import com.lumiere.app.service.mapper.ChatMessageMapper;
@@ -33,20 +34,27 @@ public class ChatMessageServiceImpl implements ChatMessageService {
 
     private final ContactMessageRepository contactMessageRepository;
 
+    private final ChatMessageIdAllocator chatMessageIdAllocator;
+
     public ChatMessageServiceImpl(
         ChatMessageRepository chatMessageRepository,
         ChatMessageMapper chatMessageMapper,
-        ContactMessageRepository contactMessageRepository
+        ContactMessageRepository contactMessageRepository,
+        ChatMessageIdAllocator chatMessageIdAllocator
     ) {
         this.chatMessageRepository = chatMessageRepository;
         this.chatMessageMapper = chatMessageMapper;
         this.contactMessageRepository = contactMessageRepository;
+        this.chatMessageIdAllocator = chatMessageIdAllocator;
     }
 
     @Override
     public ChatMessageDTO save(ChatMessageDTO chatMessageDTO) {
         LOG.debug("Request to save ChatMessage : {}", chatMessageDTO);
         ChatMessage chatMessage = chatMessageMapper.toEntity(chatMessageDTO);
+        if (chatMessage.getId() == null) {
+            chatMessage.setId(chatMessageIdAllocator.nextId());
+        }
         
         // Set contactMessage if contactMessageId is provided
         if (chatMessageDTO.getContactMessageId() != null) {
@@ -120,6 +128,7 @@ public class ChatMessageServiceImpl implements ChatMessageService {
             .orElseThrow(() -> new RuntimeException("ContactMessage not found with id: " + contactMessageId));
 
         ChatMessage chatMessage = new ChatMessage();
+        chatMessage.setId(chatMessageIdAllocator.nextId());
         chatMessage.setText(message);
         chatMessage.setTimestamp(Instant.now());
         chatMessage.setContactMessage(contactMessage);
@@ -1,62 +1,181 @@
 package com.lumiere.app.service.impl;
 
+import com.lumiere.app.config.ApplicationProperties;
 import com.lumiere.app.service.AttachmentService;
 import com.lumiere.app.service.ChunkUploadService;
+import com.lumiere.app.service.ImageDerivativeService;
 import com.lumiere.app.service.dto.AttachmentDTO;
+import com.lumiere.app.service.dto.ChunkUploadStatusDTO;
 import com.lumiere.app.utils.PublicUrlBuilder;
 import java.io.IOException;
-import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.util.FileSystemUtils;
 import org.springframework.web.multipart.MultipartFile;
 
+/**
+ * Upload theo chunk, có thể tiếp tục sau khi gián đoạn.
+ * <p>
+ * Mỗi upload có thư mục {@code <temp>/<uploadId>} gồm file {@code data} (nội dung file), {@code chunk-size} (kích
+ * thước chunk của upload) và {@code received/<index>} (kích thước và SHA-256 của từng chunk đã nhận). Chunk được ghi
+ * thẳng vào {@code data} tại vị trí {@code index * chunkSize} ngay khi nhận, theo thứ tự bất kỳ (chunk khác chunk 0
+ * đến trước cần header {@code Chunk-Size}); marker {@code received/<index>} bị xóa trước khi ghi và chỉ được tạo lại
+ * sau khi checksum khớp. Khi hoàn tất chỉ cần kiểm tra marker rồi đổi tên
+ * {@code data} thành file attachment, không còn bước nối các chunk. Upload bỏ dở được job định kỳ xóa.
+ */
 @Service
 public class ChunkUploadServiceImpl implements ChunkUploadService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(ChunkUploadServiceImpl.class);
+
+    private static final String DATA_FILE = "data";
+    private static final String CHUNK_SIZE_FILE = "chunk-size";
+    private static final String RECEIVED_DIR = "received";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     private final Path tempPath;
     private final Path mediaRoot;
     private final AttachmentService attachmentService;
     private final PublicUrlBuilder urlBuilder;
+    private final ImageDerivativeService imageDerivativeService;
+    private final Duration abandonedAfter;
+    private final Map<String, Long> chunkSizes = new ConcurrentHashMap<>();
 
-    public ChunkUploadServiceImpl(Path tempPath, Path mediaRoot, AttachmentService attachmentService, PublicUrlBuilder urlBuilder) {
+    public ChunkUploadServiceImpl(
+        Path tempPath,
+        Path mediaRoot,
+        AttachmentService attachmentService,
+        PublicUrlBuilder urlBuilder,
+        ImageDerivativeService imageDerivativeService,
+        ApplicationProperties applicationProperties
+    ) {
         this.tempPath = tempPath;
         this.mediaRoot = mediaRoot;
         this.attachmentService = attachmentService;
         this.urlBuilder = urlBuilder;
+        this.imageDerivativeService = imageDerivativeService;
+        this.abandonedAfter = Duration.ofHours(applicationProperties.getMedia().getAbandonedUploadHours());
     }
 
     @Override
-    public void saveChunk(String uploadId, int chunkIndex, MultipartFile file) throws IOException {
-        Path dir = tempPath.resolve(uploadId);
-        Files.createDirectories(dir);
+    public void saveChunk(String uploadId, int chunkIndex, Long chunkSize, String sha256, MultipartFile file) throws IOException {
+        Path dir = uploadDir(uploadId);
+        if (chunkIndex < 0) throw new IllegalArgumentException("chunkIndex invalid");
+        long size = file.getSize();
+        if (size <= 0) throw new IllegalArgumentException("Empty chunk " + chunkIndex);
+        if (chunkSize != null && chunkSize <= 0) throw new IllegalArgumentException("chunkSize invalid");
+        Files.createDirectories(dir.resolve(RECEIVED_DIR));
+
+        // Kích thước chunk cố định theo header Chunk-Size, hoặc theo chunk 0 (chunk khác có thể là chunk cuối, ngắn hơn)
+        long uploadChunkSize = chunkSizeOf(uploadId, dir, chunkSize != null ? chunkSize : chunkIndex == 0 ? size : 0);
+        if (chunkSize != null && chunkSize != uploadChunkSize) {
+            throw new IllegalArgumentException("chunkSize " + chunkSize + " differs from upload chunk size " + uploadChunkSize);
+        }
+        if (size > uploadChunkSize) {
+            throw new IllegalArgumentException("Chunk " + chunkIndex + " is larger than chunk size " + uploadChunkSize);
+        }
+
+        // 1) Bỏ marker cũ (chunk gửi lại) trước khi ghi đè vùng dữ liệu của nó, rồi ghi thẳng vào vị trí của chunk
+        //    trong file data, tính SHA-256 trên đường đi
+        Path marker = dir.resolve(RECEIVED_DIR).resolve(String.valueOf(chunkIndex));
+        Files.deleteIfExists(marker);
+        MessageDigest digest = sha256Digest();
+        long position = Math.multiplyExact(chunkIndex, uploadChunkSize);
+        long written = 0;
+        try (
+            ReadableByteChannel in = Channels.newChannel(new DigestInputStream(file.getInputStream(), digest));
+            FileChannel out = FileChannel.open(dir.resolve(DATA_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE)
+        ) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            while (in.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    written += out.write(buffer, position + written);
+                }
+                buffer.clear();
+            }
+        }
+        if (written != size) {
+            throw new IOException("Chunk " + chunkIndex + " truncated: " + written + "/" + size + " bytes");
+        }
+
+        // 2) Kiểm tra checksum; chunk sai không được đánh dấu, lần gửi lại sẽ ghi đè cùng vị trí
+        String actual = HexFormat.of().formatHex(digest.digest());
+        if (sha256 != null && !sha256.isBlank() && !actual.equalsIgnoreCase(sha256.trim())) {
+            throw new IllegalArgumentException("Checksum mismatch for chunk " + chunkIndex);
+        }
 
-        Path chunkPath = dir.resolve(String.valueOf(chunkIndex));
-        Files.copy(file.getInputStream(), chunkPath, StandardCopyOption.REPLACE_EXISTING);
+        // 3) Đánh dấu đã nhận (ghi file tạm rồi move ATOMIC để không đọc phải marker dở)
+        Path markerTmp = dir.resolve(RECEIVED_DIR).resolve(chunkIndex + "." + UUID.randomUUID() + ".tmp");
+        Files.writeString(markerTmp, size + " " + actual);
+        Files.move(markerTmp, marker, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public Optional<ChunkUploadStatusDTO> getStatus(String uploadId) throws IOException {
+        Path dir = uploadDir(uploadId);
+        if (!Files.isRegularFile(dir.resolve(CHUNK_SIZE_FILE))) {
+            return Optional.empty();
+        }
+        long chunkSize = chunkSizeOf(uploadId, dir, 0);
+        List<ChunkUploadStatusDTO.ReceivedChunk> chunks = new ArrayList<>(readReceived(dir).values());
+        chunks.sort(Comparator.comparingInt(ChunkUploadStatusDTO.ReceivedChunk::index));
+        long receivedBytes = chunks.stream().mapToLong(ChunkUploadStatusDTO.ReceivedChunk::size).sum();
+        return Optional.of(new ChunkUploadStatusDTO(uploadId, chunkSize, chunks, receivedBytes));
     }
 
     @Override
     public AttachmentDTO mergeChunks(String uploadId, int totalChunks, String originalFileName) throws IOException {
         // 0) Validate
         if (totalChunks <= 0) throw new IllegalArgumentException("totalChunks invalid");
-        if (uploadId == null || uploadId.isBlank()) throw new IllegalArgumentException("uploadId missing");
+        Path uploadDir = uploadDir(uploadId); // <-- luôn dưới uploads/tmp/<uploadId>
 
-        // 1) Đường dẫn tạm & xác thực chunk
-        Path uploadDir = tempPath.resolve(uploadId).normalize(); // <-- luôn dưới uploads/tmp/<uploadId>
-        if (!Files.isDirectory(uploadDir)) {
+        // 1) Xác thực chunk: đủ marker, mọi chunk trừ chunk cuối đúng kích thước chunk
+        if (!Files.isRegularFile(uploadDir.resolve(CHUNK_SIZE_FILE))) {
             throw new IOException("Upload temp dir not found: " + uploadDir);
         }
+        long chunkSize = chunkSizeOf(uploadId, uploadDir, 0);
+        Map<Integer, ChunkUploadStatusDTO.ReceivedChunk> received = readReceived(uploadDir);
+        long totalSize = 0;
         for (int i = 0; i < totalChunks; i++) {
-            Path chunk = uploadDir.resolve(String.valueOf(i)).normalize();
-            if (!chunk.startsWith(uploadDir) || !Files.exists(chunk)) {
+            ChunkUploadStatusDTO.ReceivedChunk chunk = received.get(i);
+            if (chunk == null) {
                 throw new IOException("Missing chunk index: " + i);
             }
+            if (i < totalChunks - 1 && chunk.size() != chunkSize) {
+                throw new IOException("Chunk " + i + " has " + chunk.size() + " bytes, expected " + chunkSize);
+            }
+            totalSize += chunk.size();
         }
 
         // 2) Tên file an toàn + đuôi
@@ -70,24 +189,28 @@ public class ChunkUploadServiceImpl implements ChunkUploadService {
             throw new IOException("Invalid final path");
         }
 
-        // 3) Gộp qua file .part rồi move ATOMIC
-        Path staging = finalDir.resolve(safeName + ".part").normalize();
-        try (
-            OutputStream os = Files.newOutputStream(
-                staging,
-                StandardOpenOption.CREATE,
-                StandardOpenOption.TRUNCATE_EXISTING,
-                StandardOpenOption.WRITE
-            )
-        ) {
-            for (int i = 0; i < totalChunks; i++) {
-                Files.copy(uploadDir.resolve(String.valueOf(i)), os);
+        // 3) File data đã chứa toàn bộ nội dung: cắt phần thừa (chunk gửi thừa), fsync rồi đổi tên ATOMIC
+        Path data = uploadDir.resolve(DATA_FILE);
+        try (FileChannel channel = FileChannel.open(data, StandardOpenOption.WRITE)) {
+            if (channel.size() < totalSize) {
+                throw new IOException("Upload data has " + channel.size() + " bytes, expected " + totalSize);
+            }
+            channel.truncate(totalSize);
+            channel.force(true);
+        }
+        try {
+            Files.move(data, finalFile, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            // Thư mục tạm và thư mục media khác filesystem: phải copy
+            Path staging = finalDir.resolve(safeName + ".part").normalize();
+            try {
+                Files.copy(data, staging, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(staging, finalFile, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException copyError) {
+                Files.deleteIfExists(staging);
+                throw copyError;
             }
-        } catch (IOException e) {
-            Files.deleteIfExists(staging);
-            throw e;
         }
-        Files.move(staging, finalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
 
         // Also copy to frontend
         try {
@@ -99,7 +222,7 @@ public class ChunkUploadServiceImpl implements ChunkUploadService {
 
         // 4) Metadata
         String contentType = Optional.ofNullable(Files.probeContentType(finalFile)).orElseGet(() -> mimeFromExt(ext));
-        long size = Files.size(finalFile);
+        long size = totalSize;
 
         // 5) Tạo DTO + URL tuyệt đối (domain)
         AttachmentDTO dto = new AttachmentDTO();
@@ -113,12 +236,117 @@ public class ChunkUploadServiceImpl implements ChunkUploadService {
         try {
             FileSystemUtils.deleteRecursively(uploadDir);
         } catch (Exception ignore) {}
+        chunkSizes.remove(uploadId);
 
         // 7) Lưu DB
-        return attachmentService.save(dto);
+        AttachmentDTO saved = attachmentService.save(dto);
+
+        // 8) Sinh bản resize (thumb, card, detail) trên executor riêng, không chặn request
+        imageDerivativeService.submit(saved.getId());
+        return saved;
+    }
+
+    /**
+     * Scheduled job chạy mỗi giờ để xóa các upload không nhận thêm chunk nào trong {@code abandoned-upload-hours}.
+     */
+    @Scheduled(fixedDelay = 3600000, initialDelay = 600000)
+    public void sweepAbandonedUploads() {
+        Instant cutoff = Instant.now().minus(abandonedAfter);
+        int removed = 0;
+        try (DirectoryStream<Path> uploads = Files.newDirectoryStream(tempPath, Files::isDirectory)) {
+            for (Path dir : uploads) {
+                if (lastActivity(dir).toInstant().isBefore(cutoff)) {
+                    FileSystemUtils.deleteRecursively(dir);
+                    chunkSizes.remove(dir.getFileName().toString());
+                    removed++;
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("Cannot sweep abandoned uploads in {}: {}", tempPath, e.getMessage());
+        }
+        if (removed > 0) {
+            LOG.info("Removed {} abandoned uploads", removed);
+        }
     }
 
     // Helpers
+    private Path uploadDir(String uploadId) {
+        if (uploadId == null || !uploadId.matches("^[A-Za-z0-9_\\-]{1,64}$")) {
+            throw new IllegalArgumentException("uploadId invalid");
+        }
+        Path dir = tempPath.resolve(uploadId).normalize();
+        if (!dir.startsWith(tempPath)) {
+            throw new IllegalArgumentException("uploadId invalid");
+        }
+        return dir;
+    }
+
+    /**
+     * Kích thước chunk của upload: đọc từ file {@code chunk-size}, hoặc ghi {@code proposed} nếu đây là chunk đầu tiên
+     * ({@code proposed} = 0 khi chưa biết kích thước chunk).
+     */
+    private long chunkSizeOf(String uploadId, Path dir, long proposed) {
+        return chunkSizes.computeIfAbsent(uploadId, id -> {
+            Path file = dir.resolve(CHUNK_SIZE_FILE);
+            try {
+                if (Files.isRegularFile(file)) {
+                    return Long.parseLong(Files.readString(file).trim());
+                }
+                if (proposed <= 0) {
+                    throw new IllegalArgumentException("Upload " + id + " has no chunk size: send the Chunk-Size header or chunk 0 first");
+                }
+                Files.writeString(file, String.valueOf(proposed));
+                return proposed;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static Map<Integer, ChunkUploadStatusDTO.ReceivedChunk> readReceived(Path dir) throws IOException {
+        Map<Integer, ChunkUploadStatusDTO.ReceivedChunk> received = new HashMap<>();
+        Path receivedDir = dir.resolve(RECEIVED_DIR);
+        if (!Files.isDirectory(receivedDir)) {
+            return received;
+        }
+        try (DirectoryStream<Path> markers = Files.newDirectoryStream(receivedDir, "[0-9]*")) {
+            for (Path marker : markers) {
+                String fileName = marker.getFileName().toString();
+                if (!fileName.chars().allMatch(Character::isDigit)) {
+                    continue;
+                }
+                String[] parts = Files.readString(marker).trim().split(" ");
+                int index = Integer.parseInt(fileName);
+                received.put(index, new ChunkUploadStatusDTO.ReceivedChunk(index, Long.parseLong(parts[0]), parts[1]));
+            }
+        } catch (NoSuchFileException e) {
+            // Upload vừa hoàn tất hoặc bị dọn
+        }
+        return received;
+    }
+
+    private static FileTime lastActivity(Path dir) throws IOException {
+        FileTime last = Files.getLastModifiedTime(dir);
+        for (String child : List.of(DATA_FILE, RECEIVED_DIR)) {
+            Path path = dir.resolve(child);
+            if (Files.exists(path)) {
+                FileTime modified = Files.getLastModifiedTime(path);
+                if (modified.compareTo(last) > 0) {
+                    last = modified;
+                }
+            }
+        }
+        return last;
+    }
+
+    private static MessageDigest sha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     private static String guessExtension(String original) {
         if (original == null) return ".bin";
         String name = original.trim();
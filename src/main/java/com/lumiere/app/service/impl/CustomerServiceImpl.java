@@ -3,6 +3,7 @@ package com.lumiere.app.service.impl;
 import com.lumiere.app.domain.Customer;
 import com.lumiere.app.repository.CustomerRepository;
 import com.lumiere.app.service.CustomerService;
+import com.lumiere.app.service.DashboardMetricsService;
 import com.lumiere.app.service.dto.CustomerDTO;
 import com.lumiere.app.service.mapper.CustomerMapper;
 import java.util.Optional;
@@ -26,9 +27,16 @@ public class CustomerServiceImpl implements CustomerService {
 
     private final CustomerMapper customerMapper;
 
-    public CustomerServiceImpl(CustomerRepository customerRepository, CustomerMapper customerMapper) {
+    private final DashboardMetricsService dashboardMetricsService;
+
+    public CustomerServiceImpl(
+        CustomerRepository customerRepository,
+        CustomerMapper customerMapper,
+        DashboardMetricsService dashboardMetricsService
+    ) {
         this.customerRepository = customerRepository;
         this.customerMapper = customerMapper;
+        this.dashboardMetricsService = dashboardMetricsService;
     }
 
     @Override
@@ -36,14 +44,17 @@ public class CustomerServiceImpl implements CustomerService {
         LOG.debug("Request to save Customer : {}", customerDTO);
         Customer customer = customerMapper.toEntity(customerDTO);
         customer = customerRepository.save(customer);
+        onAccountLinked(null, customer);
         return customerMapper.toDto(customer);
     }
 
     @Override
     public CustomerDTO update(CustomerDTO customerDTO) {
         LOG.debug("Request to update Customer : {}", customerDTO);
+        Long oldUserId = customerRepository.findById(customerDTO.getId()).map(CustomerServiceImpl::userIdOf).orElse(null);
         Customer customer = customerMapper.toEntity(customerDTO);
         customer = customerRepository.save(customer);
+        onAccountLinked(oldUserId, customer);
         return customerMapper.toDto(customer);
     }
 
@@ -54,14 +65,29 @@ public class CustomerServiceImpl implements CustomerService {
         return customerRepository
             .findById(customerDTO.getId())
             .map(existingCustomer -> {
+                Long oldUserId = userIdOf(existingCustomer);
                 customerMapper.partialUpdate(existingCustomer, customerDTO);
-
-                return existingCustomer;
+                Customer saved = customerRepository.save(existingCustomer);
+                onAccountLinked(oldUserId, saved);
+                return saved;
             })
-            .map(customerRepository::save)
             .map(customerMapper::toDto);
     }
 
+    /**
+     * Đếm khách hàng mới trên dashboard khi customer lần đầu được gắn với một tài khoản.
+     */
+    private void onAccountLinked(Long oldUserId, Customer customer) {
+        Long userId = userIdOf(customer);
+        if (oldUserId == null && userId != null) {
+            dashboardMetricsService.recordNewCustomer(userId);
+        }
+    }
+
+    private static Long userIdOf(Customer customer) {
+        return customer.getUser() != null ? customer.getUser().getId() : null;
+    }
+
     public Page<CustomerDTO> findAllWithEagerRelationships(Pageable pageable) {
         return customerRepository.findAllWithEagerRelationships(pageable).map(customerMapper::toDto);
     }
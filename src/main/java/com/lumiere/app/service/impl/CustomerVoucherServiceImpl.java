@@ -7,6 +7,7 @@ import com.lumiere.app.repository.CustomerRepository;
 import com.lumiere.app.repository.CustomerVoucherRepository;
 import com.lumiere.app.repository.VoucherRepository;
 import com.lumiere.app.service.CustomerVoucherService;
+import com.lumiere.app.service.VoucherCacheService;
 import com.lumiere.app.service.dto.CustomerVoucherDTO;
 import com.lumiere.app.service.dto.VoucherDTO;
 import com.lumiere.app.service.mapper.VoucherMapper;
@@ -31,17 +32,20 @@ public class CustomerVoucherServiceImpl implements CustomerVoucherService {
     private final CustomerRepository customerRepository;
     private final VoucherRepository voucherRepository;
     private final VoucherMapper voucherMapper;
+    private final VoucherCacheService voucherCacheService;
 
     public CustomerVoucherServiceImpl(
         CustomerVoucherRepository customerVoucherRepository,
         CustomerRepository customerRepository,
         VoucherRepository voucherRepository,
-        VoucherMapper voucherMapper
+        VoucherMapper voucherMapper,
+        VoucherCacheService voucherCacheService
     ) {
         this.customerVoucherRepository = customerVoucherRepository;
         this.customerRepository = customerRepository;
         this.voucherRepository = voucherRepository;
         this.voucherMapper = voucherMapper;
+        this.voucherCacheService = voucherCacheService;
     }
 
     @Override
@@ -108,6 +112,7 @@ public class CustomerVoucherServiceImpl implements CustomerVoucherService {
         // Không set quarter vì đây là claim tự do, không phải voucher quý
 
         customerVoucher = customerVoucherRepository.save(customerVoucher);
+        voucherCacheService.evictCustomers(List.of(customer.getId()));
 
         return toDto(customerVoucher);
     }
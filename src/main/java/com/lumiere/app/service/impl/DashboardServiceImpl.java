@@ -1,10 +1,12 @@
 package com.lumiere.app.service.impl;
 
+import com.lumiere.app.config.Constants;
 import com.lumiere.app.domain.Orders;
 import com.lumiere.app.domain.enumeration.OrderStatus;
-import com.lumiere.app.repository.CustomerRepository;
-import com.lumiere.app.repository.OrderItemRepository;
+import com.lumiere.app.repository.DashboardDailyMetricRepository;
+import com.lumiere.app.repository.DashboardProductMetricRepository;
 import com.lumiere.app.repository.OrdersRepository;
+import com.lumiere.app.service.DashboardMetricsService;
 import com.lumiere.app.service.DashboardService;
 import com.lumiere.app.service.dto.*;
 import org.slf4j.Logger;
@@ -16,7 +18,6 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.LocalDate;
-import java.time.ZoneId;
 import java.time.YearMonth;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -31,26 +32,26 @@ public class DashboardServiceImpl implements DashboardService {
     private static final Logger LOG = LoggerFactory.getLogger(DashboardServiceImpl.class);
 
     private final OrdersRepository ordersRepository;
-    private final CustomerRepository customerRepository;
-    private final OrderItemRepository orderItemRepository;
+    private final DashboardDailyMetricRepository dailyMetricRepository;
+    private final DashboardProductMetricRepository productMetricRepository;
+    private final DashboardMetricsService dashboardMetricsService;
 
     // Các trạng thái đơn hàng được tính vào doanh thu và thống kê
-    private static final List<OrderStatus> COMPLETED_STATUSES = Arrays.asList(
-        OrderStatus.DELIVERED,
-        OrderStatus.COMPLETED,
-        OrderStatus.CONFIRMED,
-        OrderStatus.PROCESSING,
-        OrderStatus.SHIPPING
-    );
+    private static final List<OrderStatus> COMPLETED_STATUSES = new ArrayList<>(DashboardMetricsService.COUNTED_STATUSES);
+
+    private static final String[] MONTH_NAMES = { "Thg 1", "Thg 2", "Thg 3", "Thg 4", "Thg 5", "Thg 6",
+                                                  "Thg 7", "Thg 8", "Thg 9", "Thg 10", "Thg 11", "Thg 12" };
 
     public DashboardServiceImpl(
         OrdersRepository ordersRepository,
-        CustomerRepository customerRepository,
-        OrderItemRepository orderItemRepository
+        DashboardDailyMetricRepository dailyMetricRepository,
+        DashboardProductMetricRepository productMetricRepository,
+        DashboardMetricsService dashboardMetricsService
     ) {
         this.ordersRepository = ordersRepository;
-        this.customerRepository = customerRepository;
-        this.orderItemRepository = orderItemRepository;
+        this.dailyMetricRepository = dailyMetricRepository;
+        this.productMetricRepository = productMetricRepository;
+        this.dashboardMetricsService = dashboardMetricsService;
     }
 
     @Override
@@ -59,44 +60,24 @@ public class DashboardServiceImpl implements DashboardService {
         LOG.debug("Request to get dashboard stats");
 
         // Tính thời gian: tháng hiện tại
-        LocalDate now = LocalDate.now();
+        LocalDate now = LocalDate.now(Constants.DASHBOARD_ZONE);
         YearMonth currentMonth = YearMonth.from(now);
-        Instant startOfMonth = currentMonth.atDay(1).atStartOfDay(ZoneId.systemDefault()).toInstant();
-        Instant endOfMonth = currentMonth.atEndOfMonth().atTime(23, 59, 59).atZone(ZoneId.systemDefault()).toInstant();
 
-        // Tổng doanh thu tháng hiện tại
-        BigDecimal totalRevenue = ordersRepository.sumTotalAmountByStatusAndDateRange(
-            COMPLETED_STATUSES,
-            startOfMonth,
-            endOfMonth
-        );
-        if (totalRevenue == null) {
-            totalRevenue = BigDecimal.ZERO;
-        }
-
-        // Số khách hàng mới tháng hiện tại
-        List<Object[]> newCustomersThisMonth = customerRepository.getNewCustomersByMonth(now.getYear());
+        // Doanh thu, số đơn và khách hàng mới tháng hiện tại (đọc từ bảng số liệu theo ngày)
+        BigDecimal totalRevenue = BigDecimal.ZERO;
         Long subscriptions = 0L;
-        for (Object[] row : newCustomersThisMonth) {
-            if (row[1] != null && ((Number) row[1]).intValue() == now.getMonthValue()) {
-                subscriptions = ((Number) row[2]).longValue();
-                break;
-            }
-        }
-
-        // Tổng số đơn hàng tháng hiện tại
-        Long sales = ordersRepository.countByStatusAndDateRange(
-            COMPLETED_STATUSES,
-            startOfMonth,
-            endOfMonth
-        );
-        if (sales == null) {
-            sales = 0L;
+        Long sales = 0L;
+        List<Object[]> totals = dailyMetricRepository.sumBetween(currentMonth.atDay(1), currentMonth.atEndOfMonth());
+        if (!totals.isEmpty()) {
+            Object[] row = totals.get(0);
+            totalRevenue = (BigDecimal) row[0];
+            sales = ((Number) row[1]).longValue();
+            subscriptions = ((Number) row[2]).longValue();
         }
 
         // Số đơn hàng đang xử lý (active now)
-        Instant startOfToday = now.atStartOfDay(ZoneId.systemDefault()).toInstant();
-        Instant endOfToday = now.atTime(23, 59, 59).atZone(ZoneId.systemDefault()).toInstant();
+        Instant startOfToday = now.atStartOfDay(Constants.DASHBOARD_ZONE).toInstant();
+        Instant endOfToday = now.plusDays(1).atStartOfDay(Constants.DASHBOARD_ZONE).toInstant();
         Long activeNow = ordersRepository.countByStatusAndDateRange(
             Arrays.asList(OrderStatus.CONFIRMED, OrderStatus.PROCESSING, OrderStatus.SHIPPING),
             startOfToday,
@@ -114,27 +95,16 @@ public class DashboardServiceImpl implements DashboardService {
     public List<MonthlyRevenueDTO> getRevenueByMonth() {
         LOG.debug("Request to get revenue by month");
 
-        int currentYear = LocalDate.now().getYear();
-        List<Object[]> results = ordersRepository.getRevenueByMonth(COMPLETED_STATUSES, currentYear);
-
-        // Tạo map từ kết quả query
         Map<Integer, BigDecimal> revenueMap = new HashMap<>();
-        for (Object[] row : results) {
-            Integer month = ((Number) row[1]).intValue();
-            BigDecimal total = (BigDecimal) row[2];
-            revenueMap.put(month, total);
+        for (Object[] row : getMonthlyTotalsOfCurrentYear()) {
+            revenueMap.put(((Number) row[0]).intValue(), (BigDecimal) row[1]);
         }
 
         // Tạo danh sách cho 12 tháng
         List<MonthlyRevenueDTO> monthlyRevenues = new ArrayList<>();
-        String[] monthNames = { "Thg 1", "Thg 2", "Thg 3", "Thg 4", "Thg 5", "Thg 6", 
-                                "Thg 7", "Thg 8", "Thg 9", "Thg 10", "Thg 11", "Thg 12" };
-
         for (int i = 1; i <= 12; i++) {
-            BigDecimal total = revenueMap.getOrDefault(i, BigDecimal.ZERO);
-            monthlyRevenues.add(new MonthlyRevenueDTO(monthNames[i - 1], total));
+            monthlyRevenues.add(new MonthlyRevenueDTO(MONTH_NAMES[i - 1], revenueMap.getOrDefault(i, BigDecimal.ZERO)));
         }
-
         return monthlyRevenues;
     }
 
@@ -143,27 +113,16 @@ public class DashboardServiceImpl implements DashboardService {
     public List<MonthlyCustomerDTO> getNewCustomersByMonth() {
         LOG.debug("Request to get new customers by month");
 
-        int currentYear = LocalDate.now().getYear();
-        List<Object[]> results = customerRepository.getNewCustomersByMonth(currentYear);
-
-        // Tạo map từ kết quả query
         Map<Integer, Long> customerMap = new HashMap<>();
-        for (Object[] row : results) {
-            Integer month = ((Number) row[1]).intValue();
-            Long count = ((Number) row[2]).longValue();
-            customerMap.put(month, count);
+        for (Object[] row : getMonthlyTotalsOfCurrentYear()) {
+            customerMap.put(((Number) row[0]).intValue(), ((Number) row[3]).longValue());
         }
 
         // Tạo danh sách cho 12 tháng
         List<MonthlyCustomerDTO> monthlyCustomers = new ArrayList<>();
-        String[] monthNames = { "Thg 1", "Thg 2", "Thg 3", "Thg 4", "Thg 5", "Thg 6", 
-                                "Thg 7", "Thg 8", "Thg 9", "Thg 10", "Thg 11", "Thg 12" };
-
         for (int i = 1; i <= 12; i++) {
-            Long count = customerMap.getOrDefault(i, 0L);
-            monthlyCustomers.add(new MonthlyCustomerDTO(monthNames[i - 1], count));
+            monthlyCustomers.add(new MonthlyCustomerDTO(MONTH_NAMES[i - 1], customerMap.getOrDefault(i, 0L)));
         }
-
         return monthlyCustomers;
     }
 
@@ -172,20 +131,19 @@ public class DashboardServiceImpl implements DashboardService {
     public List<TopProductDTO> getTopProducts(int limit) {
         LOG.debug("Request to get top products with limit: {}", limit);
 
-        org.springframework.data.domain.Page<Object[]> page = orderItemRepository.getTopProductsByQuantity(
-            COMPLETED_STATUSES,
-            PageRequest.of(0, limit)
-        );
-
-        return page.getContent().stream()
-            .map(row -> {
-                String name = (String) row[0];
-                Long total = ((Number) row[1]).longValue();
-                return new TopProductDTO(name, total);
-            })
+        return productMetricRepository
+            .findTopProducts(PageRequest.of(0, limit))
+            .stream()
+            .map(row -> new TopProductDTO((String) row[0], ((Number) row[1]).longValue()))
             .collect(Collectors.toList());
     }
 
+    @Override
+    public DashboardRebuildResult rebuildMetrics(LocalDate fromDate, LocalDate toDate) {
+        LOG.debug("Request to rebuild dashboard metrics from {} to {}", fromDate, toDate);
+        return dashboardMetricsService.rebuild(fromDate, toDate);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<RecentSaleDTO> getRecentSales(int limit) {
@@ -222,5 +180,12 @@ public class DashboardServiceImpl implements DashboardService {
             })
             .collect(Collectors.toList());
     }
-}
 
+    /**
+     * Số liệu theo tháng của năm hiện tại: tháng, doanh thu, số đơn, khách hàng mới.
+     */
+    private List<Object[]> getMonthlyTotalsOfCurrentYear() {
+        int currentYear = LocalDate.now(Constants.DASHBOARD_ZONE).getYear();
+        return dailyMetricRepository.sumByMonthBetween(LocalDate.of(currentYear, 1, 1), LocalDate.of(currentYear, 12, 31));
+    }
+}
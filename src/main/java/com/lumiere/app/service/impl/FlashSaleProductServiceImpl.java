@@ -1,14 +1,12 @@
 package com.lumiere.app.service.impl;
 
 import com.lumiere.app.domain.FlashSaleProduct;
-import com.lumiere.app.domain.ProductVariant;
-import com.lumiere.app.domain.User;
 import com.lumiere.app.repository.FlashSaleProductRepository;
 import com.lumiere.app.repository.FlashSaleRepository;
 import com.lumiere.app.repository.ProductVariantRepository;
-import com.lumiere.app.repository.UserRepository;
+import com.lumiere.app.service.FlashSaleEmailCampaignService;
 import com.lumiere.app.service.FlashSaleProductService;
-import com.lumiere.app.service.MailService;
+import com.lumiere.app.service.ProductSearchIndexService;
 import com.lumiere.app.service.dto.FlashSaleProductDTO;
 import com.lumiere.app.service.mapper.FlashSaleProductMapper;
 import java.math.BigDecimal;
@@ -36,28 +34,28 @@ public class FlashSaleProductServiceImpl implements FlashSaleProductService {
 
     private final FlashSaleProductMapper flashSaleProductMapper;
 
-    private final MailService mailService;
-
-    private final UserRepository userRepository;
+    private final FlashSaleEmailCampaignService flashSaleEmailCampaignService;
 
     private final FlashSaleRepository flashSaleRepository;
 
     private final ProductVariantRepository productVariantRepository;
 
+    private final ProductSearchIndexService productSearchIndexService;
+
     public FlashSaleProductServiceImpl(
         FlashSaleProductRepository flashSaleProductRepository,
         FlashSaleProductMapper flashSaleProductMapper,
-        MailService mailService,
-        UserRepository userRepository,
+        FlashSaleEmailCampaignService flashSaleEmailCampaignService,
         FlashSaleRepository flashSaleRepository,
-        ProductVariantRepository productVariantRepository
+        ProductVariantRepository productVariantRepository,
+        ProductSearchIndexService productSearchIndexService
     ) {
         this.flashSaleProductRepository = flashSaleProductRepository;
         this.flashSaleProductMapper = flashSaleProductMapper;
-        this.mailService = mailService;
-        this.userRepository = userRepository;
+        this.flashSaleEmailCampaignService = flashSaleEmailCampaignService;
         this.flashSaleRepository = flashSaleRepository;
         this.productVariantRepository = productVariantRepository;
+        this.productSearchIndexService = productSearchIndexService;
     }
 
     @Override
@@ -75,8 +73,9 @@ public class FlashSaleProductServiceImpl implements FlashSaleProductService {
             .findOneWithEagerRelationships(flashSaleProduct.getId())
             .orElse(flashSaleProduct);
 
-        // Gửi email thông báo flash sale sau khi tạo thành công
-        sendFlashSaleNotificationEmails(flashSaleProduct);
+        // Tạo campaign gửi email thông báo flash sale (được gửi nền bởi FlashSaleEmailCampaignService)
+        flashSaleEmailCampaignService.createCampaign(flashSaleProduct.getId());
+        productSearchIndexService.markFlashSaleProductChanged(flashSaleProduct.getId());
 
         return flashSaleProductMapper.toDto(flashSaleProduct);
     }
@@ -116,67 +115,15 @@ public class FlashSaleProductServiceImpl implements FlashSaleProductService {
             .orElseThrow(() -> new IllegalArgumentException("Biến thể sản phẩm không tồn tại"));
     }
 
-    private void sendFlashSaleNotificationEmails(FlashSaleProduct flashSaleProduct) {
-        try {
-            // Lấy thông tin flash sale và product variant
-            String flashSaleName = flashSaleProduct.getFlashSale() != null ? flashSaleProduct.getFlashSale().getName() : "Flash Sale";
-            ProductVariant productVariant = flashSaleProduct.getProductVariant();
-            String productName = productVariant != null && productVariant.getProduct() != null 
-                ? productVariant.getProduct().getName() 
-                : "Sản phẩm";
-            BigDecimal salePrice = flashSaleProduct.getSalePrice();
-
-            // Lấy giá gốc từ product variant
-            BigDecimal originalPrice = productVariant != null && productVariant.getPrice() != null 
-                ? productVariant.getPrice() 
-                : BigDecimal.ZERO;
-
-            // Tạo URL sản phẩm
-            String productUrl = buildProductUrl(productVariant);
-
-            // Lấy danh sách tất cả người dùng đã kích hoạt để gửi email
-            List<User> activatedUsers = userRepository.findAllByIdNotNullAndActivatedIsTrue(Pageable.unpaged()).getContent();
-
-            LOG.debug("Sending flash sale notification emails to {} users", activatedUsers.size());
-
-            // Gửi email cho từng người dùng
-            for (User user : activatedUsers) {
-                try {
-                    mailService.sendFlashSaleNotificationEmail(
-                        user,
-                        flashSaleName,
-                        productName,
-                        salePrice,
-                        originalPrice,
-                        productUrl
-                    );
-                } catch (Exception e) {
-                    LOG.warn("Failed to send flash sale email to user '{}': {}", user.getEmail(), e.getMessage());
-                }
-            }
-
-            LOG.debug("Flash sale notification emails sent successfully");
-        } catch (Exception e) {
-            LOG.error("Error sending flash sale notification emails", e);
-            // Không throw exception để không ảnh hưởng đến việc tạo flash sale product
-        }
-    }
-
-    private String buildProductUrl(ProductVariant productVariant) {
-        if (productVariant == null || productVariant.getProduct() == null || productVariant.getProduct().getSlug() == null) {
-            return "";
-        }
-        // Giả sử base URL được lấy từ MailService hoặc config
-        // Ở đây tạm thời trả về slug, sẽ được xử lý trong email template
-        return "/products/" + productVariant.getProduct().getSlug();
-    }
-
     @Override
     public FlashSaleProductDTO update(FlashSaleProductDTO flashSaleProductDTO) {
         LOG.debug("Request to update FlashSaleProduct : {}", flashSaleProductDTO);
         validateFlashSaleProduct(flashSaleProductDTO);
+        // Flash sale product có thể đổi variant: cập nhật cả sản phẩm cũ và mới
+        productSearchIndexService.markFlashSaleProductChanged(flashSaleProductDTO.getId());
         FlashSaleProduct flashSaleProduct = flashSaleProductMapper.toEntity(flashSaleProductDTO);
         flashSaleProduct = flashSaleProductRepository.save(flashSaleProduct);
+        productSearchIndexService.markFlashSaleProductChanged(flashSaleProduct.getId());
         return flashSaleProductMapper.toDto(flashSaleProduct);
     }
 
@@ -187,12 +134,16 @@ public class FlashSaleProductServiceImpl implements FlashSaleProductService {
         return flashSaleProductRepository
             .findById(flashSaleProductDTO.getId())
             .map(existingFlashSaleProduct -> {
+                productSearchIndexService.markFlashSaleProductChanged(existingFlashSaleProduct.getId());
                 flashSaleProductMapper.partialUpdate(existingFlashSaleProduct, flashSaleProductDTO);
 
                 return existingFlashSaleProduct;
             })
             .map(flashSaleProductRepository::save)
-            .map(flashSaleProductMapper::toDto);
+            .map(flashSaleProduct -> {
+                productSearchIndexService.markFlashSaleProductChanged(flashSaleProduct.getId());
+                return flashSaleProductMapper.toDto(flashSaleProduct);
+            });
     }
 
     @Override
@@ -220,6 +171,7 @@ public class FlashSaleProductServiceImpl implements FlashSaleProductService {
     @Override
     public void delete(Long id) {
         LOG.debug("Request to delete FlashSaleProduct : {}", id);
+        productSearchIndexService.markFlashSaleProductChanged(id);
         flashSaleProductRepository.deleteById(id);
     }
 
@@ -4,6 +4,7 @@ import com.lumiere.app.domain.FlashSale;
 import com.lumiere.app.domain.enumeration.NotificationType;
 import com.lumiere.app.repository.FlashSaleRepository;
 import com.lumiere.app.service.FlashSaleService;
+import com.lumiere.app.service.ProductSearchIndexService;
 import com.lumiere.app.service.dto.FlashSaleDTO;
 import com.lumiere.app.service.kafka.NotificationProducerService;
 import com.lumiere.app.service.mapper.FlashSaleMapper;
@@ -32,14 +33,18 @@ public class FlashSaleServiceImpl implements FlashSaleService {
 
     private final NotificationProducerService notificationProducerService;
 
+    private final ProductSearchIndexService productSearchIndexService;
+
     public FlashSaleServiceImpl(
         FlashSaleRepository flashSaleRepository, 
         FlashSaleMapper flashSaleMapper,
-        NotificationProducerService notificationProducerService
+        NotificationProducerService notificationProducerService,
+        ProductSearchIndexService productSearchIndexService
     ) {
         this.flashSaleRepository = flashSaleRepository;
         this.flashSaleMapper = flashSaleMapper;
         this.notificationProducerService = notificationProducerService;
+        this.productSearchIndexService = productSearchIndexService;
     }
 
     @Override
@@ -95,6 +100,7 @@ public class FlashSaleServiceImpl implements FlashSaleService {
         validateFlashSale(flashSaleDTO);
         FlashSale flashSale = flashSaleMapper.toEntity(flashSaleDTO);
         flashSale = flashSaleRepository.save(flashSale);
+        productSearchIndexService.markFlashSaleChanged(flashSale.getId());
         return flashSaleMapper.toDto(flashSale);
     }
 
@@ -110,7 +116,10 @@ public class FlashSaleServiceImpl implements FlashSaleService {
                 return existingFlashSale;
             })
             .map(flashSaleRepository::save)
-            .map(flashSaleMapper::toDto);
+            .map(flashSale -> {
+                productSearchIndexService.markFlashSaleChanged(flashSale.getId());
+                return flashSaleMapper.toDto(flashSale);
+            });
     }
 
     @Override
@@ -130,6 +139,7 @@ public class FlashSaleServiceImpl implements FlashSaleService {
     @Override
     public void delete(Long id) {
         LOG.debug("Request to delete FlashSale : {}", id);
+        productSearchIndexService.markFlashSaleChanged(id);
         flashSaleRepository.deleteById(id);
     }
 
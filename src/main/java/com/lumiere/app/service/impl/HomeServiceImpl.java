@@ -135,51 +135,46 @@ public class HomeServiceImpl implements HomeService {
     public List<CategoryWithProductsDTO> getShopByCategory(int productsPerCategory) {
         LOG.debug("Request to get shop by category with {} products per category", productsPerCategory);
 
-        // Lấy tất cả categories (chỉ lấy categories cha, không lấy con)
-        List<Category> categories = categoryRepository.findAll().stream()
-            .filter(c -> c.getFatherId() == null) // Chỉ lấy categories cha
-            .toList();
+        // Chỉ lấy categories cha
+        List<Category> categories = categoryRepository.findByFatherIdIsNull();
 
         if (categories.isEmpty()) {
             return Collections.emptyList();
         }
 
-        List<CategoryWithProductsDTO> result = new ArrayList<>();
-
+        // Lấy ID sản phẩm mẫu cho từng category, sau đó nạp products với attachments bằng một truy vấn
+        Map<Long, List<Long>> productIdsByCategory = new LinkedHashMap<>();
+        List<Long> allProductIds = new ArrayList<>();
+        Pageable pageable = PageRequest.of(0, productsPerCategory, Sort.by(Sort.Direction.DESC, "createdAt"));
         for (Category category : categories) {
-            CategoryWithProductsDTO dto = new CategoryWithProductsDTO(
-                category.getId(),
-                category.getName(),
-                category.getFatherId()
-            );
-
-            // Lấy sản phẩm mẫu cho category này
-            Pageable pageable = PageRequest.of(0, productsPerCategory, Sort.by(Sort.Direction.DESC, "createdAt"));
-            List<Product> products = productRepository.findAll(
+            List<Long> productIds = productRepository.findAll(
                 (root, query, cb) -> cb.and(
                     cb.equal(root.get("categoryId"), category.getId()),
                     cb.equal(root.get("status"), ProductStatus.ACTIVE)
                 ),
                 pageable
-            ).getContent();
-
-            if (!products.isEmpty()) {
-                List<Long> productIds = products.stream().map(Product::getId).toList();
-                List<Product> productsWithAttachments = productRepository.findWithAttachmentsByIdIn(productIds);
-                
-                // Sắp xếp lại theo thứ tự
-                Map<Long, Product> productMap = productsWithAttachments.stream()
-                    .collect(Collectors.toMap(Product::getId, p -> p));
-                
-                List<ProductDTO> productDTOs = productIds.stream()
-                    .map(productMap::get)
-                    .filter(Objects::nonNull)
-                    .map(productMapper::toDto)
-                    .toList();
-
-                dto.setProducts(productDTOs);
-            }
+            ).getContent().stream().map(Product::getId).toList();
+            productIdsByCategory.put(category.getId(), productIds);
+            allProductIds.addAll(productIds);
+        }
+
+        Map<Long, ProductDTO> productMap = allProductIds.isEmpty()
+            ? Collections.emptyMap()
+            : productRepository.findWithAttachmentsByIdIn(allProductIds).stream()
+                .collect(Collectors.toMap(Product::getId, productMapper::toDto, (a, b) -> a));
 
+        List<CategoryWithProductsDTO> result = new ArrayList<>();
+        for (Category category : categories) {
+            CategoryWithProductsDTO dto = new CategoryWithProductsDTO(
+                category.getId(),
+                category.getName(),
+                category.getFatherId()
+            );
+            // Giữ thứ tự createdAt
+            dto.setProducts(productIdsByCategory.get(category.getId()).stream()
+                .map(productMap::get)
+                .filter(Objects::nonNull)
+                .toList());
             result.add(dto);
         }
 
@@ -2,9 +2,11 @@ package com.lumiere.app.service.impl;
 import com.lumiere.app.domain.Inventory;
 import com.lumiere.app.domain.InventoryAdjustment;
 import com.lumiere.app.domain.enumeration.AdjustmentType;
+import com.lumiere.app.domain.enumeration.StockMovementReason;
 import com.lumiere.app.repository.InventoryAdjustmentRepository;
 import com.lumiere.app.repository.InventoryRepository;
 import com.lumiere.app.service.InventoryBulkService;
+import com.lumiere.app.service.StockLedgerService;
 import com.lumiere.app.service.dto.BulkAdjustRequestDTO;
 import com.lumiere.app.service.dto.BulkAdjustResponseDTO;
 import com.lumiere.app.service.dto.InventoryAdjustItemDTO;
@@ -23,6 +25,7 @@ public class InventoryBulkServiceImpl implements InventoryBulkService {
 
     private final InventoryRepository inventoryRepository;
     private final InventoryAdjustmentRepository adjustmentRepository;
+    private final StockLedgerService stockLedgerService;
 
     @Override
     @Transactional
@@ -42,6 +45,8 @@ public class InventoryBulkServiceImpl implements InventoryBulkService {
         // 3) Tính before/after & validate
         List<InventoryAdjustment> logs = new ArrayList<>(inventories.size());
         List<Long> updatedIds = new ArrayList<>(inventories.size());
+        List<StockLedgerService.Movement> movements = new ArrayList<>(inventories.size());
+        String movementNote = "Điều chỉnh hàng loạt " + (req.getRefCode() != null ? req.getRefCode() : batchId);
 
         for (Inventory inv : inventories) {
             InventoryAdjustItemDTO it = merged.get(inv.getId());
@@ -78,11 +83,18 @@ public class InventoryBulkServiceImpl implements InventoryBulkService {
             logEntity.setCreatedAt(now);
 
             logs.add(logEntity);
+
+            if (inv.getProductVariant() != null) {
+                Long warehouseId = inv.getWarehouse() != null ? inv.getWarehouse().getId() : null;
+                movements.add(new StockLedgerService.Movement(
+                    inv.getProductVariant().getId(), warehouseId, after - before, StockMovementReason.ADJUSTMENT, movementNote));
+            }
         }
 
         // 4) Ghi DB (batch insert/update nếu đã bật hibernate.jdbc.batch_size)
         inventoryRepository.saveAll(inventories);
         adjustmentRepository.saveAll(logs);
+        stockLedgerService.record(movements);
 
         log.info("Bulk adjust done: batchId={}, affected={}", batchId, updatedIds.size());
         return new BulkAdjustResponseDTO(batchId, updatedIds.size(), updatedIds);
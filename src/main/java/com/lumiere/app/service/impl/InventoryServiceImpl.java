@@ -1,14 +1,18 @@
 package com.lumiere.app.service.impl;
 
 import com.lumiere.app.domain.Inventory;
+import com.lumiere.app.domain.enumeration.StockMovementReason;
 import com.lumiere.app.repository.InventoryRepository;
 import com.lumiere.app.service.InventoryService;
 import com.lumiere.app.service.ProductVariantService;
+import com.lumiere.app.service.StockLedgerService;
 import com.lumiere.app.service.dto.InventoryDTO;
 import com.lumiere.app.service.dto.ProductVariantDTO;
 import com.lumiere.app.service.mapper.InventoryMapper;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -21,6 +25,9 @@ import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Service Implementation for managing {@link com.lumiere.app.domain.Inventory}.
+ * <p>
+ * Mọi thay đổi tồn kho (tạo, sửa, xóa inventory) được ghi vào sổ kho qua {@link StockLedgerService}. Dòng inventory
+ * được khóa trước khi đọc tồn kho cũ, nên chênh lệch ghi vào sổ kho đúng cả khi có cập nhật hoặc trừ kho song song.
  */
 @Service
 @Transactional
@@ -32,11 +39,18 @@ public class InventoryServiceImpl implements InventoryService {
 
     private final InventoryMapper inventoryMapper;
     private final ProductVariantService productVariantService;
-
-    public InventoryServiceImpl(InventoryRepository inventoryRepository, InventoryMapper inventoryMapper, ProductVariantService productVariantService) {
+    private final StockLedgerService stockLedgerService;
+
+    public InventoryServiceImpl(
+        InventoryRepository inventoryRepository,
+        InventoryMapper inventoryMapper,
+        ProductVariantService productVariantService,
+        StockLedgerService stockLedgerService
+    ) {
         this.inventoryRepository = inventoryRepository;
         this.inventoryMapper = inventoryMapper;
         this.productVariantService = productVariantService;
+        this.stockLedgerService = stockLedgerService;
     }
 
     @Override
@@ -44,14 +58,18 @@ public class InventoryServiceImpl implements InventoryService {
         LOG.debug("Request to save Inventory : {}", inventoryDTO);
         Inventory inventory = inventoryMapper.toEntity(inventoryDTO);
         inventory = inventoryRepository.save(inventory);
+        recordStockChange(null, snapshotOf(inventory), StockMovementReason.INITIAL_STOCK, "Tạo inventory #" + inventory.getId());
         return inventoryMapper.toDto(inventory);
     }
 
     @Override
     public InventoryDTO update(InventoryDTO inventoryDTO) {
         LOG.debug("Request to update Inventory : {}", inventoryDTO);
+        StockSnapshot before = findForUpdate(inventoryDTO.getId()).map(InventoryServiceImpl::snapshotOf).orElse(null);
+        // save() gộp DTO vào chính dòng đã khóa
         Inventory inventory = inventoryMapper.toEntity(inventoryDTO);
         inventory = inventoryRepository.save(inventory);
+        recordStockChange(before, snapshotOf(inventory), StockMovementReason.ADJUSTMENT, "Cập nhật inventory #" + inventory.getId());
         return inventoryMapper.toDto(inventory);
     }
 
@@ -59,14 +77,14 @@ public class InventoryServiceImpl implements InventoryService {
     public Optional<InventoryDTO> partialUpdate(InventoryDTO inventoryDTO) {
         LOG.debug("Request to partially update Inventory : {}", inventoryDTO);
 
-        return inventoryRepository
-            .findById(inventoryDTO.getId())
+        return findForUpdate(inventoryDTO.getId())
             .map(existingInventory -> {
+                StockSnapshot before = snapshotOf(existingInventory);
                 inventoryMapper.partialUpdate(existingInventory, inventoryDTO);
-
-                return existingInventory;
+                Inventory saved = inventoryRepository.save(existingInventory);
+                recordStockChange(before, snapshotOf(saved), StockMovementReason.ADJUSTMENT, "Cập nhật inventory #" + saved.getId());
+                return saved;
             })
-            .map(inventoryRepository::save)
             .map(inventoryMapper::toDto);
     }
 
@@ -84,7 +102,9 @@ public class InventoryServiceImpl implements InventoryService {
     @Override
     public void delete(Long id) {
         LOG.debug("Request to delete Inventory : {}", id);
+        StockSnapshot before = findForUpdate(id).map(InventoryServiceImpl::snapshotOf).orElse(null);
         inventoryRepository.deleteById(id);
+        recordStockChange(before, null, StockMovementReason.ADJUSTMENT, "Xóa inventory #" + id);
     }
 
     @Override
@@ -98,4 +118,50 @@ public class InventoryServiceImpl implements InventoryService {
 
         return inventoryDTOS;
     }
+
+    /**
+     * Ghi vào sổ kho phần chênh lệch tồn kho của một inventory; nếu inventory đổi variant hoặc warehouse
+     * thì ghi xuất kho ở chỗ cũ và nhập kho ở chỗ mới.
+     */
+    private void recordStockChange(StockSnapshot before, StockSnapshot after, StockMovementReason reason, String note) {
+        List<StockLedgerService.Movement> movements = new ArrayList<>(2);
+        if (before != null && after != null && before.sameKey(after)) {
+            if (after.productVariantId() == null) {
+                return;
+            }
+            movements.add(new StockLedgerService.Movement(after.productVariantId(), after.warehouseId(), after.quantity() - before.quantity(), reason, note));
+        } else {
+            if (before != null && before.productVariantId() != null) {
+                movements.add(new StockLedgerService.Movement(before.productVariantId(), before.warehouseId(), -before.quantity(), reason, note));
+            }
+            if (after != null && after.productVariantId() != null) {
+                movements.add(new StockLedgerService.Movement(after.productVariantId(), after.warehouseId(), after.quantity(), reason, note));
+            }
+        }
+        stockLedgerService.record(movements);
+    }
+
+    /**
+     * Inventory có khóa ghi (giữ đến hết transaction).
+     */
+    private Optional<Inventory> findForUpdate(Long id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        return inventoryRepository.findAllByIdForUpdate(List.of(id)).stream().findFirst();
+    }
+
+    private static StockSnapshot snapshotOf(Inventory inventory) {
+        return new StockSnapshot(
+            inventory.getProductVariant() != null ? inventory.getProductVariant().getId() : null,
+            inventory.getWarehouse() != null ? inventory.getWarehouse().getId() : null,
+            inventory.getStockQuantity() != null ? inventory.getStockQuantity() : 0L
+        );
+    }
+
+    private record StockSnapshot(Long productVariantId, Long warehouseId, long quantity) {
+        boolean sameKey(StockSnapshot other) {
+            return Objects.equals(productVariantId, other.productVariantId) && Objects.equals(warehouseId, other.warehouseId);
+        }
+    }
 }
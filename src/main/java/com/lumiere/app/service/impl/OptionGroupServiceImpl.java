@@ -3,6 +3,7 @@ package com.lumiere.app.service.impl;
 
 import com.lumiere.app.domain.OptionGroup;
 import com.lumiere.app.repository.OptionGroupRepository;
+import com.lumiere.app.service.OptionCombinationIndexService;
 import com.lumiere.app.service.OptionGroupService;
 import com.lumiere.app.service.dto.OptionGroupDTO;
 import com.lumiere.app.service.dto.OptionSelectDTO;
@@ -23,6 +24,7 @@ public class OptionGroupServiceImpl implements OptionGroupService {
     private final OptionGroupMapper mapper;
     private final OptionSelectMapper optionSelectMapper;
     private final com.lumiere.app.repository.OptionVariantRepository optionVariantRepo;
+    private final OptionCombinationIndexService optionCombinationIndexService;
 
     @Override
     public OptionGroupDTO create(OptionGroupDTO dto) {
@@ -67,6 +69,9 @@ public class OptionGroupServiceImpl implements OptionGroupService {
     public void delete(Long id) {
         OptionGroup group = repo.findById(id).orElse(null);
         if (group != null) {
+            if (group.getProduct() != null) {
+                optionCombinationIndexService.invalidate(List.of(group.getProduct().getId()));
+            }
             List<Long> selectIds = group.getSelects().stream().map(com.lumiere.app.domain.OptionSelect::getId).toList();
             if (!selectIds.isEmpty()) {
                 List<com.lumiere.app.domain.OptionVariant> optionVariants = optionVariantRepo.findByOptionSelect_IdIn(selectIds);
@@ -5,6 +5,7 @@ import com.lumiere.app.domain.OptionGroup;
 import com.lumiere.app.domain.OptionSelect;
 import com.lumiere.app.repository.OptionGroupRepository;
 import com.lumiere.app.repository.OptionSelectRepository;
+import com.lumiere.app.service.OptionCombinationIndexService;
 import com.lumiere.app.service.OptionSelectService;
 import com.lumiere.app.service.dto.OptionSelectDTO;
 import com.lumiere.app.service.mapper.OptionSelectMapper;
@@ -23,6 +24,7 @@ public class OptionSelectServiceImpl implements OptionSelectService {
     private final OptionGroupRepository optionGroupRepo;
     private final OptionSelectMapper mapper;
     private final com.lumiere.app.repository.OptionVariantRepository optionVariantRepo;
+    private final OptionCombinationIndexService optionCombinationIndexService;
 
     @Override
     public OptionSelectDTO create(OptionSelectDTO dto) {
@@ -62,6 +64,7 @@ public class OptionSelectServiceImpl implements OptionSelectService {
 
     @Override
     public void delete(Long id) {
+        optionCombinationIndexService.invalidate(repo.findProductIdsByIdIn(List.of(id)));
         List<com.lumiere.app.domain.OptionVariant> optionVariants = optionVariantRepo.findByOptionSelect_IdIn(List.of(id));
         optionVariantRepo.deleteAllInBatch(optionVariants);
         repo.deleteById(id);
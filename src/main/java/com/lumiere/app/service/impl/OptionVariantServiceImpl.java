@@ -9,8 +9,11 @@ import com.lumiere.app.repository.OptionSelectRepository;
 import com.lumiere.app.repository.OptionVariantRepository;
 import com.lumiere.app.repository.ProductRepository;
 import com.lumiere.app.repository.ProductVariantRepository;
+import com.lumiere.app.service.OptionCombinationIndexService;
 import com.lumiere.app.service.OptionVariantService;
+import com.lumiere.app.service.ProductSearchIndexService;
 import com.lumiere.app.service.dto.GroupSelectReq;
+import com.lumiere.app.service.dto.OptionAvailabilityDTO;
 import com.lumiere.app.service.dto.OptionVariantDTO;
 import com.lumiere.app.service.dto.ProductVariantDTO;
 import com.lumiere.app.service.dto.SyncMixResult;
@@ -34,9 +37,12 @@ public class OptionVariantServiceImpl implements OptionVariantService {
     private final ProductRepository productRepository;
     private final OptionSelectRepository optionSelectRepository;
     private final ProductVariantMapper productVariantMapper;
+    private final ProductSearchIndexService productSearchIndexService;
+    private final OptionCombinationIndexService optionCombinationIndexService;
 
     @Override
     public List<OptionVariantDTO> assign(Long variantId, List<Long> optionSelectIds) {
+        optionCombinationIndexService.invalidate(productVariantRepository.findProductIdsByIdIn(List.of(variantId)));
         List<OptionVariantDTO> created = new ArrayList<>();
         for (Long sid : optionSelectIds) {
             if (repo.existsByProductVariant_IdAndOptionSelect_Id(variantId, sid)) continue;
@@ -49,6 +55,7 @@ public class OptionVariantServiceImpl implements OptionVariantService {
 
     @Override
     public void unassign(Long variantId, Long selectId) {
+        optionCombinationIndexService.invalidate(productVariantRepository.findProductIdsByIdIn(List.of(variantId)));
         repo.deleteByProductVariant_IdAndOptionSelect_Id(variantId, selectId);
     }
 
@@ -73,6 +80,9 @@ public class OptionVariantServiceImpl implements OptionVariantService {
     @Override
     @Transactional
     public SyncMixResult syncVariantMixes(Long productId, List<GroupSelectReq> groups) {
+        productSearchIndexService.markProductsChanged(List.of(productId));
+        optionCombinationIndexService.invalidate(List.of(productId));
+
         // (0) Chuẩn hoá input – bỏ group trống
         List<GroupSelectReq> normalized = groups.stream().filter(g -> g.getSelectIds() != null && !g.getSelectIds().isEmpty()).toList();
 
@@ -91,13 +101,8 @@ public class OptionVariantServiceImpl implements OptionVariantService {
             return SyncMixResult.builder().createdVariantIds(List.of()).deletedVariantIds(delIds).keptVariantIds(List.of()).build();
         }
 
-        // (1) Sinh cartesian mixes
-        List<List<Long>> newMixes = cartesian(normalized.stream().map(GroupSelectReq::getSelectIds).toList());
-
-        // Key canonical
-        Map<String, List<Long>> newKeyToMix = newMixes
-            .stream()
-            .collect(Collectors.toMap(this::keyOf, mix -> mix, (a, b) -> a, LinkedHashMap::new));
+        // (1) Sinh cartesian mixes theo key canonical
+        Map<String, List<Long>> newKeyToMix = mixesByKey(normalized);
         Set<String> newKeys = newKeyToMix.keySet();
 
         // (2) Load biến thể hiện có
@@ -121,7 +126,7 @@ public class OptionVariantServiceImpl implements OptionVariantService {
                 toDeleteIds.add(pv.getId());
                 continue;
             }
-            String key = keyOf(new ArrayList<>(sids));
+            String key = OptionCombinationIndexService.keyOf(sids);
 
             // Nếu key này là một phần của newKeys và CHƯA có variant nào xí chỗ
             if (newKeys.contains(key) && !validExistingMixes.containsKey(key)) {
@@ -213,7 +218,17 @@ public class OptionVariantServiceImpl implements OptionVariantService {
 
     // ==== Helpers ====
 
-    private List<List<Long>> cartesian(List<List<Long>> lists) {
+    /**
+     * Các tổ hợp (cartesian) của các group theo key canonical ({@link OptionCombinationIndexService#keyOf}),
+     * giữ thứ tự sinh; tổ hợp trùng key chỉ giữ lần đầu.
+     */
+    static Map<String, List<Long>> mixesByKey(List<GroupSelectReq> groups) {
+        return cartesian(groups.stream().map(GroupSelectReq::getSelectIds).toList())
+            .stream()
+            .collect(Collectors.toMap(OptionCombinationIndexService::keyOf, mix -> mix, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    private static List<List<Long>> cartesian(List<List<Long>> lists) {
         List<List<Long>> result = new ArrayList<>();
         result.add(new ArrayList<>());
         for (List<Long> list : lists) {
@@ -230,18 +245,6 @@ public class OptionVariantServiceImpl implements OptionVariantService {
         return result;
     }
 
-    private String keyOf(List<Long> selectIds) {
-        // sort & join
-        java.util.List<Long> sorted = new java.util.ArrayList<>(selectIds);
-        java.util.Collections.sort(sorted);
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < sorted.size(); i++) {
-            if (i > 0) sb.append("-");
-            sb.append(sorted.get(i));
-        }
-        return sb.toString();
-    }
-
     private String buildVariantName(String productName, List<Long> selectIds, Map<Long, OptionSelect> selectMap) {
         // Sử dụng name của option thay vì ID
         List<String> optionNames = new ArrayList<>();
@@ -258,7 +261,7 @@ public class OptionVariantServiceImpl implements OptionVariantService {
     private String generateSku(Product product, List<Long> selectIds) {
         // Demo rule: PRODCODE-<joinedSelectIds>-<timestamp6>
         String prefix = (product.getCode() != null ? product.getCode() : "P" + product.getId());
-        String joined = keyOf(selectIds).replace("-", ".");
+        String joined = OptionCombinationIndexService.keyOf(selectIds).replace("-", ".");
         String suffix = String.valueOf(System.currentTimeMillis()).substring(7); // tạm
         return prefix + "-" + joined + "-" + suffix;
     }
@@ -270,48 +273,8 @@ public class OptionVariantServiceImpl implements OptionVariantService {
             return null;
         }
 
-        // Chuẩn hóa: bỏ trùng
-        Set<Long> targetSet = new HashSet<>(selectOptions);
-
-        // 1) Lấy tất cả OptionVariant có selectId thuộc targetSet
-        List<OptionVariant> candidateMappings = repo.findByOptionSelect_IdIn(targetSet);
-
-        if (candidateMappings.isEmpty()) {
-            return null;
-        }
-
-        // 2) Lấy danh sách variantId ứng viên
-        Set<Long> candidateVariantIds = candidateMappings.stream().map(ov -> ov.getProductVariant().getId()).collect(Collectors.toSet());
-
-        if (candidateVariantIds.isEmpty()) {
-            return null;
-        }
-
-        // 3) Lấy TẤT CẢ mapping của các variant ứng viên
-        List<OptionVariant> allMappingsForCandidates = repo.findByProductVariant_idIn(candidateVariantIds);
-
-        // 4) Gom thành: variantId -> set<selectId>
-        Map<Long, Set<Long>> variantToSelectIds = allMappingsForCandidates
-            .stream()
-            .collect(
-                Collectors.groupingBy(
-                    ov -> ov.getProductVariant().getId(),
-                    Collectors.mapping(ov -> ov.getOptionSelect().getId(), Collectors.toSet())
-                )
-            );
-
-        // 5) Tìm variant có selectIds == targetSet (exact match)
-        Long matchedVariantId = variantToSelectIds
-            .entrySet()
-            .stream()
-            .filter(e -> {
-                Set<Long> variantSet = e.getValue();
-                return variantSet.size() == targetSet.size() && variantSet.containsAll(targetSet);
-            })
-            .map(Map.Entry::getKey)
-            .findFirst()
-            .orElse(null);
-
+        // Tra index tổ hợp option của sản phẩm (key canonical → variantId)
+        Long matchedVariantId = optionCombinationIndexService.findVariantId(selectOptions);
         if (matchedVariantId == null) {
             return null;
         }
@@ -324,4 +287,10 @@ public class OptionVariantServiceImpl implements OptionVariantService {
 
         return productVariantMapper.toDto(variant);
     }
+
+    @Transactional(readOnly = true)
+    @Override
+    public OptionAvailabilityDTO findAvailableCombinations(Long productId, List<Long> selectOptions) {
+        return optionCombinationIndexService.findAvailableCombinations(productId, selectOptions == null ? List.of() : selectOptions);
+    }
 }
@@ -11,7 +11,6 @@ import com.lumiere.app.domain.enumeration.ReviewStatus;
 import com.lumiere.app.repository.*;
 import com.lumiere.app.security.SecurityUtils;
 import com.lumiere.app.service.*;
-import com.lumiere.app.service.FlashSaleProductService;
 import com.lumiere.app.service.OrderStockRestoreService;
 import com.lumiere.app.service.dto.*;
 import com.lumiere.app.service.dto.OrderStockProcessingMessage;
@@ -19,24 +18,28 @@ import com.lumiere.app.service.kafka.NotificationProducerService;
 import com.lumiere.app.service.kafka.OrderStockProducerService;
 import com.lumiere.app.service.mapper.OrderStatusHistoryMapper;
 import com.lumiere.app.service.mapper.OrdersMapper;
-import com.lumiere.app.service.mapper.ProductMapper;
 import com.lumiere.app.service.mapper.ProductVariantMapper;
-import com.lumiere.app.utils.RatingUtils;
 import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.http.HttpServletResponse;
 import java.math.BigDecimal;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -55,6 +58,12 @@ public class OrdersServiceImpl implements OrdersService {
 
     private static final Logger LOG = LoggerFactory.getLogger(OrdersServiceImpl.class);
 
+    /** Số dòng Excel giữ trong bộ nhớ khi xuất danh sách đơn hàng. */
+    private static final int EXPORT_ROW_WINDOW = 200;
+
+    /** Độ rộng cột (số ký tự) của file Excel danh sách đơn hàng. */
+    private static final int[] EXPORT_COLUMN_WIDTHS = { 28, 18, 28, 14, 14, 24, 18, 40 };
+
     private final OrdersRepository ordersRepository;
     private final OrdersMapper ordersMapper;
 
@@ -66,7 +75,6 @@ public class OrdersServiceImpl implements OrdersService {
 
     private final OrderItemService orderItemService;
     private final CartItemRepository cartItemRepository;
-    private final ProductVariantRepository productVariantRepository;
     private final OrderItemRepository orderItemRepository;
     private final OrderStatusHistoryRepository orderStatusHistoryRepository;
     private final OrderStatusHistoryMapper orderStatusHistoryMapper;
@@ -82,12 +90,13 @@ public class OrdersServiceImpl implements OrdersService {
     private final ProductVariantMapper productVariantMapper;
     private final KafkaTemplate<String, Object> kafkaTemplate;
     private final InventoryRepository inventoryRepository;
-    private final ProductMapper productMapper;
-    private final ProductService productService;
     private final NotificationProducerService notificationProducerService;
     private final OrderStockProducerService orderStockProducerService;
     private final OrderStockRestoreService orderStockRestoreService;
-    private final FlashSaleProductService flashSaleProductService;
+    private final CheckoutPricingService checkoutPricingService;
+    private final DashboardMetricsService dashboardMetricsService;
+    private final ReviewRatingListener reviewRatingListener;
+    private final HomeFeedService homeFeedService;
 
     public OrdersServiceImpl(
         OrdersRepository ordersRepository,
@@ -96,7 +105,6 @@ public class OrdersServiceImpl implements OrdersService {
         OrdersQueryService ordersQueryService,
         OrderItemService orderItemService,
         CartItemRepository cartItemRepository,
-        ProductVariantRepository productVariantRepository,
         OrderItemRepository orderItemRepository,
         OrderStatusHistoryRepository orderStatusHistoryRepository,
         OrderStatusHistoryMapper orderStatusHistoryMapper,
@@ -109,12 +117,13 @@ public class OrdersServiceImpl implements OrdersService {
         ProductVariantMapper productVariantMapper,
         KafkaTemplate<String, Object> kafkaTemplate,
         InventoryRepository inventoryRepository,
-        ProductMapper productMapper,
-        ProductService productService,
         NotificationProducerService notificationProducerService,
         OrderStockProducerService orderStockProducerService,
         OrderStockRestoreService orderStockRestoreService,
-        FlashSaleProductService flashSaleProductService
+        CheckoutPricingService checkoutPricingService,
+        DashboardMetricsService dashboardMetricsService,
+        ReviewRatingListener reviewRatingListener,
+        HomeFeedService homeFeedService
     ) {
         this.ordersRepository = ordersRepository;
         this.ordersMapper = ordersMapper;
@@ -122,7 +131,6 @@ public class OrdersServiceImpl implements OrdersService {
         this.ordersQueryService = ordersQueryService;
         this.orderItemService = orderItemService;
         this.cartItemRepository = cartItemRepository;
-        this.productVariantRepository = productVariantRepository;
         this.orderItemRepository = orderItemRepository;
         this.orderStatusHistoryRepository = orderStatusHistoryRepository;
         this.orderStatusHistoryMapper = orderStatusHistoryMapper;
@@ -135,12 +143,13 @@ public class OrdersServiceImpl implements OrdersService {
         this.productVariantMapper = productVariantMapper;
         this.kafkaTemplate = kafkaTemplate;
         this.inventoryRepository = inventoryRepository;
-        this.productMapper = productMapper;
-        this.productService = productService;
         this.notificationProducerService = notificationProducerService;
         this.orderStockProducerService = orderStockProducerService;
         this.orderStockRestoreService = orderStockRestoreService;
-        this.flashSaleProductService = flashSaleProductService;
+        this.checkoutPricingService = checkoutPricingService;
+        this.dashboardMetricsService = dashboardMetricsService;
+        this.reviewRatingListener = reviewRatingListener;
+        this.homeFeedService = homeFeedService;
     }
 
     @Override
@@ -148,14 +157,17 @@ public class OrdersServiceImpl implements OrdersService {
         LOG.debug("Request to save Orders : {}", ordersDTO);
         Orders orders = ordersMapper.toEntity(ordersDTO);
         orders = ordersRepository.save(orders);
+        onStatusChanged(orders, null, orders.getStatus());
         return ordersMapper.toDto(orders);
     }
 
     @Override
     public OrdersDTO update(OrdersDTO ordersDTO) {
         LOG.debug("Request to update Orders : {}", ordersDTO);
+        OrderStatus oldStatus = ordersRepository.findById(ordersDTO.getId()).map(Orders::getStatus).orElse(null);
         Orders orders = ordersMapper.toEntity(ordersDTO);
         orders = ordersRepository.save(orders);
+        onStatusChanged(orders, oldStatus, orders.getStatus());
         return ordersMapper.toDto(orders);
     }
 
@@ -166,14 +178,30 @@ public class OrdersServiceImpl implements OrdersService {
         return ordersRepository
             .findById(ordersDTO.getId())
             .map(existingOrders -> {
+                OrderStatus oldStatus = existingOrders.getStatus();
                 ordersMapper.partialUpdate(existingOrders, ordersDTO);
-
-                return existingOrders;
+                Orders saved = ordersRepository.save(existingOrders);
+                onStatusChanged(saved, oldStatus, saved.getStatus());
+                return saved;
             })
-            .map(ordersRepository::save)
             .map(ordersMapper::toDto);
     }
 
+    /**
+     * Cập nhật số liệu dashboard và home feed khi trạng thái đơn thay đổi qua các API CRUD;
+     * đơn chuyển sang CANCELLED được đưa vào hàng đợi hoàn kho (trả lại tồn kho và suất flash sale).
+     */
+    private void onStatusChanged(Orders order, OrderStatus oldStatus, OrderStatus newStatus) {
+        if (oldStatus == newStatus) {
+            return;
+        }
+        dashboardMetricsService.onOrderStatusChanged(order, oldStatus, newStatus);
+        homeFeedService.onOrderStatusChanged(oldStatus, newStatus);
+        if (newStatus == OrderStatus.CANCELLED && order.getId() != null) {
+            orderStockRestoreService.enqueue(order.getId());
+        }
+    }
+
     public Page<OrdersDTO> findAllWithEagerRelationships(Pageable pageable) {
         return ordersRepository.findAllWithEagerRelationships(pageable).map(ordersMapper::toDto);
     }
@@ -198,6 +226,7 @@ public class OrdersServiceImpl implements OrdersService {
     @Override
     public void delete(Long id) {
         LOG.debug("Request to delete Orders : {}", id);
+        ordersRepository.findById(id).ifPresent(order -> onStatusChanged(order, order.getStatus(), null));
         ordersRepository.deleteById(id);
     }
 
@@ -394,14 +423,20 @@ public class OrdersServiceImpl implements OrdersService {
 
     @Override
     @Transactional(readOnly = true)
-    public void exportOrdersToExcel(HttpServletResponse response) {
-        LOG.debug("Request to export all orders to Excel");
-
-        // Lấy tất cả đơn hàng
-        List<Orders> orders = ordersRepository.findAllWithToOneRelationships();
-        List<OrdersDTO> ordersDTO = orders.stream().map(ordersMapper::toDto).collect(Collectors.toList());
-
-        try (Workbook wb = new XSSFWorkbook()) {
+    public void exportOrdersToExcel(LocalDate fromDate, LocalDate toDate, List<OrderStatus> statuses, HttpServletResponse response) {
+        LOG.debug("Request to export orders to Excel, fromDate: {}, toDate: {}, statuses: {}", fromDate, toDate, statuses);
+
+        ZoneId zone = ZoneId.systemDefault();
+        Instant from = fromDate != null ? fromDate.atStartOfDay(zone).toInstant() : null;
+        Instant to = toDate != null ? toDate.plusDays(1).atStartOfDay(zone).toInstant() : null;
+        // Không lọc trạng thái: lấy mọi đơn, kể cả đơn chưa có trạng thái
+        boolean allStatuses = statuses == null || statuses.isEmpty();
+        List<OrderStatus> statusFilter = allStatuses ? Arrays.asList(OrderStatus.values()) : statuses;
+
+        // SXSSF chỉ giữ EXPORT_ROW_WINDOW dòng trong bộ nhớ, phần còn lại được ghi ra file tạm
+        SXSSFWorkbook wb = new SXSSFWorkbook(EXPORT_ROW_WINDOW);
+        wb.setCompressTempFiles(true);
+        try (Stream<OrderExportRow> rows = ordersRepository.streamExportRows(from, to, allStatuses, statusFilter)) {
             // ====== Styles ======
             Font fTitle = wb.createFont();
             fTitle.setBold(true);
@@ -458,21 +493,33 @@ public class OrdersServiceImpl implements OrdersService {
                 Cell cell = headerRow.createCell(i);
                 cell.setCellValue(headers[i]);
                 cell.setCellStyle(sHdr);
+                // SXSSF không auto-size được trên toàn bộ dữ liệu nên đặt độ rộng cố định
+                sheet.setColumnWidth(i, EXPORT_COLUMN_WIDTHS[i] * 256);
             }
 
+            // ===== Headers HTTP (trước khi ghi body) =====
+            String filename = URLEncoder.encode(
+                "danh_sach_don_hang_" + DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss").format(Instant.now().atZone(zone)) + ".xlsx",
+                StandardCharsets.UTF_8
+            );
+            response.setHeader("Content-Disposition", "attachment; filename*=UTF-8''" + filename);
+            response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+
             // ===== Dữ liệu đơn hàng =====
-            for (OrdersDTO order : ordersDTO) {
+            Iterator<OrderExportRow> it = rows.iterator();
+            while (it.hasNext()) {
+                OrderExportRow order = it.next();
                 Row row = sheet.createRow(r++);
 
                 // Mã đơn hàng
                 Cell cell0 = row.createCell(0);
-                cell0.setCellValue(safe(order.getCode()));
+                cell0.setCellValue(safe(order.code()));
                 cell0.setCellStyle(sText);
 
                 // Ngày đặt
                 Cell cell1 = row.createCell(1);
-                if (order.getPlacedAt() != null) {
-                    cell1.setCellValue(order.getPlacedAt().atZone(ZoneId.systemDefault()).toLocalDateTime());
+                if (order.placedAt() != null) {
+                    cell1.setCellValue(order.placedAt().atZone(zone).toLocalDateTime());
                     cell1.setCellStyle(sDate);
                 } else {
                     cell1.setCellValue("");
@@ -481,80 +528,46 @@ public class OrdersServiceImpl implements OrdersService {
 
                 // Khách hàng
                 Cell cell2 = row.createCell(2);
-                String customerName = "Khách vãng lai";
-                if (order.getCustomer() != null) {
-                    try {
-                        String firstName = safe(
-                            (String) order.getCustomer().getClass().getMethod("getFirstName").invoke(order.getCustomer())
-                        );
-                        String lastName = safe(
-                            (String) order.getCustomer().getClass().getMethod("getLastName").invoke(order.getCustomer())
-                        );
-                        customerName = (firstName + " " + lastName).trim();
-                        if (customerName.isEmpty()) {
-                            customerName = "Khách vãng lai";
-                        }
-                    } catch (Exception ignore) {
-                        customerName = "Khách vãng lai";
-                    }
-                }
-                cell2.setCellValue(customerName);
+                String customerName = (safe(order.customerFirstName()) + " " + safe(order.customerLastName())).trim();
+                cell2.setCellValue(customerName.isEmpty() ? "Khách vãng lai" : customerName);
                 cell2.setCellStyle(sText);
 
                 // Trạng thái
                 Cell cell3 = row.createCell(3);
-                cell3.setCellValue(safe(order.getStatus() != null ? order.getStatus().toString() : ""));
+                cell3.setCellValue(order.status() != null ? order.status().toString() : "");
                 cell3.setCellStyle(sText);
 
                 // Thanh toán
                 Cell cell4 = row.createCell(4);
-                cell4.setCellValue(safe(order.getPaymentStatus() != null ? order.getPaymentStatus().toString() : ""));
+                cell4.setCellValue(order.paymentStatus() != null ? order.paymentStatus().toString() : "");
                 cell4.setCellStyle(sText);
 
                 // Phương thức thanh toán
                 Cell cell5 = row.createCell(5);
-                cell5.setCellValue(safe(order.getPaymentMethod()));
+                cell5.setCellValue(safe(order.paymentMethod()));
                 cell5.setCellStyle(sText);
 
                 // Tổng tiền
                 Cell cell6 = row.createCell(6);
-                if (order.getTotalAmount() != null) {
-                    cell6.setCellValue(order.getTotalAmount().longValue());
-                    cell6.setCellStyle(sMoney);
-                } else {
-                    cell6.setCellValue(0);
-                    cell6.setCellStyle(sMoney);
-                }
+                cell6.setCellValue(nz(order.totalAmount()));
+                cell6.setCellStyle(sMoney);
 
                 // Ghi chú
                 Cell cell7 = row.createCell(7);
-                cell7.setCellValue(safe(order.getNote()));
+                cell7.setCellValue(safe(order.note()));
                 cell7.setCellStyle(sText);
             }
 
-            // ===== Auto-fit columns =====
-            for (int i = 0; i < headers.length; i++) {
-                sheet.autoSizeColumn(i);
-                // Tăng độ rộng một chút để dễ đọc
-                sheet.setColumnWidth(i, sheet.getColumnWidth(i) + 1000);
-            }
-
             // ===== Stream về client =====
-            String filename = URLEncoder.encode(
-                "danh_sach_don_hang_" +
-                DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss").format(Instant.now().atZone(ZoneId.systemDefault())) +
-                ".xlsx",
-                StandardCharsets.UTF_8
-            );
-            response.setHeader("Content-Disposition", "attachment; filename*=UTF-8''" + filename);
-            response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
-            try (ServletOutputStream os = response.getOutputStream()) {
-                wb.write(os);
-                os.flush();
-            }
+            ServletOutputStream os = response.getOutputStream();
+            wb.write(os);
+            os.flush();
         } catch (Exception e) {
             LOG.error("Error exporting orders to Excel", e);
             throw new RuntimeException("Export orders error", e);
+        } finally {
+            // Xóa các file tạm của SXSSF
+            wb.dispose();
         }
     }
 
@@ -586,7 +599,9 @@ public class OrdersServiceImpl implements OrdersService {
                 newCust.setPhone("");
                 newCust.setTier(CustomerTier.BRONZE);
                 newCust.setLoyaltyPoints(0);
-                return customerRepository.save(newCust);
+                Customer saved = customerRepository.save(newCust);
+                dashboardMetricsService.recordNewCustomer(userId);
+                return saved;
             });
 
         // Lấy tất cả items trong giỏ hàng
@@ -598,66 +613,30 @@ public class OrdersServiceImpl implements OrdersService {
         // Tạo mã đơn hàng duy nhất
         String orderCode = generateOrderCode();
 
-        // Tính tổng tiền sản phẩm (có tính giá flash sale nếu có) và discount từ flash sale
-        BigDecimal subtotal = BigDecimal.ZERO;
-        BigDecimal flashSaleDiscount = BigDecimal.ZERO;
-        List<CartItem> validCartItems = new ArrayList<>();
-        List<CartItem> orphanedCartItems = new ArrayList<>();
-
-        for (CartItem cartItem : cartItems) {
-            // Lấy giá gốc từ ProductVariant
-            Optional<ProductVariant> variantOpt = productVariantRepository.findById(cartItem.getVariantId());
-            if (variantOpt.isEmpty()) {
-                LOG.warn(
-                    "Product variant not found for cart item: {}, variantId: {}. Ignoring this item.",
-                    cartItem.getId(),
-                    cartItem.getVariantId()
-                );
-                orphanedCartItems.add(cartItem);
-                continue;
-            }
-            ProductVariant variant = variantOpt.get();
-            validCartItems.add(cartItem);
-
-            BigDecimal originalPrice = variant.getPrice() != null ? variant.getPrice() : BigDecimal.ZERO;
-
-            // Kiểm tra xem product variant có trong flash sale đang active không
-            BigDecimal unitPrice = originalPrice;
-            Optional<com.lumiere.app.service.dto.FlashSaleProductDTO> flashSaleProductOpt =
-                flashSaleProductService.findActiveByProductVariantId(cartItem.getVariantId());
-            if (flashSaleProductOpt.isPresent()) {
-                com.lumiere.app.service.dto.FlashSaleProductDTO flashSaleProduct = flashSaleProductOpt.get();
-                // Nếu có flash sale, sử dụng giá flash sale
-                if (flashSaleProduct.getSalePrice() != null) {
-                    unitPrice = flashSaleProduct.getSalePrice();
-                    // Tính discount từ flash sale cho item này
-                    BigDecimal itemFlashSaleDiscount = originalPrice
-                        .subtract(unitPrice)
-                        .multiply(BigDecimal.valueOf(cartItem.getQuantity()));
-                    flashSaleDiscount = flashSaleDiscount.add(itemFlashSaleDiscount);
-                }
-                flashSaleProduct.setSold(flashSaleProduct.getSold() + cartItem.getQuantity());
-                flashSaleProductService.save(flashSaleProduct);
-            }
-
-            // Tính tổng tiền cho item này
-            BigDecimal itemTotal = unitPrice.multiply(BigDecimal.valueOf(cartItem.getQuantity()));
-            subtotal = subtotal.add(itemTotal);
-        }
+        // Tính giá toàn bộ giỏ hàng (giá flash sale nếu có) bằng truy vấn gộp
+        CheckoutPricingService.Quote quote = checkoutPricingService.price(
+            cartItems
+                .stream()
+                .map(cartItem -> new CheckoutPricingService.LineRequest(cartItem.getVariantId(), cartItem.getQuantity()))
+                .collect(Collectors.toList())
+        );
 
-        // Xóa các cart item mồ côi
-        if (!orphanedCartItems.isEmpty()) {
-            cartItemRepository.deleteAll(orphanedCartItems);
+        // Xóa các cart item mồ côi (variant không còn tồn tại)
+        if (!quote.getMissingVariantIds().isEmpty()) {
+            List<CartItem> orphanedCartItems = cartItems
+                .stream()
+                .filter(cartItem -> quote.getMissingVariantIds().contains(cartItem.getVariantId()))
+                .collect(Collectors.toList());
+            LOG.warn("Product variants not found for cart items: {}. Ignoring these items.", quote.getMissingVariantIds());
+            cartItemRepository.deleteAllInBatch(orphanedCartItems);
+            cartItems.removeAll(orphanedCartItems);
             LOG.info("Deleted {} orphaned cart items for user {}", orphanedCartItems.size(), userId);
         }
 
-        if (validCartItems.isEmpty()) {
+        if (quote.getLines().isEmpty()) {
             throw new IllegalArgumentException("Cart is empty or contains only invalid items");
         }
 
-        // Sử dụng danh sách hợp lệ
-        cartItems = validCartItems;
-
         // Tính phí vận chuyển theo tier
         CustomerTier tier = customer.getTier() != null ? customer.getTier() : CustomerTier.BRONZE;
         BigDecimal shippingFee = BigDecimal.ZERO;
@@ -694,74 +673,29 @@ public class OrdersServiceImpl implements OrdersService {
             }
         }
 
-        // Tính tổng tiền (subtotal + shipping fee)
-        BigDecimal totalAmount = subtotal;
-
-        // Discount từ flash sale được tính vào discountAmount
-        BigDecimal discountAmount = flashSaleDiscount;
-        BigDecimal voucherDiscount = BigDecimal.ZERO;
-        Voucher voucher = null;
-
-        // Xử lý voucher nếu có
-        if (voucherCode != null && !voucherCode.trim().isEmpty()) {
-            try {
-                // Validate voucher
-                voucher = voucherService.validateVoucher(voucherCode, totalAmount);
-
-                // Tính số tiền giảm giá từ voucher
-                voucherDiscount = voucherService.calculateDiscountAmount(voucher, totalAmount);
-
-                // Cộng discount từ voucher vào discountAmount
-                discountAmount = discountAmount.add(voucherDiscount);
-
-                // Trừ số tiền giảm giá từ tổng tiền
-                totalAmount = totalAmount.subtract(voucherDiscount);
-                if (totalAmount.compareTo(BigDecimal.ZERO) < 0) {
-                    totalAmount = BigDecimal.ZERO;
-                }
-
-                LOG.debug("Applied voucher: {}, discount amount: {}", voucherCode, voucherDiscount);
-            } catch (IllegalArgumentException e) {
-                throw new IllegalArgumentException("Lỗi voucher: " + e.getMessage());
-            }
-        }
-
-        if (flashSaleDiscount.compareTo(BigDecimal.ZERO) > 0) {
-            LOG.debug("Flash sale discount: {}", flashSaleDiscount);
-        }
+        // Tổng tiền sản phẩm, trừ voucher và điểm tích lũy
+        BigDecimal totalAmount = quote.getSubtotal();
+        totalAmount = nonNegative(totalAmount.subtract(checkoutPricingService.applyVoucher(quote, voucherCode, totalAmount)));
+        totalAmount = nonNegative(totalAmount.subtract(checkoutPricingService.applyRedeemedPoints(quote, customer, redeemedPoints)));
+        Voucher voucher = quote.getVoucher();
 
         // Trừ điểm tích lũy nếu có
-        if (redeemedPoints != null && redeemedPoints > 0) {
-            // Kiểm tra khách hàng có đủ điểm không
+        if (quote.getRedeemedPoints() > 0) {
             Integer currentPoints = customer.getLoyaltyPoints() != null ? customer.getLoyaltyPoints() : 0;
-            if (currentPoints < redeemedPoints) {
-                throw new IllegalArgumentException(
-                    "Khách hàng không đủ điểm tích lũy. Hiện có: " + currentPoints + ", yêu cầu: " + redeemedPoints
-                );
-            }
-
-            // Giả sử 1 điểm = 1000 VND
-            BigDecimal discountFromPoints = BigDecimal.valueOf(redeemedPoints).multiply(BigDecimal.valueOf(1000));
-            totalAmount = totalAmount.subtract(discountFromPoints);
-            if (totalAmount.compareTo(BigDecimal.ZERO) < 0) {
-                totalAmount = BigDecimal.ZERO;
-            }
-
-            // Trừ điểm tích lũy của khách hàng
-            customer.setLoyaltyPoints(currentPoints - redeemedPoints);
+            customer.setLoyaltyPoints(currentPoints - quote.getRedeemedPoints());
             customerRepository.save(customer);
 
             // Tạo LoyaltyTransaction để ghi lại việc sử dụng điểm
             LoyaltyTransaction transaction = new LoyaltyTransaction();
             transaction.setCustomer(customer);
             transaction.setType(LoyaltyTransactionType.REDEEMED);
-            transaction.setPoints(redeemedPoints);
+            transaction.setPoints(quote.getRedeemedPoints());
             transaction.setDescription("Sử dụng điểm tích lũy cho đơn hàng #" + orderCode);
             transaction.setCreatedAt(Instant.now());
             loyaltyTransactionRepository.save(transaction);
         }
 
-        // Tạo đơn hàng
+        // Tạo đơn hàng, discountAmount = flash sale discount + voucher discount
         Orders order = new Orders();
         order.setCode(orderCode);
         order.setStatus(OrderStatus.PENDING);
@@ -771,7 +705,7 @@ public class OrdersServiceImpl implements OrdersService {
         order.setPaymentMethod(paymentMethod);
         order.setPlacedAt(Instant.now());
         order.setRedeemedPoints(redeemedPoints != null ? redeemedPoints : 0);
-        order.setDiscountAmount(discountAmount);
+        order.setDiscountAmount(quote.getDiscountAmount());
         order.setShippingCost(shippingCost != null ? shippingCost : BigDecimal.ZERO);
         order.setShippingInfo(shippingInfo);
         order.setVoucher(voucher);
@@ -779,75 +713,20 @@ public class OrdersServiceImpl implements OrdersService {
 
         order = ordersRepository.save(order);
 
-        // Áp dụng voucher (tăng usage count) sau khi đơn hàng được tạo thành công
+        // Dùng một lượt voucher (atomic, không vượt giới hạn) và đánh dấu voucher của khách hàng đã dùng
         if (voucher != null) {
-            voucherService.applyVoucher(voucher);
-            // Đánh dấu voucher đã được sử dụng bởi khách hàng
-            voucherService.markVoucherAsUsed(voucher.getId(), customer.getId());
-        }
-
-        // Tạo OrderItems từ CartItems
-        for (CartItem cartItem : cartItems) {
-            ProductVariant variant = productVariantRepository
-                .findById(cartItem.getVariantId())
-                .orElseThrow(() -> new IllegalArgumentException("Product variant not found: " + cartItem.getVariantId()));
-
-            // Kiểm tra xem product variant có trong flash sale đang active không
-            BigDecimal unitPrice = cartItem.getUnitPrice();
-            Optional<com.lumiere.app.service.dto.FlashSaleProductDTO> flashSaleProductOpt =
-                flashSaleProductService.findActiveByProductVariantId(cartItem.getVariantId());
-            if (flashSaleProductOpt.isPresent()) {
-                com.lumiere.app.service.dto.FlashSaleProductDTO flashSaleProduct = flashSaleProductOpt.get();
-                // Nếu có flash sale, sử dụng giá flash sale
-                if (flashSaleProduct.getSalePrice() != null) {
-                    unitPrice = flashSaleProduct.getSalePrice();
-                }
-            }
-
-            // Tính tổng tiền cho item này
-            BigDecimal itemTotalPrice = unitPrice.multiply(BigDecimal.valueOf(cartItem.getQuantity()));
-
-            OrderItem orderItem = new OrderItem();
-            orderItem.setOrder(order);
-            orderItem.setProductVariant(variant);
-            orderItem.setQuantity(cartItem.getQuantity());
-            orderItem.setUnitPrice(unitPrice);
-            orderItem.setTotalPrice(itemTotalPrice);
-
-            orderItemRepository.save(orderItem);
+            redeemVoucher(voucher, customer.getId());
         }
 
-        // Tính lại discount từ flash sale dựa trên OrderItems đã tạo (sau khi đã lưu)
-        BigDecimal recalculatedFlashSaleDiscount = BigDecimal.ZERO;
-        List<OrderItem> savedOrderItems = orderItemRepository.findAllByOrderId(order.getId());
-        for (OrderItem orderItem : savedOrderItems) {
-            ProductVariant variant = orderItem.getProductVariant();
-            if (variant != null && variant.getPrice() != null) {
-                BigDecimal originalPrice = variant.getPrice();
-                BigDecimal salePrice = orderItem.getUnitPrice();
-
-                // Nếu giá bán nhỏ hơn giá gốc, có discount từ flash sale
-                if (salePrice.compareTo(originalPrice) < 0) {
-                    BigDecimal itemDiscount = originalPrice.subtract(salePrice).multiply(BigDecimal.valueOf(orderItem.getQuantity()));
-                    recalculatedFlashSaleDiscount = recalculatedFlashSaleDiscount.add(itemDiscount);
-                }
-            }
-        }
+        // Tạo OrderItems từ báo giá
+        orderItemRepository.saveAll(checkoutPricingService.buildOrderItems(order, quote));
 
-        // Tính lại discountAmount: flash sale discount (tính lại) + voucher discount
-        BigDecimal finalDiscountAmount = recalculatedFlashSaleDiscount.add(voucherDiscount);
-
-        // Cập nhật discountAmount vào order
-        order.setDiscountAmount(finalDiscountAmount);
-        order = ordersRepository.save(order);
-
-        if (recalculatedFlashSaleDiscount.compareTo(BigDecimal.ZERO) > 0) {
-            LOG.debug("Recalculated flash sale discount based on OrderItems: {}", recalculatedFlashSaleDiscount);
-        }
-        LOG.debug("Final discount amount (flash sale + voucher): {}", finalDiscountAmount);
+        // Giữ suất flash sale (atomic, không bán vượt số lượng) sau khi ghi đơn để giữ khóa dòng ngắn hơn
+        checkoutPricingService.reserveFlashSaleQuantities(quote);
+        LOG.debug("Final discount amount (flash sale + voucher): {}", order.getDiscountAmount());
 
         // Xóa giỏ hàng
-        cartItemRepository.deleteAll(cartItems);
+        cartItemRepository.deleteAllInBatch(cartItems);
 
         // Tạo lịch sử trạng thái
         createOrderStatusHistory(order, OrderStatus.PENDING, "Đơn hàng được tạo từ giỏ hàng");
@@ -861,18 +740,7 @@ public class OrdersServiceImpl implements OrdersService {
         notificationProducerService.sendAdminNotification(NotificationType.NEW_ORDER, adminMessage, "/admin/orders/" + order.getId());
 
         // Gửi message vào Kafka để xử lý stock quantity bất đồng bộ
-        List<OrderStockProcessingMessage.StockDeductionItem> stockItems = cartItems
-            .stream()
-            .map(cartItem ->
-                new OrderStockProcessingMessage.StockDeductionItem(
-                    cartItem.getVariantId(),
-                    cartItem.getQuantity() != null ? cartItem.getQuantity().longValue() : 0L
-                )
-            )
-            .collect(Collectors.toList());
-
-        OrderStockProcessingMessage stockMessage = new OrderStockProcessingMessage(order.getId(), stockItems);
-        orderStockProducerService.sendStockProcessingMessage(stockMessage);
+        sendStockProcessingMessage(order, quote);
         LOG.info("Sent stock processing message to Kafka for order: {}", order.getId());
 
         OrdersDTO dto = ordersMapper.toDto(order);
@@ -906,6 +774,12 @@ public class OrdersServiceImpl implements OrdersService {
         }
 
         order = ordersRepository.save(order);
+        dashboardMetricsService.onOrderStatusChanged(order, oldStatus, newStatus);
+        homeFeedService.onOrderStatusChanged(oldStatus, newStatus);
+
+        if (newStatus == OrderStatus.CANCELLED && oldStatus != OrderStatus.CANCELLED) {
+            orderStockRestoreService.enqueue(order.getId());
+        }
 
         // Gửi notification cho customer về cập nhật trạng thái đơn hàng
         if (order.getCustomer() != null) {
@@ -963,14 +837,17 @@ public class OrdersServiceImpl implements OrdersService {
             throw new IllegalArgumentException("Cannot cancel delivered or completed order");
         }
 
+        OrderStatus oldStatus = order.getStatus();
         order.setStatus(OrderStatus.CANCELLED);
         createOrderStatusHistory(order, OrderStatus.CANCELLED, reason != null ? reason : "Đơn hàng bị hủy");
 
         order = ordersRepository.save(order);
+        dashboardMetricsService.onOrderStatusChanged(order, oldStatus, OrderStatus.CANCELLED);
+        homeFeedService.onOrderStatusChanged(oldStatus, OrderStatus.CANCELLED);
 
-        // Restore stock cho các sản phẩm trong đơn hàng bị hủy (async)
-        orderStockRestoreService.restoreStockForCancelledOrder(order.getId());
-        LOG.info("Triggered stock restoration for cancelled order: {}", order.getId());
+        // Đưa đơn hàng vào hàng đợi hoàn kho (cùng transaction với thao tác hủy)
+        orderStockRestoreService.enqueue(order.getId());
+        LOG.info("Queued stock restoration for cancelled order: {}", order.getId());
 
         // Gửi notification cho admin về đơn hàng bị hủy
         String customerName = order.getCustomer() != null
@@ -1008,6 +885,8 @@ public class OrdersServiceImpl implements OrdersService {
         createOrderStatusHistory(order, OrderStatus.CONFIRMED, "Đơn hàng đã được xác nhận");
 
         order = ordersRepository.save(order);
+        dashboardMetricsService.onOrderStatusChanged(order, OrderStatus.PENDING, OrderStatus.CONFIRMED);
+        homeFeedService.onOrderStatusChanged(OrderStatus.PENDING, OrderStatus.CONFIRMED);
         OrdersDTO dto = ordersMapper.toDto(order);
         setCanReview(dto, order);
         return dto;
@@ -1191,7 +1070,8 @@ public class OrdersServiceImpl implements OrdersService {
         Product product = variant.getProduct();
 
         // Kiểm tra khách hàng đã review sản phẩm này chưa
-        if (hasCustomerReviewedProduct(order.getCustomer().getId(), product.getId())) {
+        Customer customer = order.getCustomer();
+        if (productReviewRepository.existsByProductIdAndCustomer(product.getId(), customer.getId(), getCustomerName(customer))) {
             throw new IllegalArgumentException("Bạn đã đánh giá sản phẩm này rồi");
         }
 
@@ -1203,11 +1083,12 @@ public class OrdersServiceImpl implements OrdersService {
         review.setStatus(ReviewStatus.PENDING);
         review.setCreatedAt(Instant.now());
         review.setProduct(product);
+        review.setCustomer(customer);
 
         review = productReviewRepository.save(review);
 
-        // Cập nhật average rating và review count của product
-        updateProductRating(product);
+        // Cập nhật rating của product (chỉ tính khi review đã được duyệt)
+        reviewRatingListener.onReviewCreated(review);
 
         ProductReviewDTO reviewDTO = new ProductReviewDTO();
         reviewDTO.setId(review.getId());
@@ -1235,16 +1116,20 @@ public class OrdersServiceImpl implements OrdersService {
         // Lấy tất cả order items
         List<OrderItem> orderItems = orderItemRepository.findAllByOrderId(orderId);
 
-        // Lọc các sản phẩm chưa được review
+        // Lọc các sản phẩm chưa được review (một truy vấn cho cả đơn hàng)
+        Set<Long> reviewedProductIds = findReviewsOfCustomer(order.getCustomer(), getProductIds(orderItems))
+            .stream()
+            .map(review -> review.getProduct().getId())
+            .collect(Collectors.toSet());
+
         return orderItems
             .stream()
-            .filter(item -> {
-                if (item.getProductVariant() == null || item.getProductVariant().getProduct() == null) {
-                    return false;
-                }
-                Long productId = item.getProductVariant().getProduct().getId();
-                return !hasCustomerReviewedProduct(order.getCustomer().getId(), productId);
-            })
+            .filter(
+                item ->
+                    item.getProductVariant() != null &&
+                    item.getProductVariant().getProduct() != null &&
+                    !reviewedProductIds.contains(item.getProductVariant().getProduct().getId())
+            )
             .map(item -> {
                 OrderItemDTO dto = new OrderItemDTO();
                 dto.setId(item.getId());
@@ -1271,17 +1156,7 @@ public class OrdersServiceImpl implements OrdersService {
             throw new IllegalArgumentException("Product not found: " + productId);
         }
 
-        // Lấy tên khách hàng (có thể là firstName + lastName hoặc email)
-        String customerName = getCustomerName(customer);
-
-        // Kiểm tra xem có review nào của khách hàng này cho sản phẩm này không
-        return productReviewRepository
-            .findAll()
-            .stream()
-            .anyMatch(
-                review ->
-                    review.getProduct() != null && review.getProduct().getId().equals(productId) && review.getAuthor().equals(customerName)
-            );
+        return productReviewRepository.existsByProductIdAndCustomer(productId, customerId, getCustomerName(customer));
     }
 
     @Override
@@ -1294,30 +1169,9 @@ public class OrdersServiceImpl implements OrdersService {
         // Lấy tất cả order items
         List<OrderItem> orderItems = orderItemRepository.findAllByOrderId(orderId);
 
-        // Lấy tất cả product IDs từ order items
-        List<Long> productIds = orderItems
+        // Lấy reviews của khách hàng cho các sản phẩm trong đơn hàng
+        return findReviewsOfCustomer(order.getCustomer(), getProductIds(orderItems))
             .stream()
-            .filter(item -> item.getProductVariant() != null && item.getProductVariant().getProduct() != null)
-            .map(item -> item.getProductVariant().getProduct().getId())
-            .distinct()
-            .collect(Collectors.toList());
-
-        if (productIds.isEmpty()) {
-            return List.of();
-        }
-
-        // Lấy tất cả reviews của các sản phẩm trong đơn hàng
-        String customerName = getCustomerName(order.getCustomer());
-
-        return productReviewRepository
-            .findAll()
-            .stream()
-            .filter(
-                review ->
-                    review.getProduct() != null &&
-                    productIds.contains(review.getProduct().getId()) &&
-                    review.getAuthor().equals(customerName)
-            )
             .map(review -> {
                 ProductReviewDTO dto = new ProductReviewDTO();
                 dto.setId(review.getId());
@@ -1332,59 +1186,37 @@ public class OrdersServiceImpl implements OrdersService {
     }
 
     /**
-     * Lấy tên khách hàng để so sánh với author của review.
+     * Lấy các product ID (không trùng) từ danh sách order items.
      */
-    private String getCustomerName(Customer customer) {
-        try {
-            // Thử lấy firstName và lastName
-            java.lang.reflect.Method getFirstName = customer.getClass().getMethod("getFirstName");
-            java.lang.reflect.Method getLastName = customer.getClass().getMethod("getLastName");
-            String firstName = (String) getFirstName.invoke(customer);
-            String lastName = (String) getLastName.invoke(customer);
-            if (firstName != null || lastName != null) {
-                return (firstName != null ? firstName : "") + " " + (lastName != null ? lastName : "").trim();
-            }
-        } catch (Exception e) {
-            // Ignore
-        }
+    private static Set<Long> getProductIds(List<OrderItem> orderItems) {
+        return orderItems
+            .stream()
+            .filter(item -> item.getProductVariant() != null && item.getProductVariant().getProduct() != null)
+            .map(item -> item.getProductVariant().getProduct().getId())
+            .collect(Collectors.toSet());
+    }
 
-        try {
-            // Thử lấy email
-            java.lang.reflect.Method getEmail = customer.getClass().getMethod("getEmail");
-            String email = (String) getEmail.invoke(customer);
-            if (email != null) {
-                return email;
-            }
-        } catch (Exception e) {
-            // Ignore
+    /**
+     * Lấy các review của khách hàng cho danh sách sản phẩm bằng một truy vấn theo (product_id, customer_id).
+     */
+    private List<ProductReview> findReviewsOfCustomer(Customer customer, Set<Long> productIds) {
+        if (customer == null || productIds.isEmpty()) {
+            return List.of();
         }
-
-        // Fallback: dùng ID
-        return "Customer-" + customer.getId();
+        return productReviewRepository.findByProductIdInAndCustomer(productIds, customer.getId(), getCustomerName(customer));
     }
 
     /**
-     * Cập nhật average rating và review count của product.
+     * Lấy tên khách hàng để so khớp với author của các review cũ chưa gắn customer.
+     * Giữ nguyên định dạng tên đã dùng khi tạo các review đó.
      */
-    private void updateProductRating(Product product) {
-        ProductDTO productDTO = productMapper.toDto(product);
-        List<ProductReview> approvedReviews = productReviewRepository
-            .findAll()
-            .stream()
-            .filter(review -> review.getProduct() != null && review.getProduct().getId().equals(product.getId()))
-            .collect(Collectors.toList());
-
-        if (approvedReviews.isEmpty()) {
-            productDTO.setAverageRating(0.0);
-            productDTO.setReviewCount(0);
-        } else {
-            double totalRating = approvedReviews.stream().mapToDouble(review -> RatingUtils.toNumber(review.getRating())).sum();
-
-            productDTO.setAverageRating(totalRating / approvedReviews.size());
-            productDTO.setReviewCount(approvedReviews.size());
+    private String getCustomerName(Customer customer) {
+        String firstName = customer.getFirstName();
+        String lastName = customer.getLastName();
+        if (firstName != null || lastName != null) {
+            return (firstName != null ? firstName : "") + " " + (lastName != null ? lastName : "").trim();
         }
-
-        productService.save(productDTO);
+        return "Customer-" + customer.getId();
     }
 
     /**
@@ -1534,7 +1366,7 @@ public class OrdersServiceImpl implements OrdersService {
             Product product = variant.getProduct();
 
             // Kiểm tra khách hàng đã review sản phẩm này chưa
-            if (hasCustomerReviewedProduct(customer.getId(), product.getId())) {
+            if (productReviewRepository.existsByProductIdAndCustomer(product.getId(), customer.getId(), customerName)) {
                 LOG.warn("Customer {} has already reviewed product {}", customer.getId(), product.getId());
                 continue;
             }
@@ -1547,11 +1379,12 @@ public class OrdersServiceImpl implements OrdersService {
             review.setStatus(ReviewStatus.PENDING);
             review.setCreatedAt(Instant.now());
             review.setProduct(product);
+            review.setCustomer(customer);
 
             review = productReviewRepository.save(review);
 
-            // Cập nhật average rating và review count của product
-            updateProductRating(product);
+            // Cập nhật rating của product (chỉ tính khi review đã được duyệt)
+            reviewRatingListener.onReviewCreated(review);
 
             // Tạo DTO
             ProductReviewDTO reviewDTO = new ProductReviewDTO();
@@ -1628,45 +1461,24 @@ public class OrdersServiceImpl implements OrdersService {
         BigDecimal shippingCost,
         String shippingInfo
     ) {
-        LOG.debug("Request to create guest order with {} items", cartItems.size());
-
         if (cartItems == null || cartItems.isEmpty()) {
             throw new IllegalArgumentException("Cart is empty");
         }
 
+        LOG.debug("Request to create guest order with {} items", cartItems.size());
+
         // Tạo mã đơn hàng duy nhất
         String orderCode = generateOrderCode();
 
-        // Tính tổng tiền sản phẩm (có tính giá flash sale nếu có) và discount từ flash sale
-        BigDecimal subtotal = BigDecimal.ZERO;
-        BigDecimal flashSaleDiscount = BigDecimal.ZERO;
-        for (com.lumiere.app.service.dto.GuestCartItemDTO cartItem : cartItems) {
-            // Lấy giá gốc từ ProductVariant
-            ProductVariant variant = productVariantRepository
-                .findById(cartItem.getVariantId())
-                .orElseThrow(() -> new IllegalArgumentException("Product variant not found: " + cartItem.getVariantId()));
-            BigDecimal originalPrice = variant.getPrice() != null ? variant.getPrice() : BigDecimal.ZERO;
-
-            // Kiểm tra xem product variant có trong flash sale đang active không
-            BigDecimal unitPrice = originalPrice;
-            Optional<com.lumiere.app.service.dto.FlashSaleProductDTO> flashSaleProductOpt =
-                flashSaleProductService.findActiveByProductVariantId(cartItem.getVariantId());
-            if (flashSaleProductOpt.isPresent()) {
-                com.lumiere.app.service.dto.FlashSaleProductDTO flashSaleProduct = flashSaleProductOpt.get();
-                // Nếu có flash sale, sử dụng giá flash sale
-                if (flashSaleProduct.getSalePrice() != null) {
-                    unitPrice = flashSaleProduct.getSalePrice();
-                    // Tính discount từ flash sale cho item này
-                    BigDecimal itemFlashSaleDiscount = originalPrice
-                        .subtract(unitPrice)
-                        .multiply(BigDecimal.valueOf(cartItem.getQuantity()));
-                    flashSaleDiscount = flashSaleDiscount.add(itemFlashSaleDiscount);
-                }
-            }
-
-            // Tính tổng tiền cho item này
-            BigDecimal itemTotal = unitPrice.multiply(BigDecimal.valueOf(cartItem.getQuantity()));
-            subtotal = subtotal.add(itemTotal);
+        // Tính giá toàn bộ giỏ hàng (giá flash sale nếu có) bằng truy vấn gộp
+        CheckoutPricingService.Quote quote = checkoutPricingService.price(
+            cartItems
+                .stream()
+                .map(cartItem -> new CheckoutPricingService.LineRequest(cartItem.getVariantId(), cartItem.getQuantity()))
+                .collect(Collectors.toList())
+        );
+        if (!quote.getMissingVariantIds().isEmpty()) {
+            throw new IllegalArgumentException("Product variant not found: " + quote.getMissingVariantIds().get(0));
         }
 
         // Tính phí vận chuyển (guest users không có tier, mặc định 40,000 VND)
@@ -1684,45 +1496,14 @@ public class OrdersServiceImpl implements OrdersService {
             }
         }
 
-        // Tính tổng tiền (subtotal + shipping fee)
-        BigDecimal totalAmount = subtotal.add(shippingFee);
-
-        // Discount từ flash sale được tính vào discountAmount
-        BigDecimal discountAmount = flashSaleDiscount;
-        Voucher voucher = null;
-
-        // Xử lý voucher nếu có
-        if (voucherCode != null && !voucherCode.trim().isEmpty()) {
-            try {
-                // Validate voucher
-                voucher = voucherService.validateVoucher(voucherCode, totalAmount);
-
-                // Tính số tiền giảm giá từ voucher
-                BigDecimal voucherDiscount = voucherService.calculateDiscountAmount(voucher, totalAmount);
-
-                // Cộng discount từ voucher vào discountAmount
-                discountAmount = discountAmount.add(voucherDiscount);
-
-                // Trừ số tiền giảm giá từ tổng tiền
-                totalAmount = totalAmount.subtract(voucherDiscount);
-                if (totalAmount.compareTo(BigDecimal.ZERO) < 0) {
-                    totalAmount = BigDecimal.ZERO;
-                }
-
-                LOG.debug("Applied voucher: {}, discount amount: {}", voucherCode, voucherDiscount);
-            } catch (IllegalArgumentException e) {
-                throw new IllegalArgumentException("Lỗi voucher: " + e.getMessage());
-            }
-        }
-
-        if (flashSaleDiscount.compareTo(BigDecimal.ZERO) > 0) {
-            LOG.debug("Flash sale discount: {}", flashSaleDiscount);
-        }
+        // Tính tổng tiền (subtotal + shipping fee), trừ voucher nếu có
+        BigDecimal totalAmount = quote.getSubtotal().add(shippingFee);
+        totalAmount = nonNegative(totalAmount.subtract(checkoutPricingService.applyVoucher(quote, voucherCode, totalAmount)));
+        Voucher voucher = quote.getVoucher();
 
         // Guest users không có điểm tích lũy
         if (redeemedPoints != null && redeemedPoints > 0) {
             LOG.warn("Guest user cannot use loyalty points, ignoring redeemedPoints: {}", redeemedPoints);
-            redeemedPoints = 0;
         }
 
         // Tạo đơn hàng (không có customer)
@@ -1735,7 +1516,7 @@ public class OrdersServiceImpl implements OrdersService {
         order.setPaymentMethod(paymentMethod);
         order.setPlacedAt(Instant.now());
         order.setRedeemedPoints(0);
-        order.setDiscountAmount(discountAmount);
+        order.setDiscountAmount(quote.getDiscountAmount());
         order.setShippingCost(shippingFee);
         order.setShippingInfo(shippingInfo);
         order.setVoucher(voucher);
@@ -1743,47 +1524,16 @@ public class OrdersServiceImpl implements OrdersService {
 
         order = ordersRepository.save(order);
 
-        // Áp dụng voucher (tăng usage count) sau khi đơn hàng được tạo thành công
+        // Dùng một lượt voucher (atomic, không vượt giới hạn); guest order không có customer voucher
         if (voucher != null) {
-            voucherService.applyVoucher(voucher);
-            // Guest order không có customer nên không mark voucher as used
+            redeemVoucher(voucher, null);
         }
 
-        // Tạo OrderItems từ GuestCartItemDTO
-        for (com.lumiere.app.service.dto.GuestCartItemDTO cartItem : cartItems) {
-            ProductVariant variant = productVariantRepository
-                .findById(cartItem.getVariantId())
-                .orElseThrow(() -> new IllegalArgumentException("Product variant not found: " + cartItem.getVariantId()));
-
-            // Sử dụng unitPrice từ cartItem hoặc lấy từ variant
-            BigDecimal unitPrice = cartItem.getUnitPrice();
-            if (unitPrice == null) {
-                unitPrice = variant.getPrice() != null ? variant.getPrice() : BigDecimal.ZERO;
-            }
-
-            // Kiểm tra xem product variant có trong flash sale đang active không
-            Optional<com.lumiere.app.service.dto.FlashSaleProductDTO> flashSaleProductOpt =
-                flashSaleProductService.findActiveByProductVariantId(cartItem.getVariantId());
-            if (flashSaleProductOpt.isPresent()) {
-                com.lumiere.app.service.dto.FlashSaleProductDTO flashSaleProduct = flashSaleProductOpt.get();
-                // Nếu có flash sale, sử dụng giá flash sale
-                if (flashSaleProduct.getSalePrice() != null) {
-                    unitPrice = flashSaleProduct.getSalePrice();
-                }
-            }
-
-            // Tính totalPrice
-            BigDecimal itemTotalPrice = unitPrice.multiply(BigDecimal.valueOf(cartItem.getQuantity()));
-
-            OrderItem orderItem = new OrderItem();
-            orderItem.setOrder(order);
-            orderItem.setProductVariant(variant);
-            orderItem.setQuantity(cartItem.getQuantity());
-            orderItem.setUnitPrice(unitPrice);
-            orderItem.setTotalPrice(itemTotalPrice);
+        // Tạo OrderItems từ báo giá
+        orderItemRepository.saveAll(checkoutPricingService.buildOrderItems(order, quote));
 
-            orderItemRepository.save(orderItem);
-        }
+        // Giữ suất flash sale (atomic, không bán vượt số lượng) sau khi ghi đơn để giữ khóa dòng ngắn hơn
+        checkoutPricingService.reserveFlashSaleQuantities(quote);
 
         // Tạo lịch sử trạng thái
         createOrderStatusHistory(order, OrderStatus.PENDING, "Đơn hàng được tạo bởi khách vãng lai");
@@ -1793,22 +1543,40 @@ public class OrdersServiceImpl implements OrdersService {
         notificationProducerService.sendAdminNotification(NotificationType.NEW_ORDER, adminMessage, "/admin/orders/" + order.getId());
 
         // Gửi message vào Kafka để xử lý stock quantity bất đồng bộ
-        List<OrderStockProcessingMessage.StockDeductionItem> stockItems = cartItems
-            .stream()
-            .map(cartItem ->
-                new OrderStockProcessingMessage.StockDeductionItem(
-                    cartItem.getVariantId(),
-                    cartItem.getQuantity() != null ? cartItem.getQuantity().longValue() : 0L
-                )
-            )
-            .collect(Collectors.toList());
-
-        OrderStockProcessingMessage stockMessage = new OrderStockProcessingMessage(order.getId(), stockItems);
-        orderStockProducerService.sendStockProcessingMessage(stockMessage);
+        sendStockProcessingMessage(order, quote);
         LOG.info("Sent stock processing message to Kafka for guest order: {}", order.getId());
 
         OrdersDTO dto = ordersMapper.toDto(order);
         setCanReview(dto, order);
         return dto;
     }
+
+    /**
+     * Dùng một lượt voucher; hủy checkout (rollback cả đơn hàng) nếu voucher đã hết lượt trong lúc đặt hàng.
+     */
+    private void redeemVoucher(Voucher voucher, Long customerId) {
+        switch (voucherService.redeemVoucher(voucher.getId(), customerId)) {
+            case REDEEMED -> {}
+            case EXHAUSTED -> throw new IllegalArgumentException("Lỗi voucher: Voucher đã hết lượt sử dụng");
+            case NOT_AVAILABLE_FOR_CUSTOMER -> throw new IllegalArgumentException(
+                "Lỗi voucher: Voucher này đã được sử dụng hoặc bạn chưa được tặng voucher này"
+            );
+        }
+    }
+
+    /**
+     * Gửi message vào Kafka để trừ stock cho các dòng hàng của báo giá.
+     */
+    private void sendStockProcessingMessage(Orders order, CheckoutPricingService.Quote quote) {
+        List<OrderStockProcessingMessage.StockDeductionItem> stockItems = quote
+            .getLines()
+            .stream()
+            .map(line -> new OrderStockProcessingMessage.StockDeductionItem(line.getVariant().getId(), (long) line.getQuantity()))
+            .collect(Collectors.toList());
+        orderStockProducerService.sendStockProcessingMessage(new OrderStockProcessingMessage(order.getId(), stockItems));
+    }
+
+    private static BigDecimal nonNegative(BigDecimal amount) {
+        return amount.compareTo(BigDecimal.ZERO) < 0 ? BigDecimal.ZERO : amount;
+    }
 }
@@ -2,11 +2,12 @@ package com.lumiere.app.service.impl;
 
 import com.lumiere.app.domain.ProductReview;
 import com.lumiere.app.domain.enumeration.NotificationType;
+import com.lumiere.app.domain.enumeration.RatingType;
 import com.lumiere.app.domain.enumeration.ReviewStatus;
 import com.lumiere.app.repository.ProductReviewRepository;
 import com.lumiere.app.service.ProductReviewService;
+import com.lumiere.app.service.ReviewRatingListener;
 import com.lumiere.app.service.dto.ProductReviewDTO;
-import com.lumiere.app.service.dto.ReviewRatingMessage;
 import com.lumiere.app.service.kafka.NotificationProducerService;
 import com.lumiere.app.service.mapper.ProductReviewMapper;
 import java.util.Optional;
@@ -14,7 +15,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -31,19 +31,19 @@ public class ProductReviewServiceImpl implements ProductReviewService {
 
     private final ProductReviewMapper productReviewMapper;
 
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final ReviewRatingListener reviewRatingListener;
 
     private final NotificationProducerService notificationProducerService;
 
     public ProductReviewServiceImpl(
         ProductReviewRepository productReviewRepository,
         ProductReviewMapper productReviewMapper,
-        KafkaTemplate<String, Object> kafkaTemplate,
+        ReviewRatingListener reviewRatingListener,
         NotificationProducerService notificationProducerService
     ) {
         this.productReviewRepository = productReviewRepository;
         this.productReviewMapper = productReviewMapper;
-        this.kafkaTemplate = kafkaTemplate;
+        this.reviewRatingListener = reviewRatingListener;
         this.notificationProducerService = notificationProducerService;
     }
 
@@ -52,6 +52,7 @@ public class ProductReviewServiceImpl implements ProductReviewService {
         LOG.debug("Request to save ProductReview : {}", productReviewDTO);
         ProductReview productReview = productReviewMapper.toEntity(productReviewDTO);
         productReview = productReviewRepository.save(productReview);
+        reviewRatingListener.onReviewCreated(productReview);
         
         // Gửi notification cho admin về review mới
         if (productReview.getProduct() != null) {
@@ -74,17 +75,25 @@ public class ProductReviewServiceImpl implements ProductReviewService {
     public ProductReviewDTO update(ProductReviewDTO productReviewDTO) {
         LOG.debug("Request to update ProductReview : {}", productReviewDTO);
         
-        // Lấy review cũ để so sánh status
+        // Lấy review cũ để tính phần chênh lệch rating
         Optional<ProductReview> oldReviewOpt = productReviewRepository.findById(productReviewDTO.getId());
+        Long oldProductId = oldReviewOpt.map(ReviewRatingListener::productIdOf).orElse(null);
         ReviewStatus oldStatus = oldReviewOpt.map(ProductReview::getStatus).orElse(null);
+        RatingType oldRating = oldReviewOpt.map(ProductReview::getRating).orElse(null);
         
         ProductReview productReview = productReviewMapper.toEntity(productReviewDTO);
+        // DTO không mang khách hàng: giữ nguyên người viết review
+        productReview.setCustomer(oldReviewOpt.map(ProductReview::getCustomer).orElse(null));
         productReview = productReviewRepository.save(productReview);
         
-        // Nếu status thay đổi, gửi Kafka message để tính lại rating
-        if (oldStatus != null && oldStatus != productReview.getStatus()) {
-            sendReviewRatingMessage(productReview);
-        }
+        reviewRatingListener.onReviewChanged(
+            oldProductId,
+            oldStatus,
+            oldRating,
+            ReviewRatingListener.productIdOf(productReview),
+            productReview.getStatus(),
+            productReview.getRating()
+        );
         
         return productReviewMapper.toDto(productReview);
     }
@@ -96,18 +105,22 @@ public class ProductReviewServiceImpl implements ProductReviewService {
         return productReviewRepository
             .findById(productReviewDTO.getId())
             .map(existingProductReview -> {
+                Long oldProductId = ReviewRatingListener.productIdOf(existingProductReview);
                 ReviewStatus oldStatus = existingProductReview.getStatus();
+                RatingType oldRating = existingProductReview.getRating();
                 productReviewMapper.partialUpdate(existingProductReview, productReviewDTO);
 
-                // Kiểm tra xem status có thay đổi không
-                boolean statusChanged = oldStatus != existingProductReview.getStatus();
-                
                 ProductReview savedReview = productReviewRepository.save(existingProductReview);
                 
-                // Nếu status thay đổi, gửi Kafka message
-                if (statusChanged) {
-                    sendReviewRatingMessage(savedReview);
-                }
+                // Cập nhật rating của sản phẩm theo phần chênh lệch
+                reviewRatingListener.onReviewChanged(
+                    oldProductId,
+                    oldStatus,
+                    oldRating,
+                    ReviewRatingListener.productIdOf(savedReview),
+                    savedReview.getStatus(),
+                    savedReview.getRating()
+                );
                 
                 return savedReview;
             })
@@ -136,13 +149,12 @@ public class ProductReviewServiceImpl implements ProductReviewService {
     public void delete(Long id) {
         LOG.debug("Request to delete ProductReview : {}", id);
         
-        // Lấy review trước khi xóa để gửi Kafka message
+        // Lấy review trước khi xóa để trừ khỏi rating của sản phẩm
         Optional<ProductReview> reviewOpt = productReviewRepository.findById(id);
         
         productReviewRepository.deleteById(id);
         
-        // Gửi Kafka message để tính lại rating sau khi xóa review
-        reviewOpt.ifPresent(this::sendReviewRatingMessage);
+        reviewOpt.ifPresent(reviewRatingListener::onReviewDeleted);
     }
 
     @Override
@@ -162,31 +174,4 @@ public class ProductReviewServiceImpl implements ProductReviewService {
             .findByProductIdAndApprovedOrderByCreatedAtDesc(productId, pageable)
             .map(productReviewMapper::toDto);
     }
-
-    /**
-     * Gửi Kafka message để tính lại rating cho product.
-     *
-     * @param review review đã được cập nhật/xóa
-     */
-    private void sendReviewRatingMessage(ProductReview review) {
-        if (review.getProduct() == null) {
-            LOG.warn("Review {} has no product, skipping Kafka message", review.getId());
-            return;
-        }
-
-        try {
-            ReviewRatingMessage message = new ReviewRatingMessage(
-                review.getProduct().getId(),
-                review.getId(),
-                review.getRating(),
-                null, // customerId không cần thiết khi update status
-                null  // orderId không cần thiết khi update status
-            );
-            kafkaTemplate.send("review-rating", message);
-            LOG.info("Sent Kafka message for review status change: {}", message);
-        } catch (Exception e) {
-            LOG.error("Failed to send Kafka message for review {}", review.getId(), e);
-            // Không throw exception để không rollback transaction
-        }
-    }
 }
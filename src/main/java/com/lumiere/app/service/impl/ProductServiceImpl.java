@@ -10,8 +10,12 @@ import com.lumiere.app.repository.OptionGroupRepository;
 import com.lumiere.app.repository.OptionVariantRepository;
 import com.lumiere.app.repository.ProductAttachmentRepository;
 import com.lumiere.app.repository.ProductRepository;
+import com.lumiere.app.repository.ProductSearchIndexRepository;
 import com.lumiere.app.repository.ProductVariantRepository;
 import com.lumiere.app.service.AttachmentService;
+import com.lumiere.app.service.HomeFeedService;
+import com.lumiere.app.service.OptionCombinationIndexService;
+import com.lumiere.app.service.ProductSearchIndexService;
 import com.lumiere.app.service.ProductService;
 import com.lumiere.app.service.dto.AttachmentDTO;
 import com.lumiere.app.service.dto.ProductDTO;
@@ -28,7 +32,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -41,6 +47,18 @@ public class ProductServiceImpl implements ProductService {
 
     private static final Logger LOG = LoggerFactory.getLogger(ProductServiceImpl.class);
 
+    /** Thuộc tính sắp xếp của trang tìm kiếm, ánh xạ sang thuộc tính của read model. */
+    private static final Map<String, String> SEARCH_SORT_PROPERTIES = Map.of(
+        "id", "productId",
+        "price", "minPrice",
+        "minPrice", "minPrice",
+        "maxPrice", "maxPrice",
+        "averageRating", "averageRating",
+        "reviewCount", "reviewCount",
+        "createdAt", "createdAt",
+        "updatedAt", "updatedAt"
+    );
+
     private final ProductRepository productRepository;
 
     private final ProductMapper productMapper;
@@ -52,6 +70,10 @@ public class ProductServiceImpl implements ProductService {
     private final ProductVariantRepository productVariantRepository;
     private final OptionVariantRepository optionVariantRepository;
     private final OptionGroupRepository optionGroupRepository;
+    private final ProductSearchIndexRepository productSearchIndexRepository;
+    private final ProductSearchIndexService productSearchIndexService;
+    private final HomeFeedService homeFeedService;
+    private final OptionCombinationIndexService optionCombinationIndexService;
 
     public ProductServiceImpl(
         ProductRepository productRepository,
@@ -62,7 +84,11 @@ public class ProductServiceImpl implements ProductService {
         AttachmentMapper attachmentMapper,
         ProductVariantRepository productVariantRepository,
         OptionVariantRepository optionVariantRepository,
-        OptionGroupRepository optionGroupRepository
+        OptionGroupRepository optionGroupRepository,
+        ProductSearchIndexRepository productSearchIndexRepository,
+        ProductSearchIndexService productSearchIndexService,
+        HomeFeedService homeFeedService,
+        OptionCombinationIndexService optionCombinationIndexService
     ) {
         this.productRepository = productRepository;
         this.productMapper = productMapper;
@@ -73,6 +99,10 @@ public class ProductServiceImpl implements ProductService {
         this.productVariantRepository = productVariantRepository;
         this.optionVariantRepository = optionVariantRepository;
         this.optionGroupRepository = optionGroupRepository;
+        this.productSearchIndexRepository = productSearchIndexRepository;
+        this.productSearchIndexService = productSearchIndexService;
+        this.homeFeedService = homeFeedService;
+        this.optionCombinationIndexService = optionCombinationIndexService;
     }
 
     @Override
@@ -80,6 +110,8 @@ public class ProductServiceImpl implements ProductService {
         LOG.debug("Request to save Product : {}", productDTO);
         Product product = productMapper.toEntity(productDTO);
         product = productRepository.save(product);
+        productSearchIndexService.markProductsChanged(List.of(product.getId()));
+        homeFeedService.markProductsChanged();
         return productMapper.toDto(product);
     }
 
@@ -93,6 +125,8 @@ public class ProductServiceImpl implements ProductService {
 
         // 2. Lưu product trước (đảm bảo có id)
         product = productRepository.save(product);
+        productSearchIndexService.markProductsChanged(List.of(product.getId()));
+        homeFeedService.markProductsChanged();
 
         Long productId = product.getId();
         // Lấy danh sách attachmentId từ list AttachmentDTO
@@ -237,7 +271,11 @@ public class ProductServiceImpl implements ProductService {
                 return existingProduct;
             })
             .map(productRepository::save)
-            .map(productMapper::toDto);
+            .map(product -> {
+                productSearchIndexService.markProductsChanged(List.of(product.getId()));
+                homeFeedService.markProductsChanged();
+                return productMapper.toDto(product);
+            });
     }
 
     @Override
@@ -298,20 +336,37 @@ public class ProductServiceImpl implements ProductService {
 
         // 5. Delete Product
         productRepository.deleteById(id);
+        homeFeedService.markProductsChanged();
+        optionCombinationIndexService.invalidate(List.of(id));
     }
 
     @Override
-    public Page<ProductDTO> searchProducts(List<Long> categoryIds, BigDecimal minPrice, BigDecimal maxPrice, Pageable pageable) {
+    @Transactional(readOnly = true)
+    public Page<ProductDTO> searchProducts(
+        List<Long> categoryIds,
+        BigDecimal minPrice,
+        BigDecimal maxPrice,
+        Boolean inStock,
+        Boolean onFlashSale,
+        Pageable pageable
+    ) {
         if (categoryIds != null && categoryIds.isEmpty()) {
             categoryIds = null;
         }
 
-        // Bước 1: page theo id
-        Page<Long> idPage = productRepository.searchProductIdsByCategoryAndCheapestVariantPrice(categoryIds, minPrice, maxPrice, pageable);
+        // Bước 1: page theo id trên read model product_search_index (giá thấp nhất đã tính sẵn)
+        Page<Long> idPage = productSearchIndexRepository.searchProductIds(
+            categoryIds,
+            minPrice,
+            maxPrice,
+            inStock,
+            onFlashSale,
+            toSearchPageable(pageable)
+        );
 
         List<Long> ids = idPage.getContent();
         if (ids.isEmpty()) {
-            return Page.empty(pageable);
+            return new PageImpl<>(List.of(), pageable, idPage.getTotalElements());
         }
 
         // Bước 2: fetch product + attachments
@@ -329,6 +384,25 @@ public class ProductServiceImpl implements ProductService {
         return new PageImpl<>(dtos, pageable, idPage.getTotalElements());
     }
 
+    /**
+     * Đổi thuộc tính sắp xếp sang thuộc tính của read model, bỏ qua thuộc tính không hỗ trợ.
+     */
+    private static Pageable toSearchPageable(Pageable pageable) {
+        if (pageable.getSort().isUnsorted()) {
+            return pageable;
+        }
+        List<Sort.Order> orders = new ArrayList<>();
+        for (Sort.Order order : pageable.getSort()) {
+            String property = SEARCH_SORT_PROPERTIES.get(order.getProperty());
+            if (property != null) {
+                orders.add(order.withProperty(property));
+            } else {
+                LOG.debug("Ignoring unsupported search sort property: {}", order.getProperty());
+            }
+        }
+        return pageable.isPaged() ? PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by(orders)) : pageable;
+    }
+
     @Override
     @Transactional(readOnly = true)
     public Map<Long, String> getProductImagesMapByVariantId(Long productId) {
@@ -3,6 +3,8 @@ package com.lumiere.app.service.impl;
 import com.lumiere.app.domain.ProductVariant;
 import com.lumiere.app.repository.ProductVariantRepository;
 import com.lumiere.app.service.FlashSaleProductService;
+import com.lumiere.app.service.OptionCombinationIndexService;
+import com.lumiere.app.service.ProductSearchIndexService;
 import com.lumiere.app.service.ProductVariantService;
 import com.lumiere.app.service.dto.ProductVariantDTO;
 import com.lumiere.app.service.mapper.ProductVariantMapper;
@@ -31,14 +33,22 @@ public class ProductVariantServiceImpl implements ProductVariantService {
 
     private final FlashSaleProductService flashSaleProductService;
 
+    private final ProductSearchIndexService productSearchIndexService;
+
+    private final OptionCombinationIndexService optionCombinationIndexService;
+
     public ProductVariantServiceImpl(
         ProductVariantRepository productVariantRepository,
         ProductVariantMapper productVariantMapper,
-        FlashSaleProductService flashSaleProductService
+        FlashSaleProductService flashSaleProductService,
+        ProductSearchIndexService productSearchIndexService,
+        OptionCombinationIndexService optionCombinationIndexService
     ) {
         this.productVariantRepository = productVariantRepository;
         this.productVariantMapper = productVariantMapper;
         this.flashSaleProductService = flashSaleProductService;
+        this.productSearchIndexService = productSearchIndexService;
+        this.optionCombinationIndexService = optionCombinationIndexService;
     }
 
     @Override
@@ -46,14 +56,18 @@ public class ProductVariantServiceImpl implements ProductVariantService {
         LOG.debug("Request to save ProductVariant : {}", productVariantDTO);
         ProductVariant productVariant = productVariantMapper.toEntity(productVariantDTO);
         productVariant = productVariantRepository.save(productVariant);
+        productSearchIndexService.markProductVariantsChanged(List.of(productVariant.getId()));
         return productVariantMapper.toDto(productVariant);
     }
 
     @Override
     public ProductVariantDTO update(ProductVariantDTO productVariantDTO) {
         LOG.debug("Request to update ProductVariant : {}", productVariantDTO);
+        // Variant có thể đổi sản phẩm: cập nhật cả sản phẩm cũ và mới
+        productSearchIndexService.markProductVariantsChanged(List.of(productVariantDTO.getId()));
         ProductVariant productVariant = productVariantMapper.toEntity(productVariantDTO);
         productVariant = productVariantRepository.save(productVariant);
+        productSearchIndexService.markProductVariantsChanged(List.of(productVariant.getId()));
         return productVariantMapper.toDto(productVariant);
     }
 
@@ -71,7 +85,10 @@ public class ProductVariantServiceImpl implements ProductVariantService {
                 return existing;
             })
             .map(productVariantRepository::save)
-            .map(productVariantMapper::toDto);
+            .map(productVariant -> {
+                productSearchIndexService.markProductVariantsChanged(List.of(productVariant.getId()));
+                return productVariantMapper.toDto(productVariant);
+            });
     }
 
     public Page<ProductVariantDTO> findAllWithEagerRelationships(Pageable pageable) {
@@ -99,6 +116,8 @@ public class ProductVariantServiceImpl implements ProductVariantService {
     @Override
     public void delete(Long id) {
         LOG.debug("Request to delete ProductVariant : {}", id);
+        productSearchIndexService.markProductVariantsChanged(List.of(id));
+        optionCombinationIndexService.invalidate(productVariantRepository.findProductIdsByIdIn(List.of(id)));
         productVariantRepository.deleteOptionVariantsByVariantId(id);
         productVariantRepository.deleteCartItemsByVariantId(id);
         productVariantRepository.unlinkOrderItemsByVariantId(id);
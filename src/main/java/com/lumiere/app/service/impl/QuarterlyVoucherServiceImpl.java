@@ -1,24 +1,26 @@
 package com.lumiere.app.service.impl;
 
-import com.lumiere.app.domain.Customer;
-import com.lumiere.app.domain.CustomerVoucher;
 import com.lumiere.app.domain.Voucher;
 import com.lumiere.app.domain.enumeration.CustomerTier;
 import com.lumiere.app.domain.enumeration.VoucherStatus;
 import com.lumiere.app.domain.enumeration.VoucherType;
 import com.lumiere.app.repository.CustomerRepository;
-import com.lumiere.app.repository.CustomerVoucherRepository;
-import com.lumiere.app.repository.VoucherRepository;
+import com.lumiere.app.service.CustomerVoucherGrantService;
 import com.lumiere.app.service.QuarterlyVoucherService;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -31,79 +33,68 @@ public class QuarterlyVoucherServiceImpl implements QuarterlyVoucherService {
     private static final Logger LOG = LoggerFactory.getLogger(QuarterlyVoucherServiceImpl.class);
 
     private final CustomerRepository customerRepository;
-    private final VoucherRepository voucherRepository;
-    private final CustomerVoucherRepository customerVoucherRepository;
+    private final CustomerVoucherGrantService customerVoucherGrantService;
 
     // Cấu hình voucher theo tier
     private static final BigDecimal BRONZE_VOUCHER_VALUE = BigDecimal.valueOf(50000); // 50,000 VND
     private static final BigDecimal SILVER_VOUCHER_VALUE = BigDecimal.valueOf(100000); // 100,000 VND
     private static final BigDecimal GOLD_VOUCHER_VALUE = BigDecimal.valueOf(200000); // 200,000 VND
 
-    public QuarterlyVoucherServiceImpl(
-        CustomerRepository customerRepository,
-        VoucherRepository voucherRepository,
-        CustomerVoucherRepository customerVoucherRepository
-    ) {
+    public QuarterlyVoucherServiceImpl(CustomerRepository customerRepository, CustomerVoucherGrantService customerVoucherGrantService) {
         this.customerRepository = customerRepository;
-        this.voucherRepository = voucherRepository;
-        this.customerVoucherRepository = customerVoucherRepository;
+        this.customerVoucherGrantService = customerVoucherGrantService;
     }
 
     /**
      * Scheduled job chạy vào ngày đầu tiên của mỗi quý (1/1, 1/4, 1/7, 1/10) lúc 0:00 AM.
      */
     @Scheduled(cron = "0 0 0 1 1,4,7,10 ?")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void scheduleQuarterlyVoucherDistribution() {
         LOG.info("Starting scheduled quarterly voucher distribution");
         distributeQuarterlyVouchers();
     }
 
+    /**
+     * Khách hàng được đọc theo keyset (id, tier) từng nhóm; mỗi nhóm được tặng trong một transaction riêng
+     * nên lỗi ở một nhóm không làm mất các nhóm đã tặng.
+     */
     @Override
-    @Transactional
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void distributeQuarterlyVouchers() {
         String currentQuarter = getCurrentQuarter();
         LOG.info("Distributing quarterly vouchers for quarter: {}", currentQuarter);
 
-        // Lấy tất cả khách hàng
-        List<Customer> customers = customerRepository.findAll();
+        int totalCount = 0;
         int distributedCount = 0;
-        int skippedCount = 0;
+        Long afterId = 0L;
+        PageRequest chunk = PageRequest.of(0, CustomerVoucherGrantService.CHUNK_SIZE);
+
+        List<Object[]> rows;
+        while (!(rows = customerRepository.findIdAndTierAfter(afterId, chunk)).isEmpty()) {
+            Map<Long, CustomerTier> tiers = new LinkedHashMap<>();
+            for (Object[] row : rows) {
+                tiers.put((Long) row[0], row[1] != null ? (CustomerTier) row[1] : CustomerTier.BRONZE);
+            }
+            afterId = (Long) rows.get(rows.size() - 1)[0];
+            totalCount += rows.size();
 
-        for (Customer customer : customers) {
             try {
-                // Kiểm tra xem khách hàng đã nhận voucher trong quý này chưa
-                if (customerVoucherRepository.existsByCustomerIdAndQuarter(customer.getId(), currentQuarter)) {
-                    LOG.debug("Customer {} already received voucher for quarter {}", customer.getId(), currentQuarter);
-                    skippedCount++;
-                    continue;
-                }
-
-                // Tạo và tặng voucher theo tier
-                CustomerTier tier = customer.getTier() != null ? customer.getTier() : CustomerTier.BRONZE;
-                Voucher voucher = createVoucherForTier(tier, currentQuarter, customer.getId());
-                voucher = voucherRepository.save(voucher);
-
-                // Lưu vào CustomerVoucher
-                CustomerVoucher customerVoucher = new CustomerVoucher();
-                customerVoucher.setCustomer(customer);
-                customerVoucher.setVoucher(voucher);
-                customerVoucher.setGiftedAt(Instant.now());
-                customerVoucher.setQuarter(currentQuarter);
-                customerVoucher.setUsed(false);
-                customerVoucherRepository.save(customerVoucher);
-
-                distributedCount++;
-                LOG.debug("Distributed voucher {} to customer {} (tier: {})", voucher.getCode(), customer.getId(), tier);
+                distributedCount += customerVoucherGrantService.grant(
+                    new ArrayList<>(tiers.keySet()),
+                    currentQuarter,
+                    customerId -> createVoucherForTier(tiers.get(customerId), currentQuarter, customerId)
+                );
             } catch (Exception e) {
-                LOG.error("Error distributing voucher to customer {}: {}", customer.getId(), e.getMessage(), e);
+                LOG.error("Error distributing vouchers to customers up to {}: {}", afterId, e.getMessage(), e);
             }
         }
 
         LOG.info(
             "Completed quarterly voucher distribution. Distributed: {}, Skipped: {}, Total customers: {}",
             distributedCount,
-            skippedCount,
-            customers.size()
+            totalCount - distributedCount,
+            totalCount
         );
     }
 
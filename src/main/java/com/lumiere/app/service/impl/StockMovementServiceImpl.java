@@ -2,6 +2,7 @@ package com.lumiere.app.service.impl;
 
 import com.lumiere.app.domain.StockMovement;
 import com.lumiere.app.repository.StockMovementRepository;
+import com.lumiere.app.service.StockLedgerService;
 import com.lumiere.app.service.StockMovementService;
 import com.lumiere.app.service.dto.StockMovementDTO;
 import com.lumiere.app.service.mapper.StockMovementMapper;
@@ -18,6 +19,9 @@ import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Service Implementation for managing {@link com.lumiere.app.domain.StockMovement}.
+ * <p>
+ * StockMovement là sổ kho chỉ thêm: movement mới được áp dụng vào tồn kho qua {@link StockLedgerService},
+ * khi sửa chỉ cập nhật ghi chú, và không cho xóa (hãy tạo movement điều chỉnh ngược lại).
  */
 @Service
 @Transactional
@@ -29,24 +33,33 @@ public class StockMovementServiceImpl implements StockMovementService {
 
     private final StockMovementMapper stockMovementMapper;
 
-    public StockMovementServiceImpl(StockMovementRepository stockMovementRepository, StockMovementMapper stockMovementMapper) {
+    private final StockLedgerService stockLedgerService;
+
+    public StockMovementServiceImpl(
+        StockMovementRepository stockMovementRepository,
+        StockMovementMapper stockMovementMapper,
+        StockLedgerService stockLedgerService
+    ) {
         this.stockMovementRepository = stockMovementRepository;
         this.stockMovementMapper = stockMovementMapper;
+        this.stockLedgerService = stockLedgerService;
     }
 
     @Override
     public StockMovementDTO save(StockMovementDTO stockMovementDTO) {
         LOG.debug("Request to save StockMovement : {}", stockMovementDTO);
         StockMovement stockMovement = stockMovementMapper.toEntity(stockMovementDTO);
-        stockMovement = stockMovementRepository.save(stockMovement);
+        stockMovement = stockLedgerService.apply(stockMovement);
         return stockMovementMapper.toDto(stockMovement);
     }
 
     @Override
     public StockMovementDTO update(StockMovementDTO stockMovementDTO) {
         LOG.debug("Request to update StockMovement : {}", stockMovementDTO);
-        StockMovement stockMovement = stockMovementMapper.toEntity(stockMovementDTO);
-        stockMovement = stockMovementRepository.save(stockMovement);
+        StockMovement stockMovement = stockMovementRepository
+            .findById(stockMovementDTO.getId())
+            .orElseThrow(() -> new IllegalArgumentException("StockMovement not found: " + stockMovementDTO.getId()));
+        stockMovement.setNote(stockMovementDTO.getNote());
         return stockMovementMapper.toDto(stockMovement);
     }
 
@@ -57,11 +70,11 @@ public class StockMovementServiceImpl implements StockMovementService {
         return stockMovementRepository
             .findById(stockMovementDTO.getId())
             .map(existingStockMovement -> {
-                stockMovementMapper.partialUpdate(existingStockMovement, stockMovementDTO);
-
+                if (stockMovementDTO.getNote() != null) {
+                    existingStockMovement.setNote(stockMovementDTO.getNote());
+                }
                 return existingStockMovement;
             })
-            .map(stockMovementRepository::save)
             .map(stockMovementMapper::toDto);
     }
 
@@ -82,10 +95,4 @@ public class StockMovementServiceImpl implements StockMovementService {
         LOG.debug("Request to get StockMovement : {}", id);
         return stockMovementRepository.findOneWithEagerRelationships(id).map(stockMovementMapper::toDto);
     }
-
-    @Override
-    public void delete(Long id) {
-        LOG.debug("Request to delete StockMovement : {}", id);
-        stockMovementRepository.deleteById(id);
-    }
 }
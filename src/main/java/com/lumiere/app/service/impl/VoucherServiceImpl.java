@@ -1,12 +1,13 @@
 package com.lumiere.app.service.impl;
 
-import com.lumiere.app.domain.CustomerVoucher;
 import com.lumiere.app.domain.Voucher;
 import com.lumiere.app.domain.enumeration.NotificationType;
 import com.lumiere.app.domain.enumeration.VoucherStatus;
 import com.lumiere.app.domain.enumeration.VoucherType;
 import com.lumiere.app.repository.CustomerVoucherRepository;
 import com.lumiere.app.repository.VoucherRepository;
+import com.lumiere.app.service.VoucherCacheService;
+import com.lumiere.app.service.VoucherCacheService.VoucherRule;
 import com.lumiere.app.service.VoucherService;
 import com.lumiere.app.service.kafka.NotificationProducerService;
 import com.lumiere.app.service.dto.VoucherCalculateRequestDTO;
@@ -43,16 +44,20 @@ public class VoucherServiceImpl implements VoucherService {
 
     private final NotificationProducerService notificationProducerService;
 
+    private final VoucherCacheService voucherCacheService;
+
     public VoucherServiceImpl(
         VoucherRepository voucherRepository,
         VoucherMapper voucherMapper,
         CustomerVoucherRepository customerVoucherRepository,
-        NotificationProducerService notificationProducerService
+        NotificationProducerService notificationProducerService,
+        VoucherCacheService voucherCacheService
     ) {
         this.voucherRepository = voucherRepository;
         this.voucherMapper = voucherMapper;
         this.customerVoucherRepository = customerVoucherRepository;
         this.notificationProducerService = notificationProducerService;
+        this.voucherCacheService = voucherCacheService;
     }
 
     @Override
@@ -61,6 +66,7 @@ public class VoucherServiceImpl implements VoucherService {
         Voucher voucher = voucherMapper.toEntity(voucherDTO);
         boolean isNew = voucher.getId() == null;
         voucher = voucherRepository.save(voucher);
+        voucherCacheService.evictAllVouchers();
         
         // Gửi notification cho tất cả customers về voucher mới
         if (isNew && voucher.getStatus() == VoucherStatus.ACTIVE) {
@@ -84,6 +90,7 @@ public class VoucherServiceImpl implements VoucherService {
         LOG.debug("Request to update Voucher : {}", voucherDTO);
         Voucher voucher = voucherMapper.toEntity(voucherDTO);
         voucher = voucherRepository.save(voucher);
+        voucherCacheService.evictAllVouchers();
         return voucherMapper.toDto(voucher);
     }
 
@@ -99,7 +106,10 @@ public class VoucherServiceImpl implements VoucherService {
                 return existingVoucher;
             })
             .map(voucherRepository::save)
-            .map(voucherMapper::toDto);
+            .map(voucher -> {
+                voucherCacheService.evictAllVouchers();
+                return voucherMapper.toDto(voucher);
+            });
     }
 
     @Override
@@ -129,6 +139,7 @@ public class VoucherServiceImpl implements VoucherService {
     public void delete(Long id) {
         LOG.debug("Request to delete Voucher : {}", id);
         voucherRepository.deleteById(id);
+        voucherCacheService.evictAllVouchers();
     }
 
     @Override
@@ -147,27 +158,28 @@ public class VoucherServiceImpl implements VoucherService {
             throw new IllegalArgumentException("Mã voucher không được để trống");
         }
 
-        Voucher voucher = voucherRepository.findByCode(voucherCode.trim().toUpperCase())
+        // Quy tắc voucher lấy từ cache (kể cả mã không tồn tại), không truy vấn DB ở mỗi lần gõ phím
+        VoucherRule voucher = voucherCacheService.findByCode(voucherCode.trim().toUpperCase())
             .orElseThrow(() -> new IllegalArgumentException("Mã voucher không tồn tại: " + voucherCode));
 
         // Kiểm tra trạng thái
-        if (voucher.getStatus() != VoucherStatus.ACTIVE) {
-            throw new IllegalArgumentException("Voucher không khả dụng. Trạng thái: " + voucher.getStatus());
+        if (voucher.status() != VoucherStatus.ACTIVE) {
+            throw new IllegalArgumentException("Voucher không khả dụng. Trạng thái: " + voucher.status());
         }
 
         // Kiểm tra thời gian hiệu lực
         Instant now = Instant.now();
-        if (voucher.getStartDate() != null && now.isBefore(voucher.getStartDate())) {
-            throw new IllegalArgumentException("Voucher chưa có hiệu lực. Bắt đầu từ: " + voucher.getStartDate());
+        if (voucher.startDate() != null && now.isBefore(voucher.startDate())) {
+            throw new IllegalArgumentException("Voucher chưa có hiệu lực. Bắt đầu từ: " + voucher.startDate());
         }
-        if (voucher.getEndDate() != null && now.isAfter(voucher.getEndDate())) {
-            throw new IllegalArgumentException("Voucher đã hết hạn. Kết thúc vào: " + voucher.getEndDate());
+        if (voucher.endDate() != null && now.isAfter(voucher.endDate())) {
+            throw new IllegalArgumentException("Voucher đã hết hạn. Kết thúc vào: " + voucher.endDate());
         }
 
-        // Kiểm tra số lần sử dụng
-        if (voucher.getUsageLimit() != null) {
-            int currentUsage = voucher.getUsageCount() != null ? voucher.getUsageCount() : 0;
-            if (currentUsage >= voucher.getUsageLimit()) {
+        // Kiểm tra số lần sử dụng (giới hạn thật được kiểm tra khi dùng voucher, xem redeemVoucher)
+        if (voucher.usageLimit() != null) {
+            int currentUsage = voucher.usageCount() != null ? voucher.usageCount() : 0;
+            if (currentUsage >= voucher.usageLimit()) {
                 throw new IllegalArgumentException("Voucher đã hết lượt sử dụng");
             }
         }
@@ -175,7 +187,7 @@ public class VoucherServiceImpl implements VoucherService {
         // Kiểm tra giá trị đơn hàng tối thiểu (nếu có thể thêm sau)
         // Có thể thêm trường minOrderAmount vào Voucher entity nếu cần
 
-        return voucher;
+        return voucher.toVoucher();
     }
 
     @Override
@@ -207,20 +219,31 @@ public class VoucherServiceImpl implements VoucherService {
 
     @Override
     @Transactional
-    public void applyVoucher(Voucher voucher) {
-        LOG.debug("Request to apply voucher: {}", voucher.getCode());
+    public RedemptionResult redeemVoucher(Long voucherId, Long customerId) {
+        LOG.debug("Request to redeem voucher {} by customer {}", voucherId, customerId);
 
-        // Tăng usage count
-        int currentUsage = voucher.getUsageCount() != null ? voucher.getUsageCount() : 0;
-        voucher.setUsageCount(currentUsage + 1);
+        // Dòng customer_voucher chỉ bị tranh chấp bởi chính khách hàng đó nên được khóa trước dòng voucher
+        if (customerId != null && customerVoucherRepository.markUsed(customerId, voucherId) == 0) {
+            LOG.info("Voucher {} is not available for customer {}", voucherId, customerId);
+            return RedemptionResult.NOT_AVAILABLE_FOR_CUSTOMER;
+        }
 
-        // Nếu đã đạt giới hạn, cập nhật trạng thái
-        if (voucher.getUsageLimit() != null && voucher.getUsageCount() >= voucher.getUsageLimit()) {
-            voucher.setStatus(VoucherStatus.INACTIVE);
+        if (voucherRepository.redeem(voucherId, VoucherStatus.ACTIVE, VoucherStatus.INACTIVE) == 0) {
+            if (customerId != null) {
+                customerVoucherRepository.unmarkUsed(customerId, voucherId);
+            }
+            // Bản chụp trong cache còn báo voucher dùng được
+            voucherCacheService.evictVoucher(voucherId);
+            LOG.info("Voucher {} has no remaining usage", voucherId);
+            return RedemptionResult.EXHAUSTED;
         }
 
-        voucherRepository.save(voucher);
-        LOG.info("Applied voucher: {}, new usage count: {}", voucher.getCode(), voucher.getUsageCount());
+        voucherCacheService.evictVoucher(voucherId);
+        if (customerId != null) {
+            voucherCacheService.evictCustomers(List.of(customerId));
+        }
+        LOG.info("Redeemed voucher {} by customer {}", voucherId, customerId);
+        return RedemptionResult.REDEEMED;
     }
 
     @Override
@@ -249,22 +272,13 @@ public class VoucherServiceImpl implements VoucherService {
 
         // Kiểm tra tư cách sử dụng voucher: Customer phải được tặng voucher này
         if (customerId != null) {
-            Optional<CustomerVoucher> customerVoucherOpt = customerVoucherRepository.findByCustomerIdAndVoucherId(
-                customerId,
-                voucher.getId()
-            );
-
-            if (customerVoucherOpt.isEmpty()) {
-                throw new IllegalArgumentException(
+            switch (voucherCacheService.eligibility(customerId, voucher.getId())) {
+                case ELIGIBLE -> {}
+                case NOT_GIFTED -> throw new IllegalArgumentException(
                     "Bạn chưa được tặng voucher này. Vui lòng kiểm tra lại mã voucher hoặc liên hệ hỗ trợ."
                 );
-            }
-
-            CustomerVoucher customerVoucher = customerVoucherOpt.get();
-
-            // Kiểm tra xem voucher đã được sử dụng chưa
-            if (Boolean.TRUE.equals(customerVoucher.getUsed())) {
-                throw new IllegalArgumentException("Voucher này đã được sử dụng. Mỗi voucher chỉ có thể sử dụng một lần.");
+                // Kiểm tra xem voucher đã được sử dụng chưa
+                case USED -> throw new IllegalArgumentException("Voucher này đã được sử dụng. Mỗi voucher chỉ có thể sử dụng một lần.");
             }
         }
 
@@ -288,23 +302,4 @@ public class VoucherServiceImpl implements VoucherService {
 
         return response;
     }
-
-    @Override
-    @Transactional
-    public void markVoucherAsUsed(Long voucherId, Long customerId) {
-        LOG.debug("Request to mark voucher {} as used by customer {}", voucherId, customerId);
-
-        // Tìm CustomerVoucher
-        CustomerVoucher customerVoucher = customerVoucherRepository
-            .findByCustomerIdAndVoucherId(customerId, voucherId)
-            .orElseThrow(() -> new IllegalArgumentException(
-                "Không tìm thấy voucher cho khách hàng này. Customer ID: " + customerId + ", Voucher ID: " + voucherId
-            ));
-
-        // Đánh dấu đã sử dụng
-        customerVoucher.setUsed(true);
-        customerVoucherRepository.save(customerVoucher);
-
-        LOG.info("Marked voucher {} as used by customer {}", voucherId, customerId);
-    }
 }
@@ -0,0 +1,14 @@
+package com.lumiere.app.service.kafka;
+
+/**
+ * Message Kafka không hợp lệ (thiếu dữ liệu bắt buộc); xử lý lại cũng không thành công,
+ * nên error handler không thử lại mà chuyển thẳng sang dead-letter topic.
+ */
+public class InvalidMessageException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public InvalidMessageException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,182 @@
+package com.lumiere.app.service.kafka;
+
+import com.lumiere.app.config.KafkaConfiguration;
+import com.lumiere.app.service.dto.DeadLetterRecordDTO;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.stereotype.Service;
+
+/**
+ * Xem và gửi lại message trong các dead-letter topic ({@code <topic>-dlt}).
+ * <p>
+ * Message được đọc bằng consumer tạm thời (assign partition, không dùng consumer group nên không ảnh hưởng
+ * offset của listener) và gửi lại nguyên bản (key, value, header gốc) vào topic ban đầu.
+ */
+@Service
+public class KafkaDeadLetterService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KafkaDeadLetterService.class);
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+    private static final int MAX_EMPTY_POLLS = 4;
+
+    private final ConsumerFactory<byte[], byte[]> byteArrayConsumerFactory;
+    private final KafkaTemplate<byte[], byte[]> byteArrayKafkaTemplate;
+
+    public KafkaDeadLetterService(
+        ConsumerFactory<byte[], byte[]> byteArrayConsumerFactory,
+        KafkaTemplate<byte[], byte[]> byteArrayKafkaTemplate
+    ) {
+        this.byteArrayConsumerFactory = byteArrayConsumerFactory;
+        this.byteArrayKafkaTemplate = byteArrayKafkaTemplate;
+    }
+
+    /**
+     * Lấy các message mới nhất của một dead-letter topic.
+     *
+     * @param topic dead-letter topic (phải kết thúc bằng {@link KafkaConfiguration#DLT_SUFFIX})
+     * @param limit số message tối đa trên mỗi partition
+     * @return các message, mới nhất trước
+     */
+    public List<DeadLetterRecordDTO> findRecords(String topic, int limit) {
+        validateTopic(topic);
+        List<DeadLetterRecordDTO> result = new ArrayList<>();
+        try (Consumer<byte[], byte[]> consumer = byteArrayConsumerFactory.createConsumer(null, "dlt-admin")) {
+            List<TopicPartition> partitions = partitionsOf(consumer, topic);
+            if (partitions.isEmpty()) {
+                return result;
+            }
+            consumer.assign(partitions);
+            Map<TopicPartition, Long> beginning = consumer.beginningOffsets(partitions);
+            Map<TopicPartition, Long> end = consumer.endOffsets(partitions);
+            for (TopicPartition partition : partitions) {
+                consumer.seek(partition, Math.max(beginning.get(partition), end.get(partition) - limit));
+            }
+
+            int emptyPolls = 0;
+            while (!reachedEnd(consumer, partitions, end) && emptyPolls < MAX_EMPTY_POLLS) {
+                var records = consumer.poll(POLL_TIMEOUT);
+                emptyPolls = records.isEmpty() ? emptyPolls + 1 : 0;
+                for (ConsumerRecord<byte[], byte[]> record : records) {
+                    if (record.offset() < end.get(new TopicPartition(record.topic(), record.partition()))) {
+                        result.add(toDto(record));
+                    }
+                }
+            }
+        }
+        result.sort(Comparator.comparing(DeadLetterRecordDTO::timestamp).reversed());
+        return result;
+    }
+
+    /**
+     * Gửi lại một message của dead-letter topic vào topic ban đầu.
+     *
+     * @param topic dead-letter topic
+     * @param partition partition của message
+     * @param offset offset của message
+     * @return topic đã gửi lại
+     * @throws IllegalArgumentException nếu không tìm thấy message
+     */
+    public String replay(String topic, int partition, long offset) {
+        validateTopic(topic);
+        ConsumerRecord<byte[], byte[]> record = readRecord(topic, partition, offset);
+        String originalTopic = topic.substring(0, topic.length() - KafkaConfiguration.DLT_SUFFIX.length());
+
+        ProducerRecord<byte[], byte[]> producerRecord = new ProducerRecord<>(originalTopic, null, record.key(), record.value());
+        for (Header header : record.headers()) {
+            // Bỏ các header mô tả lỗi do DLT / retry topic thêm vào, giữ header gốc của message
+            if (!header.key().startsWith(KafkaHeaders.PREFIX + "dlt-") && !header.key().startsWith("retry_topic-")) {
+                producerRecord.headers().add(header);
+            }
+        }
+        try {
+            byteArrayKafkaTemplate.send(producerRecord).get(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while replaying dead-letter record", e);
+        } catch (Exception e) {
+            throw new IllegalStateException("Không thể gửi lại message: " + e.getMessage(), e);
+        }
+        LOG.info("Replayed dead-letter record {}-{}@{} to {}", topic, partition, offset, originalTopic);
+        return originalTopic;
+    }
+
+    private ConsumerRecord<byte[], byte[]> readRecord(String topic, int partition, long offset) {
+        TopicPartition topicPartition = new TopicPartition(topic, partition);
+        try (Consumer<byte[], byte[]> consumer = byteArrayConsumerFactory.createConsumer(null, "dlt-admin")) {
+            if (partitionsOf(consumer, topic).stream().noneMatch(topicPartition::equals)) {
+                throw new IllegalArgumentException("Partition không tồn tại: " + topic + "-" + partition);
+            }
+            consumer.assign(List.of(topicPartition));
+            consumer.seek(topicPartition, offset);
+            for (int i = 0; i < MAX_EMPTY_POLLS; i++) {
+                for (ConsumerRecord<byte[], byte[]> record : consumer.poll(POLL_TIMEOUT)) {
+                    if (record.offset() == offset) {
+                        return record;
+                    }
+                    if (record.offset() > offset) {
+                        break;
+                    }
+                }
+            }
+        }
+        throw new IllegalArgumentException("Không tìm thấy message: " + topic + "-" + partition + "@" + offset);
+    }
+
+    private static List<TopicPartition> partitionsOf(Consumer<byte[], byte[]> consumer, String topic) {
+        List<PartitionInfo> infos = consumer.partitionsFor(topic);
+        if (infos == null) {
+            return List.of();
+        }
+        return infos.stream().map(info -> new TopicPartition(topic, info.partition())).toList();
+    }
+
+    private static boolean reachedEnd(Consumer<byte[], byte[]> consumer, List<TopicPartition> partitions, Map<TopicPartition, Long> end) {
+        return partitions.stream().allMatch(partition -> consumer.position(partition) >= end.get(partition));
+    }
+
+    private static void validateTopic(String topic) {
+        if (topic == null || !topic.endsWith(KafkaConfiguration.DLT_SUFFIX)) {
+            throw new IllegalArgumentException("Topic không phải dead-letter topic: " + topic);
+        }
+    }
+
+    private static DeadLetterRecordDTO toDto(ConsumerRecord<byte[], byte[]> record) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (Header header : record.headers()) {
+            headers.put(header.key(), toString(header.value()));
+        }
+        return new DeadLetterRecordDTO(
+            record.topic(),
+            record.partition(),
+            record.offset(),
+            Instant.ofEpochMilli(record.timestamp()),
+            toString(record.key()),
+            toString(record.value()),
+            headers.get(KafkaHeaders.DLT_EXCEPTION_MESSAGE),
+            headers
+        );
+    }
+
+    private static String toString(byte[] bytes) {
+        return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+    }
+}
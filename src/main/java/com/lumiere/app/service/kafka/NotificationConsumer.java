@@ -1,5 +1,6 @@
 package com.lumiere.app.service.kafka;
 
+import com.lumiere.app.config.KafkaConfiguration;
 import com.lumiere.app.domain.Customer;
 import com.lumiere.app.domain.Notification;
 import com.lumiere.app.repository.CustomerRepository;
@@ -7,8 +8,14 @@ import com.lumiere.app.repository.NotificationRepository;
 import com.lumiere.app.service.dto.NotificationMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.kafka.annotation.DltHandler;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.retrytopic.TopicSuffixingStrategy;
 import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.retry.annotation.Backoff;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -33,42 +40,55 @@ public class NotificationConsumer {
         this.customerRepository = customerRepository;
     }
 
+    /**
+     * Lưu notification. Lỗi không mong muốn được thử lại qua các retry topic (1s, 2s, 4s) rồi gửi sang
+     * {@code notification-topic-dlt}, nên message lỗi không chặn các notification phía sau.
+     */
+    @RetryableTopic(
+        attempts = "4",
+        backoff = @Backoff(delay = 1000, multiplier = 2.0, maxDelay = 10000),
+        topicSuffixingStrategy = TopicSuffixingStrategy.SUFFIX_WITH_INDEX_VALUE,
+        dltTopicSuffix = KafkaConfiguration.DLT_SUFFIX,
+        kafkaTemplate = "kafkaTemplate"
+    )
     @KafkaListener(topics = "${spring.kafka.topic.notification:notification-topic}", groupId = "${spring.kafka.consumer.group-id}")
     @Transactional
     public void consumeNotification(NotificationMessage message, Acknowledgment acknowledgment) {
-        try {
-            LOG.debug("Received notification message: {}", message);
+        LOG.debug("Received notification message: {}", message);
 
-            Notification notification = new Notification();
-            notification.setType(message.getType());
-            notification.setMessage(message.getMessage());
-            notification.setLink(message.getLink());
-            notification.setIsRead(false);
-            notification.setCreatedAt(message.getCreatedAt() != null ? message.getCreatedAt() : java.time.Instant.now());
+        Notification notification = new Notification();
+        notification.setType(message.getType());
+        notification.setMessage(message.getMessage());
+        notification.setLink(message.getLink());
+        notification.setIsRead(false);
+        notification.setCreatedAt(message.getCreatedAt() != null ? message.getCreatedAt() : java.time.Instant.now());
 
-            // Nếu có customerId, set customer; nếu không thì null (notification cho admin)
-            if (message.getCustomerId() != null) {
-                Optional<Customer> customer = customerRepository.findById(message.getCustomerId());
-                if (customer.isPresent()) {
-                    notification.setCustomer(customer.get());
-                } else {
-                    LOG.warn("Customer not found with id: {}, skipping notification", message.getCustomerId());
-                    acknowledgment.acknowledge();
-                    return;
-                }
+        // Nếu có customerId, set customer; nếu không thì null (notification cho admin)
+        if (message.getCustomerId() != null) {
+            Optional<Customer> customer = customerRepository.findById(message.getCustomerId());
+            if (customer.isPresent()) {
+                notification.setCustomer(customer.get());
             } else {
-                notification.setCustomer(null); // Notification cho admin
+                LOG.warn("Customer not found with id: {}, skipping notification", message.getCustomerId());
+                acknowledgment.acknowledge();
+                return;
             }
+        } else {
+            notification.setCustomer(null); // Notification cho admin
+        }
 
-            notificationRepository.save(notification);
-            LOG.info("Saved notification to database: type={}, customerId={}", message.getType(), message.getCustomerId());
+        notificationRepository.save(notification);
+        LOG.info("Saved notification to database: type={}, customerId={}", message.getType(), message.getCustomerId());
 
-            acknowledgment.acknowledge();
-        } catch (Exception e) {
-            LOG.error("Error processing notification message", e);
-            // Không acknowledge để message có thể được retry
-            // Trong production, có thể implement retry logic hoặc dead letter queue
-        }
+        acknowledgment.acknowledge();
     }
-}
 
+    /**
+     * Message đã hết số lần thử lại và nằm trong dead-letter topic.
+     */
+    @DltHandler
+    public void handleDeadLetter(Object message, @Header(KafkaHeaders.RECEIVED_TOPIC) String topic, Acknowledgment acknowledgment) {
+        LOG.error("Notification message moved to dead-letter topic {}: {}", topic, message);
+        acknowledgment.acknowledge();
+    }
+}
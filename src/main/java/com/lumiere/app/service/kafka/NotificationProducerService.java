@@ -1,15 +1,18 @@
 package com.lumiere.app.service.kafka;
 
 import com.lumiere.app.domain.enumeration.NotificationType;
+import com.lumiere.app.service.OutboxService;
 import com.lumiere.app.service.dto.NotificationMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
 /**
  * Service để gửi notification messages qua Kafka.
+ * <p>
+ * Message được ghi vào outbox trong transaction hiện tại (xem {@link OutboxService}): notification chỉ được gửi
+ * khi thao tác nghiệp vụ commit. Key là customerId để notification của một khách hàng giữ đúng thứ tự.
  */
 @Service
 public class NotificationProducerService {
@@ -19,10 +22,10 @@ public class NotificationProducerService {
     @Value("${spring.kafka.topic.notification:notification-topic}")
     private String notificationTopic;
 
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final OutboxService outboxService;
 
-    public NotificationProducerService(KafkaTemplate<String, Object> kafkaTemplate) {
-        this.kafkaTemplate = kafkaTemplate;
+    public NotificationProducerService(OutboxService outboxService) {
+        this.outboxService = outboxService;
     }
 
     /**
@@ -34,14 +37,9 @@ public class NotificationProducerService {
      * @param customerId ID khách hàng (null nếu là notification cho admin)
      */
     public void sendNotification(NotificationType type, String message, String link, Long customerId) {
-        try {
-            NotificationMessage notificationMessage = new NotificationMessage(type, message, link, customerId);
-            kafkaTemplate.send(notificationTopic, notificationMessage);
-            LOG.info("Sent notification message to Kafka: type={}, customerId={}, message={}", type, customerId, message);
-        } catch (Exception e) {
-            LOG.error("Failed to send notification message to Kafka", e);
-            // Không throw exception để không ảnh hưởng đến business logic chính
-        }
+        NotificationMessage notificationMessage = new NotificationMessage(type, message, link, customerId);
+        outboxService.enqueue(notificationTopic, customerId != null ? String.valueOf(customerId) : null, notificationMessage);
+        LOG.info("Queued notification message: type={}, customerId={}, message={}", type, customerId, message);
     }
 
     /**
@@ -58,18 +56,3 @@ public class NotificationProducerService {
         sendNotification(type, message, link, customerId);
     }
 }
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
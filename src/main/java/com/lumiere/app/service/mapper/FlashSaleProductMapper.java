@@ -2,9 +2,11 @@ package com.lumiere.app.service.mapper;
 
 import com.lumiere.app.domain.FlashSale;
 import com.lumiere.app.domain.FlashSaleProduct;
+import com.lumiere.app.domain.Product;
 import com.lumiere.app.domain.ProductVariant;
 import com.lumiere.app.service.dto.FlashSaleDTO;
 import com.lumiere.app.service.dto.FlashSaleProductDTO;
+import com.lumiere.app.service.dto.ProductDTO;
 import com.lumiere.app.service.dto.ProductVariantDTO;
 import org.mapstruct.*;
 
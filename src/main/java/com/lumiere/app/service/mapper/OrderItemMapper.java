@@ -15,11 +15,13 @@ public interface OrderItemMapper extends EntityMapper<OrderItemDTO, OrderItem> {
     OrderItemDTO toDto(OrderItem s);
 
     @Override
+    @Mapping(target = "flashSaleProductId", ignore = true)
     OrderItem toEntity(OrderItemDTO dto);
 
     // Nếu muốn an toàn khi patch:
     @Override
     @BeanMapping(ignoreByDefault = false) // map theo tên đầy đủ
+    @Mapping(target = "flashSaleProductId", ignore = true)
     void partialUpdate(@org.mapstruct.MappingTarget OrderItem entity, OrderItemDTO dto);
 
 }
@@ -1,7 +1,9 @@
 package com.lumiere.app.service.mapper;
 
+import com.lumiere.app.domain.OrderItem;
 import com.lumiere.app.domain.OrderStatusHistory;
 import com.lumiere.app.domain.Orders;
+import com.lumiere.app.service.dto.OrderItemDTO;
 import com.lumiere.app.service.dto.OrderStatusHistoryDTO;
 import com.lumiere.app.service.dto.OrdersDTO;
 import org.mapstruct.*;
@@ -19,4 +21,8 @@ public interface OrderStatusHistoryMapper extends EntityMapper<OrderStatusHistor
     @Mapping(target = "id", source = "id")
     @Mapping(target = "code", source = "code")
     OrdersDTO toDtoOrdersCode(Orders orders);
+
+    // flashSaleProductId chỉ được gán lúc đặt hàng, không nhận từ DTO lồng trong đơn
+    @Mapping(target = "flashSaleProductId", ignore = true)
+    OrderItem toEntityOrderItem(OrderItemDTO orderItemDTO);
 }
@@ -1,9 +1,11 @@
 package com.lumiere.app.service.mapper;
 
 import com.lumiere.app.domain.Customer;
+import com.lumiere.app.domain.OrderItem;
 import com.lumiere.app.domain.Orders;
 import com.lumiere.app.domain.Voucher;
 import com.lumiere.app.service.dto.CustomerDTO;
+import com.lumiere.app.service.dto.OrderItemDTO;
 import com.lumiere.app.service.dto.OrdersDTO;
 import com.lumiere.app.service.dto.VoucherDTO;
 import org.mapstruct.*;
@@ -32,4 +34,8 @@ public interface OrdersMapper extends EntityMapper<OrdersDTO, Orders> {
     @Mapping(target = "type", source = "type")
     @Mapping(target = "value", source = "value")
     VoucherDTO toDtoVoucherCode(Voucher voucher);
+
+    // flashSaleProductId chỉ được gán lúc đặt hàng, không nhận từ DTO lồng trong đơn
+    @Mapping(target = "flashSaleProductId", ignore = true)
+    OrderItem toEntityOrderItem(OrderItemDTO orderItemDTO);
 }
@@ -14,6 +14,14 @@ public interface ProductReviewMapper extends EntityMapper<ProductReviewDTO, Prod
     @Mapping(target = "product", source = "product", qualifiedByName = "productName")
     ProductReviewDTO toDto(ProductReview s);
 
+    @Mapping(target = "customer", ignore = true)
+    ProductReview toEntity(ProductReviewDTO productReviewDTO);
+
+    @Named("partialUpdate")
+    @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
+    @Mapping(target = "customer", ignore = true)
+    void partialUpdate(@MappingTarget ProductReview entity, ProductReviewDTO dto);
+
     @Named("productName")
     @BeanMapping(ignoreByDefault = true)
     @Mapping(target = "id", source = "id")
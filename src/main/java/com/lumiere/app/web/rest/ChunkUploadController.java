@@ -2,12 +2,21 @@ package com.lumiere.app.web.rest;
 
 import com.lumiere.app.service.ChunkUploadService;
 import com.lumiere.app.service.dto.AttachmentDTO;
+import com.lumiere.app.service.dto.ChunkUploadStatusDTO;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import tech.jhipster.web.util.ResponseUtil;
 
 import java.io.IOException;
 
+/**
+ * Upload file theo chunk.
+ * <p>
+ * Client gửi từng chunk (thứ tự bất kỳ, có thể song song) với {@code Upload-Id}, {@code Chunk-Index}, tùy chọn
+ * {@code Chunk-Size} (kích thước chunk của upload) và {@code Chunk-Sha256} (checksum để server kiểm tra). Khi bị gián
+ * đoạn, {@code GET /api/chunk-upload/{uploadId}} cho biết các chunk đã nhận để chỉ gửi lại phần còn thiếu.
+ */
 @RestController
 @RequestMapping("/api/chunk-upload")
 public class ChunkUploadController {
@@ -22,11 +31,23 @@ public class ChunkUploadController {
     public ResponseEntity<String> uploadChunk(
             @RequestParam("file") MultipartFile file,
             @RequestHeader("Upload-Id") String uploadId,
-            @RequestHeader("Chunk-Index") int chunkIndex) throws IOException {
-        service.saveChunk(uploadId, chunkIndex, file);
+            @RequestHeader("Chunk-Index") int chunkIndex,
+            @RequestHeader(value = "Chunk-Size", required = false) Long chunkSize,
+            @RequestHeader(value = "Chunk-Sha256", required = false) String sha256) throws IOException {
+        try {
+            service.saveChunk(uploadId, chunkIndex, chunkSize, sha256, file);
+        } catch (IllegalArgumentException e) {
+            // Chunk sai (checksum, kích thước): client gửi lại chunk này
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
         return ResponseEntity.ok("Uploaded chunk " + chunkIndex);
     }
 
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<ChunkUploadStatusDTO> getUploadStatus(@PathVariable String uploadId) throws IOException {
+        return ResponseUtil.wrapOrNotFound(service.getStatus(uploadId));
+    }
+
     @PostMapping("/complete")
     public ResponseEntity<?> completeUpload(
             @RequestParam("uploadId") String uploadId,
@@ -8,6 +8,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
 
 /**
@@ -91,5 +92,21 @@ public class DashboardResource {
         List<RecentSaleDTO> recentSales = dashboardService.getRecentSales(limit);
         return ResponseEntity.ok().body(recentSales);
     }
-}
 
+    /**
+     * {@code POST  /dashboard/rebuild} : Dựng lại bảng số liệu dashboard từ dữ liệu đơn hàng và khách hàng.
+     *
+     * @param fromDate ngày bắt đầu (yyyy-MM-dd), bỏ trống để dựng lại toàn bộ lịch sử
+     * @param toDate ngày kết thúc (yyyy-MM-dd), bỏ trống để dựng lại toàn bộ lịch sử
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the rebuild result.
+     */
+    @PostMapping("/rebuild")
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN')")
+    public ResponseEntity<DashboardRebuildResult> rebuildMetrics(
+        @RequestParam(required = false) LocalDate fromDate,
+        @RequestParam(required = false) LocalDate toDate
+    ) {
+        LOG.debug("REST request to rebuild dashboard metrics from {} to {}", fromDate, toDate);
+        return ResponseEntity.ok().body(dashboardService.rebuildMetrics(fromDate, toDate));
+    }
+}
@@ -1,10 +1,12 @@
 package com.lumiere.app.web.rest;
 
-import com.lumiere.app.service.HomeService;
+import com.lumiere.app.service.HomeFeedService;
+import com.lumiere.app.service.HomeFeedService.FeedView;
 import com.lumiere.app.service.dto.CategoryWithProductsDTO;
 import com.lumiere.app.service.dto.ProductDTO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -12,6 +14,9 @@ import java.util.List;
 
 /**
  * REST controller for managing Home page data.
+ * <p>
+ * Dữ liệu được phục vụ từ snapshot trong bộ nhớ của {@link HomeFeedService}. Mỗi response có ETag; client gửi lại
+ * {@code If-None-Match} sẽ nhận {@code 304 Not Modified} khi snapshot chưa đổi.
  */
 @RestController
 @RequestMapping("/api/home")
@@ -19,10 +24,10 @@ public class HomeResource {
 
     private static final Logger LOG = LoggerFactory.getLogger(HomeResource.class);
 
-    private final HomeService homeService;
+    private final HomeFeedService homeFeedService;
 
-    public HomeResource(HomeService homeService) {
-        this.homeService = homeService;
+    public HomeResource(HomeFeedService homeFeedService) {
+        this.homeFeedService = homeFeedService;
     }
 
     /**
@@ -36,8 +41,7 @@ public class HomeResource {
         @RequestParam(value = "limit", defaultValue = "10") int limit
     ) {
         LOG.debug("REST request to get best selling products with limit: {}", limit);
-        List<ProductDTO> products = homeService.getBestSellingProducts(limit);
-        return ResponseEntity.ok().body(products);
+        return toResponse(homeFeedService.getBestSellingProducts(limit));
     }
 
     /**
@@ -51,8 +55,7 @@ public class HomeResource {
         @RequestParam(value = "limit", defaultValue = "10") int limit
     ) {
         LOG.debug("REST request to get new arrivals with limit: {}", limit);
-        List<ProductDTO> products = homeService.getNewArrivals(limit);
-        return ResponseEntity.ok().body(products);
+        return toResponse(homeFeedService.getNewArrivals(limit));
     }
 
     /**
@@ -66,8 +69,14 @@ public class HomeResource {
         @RequestParam(value = "productsPerCategory", defaultValue = "4") int productsPerCategory
     ) {
         LOG.debug("REST request to get shop by category with {} products per category", productsPerCategory);
-        List<CategoryWithProductsDTO> categories = homeService.getShopByCategory(productsPerCategory);
-        return ResponseEntity.ok().body(categories);
+        return toResponse(homeFeedService.getShopByCategory(productsPerCategory));
+    }
+
+    /**
+     * Response kèm ETag; Spring tự trả 304 khi ETag khớp {@code If-None-Match}.
+     */
+    private static <T> ResponseEntity<List<T>> toResponse(FeedView<T> feed) {
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).eTag(feed.etag()).body(feed.items());
     }
 }
 
@@ -0,0 +1,64 @@
+package com.lumiere.app.web.rest;
+
+import com.lumiere.app.service.dto.DeadLetterRecordDTO;
+import com.lumiere.app.service.kafka.KafkaDeadLetterService;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * REST controller để xem và gửi lại message trong các Kafka dead-letter topic.
+ */
+@RestController
+@RequestMapping("/api/admin/kafka/dlt")
+public class KafkaDeadLetterResource {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KafkaDeadLetterResource.class);
+
+    private final KafkaDeadLetterService kafkaDeadLetterService;
+
+    public KafkaDeadLetterResource(KafkaDeadLetterService kafkaDeadLetterService) {
+        this.kafkaDeadLetterService = kafkaDeadLetterService;
+    }
+
+    /**
+     * {@code GET  /admin/kafka/dlt/:topic} : Lấy các message mới nhất của một dead-letter topic.
+     *
+     * @param topic dead-letter topic, ví dụ {@code order-stock-processing-dlt}
+     * @param limit số message tối đa trên mỗi partition
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the list of records.
+     */
+    @GetMapping("/{topic}")
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN')")
+    public ResponseEntity<List<DeadLetterRecordDTO>> getDeadLetterRecords(
+        @PathVariable String topic,
+        @RequestParam(defaultValue = "50") int limit
+    ) {
+        LOG.debug("REST request to get dead-letter records of {} (limit {})", topic, limit);
+        return ResponseEntity.ok().body(kafkaDeadLetterService.findRecords(topic, Math.min(Math.max(limit, 1), 500)));
+    }
+
+    /**
+     * {@code POST  /admin/kafka/dlt/:topic/replay} : Gửi lại một message vào topic ban đầu.
+     *
+     * @param topic dead-letter topic
+     * @param partition partition của message
+     * @param offset offset của message
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the topic the record was sent to.
+     */
+    @PostMapping("/{topic}/replay")
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN')")
+    public ResponseEntity<Map<String, String>> replayDeadLetterRecord(
+        @PathVariable String topic,
+        @RequestParam int partition,
+        @RequestParam long offset
+    ) {
+        LOG.debug("REST request to replay dead-letter record {}-{}@{}", topic, partition, offset);
+        String originalTopic = kafkaDeadLetterService.replay(topic, partition, offset);
+        return ResponseEntity.ok().body(Map.of("topic", originalTopic));
+    }
+}
@@ -1,26 +1,63 @@
 // com.lumiere.app.web.rest.MediaResource
 package com.lumiere.app.web.rest;
 
+import com.lumiere.app.service.ImageDerivativeService;
+import com.lumiere.app.service.ImageDerivativeService.Derivative;
+import com.lumiere.app.service.MediaMetadataService;
+import com.lumiere.app.service.MediaMetadataService.MediaMetadata;
+import io.undertow.servlet.spec.ServletOutputStreamImpl;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.util.FileCopyUtils;
+import org.springframework.http.HttpRange;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
-import java.io.InputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.*;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Optional;
 
+/**
+ * Phục vụ file media đã upload.
+ * <p>
+ * Hỗ trợ HEAD, GET có điều kiện ({@code If-None-Match}/{@code If-Modified-Since} → 304) và một khoảng byte
+ * ({@code Range}/{@code If-Range} → 206). Metadata của file lấy từ {@link MediaMetadataService}; nội dung được
+ * chuyển bằng {@link FileChannel} (sendfile trên Undertow) nên file lớn không đi qua heap.
+ * <p>
+ * Tham số {@code size} ({@code thumb}, {@code card}, {@code detail}) chọn bản resize do {@link ImageDerivativeService}
+ * sinh (WebP nếu client chấp nhận và có sẵn); khi bản resize chưa có, trả ảnh gốc với thời gian cache ngắn.
+ */
 @RestController
 @RequestMapping("/api/media")
 public class MediaResource {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MediaResource.class);
+
     private final Path mediaRoot;
+    private final MediaMetadataService mediaMetadataService;
 
-    public MediaResource(Path mediaRoot) {
+    public MediaResource(Path mediaRoot, MediaMetadataService mediaMetadataService) {
         this.mediaRoot = mediaRoot;
+        this.mediaMetadataService = mediaMetadataService;
     }
 
-    @GetMapping("/{name}")
-    public void get(@PathVariable String name, HttpServletResponse resp) {
+    @RequestMapping(value = "/{name}", method = { RequestMethod.GET, RequestMethod.HEAD })
+    public void get(
+        @PathVariable String name,
+        @RequestParam(value = "size", required = false) String sizeCode,
+        HttpServletRequest req,
+        HttpServletResponse resp
+    ) {
         // Chỉ cho phép tên file kiểu UUID.ext: chặn path traversal
         if (!name.matches("^[a-fA-F0-9\\-]{8,}\\.\\w{1,10}$")) {
             resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
@@ -32,21 +69,134 @@ public class MediaResource {
             resp.setStatus(HttpServletResponse.SC_FORBIDDEN);
             return;
         }
-        if (!Files.exists(file)) {
+        Optional<Derivative> derivative = Optional.empty();
+        if (sizeCode != null) {
+            derivative = Derivative.fromCode(sizeCode);
+            if (derivative.isEmpty()) {
+                resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                return;
+            }
+        }
+
+        Optional<MediaMetadata> found = derivative.flatMap(d -> findDerivative(d, name, req));
+        boolean immutable = found.isPresent() || derivative.isEmpty();
+        if (found.isEmpty()) {
+            found = mediaMetadataService.find(name);
+        }
+        if (found.isEmpty()) {
             resp.setStatus(HttpServletResponse.SC_NOT_FOUND);
             return;
         }
+        MediaMetadata meta = found.get();
+
+        // Bản resize chưa sinh xong: ảnh gốc chỉ được cache ngắn để client lấy lại bản resize sau đó
+        resp.setHeader(HttpHeaders.CACHE_CONTROL, immutable ? "public, max-age=31536000, immutable" : "public, max-age=60");
+        if (derivative.isPresent()) {
+            resp.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+        resp.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        // Đặt ETag, Last-Modified; trả 304 (hoặc 412) nếu điều kiện của client khớp
+        if (new ServletWebRequest(req, resp).checkNotModified(meta.etag(), meta.lastModified())) {
+            return;
+        }
+
+        long size = meta.size();
+        long start = 0;
+        long length = size;
+        String rangeHeader = req.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && size > 0 && isRangeApplicable(req.getHeader(HttpHeaders.IF_RANGE), meta)) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of();
+            }
+            // Nhiều khoảng (multipart/byteranges) không được hỗ trợ: trả toàn bộ file
+            if (ranges.size() == 1) {
+                start = ranges.get(0).getRangeStart(size);
+                length = ranges.get(0).getRangeEnd(size) - start + 1;
+                if (start >= size || length <= 0) {
+                    resp.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    resp.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                    return;
+                }
+                resp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                resp.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (start + length - 1) + "/" + size);
+            }
+        }
+
+        resp.setContentType(meta.contentType());
+        resp.setContentLengthLong(length);
+        if (RequestMethod.HEAD.name().equals(req.getMethod())) {
+            return;
+        }
 
-        try (InputStream in = Files.newInputStream(file, StandardOpenOption.READ)) {
-            String ct = Files.probeContentType(file);
-            resp.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=31536000, immutable");
-            resp.setHeader(HttpHeaders.ETAG, String.valueOf(Files.getLastModifiedTime(file).toMillis()));
-            resp.setContentType(ct != null ? ct : MediaType.APPLICATION_OCTET_STREAM_VALUE);
-            resp.setContentLengthLong(Files.size(file));
-            FileCopyUtils.copy(in, resp.getOutputStream());
-            resp.flushBuffer();
-        } catch (Exception e) {
-            resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        try (FileChannel channel = FileChannel.open(meta.path(), StandardOpenOption.READ)) {
+            transfer(channel, start, length, resp.getOutputStream());
+        } catch (NoSuchFileException e) {
+            mediaMetadataService.evict(meta.name());
+            if (!resp.isCommitted()) {
+                resp.reset();
+                resp.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            }
+        } catch (IOException e) {
+            // Thường do client đóng kết nối giữa chừng (tua video, hủy tải)
+            LOG.debug("Media transfer of {} interrupted: {}", name, e.getMessage());
+        }
+    }
+
+    /**
+     * Bản resize của file: WebP nếu client chấp nhận {@code image/webp}, ngược lại cùng định dạng với file gốc.
+     */
+    private Optional<MediaMetadata> findDerivative(Derivative derivative, String name, HttpServletRequest req) {
+        String accept = req.getHeader(HttpHeaders.ACCEPT);
+        if (accept != null && accept.contains("image/webp")) {
+            Optional<MediaMetadata> webp = mediaMetadataService.find(ImageDerivativeService.derivativeName(derivative, name, true));
+            if (webp.isPresent()) {
+                return webp;
+            }
+        }
+        return mediaMetadataService.find(ImageDerivativeService.derivativeName(derivative, name, false));
+    }
+
+    /**
+     * {@code If-Range} chỉ cho phép trả một khoảng khi ETag (hoặc thời điểm sửa) vẫn khớp; ngược lại trả toàn bộ file.
+     */
+    private static boolean isRangeApplicable(String ifRange, MediaMetadata meta) {
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(meta.etag());
+        }
+        try {
+            long date = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return date / 1000 == meta.lastModified() / 1000;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Chuyển {@code length} byte từ {@code start}: trên Undertow dùng sendfile, nơi khác dùng {@link FileChannel#transferTo}.
+     */
+    private static void transfer(FileChannel channel, long start, long length, ServletOutputStream out) throws IOException {
+        if (out instanceof ServletOutputStreamImpl undertow) {
+            // Undertow gửi từ vị trí hiện tại của channel, tối đa Content-Length byte
+            channel.position(start);
+            undertow.transferFrom(channel);
+            return;
+        }
+        WritableByteChannel target = Channels.newChannel(out);
+        long position = start;
+        long end = start + length;
+        while (position < end) {
+            long sent = channel.transferTo(position, end - position, target);
+            if (sent <= 0) {
+                break;
+            }
+            position += sent;
         }
+        out.flush();
     }
 }
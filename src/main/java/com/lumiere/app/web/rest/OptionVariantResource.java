@@ -3,6 +3,7 @@ package com.lumiere.app.web.rest;
 
 import com.lumiere.app.service.OptionVariantService;
 import com.lumiere.app.service.dto.GroupSelectReq;
+import com.lumiere.app.service.dto.OptionAvailabilityDTO;
 import com.lumiere.app.service.dto.OptionVariantDTO;
 import com.lumiere.app.service.dto.ProductVariantDTO;
 import com.lumiere.app.service.dto.SyncMixResult;
@@ -72,4 +73,14 @@ public class OptionVariantResource {
         return ResponseEntity.ok(dto);
     }
 
+    /**
+     * Các tổ hợp option còn chọn được khi đã chọn một phần option (dùng để làm mờ option không có variant).
+     */
+    @PostMapping("/products/{productId}/available-combinations")
+    public ResponseEntity<OptionAvailabilityDTO> findAvailableCombinations(
+        @PathVariable Long productId,
+        @RequestBody(required = false) List<Long> selectOptionIds
+    ) {
+        return ResponseEntity.ok(service.findAvailableCombinations(productId, selectOptionIds));
+    }
 }
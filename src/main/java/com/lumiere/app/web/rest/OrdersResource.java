@@ -16,6 +16,7 @@ import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -231,17 +232,22 @@ public class OrdersResource {
     }
 
     /**
-     * Xuất Excel danh sách đơn hàng.
-     * Ví dụ: GET /api/orders/export
+     * Xuất Excel danh sách đơn hàng, có thể lọc theo khoảng ngày và trạng thái.
+     * Ví dụ: GET /api/orders/export?fromDate=2025-01-01&toDate=2025-03-31&status=COMPLETED&status=DELIVERED
      */
     @GetMapping(
         value = "/export",
         produces = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"
     )
     @PreAuthorize("hasAnyRole('ROLE_ADMIN')")
-    public void exportOrdersToExcel(HttpServletResponse response) {
-        LOG.debug("REST request to export all orders to Excel");
-        ordersService.exportOrdersToExcel(response);
+    public void exportOrdersToExcel(
+        @RequestParam(required = false) LocalDate fromDate,
+        @RequestParam(required = false) LocalDate toDate,
+        @RequestParam(name = "status", required = false) List<OrderStatus> statuses,
+        HttpServletResponse response
+    ) {
+        LOG.debug("REST request to export orders to Excel, fromDate: {}, toDate: {}, statuses: {}", fromDate, toDate, statuses);
+        ordersService.exportOrdersToExcel(fromDate, toDate, statuses, response);
     }
 
     /**
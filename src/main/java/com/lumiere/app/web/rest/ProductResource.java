@@ -2,9 +2,11 @@ package com.lumiere.app.web.rest;
 
 import com.lumiere.app.repository.ProductRepository;
 import com.lumiere.app.service.ProductQueryService;
+import com.lumiere.app.service.ProductSearchIndexService;
 import com.lumiere.app.service.ProductService;
 import com.lumiere.app.service.criteria.ProductCriteria;
 import com.lumiere.app.service.dto.ProductDTO;
+import com.lumiere.app.service.dto.ProductSearchFacetsDTO;
 import com.lumiere.app.web.rest.errors.BadRequestAlertException;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
@@ -50,10 +52,18 @@ public class ProductResource {
 
     private final ProductQueryService productQueryService;
 
-    public ProductResource(ProductService productService, ProductRepository productRepository, ProductQueryService productQueryService) {
+    private final ProductSearchIndexService productSearchIndexService;
+
+    public ProductResource(
+        ProductService productService,
+        ProductRepository productRepository,
+        ProductQueryService productQueryService,
+        ProductSearchIndexService productSearchIndexService
+    ) {
         this.productService = productService;
         this.productRepository = productRepository;
         this.productQueryService = productQueryService;
+        this.productSearchIndexService = productSearchIndexService;
     }
 
     /**
@@ -208,31 +218,62 @@ public class ProductResource {
         @RequestParam(value = "categoryId.in", required = false) String categoryIdsRaw,
         @RequestParam(value = "price.greaterThanOrEqual", required = false) String minPriceStr,
         @RequestParam(value = "price.lessThanOrEqual", required = false) String maxPriceStr,
+        @RequestParam(value = "inStock", required = false) Boolean inStock,
+        @RequestParam(value = "onFlashSale", required = false) Boolean onFlashSale,
         Pageable pageable
     ) {
-        List<Long> categoryIds = null;
-        if (categoryIdsRaw != null && !categoryIdsRaw.isBlank()) {
-            categoryIds = Arrays.stream(categoryIdsRaw.split(","))
-                .map(String::trim)
-                .filter(s -> !s.isEmpty())
-                .map(Long::valueOf)
-                .toList();
-        }
+        Page<ProductDTO> page = productService.searchProducts(
+            parseCategoryIds(categoryIdsRaw),
+            parsePrice(minPriceStr),
+            parsePrice(maxPriceStr),
+            inStock,
+            onFlashSale,
+            pageable
+        );
 
-        BigDecimal minPrice = null;
-        BigDecimal maxPrice = null;
+        return ResponseEntity.ok()
+            .body(page);
+    }
 
-        if (minPriceStr != null && !minPriceStr.isBlank()) {
-            minPrice = new BigDecimal(minPriceStr);
-        }
-        if (maxPriceStr != null && !maxPriceStr.isBlank()) {
-            maxPrice = new BigDecimal(maxPriceStr);
-        }
+    /**
+     * {@code GET  /products/search/facets} : Số sản phẩm theo danh mục và theo khoảng giá, với cùng bộ lọc như {@code /products/search}.
+     *
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the facet counts.
+     */
+    @GetMapping("/search/facets")
+    public ResponseEntity<ProductSearchFacetsDTO> getSearchFacets(
+        @RequestParam(value = "categoryId.in", required = false) String categoryIdsRaw,
+        @RequestParam(value = "price.greaterThanOrEqual", required = false) String minPriceStr,
+        @RequestParam(value = "price.lessThanOrEqual", required = false) String maxPriceStr,
+        @RequestParam(value = "inStock", required = false) Boolean inStock,
+        @RequestParam(value = "onFlashSale", required = false) Boolean onFlashSale
+    ) {
+        LOG.debug("REST request to get product search facets");
+        return ResponseEntity.ok()
+            .body(
+                productSearchIndexService.findFacets(
+                    parseCategoryIds(categoryIdsRaw),
+                    parsePrice(minPriceStr),
+                    parsePrice(maxPriceStr),
+                    inStock,
+                    onFlashSale
+                )
+            );
+    }
 
-        Page<ProductDTO> page = productService.searchProducts(categoryIds, minPrice, maxPrice, pageable);
+    private static List<Long> parseCategoryIds(String categoryIdsRaw) {
+        if (categoryIdsRaw == null || categoryIdsRaw.isBlank()) {
+            return null;
+        }
+        return Arrays.stream(categoryIdsRaw.split(","))
+            .map(String::trim)
+            .filter(s -> !s.isEmpty())
+            .map(Long::valueOf)
+            .toList();
+    }
 
-        return ResponseEntity.ok()
-            .body(page);
+    private static BigDecimal parsePrice(String price) {
+        return price != null && !price.isBlank() ? new BigDecimal(price) : null;
     }
 
     /**
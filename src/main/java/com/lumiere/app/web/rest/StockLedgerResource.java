@@ -0,0 +1,37 @@
+package com.lumiere.app.web.rest;
+
+import com.lumiere.app.service.StockLedgerReconciliationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * REST controller để đối soát tồn kho với sổ kho.
+ */
+@RestController
+@RequestMapping("/api/admin/stock-ledger")
+public class StockLedgerResource {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StockLedgerResource.class);
+
+    private final StockLedgerReconciliationService stockLedgerReconciliationService;
+
+    public StockLedgerResource(StockLedgerReconciliationService stockLedgerReconciliationService) {
+        this.stockLedgerReconciliationService = stockLedgerReconciliationService;
+    }
+
+    /**
+     * {@code POST  /admin/stock-ledger/reconcile} : Đối soát tồn kho với sổ kho.
+     *
+     * @param dryRun true để chỉ báo cáo các chỗ lệch mà không sửa
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the reconciliation result.
+     */
+    @PostMapping("/reconcile")
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN')")
+    public ResponseEntity<StockLedgerReconciliationService.Result> reconcile(@RequestParam(defaultValue = "true") boolean dryRun) {
+        LOG.debug("REST request to reconcile stock ledger (dryRun: {})", dryRun);
+        return ResponseEntity.ok().body(stockLedgerReconciliationService.reconcile(!dryRun));
+    }
+}
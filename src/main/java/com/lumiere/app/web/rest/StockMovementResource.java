@@ -46,7 +46,7 @@ public class StockMovementResource {
      * {@code POST  /stock-movements} : Create a new stockMovement.
      *
      * @param stockMovementDTO the stockMovementDTO to create.
-     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the new stockMovementDTO, or with status {@code 400 (Bad Request)} if the stockMovement has already an ID.
+     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the new stockMovementDTO, or with status {@code 400 (Bad Request)} if the stockMovement has already an ID or cannot be applied (e.g. not enough stock).
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PostMapping("")
@@ -56,7 +56,11 @@ public class StockMovementResource {
         if (stockMovementDTO.getId() != null) {
             throw new BadRequestAlertException("A new stockMovement cannot already have an ID", ENTITY_NAME, "idexists");
         }
-        stockMovementDTO = stockMovementService.save(stockMovementDTO);
+        try {
+            stockMovementDTO = stockMovementService.save(stockMovementDTO);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "movementinvalid");
+        }
         return ResponseEntity.created(new URI("/api/stock-movements/" + stockMovementDTO.getId()))
             .headers(HeaderUtil.createEntityCreationAlert(applicationName, true, ENTITY_NAME, stockMovementDTO.getId().toString()))
             .body(stockMovementDTO);
@@ -159,17 +163,18 @@ public class StockMovementResource {
     }
 
     /**
-     * {@code DELETE  /stock-movements/:id} : delete the "id" stockMovement.
+     * {@code DELETE  /stock-movements/:id} : stock movements cannot be deleted from the ledger.
      *
-     * @param id the id of the stockMovementDTO to delete.
-     * @return the {@link ResponseEntity} with status {@code 204 (NO_CONTENT)}.
+     * @param id the id of the stockMovementDTO.
+     * @throws BadRequestAlertException always: record a compensating movement instead.
      */
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteStockMovement(@PathVariable("id") Long id) {
         LOG.debug("REST request to delete StockMovement : {}", id);
-        stockMovementService.delete(id);
-        return ResponseEntity.noContent()
-            .headers(HeaderUtil.createEntityDeletionAlert(applicationName, true, ENTITY_NAME, id.toString()))
-            .build();
+        throw new BadRequestAlertException(
+            "Stock movements cannot be deleted, record a compensating movement instead",
+            ENTITY_NAME,
+            "immutable"
+        );
     }
 }
@@ -3,25 +3,31 @@ package com.lumiere.app.web.rest;
 import com.lumiere.app.domain.ChatMessage;
 import com.lumiere.app.domain.ChatSession;
 import com.lumiere.app.domain.enumeration.MessageSender;
-import com.lumiere.app.repository.ChatMessageRepository;
 import com.lumiere.app.repository.ChatSessionRepository;
 import com.lumiere.app.security.SecurityUtils;
+import com.lumiere.app.service.ChatMessageIdAllocator;
+import com.lumiere.app.service.ChatMessageWriteBehindService;
+import com.lumiere.app.service.ChatMessageWriteBehindService.PendingChatMessage;
 import com.lumiere.app.service.dto.ChatMessageDTO;
 import com.lumiere.app.service.mapper.ChatMessageMapper;
+import java.security.Principal;
 import java.time.Instant;
 import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
-import org.springframework.messaging.handler.annotation.SendTo;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.messaging.simp.annotation.SendToUser;
 import org.springframework.stereotype.Controller;
-import org.springframework.transaction.annotation.Transactional;
 
 /**
  * WebSocket controller for handling real-time chat messages.
+ * <p>
+ * Tin nhắn chỉ được gửi tới các destination của phiên chat ({@code /topic/session/{sessionId}}) và của người gửi
+ * ({@code /user/queue/chat}), không broadcast cho mọi client. Tin nhắn được ghi DB ở background qua
+ * {@link ChatMessageWriteBehindService}; id được cấp trước qua {@link ChatMessageIdAllocator} nên tin nhắn đẩy
+ * realtime có cùng {@code id} với khi đọc lịch sử qua REST.
  */
 @Controller
 public class WebSocketController {
@@ -29,55 +35,45 @@ public class WebSocketController {
     private static final Logger LOG = LoggerFactory.getLogger(WebSocketController.class);
 
     private final SimpMessagingTemplate messagingTemplate;
-    private final ChatMessageRepository chatMessageRepository;
+    private final ChatMessageWriteBehindService chatMessageWriteBehindService;
     private final ChatSessionRepository chatSessionRepository;
     private final ChatMessageMapper chatMessageMapper;
+    private final ChatMessageIdAllocator chatMessageIdAllocator;
 
     public WebSocketController(
         SimpMessagingTemplate messagingTemplate,
-        ChatMessageRepository chatMessageRepository,
+        ChatMessageWriteBehindService chatMessageWriteBehindService,
         ChatSessionRepository chatSessionRepository,
-        ChatMessageMapper chatMessageMapper
+        ChatMessageMapper chatMessageMapper,
+        ChatMessageIdAllocator chatMessageIdAllocator
     ) {
         this.messagingTemplate = messagingTemplate;
-        this.chatMessageRepository = chatMessageRepository;
+        this.chatMessageWriteBehindService = chatMessageWriteBehindService;
         this.chatSessionRepository = chatSessionRepository;
         this.chatMessageMapper = chatMessageMapper;
+        this.chatMessageIdAllocator = chatMessageIdAllocator;
     }
 
     /**
      * Handle incoming chat messages.
      * Client sends to: /app/chat.sendMessage
-     * Server broadcasts to: /topic/public (for all users) or /topic/session/{sessionId} (for specific session)
+     * Server sends to: /topic/session/{sessionId} and /user/queue/chat (other connections of the sender)
      *
      * @param messageDTO the message DTO
-     * @return the saved message DTO
+     * @param principal the sender
      */
     @MessageMapping("/chat.sendMessage")
-    @SendTo("/topic/public")
-    @Transactional
-    public ChatMessageDTO sendMessage(@Payload ChatMessageDTO messageDTO) {
+    public void sendMessage(@Payload ChatMessageDTO messageDTO, Principal principal) {
         LOG.debug("Received message: {}", messageDTO);
 
-        // Get or create chat session
         ChatSession session = getOrCreateSession(messageDTO);
-
-        // Create and save message
-        ChatMessage message = new ChatMessage();
-        message.setSender(messageDTO.getSender() != null ? messageDTO.getSender() : MessageSender.USER);
-        message.setText(messageDTO.getText());
-        message.setTimestamp(messageDTO.getTimestamp() != null ? messageDTO.getTimestamp() : Instant.now());
-        message.setSession(session);
-
-        message = chatMessageRepository.save(message);
-        ChatMessageDTO savedMessage = chatMessageMapper.toDto(message);
-
-        LOG.info("Saved and broadcasting message: {}", savedMessage.getId());
-
-        // Broadcast to specific session topic
-        messagingTemplate.convertAndSend("/topic/session/" + session.getId(), savedMessage);
-
-        return savedMessage;
+        ChatMessageDTO message = persist(
+            session,
+            messageDTO.getSender() != null ? messageDTO.getSender() : MessageSender.USER,
+            messageDTO.getText(),
+            messageDTO.getTimestamp() != null ? messageDTO.getTimestamp() : Instant.now()
+        );
+        deliver(session, message, principal);
     }
 
     /**
@@ -89,58 +85,59 @@ public class WebSocketController {
      */
     @MessageMapping("/chat.sendPrivateMessage")
     @SendToUser("/queue/private")
-    @Transactional
     public ChatMessageDTO sendPrivateMessage(@Payload ChatMessageDTO messageDTO) {
         LOG.debug("Received private message: {}", messageDTO);
 
-        // Get or create chat session
         ChatSession session = getOrCreateSession(messageDTO);
-
-        // Create and save message
-        ChatMessage message = new ChatMessage();
-        message.setSender(messageDTO.getSender() != null ? messageDTO.getSender() : MessageSender.USER);
-        message.setText(messageDTO.getText());
-        message.setTimestamp(messageDTO.getTimestamp() != null ? messageDTO.getTimestamp() : Instant.now());
-        message.setSession(session);
-
-        message = chatMessageRepository.save(message);
-        ChatMessageDTO savedMessage = chatMessageMapper.toDto(message);
-
-        LOG.info("Saved private message: {}", savedMessage.getId());
-
-        return savedMessage;
+        return persist(
+            session,
+            messageDTO.getSender() != null ? messageDTO.getSender() : MessageSender.USER,
+            messageDTO.getText(),
+            messageDTO.getTimestamp() != null ? messageDTO.getTimestamp() : Instant.now()
+        );
     }
 
     /**
      * Handle user joining a chat session.
      * Client sends to: /app/chat.addUser
-     * Server broadcasts to: /topic/public
+     * Server sends to: /topic/session/{sessionId} and /user/queue/chat
      *
      * @param messageDTO the message DTO containing session info
+     * @param principal the joining user
      */
     @MessageMapping("/chat.addUser")
-    @SendTo("/topic/public")
-    @Transactional
-    public ChatMessageDTO addUser(@Payload ChatMessageDTO messageDTO) {
+    public void addUser(@Payload ChatMessageDTO messageDTO, Principal principal) {
         LOG.debug("User joining chat: {}", messageDTO);
 
-        // Get or create chat session
         ChatSession session = getOrCreateSession(messageDTO);
+        ChatMessageDTO message = persist(session, MessageSender.BOT, "User joined the chat", Instant.now());
+        deliver(session, message, principal);
+    }
+
+    /**
+     * Đưa tin nhắn vào hàng đợi ghi và trả về DTO để gửi cho client.
+     */
+    private ChatMessageDTO persist(ChatSession session, MessageSender sender, String text, Instant timestamp) {
+        Long id = chatMessageIdAllocator.nextId();
+        chatMessageWriteBehindService.persist(new PendingChatMessage(id, session.getId(), sender, text, timestamp));
 
-        // Create join notification message
         ChatMessage message = new ChatMessage();
-        message.setSender(MessageSender.BOT);
-        message.setText("User joined the chat");
-        message.setTimestamp(Instant.now());
+        message.setId(id);
+        message.setSender(sender);
+        message.setText(text);
+        message.setTimestamp(timestamp);
         message.setSession(session);
+        return chatMessageMapper.toDto(message);
+    }
 
-        message = chatMessageRepository.save(message);
-        ChatMessageDTO savedMessage = chatMessageMapper.toDto(message);
-
-        // Broadcast to session
-        messagingTemplate.convertAndSend("/topic/session/" + session.getId(), savedMessage);
-
-        return savedMessage;
+    /**
+     * Gửi tin nhắn tới subscriber của phiên chat và các kết nối khác của người gửi.
+     */
+    private void deliver(ChatSession session, ChatMessageDTO message, Principal principal) {
+        messagingTemplate.convertAndSend("/topic/session/" + session.getId(), message);
+        if (principal != null) {
+            messagingTemplate.convertAndSendToUser(principal.getName(), "/queue/chat", message);
+        }
     }
 
     /**
@@ -167,11 +164,7 @@ public class WebSocketController {
             // Try to find session by customerId
             String customerId = getCurrentCustomerId();
             if (customerId != null) {
-                Optional<ChatSession> existingSession = chatSessionRepository
-                    .findAll()
-                    .stream()
-                    .filter(s -> customerId.equals(s.getCustomerId()))
-                    .findFirst();
+                Optional<ChatSession> existingSession = chatSessionRepository.findFirstByCustomerIdOrderByIdAsc(customerId);
                 if (existingSession.isPresent()) {
                     session = existingSession.get();
                 } else {
@@ -0,0 +1,152 @@
+package com.lumiere.app.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.lumiere.app.config.ApplicationProperties;
+import com.lumiere.app.domain.Attachment;
+import com.lumiere.app.repository.AttachmentRepository;
+import com.lumiere.app.service.ImageDerivativeService.Derivative;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Optional;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test {@link ImageDerivativeService} chỉ với ImageIO của JDK: ảnh tổng hợp được ghi ra thư mục tạm,
+ * repository được giả lập.
+ */
+class ImageDerivativeServiceTest {
+
+    @TempDir
+    Path mediaRoot;
+
+    private AttachmentRepository attachmentRepository;
+
+    private ImageDerivativeService imageDerivativeService;
+
+    @BeforeEach
+    void setup() {
+        attachmentRepository = mock(AttachmentRepository.class);
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getMedia().setWebpEnabled(false);
+        imageDerivativeService = new ImageDerivativeService(attachmentRepository, Runnable::run, mediaRoot, applicationProperties);
+    }
+
+    @Test
+    void generatesScaledPngDerivativesOnce() throws IOException {
+        Attachment attachment = givenAttachment(1L, "wide.png", image(2000, 1000, BufferedImage.TYPE_INT_ARGB), "png");
+
+        imageDerivativeService.generate(1L);
+        imageDerivativeService.generate(1L);
+
+        assertThat(attachment.getDerivatives()).isEqualTo("thumb,card,detail");
+        assertSize(Derivative.THUMB, "wide.png", 160, 80);
+        assertSize(Derivative.CARD, "wide.png", 480, 240);
+        assertSize(Derivative.DETAIL, "wide.png", 1200, 600);
+        verify(attachmentRepository, times(1)).markDerivatives(anyLong(), anyString());
+    }
+
+    @Test
+    void doesNotUpscaleSmallJpeg() throws IOException {
+        givenAttachment(2L, "small.jpg", image(300, 200, BufferedImage.TYPE_INT_RGB), "jpeg");
+
+        imageDerivativeService.generate(2L);
+
+        assertSize(Derivative.THUMB, "small.jpg", 160, 107);
+        assertSize(Derivative.CARD, "small.jpg", 300, 200);
+        assertSize(Derivative.DETAIL, "small.jpg", 300, 200);
+    }
+
+    @Test
+    void keepsExistingDerivativeFilesWhenRegenerated() throws IOException {
+        Attachment attachment = givenAttachment(3L, "photo.png", image(800, 600, BufferedImage.TYPE_INT_RGB), "png");
+        imageDerivativeService.generate(3L);
+
+        Path thumb = derivativePath(Derivative.THUMB, "photo.png");
+        FileTime written = FileTime.fromMillis(1_000_000L);
+        Files.setLastModifiedTime(thumb, written);
+
+        // Lần chạy trước bị ngắt trước khi ghi nhận: các file đã có không bị ghi lại
+        attachment.setDerivatives(null);
+        imageDerivativeService.generate(3L);
+
+        assertThat(Files.getLastModifiedTime(thumb)).isEqualTo(written);
+        assertThat(attachment.getDerivatives()).isEqualTo("thumb,card,detail");
+        try (var files = Files.list(thumb.getParent())) {
+            assertThat(files).noneMatch(file -> file.getFileName().toString().endsWith(".part"));
+        }
+    }
+
+    @Test
+    void marksUndecodableImageAsProcessed() throws IOException {
+        Files.createDirectories(mediaRoot.resolve("attachments"));
+        Files.writeString(mediaRoot.resolve("attachments/broken.png"), "not an image");
+        Attachment attachment = new Attachment().id(4L).name("broken.png");
+        stubRepository(attachment);
+
+        imageDerivativeService.generate(4L);
+
+        assertThat(attachment.getDerivatives()).isEmpty();
+        assertThat(derivativePath(Derivative.THUMB, "broken.png")).doesNotExist();
+    }
+
+    private Attachment givenAttachment(Long id, String name, BufferedImage image, String format) throws IOException {
+        Path source = mediaRoot.resolve("attachments").resolve(name);
+        Files.createDirectories(source.getParent());
+        assertThat(ImageIO.write(image, format, source.toFile())).isTrue();
+        Attachment attachment = new Attachment().id(id).name(name);
+        stubRepository(attachment);
+        return attachment;
+    }
+
+    private void stubRepository(Attachment attachment) {
+        when(attachmentRepository.findById(attachment.getId())).thenAnswer(invocation -> Optional.of(attachment));
+        when(attachmentRepository.markDerivatives(eq(attachment.getId()), anyString())).thenAnswer(invocation -> {
+            if (attachment.getDerivatives() != null) {
+                return 0;
+            }
+            attachment.setDerivatives(invocation.getArgument(1));
+            return 1;
+        });
+    }
+
+    private static BufferedImage image(int width, int height, int type) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setColor(Color.ORANGE);
+            g.fillRect(0, 0, width, height);
+            g.setColor(Color.BLUE);
+            g.fillOval(width / 4, height / 4, width / 2, height / 2);
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    private Path derivativePath(Derivative derivative, String name) {
+        return mediaRoot.resolve("attachments").resolve(ImageDerivativeService.derivativeName(derivative, name, false));
+    }
+
+    private void assertSize(Derivative derivative, String name, int width, int height) throws IOException {
+        BufferedImage image = ImageIO.read(derivativePath(derivative, name).toFile());
+        assertThat(image).as(derivative.getCode()).isNotNull();
+        assertThat(image.getWidth()).as(derivative.getCode() + " width").isEqualTo(width);
+        assertThat(image.getHeight()).as(derivative.getCode() + " height").isEqualTo(height);
+    }
+}
@@ -0,0 +1,119 @@
+package com.lumiere.app.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.lumiere.app.domain.Voucher;
+import com.lumiere.app.domain.enumeration.VoucherStatus;
+import com.lumiere.app.domain.enumeration.VoucherType;
+import com.lumiere.app.repository.VoucherRepository;
+import com.lumiere.app.service.VoucherCacheService;
+import com.lumiere.app.service.VoucherService.RedemptionResult;
+import com.lumiere.app.service.kafka.NotificationProducerService;
+import com.lumiere.app.service.mapper.VoucherMapper;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Test dùng voucher đồng thời trên MySQL thật: câu {@code UPDATE} có điều kiện của
+ * {@link VoucherServiceImpl#redeemVoucher} không được vượt quá giới hạn lượt dùng.
+ */
+@DataJpaTest(
+    properties = {
+        "spring.liquibase.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "spring.datasource.hikari.maximum-pool-size=40",
+    }
+)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(VoucherServiceImpl.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+class VoucherRedemptionIT {
+
+    private static final int USAGE_LIMIT = 50;
+    private static final int ATTEMPTS = 2000;
+    private static final int THREADS = 64;
+
+    @Container
+    @ServiceConnection
+    static final MySQLContainer<?> mysql = new MySQLContainer<>("mysql:9.2.0");
+
+    @Autowired
+    private VoucherServiceImpl voucherService;
+
+    @Autowired
+    private VoucherRepository voucherRepository;
+
+    @MockitoBean
+    private VoucherMapper voucherMapper;
+
+    @MockitoBean
+    private NotificationProducerService notificationProducerService;
+
+    @MockitoBean
+    private VoucherCacheService voucherCacheService;
+
+    @Test
+    void concurrentRedemptionsNeverExceedUsageLimit() throws Exception {
+        Voucher voucher = voucherRepository.saveAndFlush(
+            new Voucher()
+                .code("CONCURRENT-" + System.nanoTime())
+                .type(VoucherType.FIXED_AMOUNT)
+                .value(BigDecimal.TEN)
+                .status(VoucherStatus.ACTIVE)
+                .usageLimit(USAGE_LIMIT)
+                .usageCount(0)
+        );
+        Long voucherId = voucher.getId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<RedemptionResult>> futures = new ArrayList<>(ATTEMPTS);
+        try {
+            for (int i = 0; i < ATTEMPTS; i++) {
+                futures.add(
+                    executor.submit(() -> {
+                        start.await();
+                        return voucherService.redeemVoucher(voucherId, null);
+                    })
+                );
+            }
+            start.countDown();
+
+            Map<RedemptionResult, Integer> results = new EnumMap<>(RedemptionResult.class);
+            for (Future<RedemptionResult> future : futures) {
+                results.merge(future.get(2, TimeUnit.MINUTES), 1, Integer::sum);
+            }
+
+            assertThat(results.get(RedemptionResult.REDEEMED)).isEqualTo(USAGE_LIMIT);
+            assertThat(results.get(RedemptionResult.EXHAUSTED)).isEqualTo(ATTEMPTS - USAGE_LIMIT);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Voucher reloaded = voucherRepository.findById(voucherId).orElseThrow();
+        assertThat(reloaded.getUsageCount()).isEqualTo(USAGE_LIMIT);
+        assertThat(reloaded.getStatus()).isEqualTo(VoucherStatus.INACTIVE);
+    }
+}
@@ -0,0 +1,200 @@
+package com.lumiere.app.web.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.lumiere.app.config.KafkaConfiguration;
+import com.lumiere.app.service.dto.DeadLetterRecordDTO;
+import com.lumiere.app.service.kafka.InvalidMessageException;
+import com.lumiere.app.service.kafka.KafkaDeadLetterService;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.annotation.EnableKafka;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+/**
+ * Test dead-letter topic với Kafka nhúng: message lỗi được chuyển sang {@code <topic>-dlt} sau khi hết retry,
+ * và {@link KafkaDeadLetterResource} gửi lại được vào topic ban đầu.
+ */
+@SpringJUnitConfig
+@EmbeddedKafka(
+    partitions = 1,
+    topics = {
+        KafkaDeadLetterResourceTest.STRING_TOPIC,
+        KafkaDeadLetterResourceTest.STRING_TOPIC + KafkaConfiguration.DLT_SUFFIX,
+        KafkaDeadLetterResourceTest.JSON_TOPIC,
+        KafkaDeadLetterResourceTest.JSON_TOPIC + KafkaConfiguration.DLT_SUFFIX,
+        KafkaDeadLetterResourceTest.BATCH_TOPIC,
+        KafkaDeadLetterResourceTest.BATCH_TOPIC + KafkaConfiguration.DLT_SUFFIX,
+    }
+)
+@TestPropertySource(
+    properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}", "spring.kafka.consumer.group-id=kafka-dead-letter-test",
+    }
+)
+class KafkaDeadLetterResourceTest {
+
+    static final String STRING_TOPIC = "dlt-test-string";
+    static final String JSON_TOPIC = "dlt-test-json";
+    static final String BATCH_TOPIC = "dlt-test-batch";
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+
+    @Autowired
+    private KafkaTemplate<String, String> stringKafkaTemplate;
+
+    @Autowired
+    private KafkaDeadLetterService kafkaDeadLetterService;
+
+    @Autowired
+    private TestListeners listeners;
+
+    private MockMvc restMockMvc;
+
+    @BeforeEach
+    void setup() {
+        restMockMvc = MockMvcBuilders.standaloneSetup(new KafkaDeadLetterResource(kafkaDeadLetterService)).build();
+    }
+
+    @Test
+    void poisonMessageIsDeadLetteredAfterRetriesAndReplayed() throws Exception {
+        listeners.failing.set(true);
+        stringKafkaTemplate.send(STRING_TOPIC, "order-1", "poison").get();
+
+        String dlt = STRING_TOPIC + KafkaConfiguration.DLT_SUFFIX;
+        DeadLetterRecordDTO deadLetter = awaitSingleRecord(dlt);
+        assertThat(deadLetter.key()).isEqualTo("order-1");
+        assertThat(deadLetter.value()).isEqualTo("poison");
+        assertThat(deadLetter.exceptionMessage()).contains("poison rejected");
+        assertThat(deadLetter.headers()).containsKey(KafkaHeaders.DLT_ORIGINAL_OFFSET);
+        // Lần đầu + 4 lần retry
+        assertThat(listeners.attempts).hasSize(5);
+
+        restMockMvc
+            .perform(get("/api/admin/kafka/dlt/{topic}", dlt))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].value").value("poison"));
+
+        listeners.failing.set(false);
+        restMockMvc
+            .perform(
+                post("/api/admin/kafka/dlt/{topic}/replay", dlt)
+                    .param("partition", String.valueOf(deadLetter.partition()))
+                    .param("offset", String.valueOf(deadLetter.offset()))
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.topic").value(STRING_TOPIC));
+
+        await().atMost(TIMEOUT).untilAsserted(() -> assertThat(listeners.processed).extracting(ConsumerRecord::value).containsExactly("poison"));
+        ConsumerRecord<String, String> replayed = listeners.processed.get(0);
+        assertThat(replayed.key()).isEqualTo("order-1");
+        assertThat(replayed.headers().lastHeader(KafkaHeaders.DLT_EXCEPTION_MESSAGE)).isNull();
+    }
+
+    @Test
+    void undeserializableMessageWithStringKeyIsDeadLettered() throws Exception {
+        // Value không phải JSON: được gửi nguyên bản (byte[]) sang DLT cùng với key dạng chuỗi
+        stringKafkaTemplate.send(JSON_TOPIC, "order-2", "{not json").get();
+
+        DeadLetterRecordDTO deadLetter = awaitSingleRecord(JSON_TOPIC + KafkaConfiguration.DLT_SUFFIX);
+        assertThat(deadLetter.key()).isEqualTo("order-2");
+        assertThat(deadLetter.value()).isEqualTo("{not json");
+        assertThat(listeners.jsonAttempts).isZero();
+    }
+
+    @Test
+    void invalidMessageInBatchIsDeadLetteredWithoutRetry() throws Exception {
+        stringKafkaTemplate.send(BATCH_TOPIC, "order-3", "ok-1").get();
+        stringKafkaTemplate.send(BATCH_TOPIC, "order-4", "invalid").get();
+        stringKafkaTemplate.send(BATCH_TOPIC, "order-5", "ok-2").get();
+
+        DeadLetterRecordDTO deadLetter = awaitSingleRecord(BATCH_TOPIC + KafkaConfiguration.DLT_SUFFIX);
+        assertThat(deadLetter.key()).isEqualTo("order-4");
+        assertThat(deadLetter.value()).isEqualTo("invalid");
+        await()
+            .atMost(TIMEOUT)
+            .untilAsserted(() -> assertThat(listeners.batchProcessed).containsExactly("ok-1", "ok-2"));
+        // Không thử lại message không hợp lệ
+        assertThat(listeners.batchInvalidAttempts).isEqualTo(1);
+    }
+
+    private DeadLetterRecordDTO awaitSingleRecord(String topic) {
+        return await()
+            .atMost(TIMEOUT)
+            .pollInterval(Duration.ofMillis(500))
+            .until(() -> kafkaDeadLetterService.findRecords(topic, 10), records -> records.size() == 1)
+            .get(0);
+    }
+
+    static class TestListeners {
+
+        final AtomicBoolean failing = new AtomicBoolean(true);
+        final List<ConsumerRecord<String, String>> attempts = new CopyOnWriteArrayList<>();
+        final List<ConsumerRecord<String, String>> processed = new CopyOnWriteArrayList<>();
+        volatile int jsonAttempts;
+        final List<String> batchProcessed = new CopyOnWriteArrayList<>();
+        volatile int batchInvalidAttempts;
+
+        @KafkaListener(topics = STRING_TOPIC, containerFactory = "stringKafkaListenerContainerFactory")
+        void onString(ConsumerRecord<String, String> record, Acknowledgment ack) {
+            if (failing.get()) {
+                attempts.add(record);
+                throw new IllegalStateException("poison rejected");
+            }
+            processed.add(record);
+            ack.acknowledge();
+        }
+
+        @KafkaListener(topics = JSON_TOPIC, containerFactory = "kafkaListenerContainerFactory")
+        void onJson(ConsumerRecord<String, Object> record, Acknowledgment ack) {
+            jsonAttempts++;
+            ack.acknowledge();
+        }
+
+        @KafkaListener(topics = BATCH_TOPIC, containerFactory = "stringBatchKafkaListenerContainerFactory")
+        void onBatch(List<String> values, Acknowledgment ack) {
+            for (int i = 0; i < values.size(); i++) {
+                if ("invalid".equals(values.get(i))) {
+                    batchInvalidAttempts++;
+                    throw new BatchListenerFailedException("invalid", new InvalidMessageException("invalid"), i);
+                }
+                batchProcessed.add(values.get(i));
+            }
+            ack.acknowledge();
+        }
+    }
+
+    @Configuration
+    @EnableKafka
+    @Import({ KafkaConfiguration.class, KafkaDeadLetterService.class })
+    static class Config {
+
+        @Bean
+        TestListeners testListeners() {
+            return new TestListeners();
+        }
+    }
+}